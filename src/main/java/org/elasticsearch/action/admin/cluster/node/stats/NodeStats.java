@@ -19,13 +19,17 @@
 
 package org.elasticsearch.action.admin.cluster.node.stats;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.action.support.nodes.NodeOperationResponse;
 import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.cluster.routing.operation.AdaptiveSelectionStats;
 import org.elasticsearch.common.Nullable;
+import org.elasticsearch.cluster.service.ClusterServiceStats;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.discovery.DiscoveryStats;
 import org.elasticsearch.http.HttpStats;
 import org.elasticsearch.indices.NodeIndicesStats;
 import org.elasticsearch.indices.fielddata.breaker.FieldDataBreakerStats;
@@ -77,13 +81,23 @@ public class NodeStats extends NodeOperationResponse implements ToXContent {
     @Nullable
     private FieldDataBreakerStats breaker;
 
+    @Nullable
+    private AdaptiveSelectionStats adaptiveSelection;
+
+    @Nullable
+    private DiscoveryStats discovery;
+
+    @Nullable
+    private ClusterServiceStats clusterService;
+
     NodeStats() {
     }
 
     public NodeStats(DiscoveryNode node, long timestamp, @Nullable NodeIndicesStats indices,
                      @Nullable OsStats os, @Nullable ProcessStats process, @Nullable JvmStats jvm, @Nullable ThreadPoolStats threadPool,
                      @Nullable NetworkStats network, @Nullable FsStats fs, @Nullable TransportStats transport, @Nullable HttpStats http,
-                     @Nullable FieldDataBreakerStats breaker) {
+                     @Nullable FieldDataBreakerStats breaker, @Nullable AdaptiveSelectionStats adaptiveSelection,
+                     @Nullable DiscoveryStats discovery, @Nullable ClusterServiceStats clusterService) {
         super(node);
         this.timestamp = timestamp;
         this.indices = indices;
@@ -96,6 +110,9 @@ public class NodeStats extends NodeOperationResponse implements ToXContent {
         this.transport = transport;
         this.http = http;
         this.breaker = breaker;
+        this.adaptiveSelection = adaptiveSelection;
+        this.discovery = discovery;
+        this.clusterService = clusterService;
     }
 
     public long getTimestamp() {
@@ -178,6 +195,30 @@ public class NodeStats extends NodeOperationResponse implements ToXContent {
         return this.breaker;
     }
 
+    /**
+     * Adaptive replica selection statistics of the nodes this node sent search requests to.
+     */
+    @Nullable
+    public AdaptiveSelectionStats getAdaptiveSelection() {
+        return this.adaptiveSelection;
+    }
+
+    /**
+     * Discovery statistics, like the cluster states published and received by the node.
+     */
+    @Nullable
+    public DiscoveryStats getDiscovery() {
+        return this.discovery;
+    }
+
+    /**
+     * Cluster service statistics, like the pending and batched cluster state update tasks.
+     */
+    @Nullable
+    public ClusterServiceStats getClusterService() {
+        return this.clusterService;
+    }
+
     public static NodeStats readNodeStats(StreamInput in) throws IOException {
         NodeStats nodeInfo = new NodeStats();
         nodeInfo.readFrom(in);
@@ -216,6 +257,11 @@ public class NodeStats extends NodeOperationResponse implements ToXContent {
             http = HttpStats.readHttpStats(in);
         }
         breaker = FieldDataBreakerStats.readOptionalCircuitBreakerStats(in);
+        if (in.getVersion().onOrAfter(Version.V_2_0_0)) {
+            adaptiveSelection = AdaptiveSelectionStats.readOptionalAdaptiveSelectionStats(in);
+            discovery = DiscoveryStats.readOptionalDiscoveryStats(in);
+            clusterService = ClusterServiceStats.readOptionalClusterServiceStats(in);
+        }
     }
 
     @Override
@@ -277,6 +323,11 @@ public class NodeStats extends NodeOperationResponse implements ToXContent {
             http.writeTo(out);
         }
         out.writeOptionalStreamable(breaker);
+        if (out.getVersion().onOrAfter(Version.V_2_0_0)) {
+            out.writeOptionalStreamable(adaptiveSelection);
+            out.writeOptionalStreamable(discovery);
+            out.writeOptionalStreamable(clusterService);
+        }
     }
 
     @Override
@@ -327,6 +378,15 @@ public class NodeStats extends NodeOperationResponse implements ToXContent {
         if (getBreaker() != null) {
             getBreaker().toXContent(builder, params);
         }
+        if (getAdaptiveSelection() != null) {
+            getAdaptiveSelection().toXContent(builder, params);
+        }
+        if (getDiscovery() != null) {
+            getDiscovery().toXContent(builder, params);
+        }
+        if (getClusterService() != null) {
+            getClusterService().toXContent(builder, params);
+        }
 
         return builder;
     }
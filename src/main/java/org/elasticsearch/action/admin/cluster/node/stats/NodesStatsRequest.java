@@ -19,6 +19,7 @@
 
 package org.elasticsearch.action.admin.cluster.node.stats;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.action.admin.indices.stats.CommonStatsFlags;
 import org.elasticsearch.action.support.nodes.NodesOperationRequest;
 import org.elasticsearch.common.io.stream.StreamInput;
@@ -41,6 +42,9 @@ public class NodesStatsRequest extends NodesOperationRequest<NodesStatsRequest>
     private boolean transport;
     private boolean http;
     private boolean breaker;
+    private boolean adaptiveSelection;
+    private boolean discovery;
+    private boolean clusterService;
 
     protected NodesStatsRequest() {
     }
@@ -67,6 +71,9 @@ public class NodesStatsRequest extends NodesOperationRequest<NodesStatsRequest>
         this.transport = true;
         this.http = true;
         this.breaker = true;
+        this.adaptiveSelection = true;
+        this.discovery = true;
+        this.clusterService = true;
         return this;
     }
 
@@ -84,6 +91,9 @@ public class NodesStatsRequest extends NodesOperationRequest<NodesStatsRequest>
         this.transport = false;
         this.http = false;
         this.breaker = false;
+        this.adaptiveSelection = false;
+        this.discovery = false;
+        this.clusterService = false;
         return this;
     }
 
@@ -240,6 +250,42 @@ public class NodesStatsRequest extends NodesOperationRequest<NodesStatsRequest>
         return this;
     }
 
+    public boolean adaptiveSelection() {
+        return this.adaptiveSelection;
+    }
+
+    /**
+     * Should the node's adaptive replica selection stats be returned.
+     */
+    public NodesStatsRequest adaptiveSelection(boolean adaptiveSelection) {
+        this.adaptiveSelection = adaptiveSelection;
+        return this;
+    }
+
+    public boolean discovery() {
+        return this.discovery;
+    }
+
+    /**
+     * Should the node's discovery stats be returned.
+     */
+    public NodesStatsRequest discovery(boolean discovery) {
+        this.discovery = discovery;
+        return this;
+    }
+
+    public boolean clusterService() {
+        return this.clusterService;
+    }
+
+    /**
+     * Should the node's cluster service stats be returned.
+     */
+    public NodesStatsRequest clusterService(boolean clusterService) {
+        this.clusterService = clusterService;
+        return this;
+    }
+
     @Override
     public void readFrom(StreamInput in) throws IOException {
         super.readFrom(in);
@@ -253,6 +299,11 @@ public class NodesStatsRequest extends NodesOperationRequest<NodesStatsRequest>
         transport = in.readBoolean();
         http = in.readBoolean();
         breaker = in.readBoolean();
+        if (in.getVersion().onOrAfter(Version.V_2_0_0)) {
+            adaptiveSelection = in.readBoolean();
+            discovery = in.readBoolean();
+            clusterService = in.readBoolean();
+        }
     }
 
     @Override
@@ -268,6 +319,11 @@ public class NodesStatsRequest extends NodesOperationRequest<NodesStatsRequest>
         out.writeBoolean(transport);
         out.writeBoolean(http);
         out.writeBoolean(breaker);
+        if (out.getVersion().onOrAfter(Version.V_2_0_0)) {
+            out.writeBoolean(adaptiveSelection);
+            out.writeBoolean(discovery);
+            out.writeBoolean(clusterService);
+        }
     }
 
 }
@@ -50,6 +50,22 @@ public class NodesStatsRequestBuilder extends NodesOperationRequestBuilder<Nodes
         return this;
     }
 
+    /**
+     * Should the node discovery stats be returned.
+     */
+    public NodesStatsRequestBuilder setDiscovery(boolean discovery) {
+        request.discovery(discovery);
+        return this;
+    }
+
+    /**
+     * Should the node cluster service stats be returned.
+     */
+    public NodesStatsRequestBuilder setClusterService(boolean clusterService) {
+        request.clusterService(clusterService);
+        return this;
+    }
+
     /**
      * Should the node indices stats be returned.
      */
@@ -63,6 +79,14 @@ public class NodesStatsRequestBuilder extends NodesOperationRequestBuilder<Nodes
         return this;
     }
 
+    /**
+     * Should the node adaptive replica selection stats be returned.
+     */
+    public NodesStatsRequestBuilder setAdaptiveSelection(boolean adaptiveSelection) {
+        request.adaptiveSelection(adaptiveSelection);
+        return this;
+    }
+
     /**
      * Should the node indices stats be returned.
      */
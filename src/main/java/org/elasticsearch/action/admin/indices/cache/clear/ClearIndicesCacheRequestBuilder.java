@@ -58,6 +58,11 @@ public class ClearIndicesCacheRequestBuilder extends BroadcastOperationRequestBu
         return this;
     }
 
+    public ClearIndicesCacheRequestBuilder setQueryCache(boolean queryCache) {
+        request.queryCache(queryCache);
+        return this;
+    }
+
     @Override
     protected void doExecute(ActionListener<ClearIndicesCacheResponse> listener) {
         ((IndicesAdminClient) client).clearCache(request, listener);
@@ -35,6 +35,7 @@ import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.index.service.IndexService;
 import org.elasticsearch.indices.IndicesService;
+import org.elasticsearch.indices.cache.query.IndicesQueryCache;
 import org.elasticsearch.indices.cache.filter.terms.IndicesTermsFilterCache;
 import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.TransportService;
@@ -52,15 +53,17 @@ public class TransportClearIndicesCacheAction extends TransportBroadcastOperatio
     private final IndicesService indicesService;
     private final IndicesTermsFilterCache termsFilterCache;
     private final CacheRecycler cacheRecycler;
+    private final IndicesQueryCache indicesQueryCache;
 
     @Inject
     public TransportClearIndicesCacheAction(Settings settings, ThreadPool threadPool, ClusterService clusterService,
                                             TransportService transportService, IndicesService indicesService, IndicesTermsFilterCache termsFilterCache,
-                                            CacheRecycler cacheRecycler) {
+                                            CacheRecycler cacheRecycler, IndicesQueryCache indicesQueryCache) {
         super(settings, threadPool, clusterService, transportService);
         this.indicesService = indicesService;
         this.termsFilterCache = termsFilterCache;
         this.cacheRecycler = cacheRecycler;
+        this.indicesQueryCache = indicesQueryCache;
     }
 
     @Override
@@ -151,6 +154,10 @@ public class TransportClearIndicesCacheAction extends TransportBroadcastOperatio
                 clearedAtLeastOne = true;
                 service.cache().idCache().clear();
             }
+            if (request.queryCache()) {
+                clearedAtLeastOne = true;
+                indicesQueryCache.clear(service.shard(request.shardId()));
+            }
             if (!clearedAtLeastOne) {
                 if (request.fields() != null && request.fields().length > 0) {
                     // only clear caches relating to the specified fields
@@ -161,6 +168,7 @@ public class TransportClearIndicesCacheAction extends TransportBroadcastOperatio
                     service.cache().clear("api");
                     service.fieldData().clear();
                     termsFilterCache.clear("api");
+                    indicesQueryCache.clear(service.shard(request.shardId()));
                 }
             }
         }
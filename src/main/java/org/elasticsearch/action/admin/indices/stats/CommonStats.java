@@ -19,6 +19,7 @@
 
 package org.elasticsearch.action.admin.indices.stats;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
@@ -27,6 +28,7 @@ import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.index.cache.filter.FilterCacheStats;
 import org.elasticsearch.index.cache.id.IdCacheStats;
+import org.elasticsearch.index.cache.query.QueryCacheStats;
 import org.elasticsearch.index.engine.SegmentsStats;
 import org.elasticsearch.index.fielddata.FieldDataStats;
 import org.elasticsearch.index.flush.FlushStats;
@@ -106,6 +108,9 @@ public class CommonStats implements Streamable, ToXContent {
                 case Translog:
                     translog = new TranslogStats();
                     break;
+                case QueryCache:
+                    queryCache = new QueryCacheStats();
+                    break;
                 default:
                     throw new IllegalStateException("Unknown Flag: " + flag);
             }
@@ -166,6 +171,9 @@ public class CommonStats implements Streamable, ToXContent {
                 case Translog:
                     translog = indexShard.translogStats();
                     break;
+                case QueryCache:
+                    queryCache = indexShard.queryCacheStats();
+                    break;
                 default:
                     throw new IllegalStateException("Unknown Flag: " + flag);
             }
@@ -220,6 +228,9 @@ public class CommonStats implements Streamable, ToXContent {
     @Nullable
     public TranslogStats translog;
 
+    @Nullable
+    public QueryCacheStats queryCache;
+
     public void add(CommonStats stats) {
         if (docs == null) {
             if (stats.getDocs() != null) {
@@ -351,6 +362,14 @@ public class CommonStats implements Streamable, ToXContent {
         } else {
             translog.add(stats.getTranslog());
         }
+        if (queryCache == null) {
+            if (stats.getQueryCache() != null) {
+                queryCache = new QueryCacheStats();
+                queryCache.add(stats.getQueryCache());
+            }
+        } else {
+            queryCache.add(stats.getQueryCache());
+        }
     }
 
     @Nullable
@@ -431,6 +450,11 @@ public class CommonStats implements Streamable, ToXContent {
     @Nullable
     public TranslogStats getTranslog() { return translog; }
 
+    @Nullable
+    public QueryCacheStats getQueryCache() {
+        return queryCache;
+    }
+
     public static CommonStats readCommonStats(StreamInput in) throws IOException {
         CommonStats stats = new CommonStats();
         stats.readFrom(in);
@@ -485,6 +509,9 @@ public class CommonStats implements Streamable, ToXContent {
             segments = SegmentsStats.readSegmentsStats(in);
         }
         translog = in.readOptionalStreamable(new TranslogStats());
+        if (in.getVersion().onOrAfter(Version.V_2_0_0)) {
+            queryCache = in.readOptionalStreamable(new QueryCacheStats());
+        }
     }
 
     @Override
@@ -580,6 +607,9 @@ public class CommonStats implements Streamable, ToXContent {
             segments.writeTo(out);
         }
         out.writeOptionalStreamable(translog);
+        if (out.getVersion().onOrAfter(Version.V_2_0_0)) {
+            out.writeOptionalStreamable(queryCache);
+        }
     }
 
     // note, requires a wrapping object
@@ -633,6 +663,9 @@ public class CommonStats implements Streamable, ToXContent {
         if (translog != null) {
             translog.toXContent(builder, params);
         }
+        if (queryCache != null) {
+            queryCache.toXContent(builder, params);
+        }
         return builder;
     }
 }
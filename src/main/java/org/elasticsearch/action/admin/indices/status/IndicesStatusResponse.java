@@ -213,6 +213,7 @@ public class IndicesStatusResponse extends BroadcastOperationResponse implements
                         builder.field(Fields.STAGE, peerRecoveryStatus.getStage());
                         builder.field(Fields.START_TIME_IN_MILLIS, peerRecoveryStatus.getStartTime());
                         builder.timeValueField(Fields.TIME_IN_MILLIS, Fields.TIME, peerRecoveryStatus.getTime());
+                        builder.field(Fields.RESUME_ATTEMPTS, peerRecoveryStatus.getResumeAttempts());
 
                         builder.startObject(Fields.INDEX);
                         builder.field(Fields.PROGRESS, peerRecoveryStatus.getIndexRecoveryProgress());
@@ -220,6 +221,7 @@ public class IndicesStatusResponse extends BroadcastOperationResponse implements
                         builder.byteSizeField(Fields.REUSED_SIZE_IN_BYTES, Fields.REUSED_SIZE, peerRecoveryStatus.getReusedIndexSize());
                         builder.byteSizeField(Fields.EXPECTED_RECOVERED_SIZE_IN_BYTES, Fields.EXPECTED_RECOVERED_SIZE, peerRecoveryStatus.getExpectedRecoveredIndexSize());
                         builder.byteSizeField(Fields.RECOVERED_SIZE_IN_BYTES, Fields.RECOVERED_SIZE, peerRecoveryStatus.getRecoveredIndexSize());
+                        builder.byteSizeField(Fields.THROUGHPUT_IN_BYTES_PER_SEC, Fields.THROUGHPUT_PER_SEC, peerRecoveryStatus.getIndexThroughput());
                         builder.endObject();
 
                         builder.startObject(Fields.TRANSLOG);
@@ -315,6 +317,9 @@ public class IndicesStatusResponse extends BroadcastOperationResponse implements
         static final XContentBuilderString RECOVERED_SIZE = new XContentBuilderString("recovered_size");
         static final XContentBuilderString RECOVERED_SIZE_IN_BYTES = new XContentBuilderString("recovered_size_in_bytes");
         static final XContentBuilderString RECOVERED = new XContentBuilderString("recovered");
+        static final XContentBuilderString THROUGHPUT_PER_SEC = new XContentBuilderString("throughput_per_sec");
+        static final XContentBuilderString THROUGHPUT_IN_BYTES_PER_SEC = new XContentBuilderString("throughput_in_bytes_per_sec");
+        static final XContentBuilderString RESUME_ATTEMPTS = new XContentBuilderString("resume_attempts");
         static final XContentBuilderString GATEWAY_RECOVERY = new XContentBuilderString("gateway_recovery");
         static final XContentBuilderString GATEWAY_SNAPSHOT = new XContentBuilderString("gateway_snapshot");
         static final XContentBuilderString EXPECTED_OPERATIONS = new XContentBuilderString("expected_operations");
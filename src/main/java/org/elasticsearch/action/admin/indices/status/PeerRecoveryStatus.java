@@ -75,8 +75,17 @@ public class PeerRecoveryStatus {
 
     final long recoveredTranslogOperations;
 
+    final long indexThroughput;
+
+    final int resumeAttempts;
+
     public PeerRecoveryStatus(Stage stage, long startTime, long time, long indexSize, long reusedIndexSize,
                               long recoveredIndexSize, long recoveredTranslogOperations) {
+        this(stage, startTime, time, indexSize, reusedIndexSize, recoveredIndexSize, recoveredTranslogOperations, 0, 0);
+    }
+
+    public PeerRecoveryStatus(Stage stage, long startTime, long time, long indexSize, long reusedIndexSize,
+                              long recoveredIndexSize, long recoveredTranslogOperations, long indexThroughput, int resumeAttempts) {
         this.stage = stage;
         this.startTime = startTime;
         this.time = time;
@@ -84,6 +93,8 @@ public class PeerRecoveryStatus {
         this.reusedIndexSize = reusedIndexSize;
         this.recoveredIndexSize = recoveredIndexSize;
         this.recoveredTranslogOperations = recoveredTranslogOperations;
+        this.indexThroughput = indexThroughput;
+        this.resumeAttempts = resumeAttempts;
     }
 
     public Stage getStage() {
@@ -130,4 +141,18 @@ public class PeerRecoveryStatus {
     public long getRecoveredTranslogOperations() {
         return recoveredTranslogOperations;
     }
+
+    /**
+     * The rate at which the index files have been copied, per second.
+     */
+    public ByteSizeValue getIndexThroughput() {
+        return new ByteSizeValue(indexThroughput);
+    }
+
+    /**
+     * The number of times copying the index files was resumed after a failure.
+     */
+    public int getResumeAttempts() {
+        return resumeAttempts;
+    }
 }
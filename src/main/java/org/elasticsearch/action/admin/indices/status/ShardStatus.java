@@ -19,6 +19,7 @@
 
 package org.elasticsearch.action.admin.indices.status;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.action.support.broadcast.BroadcastShardOperationResponse;
 import org.elasticsearch.cluster.routing.ShardRouting;
 import org.elasticsearch.common.io.stream.StreamInput;
@@ -192,6 +193,10 @@ public class ShardStatus extends BroadcastShardOperationResponse {
             out.writeVLong(peerRecoveryStatus.reusedIndexSize);
             out.writeVLong(peerRecoveryStatus.recoveredIndexSize);
             out.writeVLong(peerRecoveryStatus.recoveredTranslogOperations);
+            if (out.getVersion().onOrAfter(Version.V_2_0_0)) {
+                out.writeVLong(peerRecoveryStatus.indexThroughput);
+                out.writeVInt(peerRecoveryStatus.resumeAttempts);
+            }
         }
 
         if (gatewayRecoveryStatus == null) {
@@ -255,8 +260,21 @@ public class ShardStatus extends BroadcastShardOperationResponse {
             docs.deletedDocs = in.readLong();
         }
         if (in.readBoolean()) {
-            peerRecoveryStatus = new PeerRecoveryStatus(PeerRecoveryStatus.Stage.fromValue(in.readByte()),
-                    in.readVLong(), in.readVLong(), in.readVLong(), in.readVLong(), in.readVLong(), in.readVLong());
+            PeerRecoveryStatus.Stage stage = PeerRecoveryStatus.Stage.fromValue(in.readByte());
+            long startTime = in.readVLong();
+            long time = in.readVLong();
+            long indexSize = in.readVLong();
+            long reusedIndexSize = in.readVLong();
+            long recoveredIndexSize = in.readVLong();
+            long recoveredTranslogOperations = in.readVLong();
+            long indexThroughput = 0;
+            int resumeAttempts = 0;
+            if (in.getVersion().onOrAfter(Version.V_2_0_0)) {
+                indexThroughput = in.readVLong();
+                resumeAttempts = in.readVInt();
+            }
+            peerRecoveryStatus = new PeerRecoveryStatus(stage, startTime, time, indexSize, reusedIndexSize, recoveredIndexSize,
+                    recoveredTranslogOperations, indexThroughput, resumeAttempts);
         }
 
         if (in.readBoolean()) {
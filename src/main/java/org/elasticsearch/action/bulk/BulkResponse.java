@@ -20,6 +20,7 @@
 package org.elasticsearch.action.bulk;
 
 import com.google.common.collect.Iterators;
+import org.elasticsearch.Version;
 import org.elasticsearch.action.ActionResponse;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
@@ -37,6 +38,9 @@ public class BulkResponse extends ActionResponse implements Iterable<BulkItemRes
 
     private BulkItemResponse[] responses;
     private long tookInMillis;
+    private long parseTimeInNanos;
+    private long indexTimeInNanos;
+    private long replicateTimeInNanos;
 
     BulkResponse() {
     }
@@ -46,6 +50,13 @@ public class BulkResponse extends ActionResponse implements Iterable<BulkItemRes
         this.tookInMillis = tookInMillis;
     }
 
+    public BulkResponse(BulkItemResponse[] responses, long tookInMillis, long parseTimeInNanos, long indexTimeInNanos, long replicateTimeInNanos) {
+        this(responses, tookInMillis);
+        this.parseTimeInNanos = parseTimeInNanos;
+        this.indexTimeInNanos = indexTimeInNanos;
+        this.replicateTimeInNanos = replicateTimeInNanos;
+    }
+
     /**
      * How long the bulk execution took.
      */
@@ -60,6 +71,27 @@ public class BulkResponse extends ActionResponse implements Iterable<BulkItemRes
         return tookInMillis;
     }
 
+    /**
+     * The time spent parsing documents on the primary shards, summed over all shards.
+     */
+    public TimeValue getParseTime() {
+        return TimeValue.timeValueNanos(parseTimeInNanos);
+    }
+
+    /**
+     * The time spent executing the items on the primary shards, including the translog writes, summed over all shards.
+     */
+    public TimeValue getIndexTime() {
+        return TimeValue.timeValueNanos(indexTimeInNanos);
+    }
+
+    /**
+     * The time spent waiting for the replicas after the primary operations, summed over all shards.
+     */
+    public TimeValue getReplicateTime() {
+        return TimeValue.timeValueNanos(replicateTimeInNanos);
+    }
+
     /**
      * Has anything failed with the execution.
      */
@@ -106,6 +138,11 @@ public class BulkResponse extends ActionResponse implements Iterable<BulkItemRes
             responses[i] = BulkItemResponse.readBulkItem(in);
         }
         tookInMillis = in.readVLong();
+        if (in.getVersion().onOrAfter(Version.V_2_0_0)) {
+            parseTimeInNanos = in.readVLong();
+            indexTimeInNanos = in.readVLong();
+            replicateTimeInNanos = in.readVLong();
+        }
     }
 
     @Override
@@ -116,5 +153,10 @@ public class BulkResponse extends ActionResponse implements Iterable<BulkItemRes
             response.writeTo(out);
         }
         out.writeVLong(tookInMillis);
+        if (out.getVersion().onOrAfter(Version.V_2_0_0)) {
+            out.writeVLong(parseTimeInNanos);
+            out.writeVLong(indexTimeInNanos);
+            out.writeVLong(replicateTimeInNanos);
+        }
     }
 }
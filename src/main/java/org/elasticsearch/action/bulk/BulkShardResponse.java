@@ -19,9 +19,11 @@
 
 package org.elasticsearch.action.bulk;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.action.ActionResponse;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.index.shard.ShardId;
 
 import java.io.IOException;
@@ -33,6 +35,12 @@ public class BulkShardResponse extends ActionResponse {
 
     private ShardId shardId;
     private BulkItemResponse[] responses;
+    private long parseTimeInNanos;
+    private long indexTimeInNanos;
+    private long replicateTimeInNanos;
+
+    // set on the primary once the primary operation is done, not serialized
+    long primaryDoneNanos;
 
     BulkShardResponse() {
     }
@@ -42,6 +50,12 @@ public class BulkShardResponse extends ActionResponse {
         this.responses = responses;
     }
 
+    BulkShardResponse(ShardId shardId, BulkItemResponse[] responses, long parseTimeInNanos, long indexTimeInNanos) {
+        this(shardId, responses);
+        this.parseTimeInNanos = parseTimeInNanos;
+        this.indexTimeInNanos = indexTimeInNanos;
+    }
+
     public ShardId getShardId() {
         return shardId;
     }
@@ -50,6 +64,43 @@ public class BulkShardResponse extends ActionResponse {
         return responses;
     }
 
+    /**
+     * The time spent parsing the documents of the index items ahead of executing them on the primary.
+     */
+    public TimeValue getParseTime() {
+        return TimeValue.timeValueNanos(parseTimeInNanos);
+    }
+
+    public long getParseTimeInNanos() {
+        return parseTimeInNanos;
+    }
+
+    /**
+     * The time spent executing the items against the primary shard, including the translog writes.
+     */
+    public TimeValue getIndexTime() {
+        return TimeValue.timeValueNanos(indexTimeInNanos);
+    }
+
+    public long getIndexTimeInNanos() {
+        return indexTimeInNanos;
+    }
+
+    /**
+     * The time spent waiting for the replicas once the primary operation was done.
+     */
+    public TimeValue getReplicateTime() {
+        return TimeValue.timeValueNanos(replicateTimeInNanos);
+    }
+
+    public long getReplicateTimeInNanos() {
+        return replicateTimeInNanos;
+    }
+
+    void replicateTimeInNanos(long replicateTimeInNanos) {
+        this.replicateTimeInNanos = replicateTimeInNanos;
+    }
+
     @Override
     public void readFrom(StreamInput in) throws IOException {
         super.readFrom(in);
@@ -58,6 +109,11 @@ public class BulkShardResponse extends ActionResponse {
         for (int i = 0; i < responses.length; i++) {
             responses[i] = BulkItemResponse.readBulkItem(in);
         }
+        if (in.getVersion().onOrAfter(Version.V_2_0_0)) {
+            parseTimeInNanos = in.readVLong();
+            indexTimeInNanos = in.readVLong();
+            replicateTimeInNanos = in.readVLong();
+        }
     }
 
     @Override
@@ -68,5 +124,10 @@ public class BulkShardResponse extends ActionResponse {
         for (BulkItemResponse response : responses) {
             response.writeTo(out);
         }
+        if (out.getVersion().onOrAfter(Version.V_2_0_0)) {
+            out.writeVLong(parseTimeInNanos);
+            out.writeVLong(indexTimeInNanos);
+            out.writeVLong(replicateTimeInNanos);
+        }
     }
 }
@@ -55,6 +55,7 @@ import org.elasticsearch.transport.TransportService;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  *
@@ -243,6 +244,9 @@ public class TransportBulkAction extends TransportAction<BulkRequest, BulkRespon
         }
 
         final AtomicInteger counter = new AtomicInteger(requestsByShard.size());
+        final AtomicLong parseTimeInNanos = new AtomicLong();
+        final AtomicLong indexTimeInNanos = new AtomicLong();
+        final AtomicLong replicateTimeInNanos = new AtomicLong();
         for (Map.Entry<ShardId, List<BulkItemRequest>> entry : requestsByShard.entrySet()) {
             final ShardId shardId = entry.getKey();
             final List<BulkItemRequest> requests = entry.getValue();
@@ -256,6 +260,9 @@ public class TransportBulkAction extends TransportAction<BulkRequest, BulkRespon
                     for (BulkItemResponse bulkItemResponse : bulkShardResponse.getResponses()) {
                         responses.set(bulkItemResponse.getItemId(), bulkItemResponse);
                     }
+                    parseTimeInNanos.addAndGet(bulkShardResponse.getParseTimeInNanos());
+                    indexTimeInNanos.addAndGet(bulkShardResponse.getIndexTimeInNanos());
+                    replicateTimeInNanos.addAndGet(bulkShardResponse.getReplicateTimeInNanos());
                     if (counter.decrementAndGet() == 0) {
                         finishHim();
                     }
@@ -287,7 +294,8 @@ public class TransportBulkAction extends TransportAction<BulkRequest, BulkRespon
                 }
 
                 private void finishHim() {
-                    listener.onResponse(new BulkResponse(responses.toArray(new BulkItemResponse[responses.length()]), System.currentTimeMillis() - startTime));
+                    listener.onResponse(new BulkResponse(responses.toArray(new BulkItemResponse[responses.length()]), System.currentTimeMillis() - startTime,
+                            parseTimeInNanos.get(), indexTimeInNanos.get(), replicateTimeInNanos.get()));
                 }
             });
         }
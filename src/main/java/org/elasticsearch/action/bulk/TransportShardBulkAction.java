@@ -44,10 +44,12 @@ import org.elasticsearch.cluster.metadata.IndexMetaData;
 import org.elasticsearch.cluster.metadata.MappingMetaData;
 import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.cluster.routing.ShardIterator;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.collect.Tuple;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
 import org.elasticsearch.common.xcontent.XContentHelper;
 import org.elasticsearch.common.xcontent.XContentType;
 import org.elasticsearch.index.engine.DocumentAlreadyExistsException;
@@ -66,6 +68,8 @@ import org.elasticsearch.transport.TransportService;
 
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Performs the index operation.
@@ -75,6 +79,7 @@ public class TransportShardBulkAction extends TransportShardReplicationOperation
     private final MappingUpdatedAction mappingUpdatedAction;
     private final UpdateHelper updateHelper;
     private final boolean allowIdGeneration;
+    private final int parseConcurrency;
 
     @Inject
     public TransportShardBulkAction(Settings settings, TransportService transportService, ClusterService clusterService,
@@ -84,6 +89,27 @@ public class TransportShardBulkAction extends TransportShardReplicationOperation
         this.mappingUpdatedAction = mappingUpdatedAction;
         this.updateHelper = updateHelper;
         this.allowIdGeneration = settings.getAsBoolean("action.allow_id_generation", true);
+        this.parseConcurrency = Math.max(1, settings.getAsInt("action.bulk.parse_concurrency", 1));
+    }
+
+    @Override
+    protected void doExecute(BulkShardRequest request, final ActionListener<BulkShardResponse> listener) {
+        super.doExecute(request, new ActionListener<BulkShardResponse>() {
+            @Override
+            public void onResponse(BulkShardResponse response) {
+                // only set on the node that executed the primary operation, before the response is sent back
+                if (response.primaryDoneNanos != 0) {
+                    response.replicateTimeInNanos(System.nanoTime() - response.primaryDoneNanos);
+                    response.primaryDoneNanos = 0;
+                }
+                listener.onResponse(response);
+            }
+
+            @Override
+            public void onFailure(Throwable e) {
+                listener.onFailure(e);
+            }
+        });
     }
 
     @Override
@@ -143,6 +169,17 @@ public class TransportShardBulkAction extends TransportShardReplicationOperation
         Engine.IndexingOperation[] ops = null;
         Set<Tuple<String, String>> mappingsToUpdate = null;
 
+        // with a single parser, each item is parsed just before it gets executed, so that the parsed documents of
+        // the request are not all held in memory at once
+        long parseTimeInNanos = 0;
+        ParsedIndexOperation[] parsedOps = null;
+        long startNanos = System.nanoTime();
+        if (parseConcurrency > 1) {
+            parsedOps = parseIndexOperations(request, indexShard);
+            parseTimeInNanos = System.nanoTime() - startNanos;
+        }
+
+        startNanos = System.nanoTime();
         BulkItemResponse[] responses = new BulkItemResponse[request.items().length];
         long[] preVersions = new long[request.items().length];
         for (int requestIndex = 0; requestIndex < request.items().length; requestIndex++) {
@@ -150,7 +187,15 @@ public class TransportShardBulkAction extends TransportShardReplicationOperation
             if (item.request() instanceof IndexRequest) {
                 IndexRequest indexRequest = (IndexRequest) item.request();
                 try {
-                    WriteResult result = shardIndexOperation(request, indexRequest, clusterState, indexShard, true);
+                    ParsedIndexOperation parsedOp;
+                    if (parsedOps != null) {
+                        parsedOp = parsedOps[requestIndex];
+                    } else {
+                        long parseStartNanos = System.nanoTime();
+                        parsedOp = parseIndexOperation(indexRequest, indexShard);
+                        parseTimeInNanos += System.nanoTime() - parseStartNanos;
+                    }
+                    WriteResult result = shardIndexOperation(request, indexRequest, clusterState, indexShard, true, parsedOp);
                     // add the response
                     IndexResponse indexResponse = result.response();
                     responses[requestIndex] = new BulkItemResponse(item.id(), indexRequest.opType().lowercase(), indexResponse);
@@ -330,6 +375,11 @@ public class TransportShardBulkAction extends TransportShardReplicationOperation
             assert responses[requestIndex] != null; // we must have set a response somewhere.
 
         }
+        long indexTimeInNanos = System.nanoTime() - startNanos;
+        if (parsedOps == null) {
+            // the items were parsed as part of the loop
+            indexTimeInNanos -= parseTimeInNanos;
+        }
 
         if (mappingsToUpdate != null) {
             for (Tuple<String, String> mappingToUpdate : mappingsToUpdate) {
@@ -344,7 +394,8 @@ public class TransportShardBulkAction extends TransportShardReplicationOperation
                 // ignore
             }
         }
-        BulkShardResponse response = new BulkShardResponse(new ShardId(request.index(), request.shardId()), responses);
+        BulkShardResponse response = new BulkShardResponse(new ShardId(request.index(), request.shardId()), responses, parseTimeInNanos, indexTimeInNanos);
+        response.primaryDoneNanos = System.nanoTime();
         return new PrimaryResponse<BulkShardResponse, BulkShardRequest>(shardRequest.request, response, ops);
     }
 
@@ -369,8 +420,98 @@ public class TransportShardBulkAction extends TransportShardReplicationOperation
 
     }
 
+    /**
+     * The outcome of parsing the document of an index item ahead of its execution, either the
+     * operation to execute or the failure to report for the item.
+     */
+    static class ParsedIndexOperation {
+
+        final Engine.IndexingOperation op;
+        final Throwable failure;
+
+        ParsedIndexOperation(Engine.IndexingOperation op, Throwable failure) {
+            this.op = op;
+            this.failure = failure;
+        }
+    }
+
+    /**
+     * Parses the documents of the index items of the request ahead of their execution, used when
+     * <tt>action.bulk.parse_concurrency</tt> is above 1. The items are parsed by the
+     * current thread together with up to that many minus one tasks forked on the bulk thread pool. The current thread
+     * never waits on a task that did not start, so a saturated pool simply means the items get parsed here.
+     */
+    private ParsedIndexOperation[] parseIndexOperations(final BulkShardRequest request, final IndexShard indexShard) {
+        final BulkItemRequest[] items = request.items();
+        final ParsedIndexOperation[] parsedOps = new ParsedIndexOperation[items.length];
+        int indexItems = 0;
+        for (BulkItemRequest item : items) {
+            if (item.request() instanceof IndexRequest) {
+                indexItems++;
+            }
+        }
+        if (indexItems == 0) {
+            return parsedOps;
+        }
+        final AtomicInteger nextItem = new AtomicInteger();
+        final CountDownLatch latch = new CountDownLatch(items.length);
+        Runnable parser = new Runnable() {
+            @Override
+            public void run() {
+                int i;
+                while ((i = nextItem.getAndIncrement()) < items.length) {
+                    try {
+                        if (items[i].request() instanceof IndexRequest) {
+                            parsedOps[i] = parseIndexOperation((IndexRequest) items[i].request(), indexShard);
+                        }
+                    } finally {
+                        latch.countDown();
+                    }
+                }
+            }
+        };
+        int forks = Math.min(parseConcurrency, indexItems) - 1;
+        for (int i = 0; i < forks; i++) {
+            try {
+                threadPool.executor(ThreadPool.Names.BULK).execute(parser);
+            } catch (EsRejectedExecutionException e) {
+                break;
+            }
+        }
+        parser.run();
+        try {
+            // the remaining items are being parsed by tasks that already started
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ElasticsearchIllegalStateException("interrupted while parsing bulk items", e);
+        }
+        return parsedOps;
+    }
+
+    private ParsedIndexOperation parseIndexOperation(IndexRequest indexRequest, IndexShard indexShard) {
+        try {
+            SourceToParse sourceToParse = SourceToParse.source(SourceToParse.Origin.PRIMARY, indexRequest.source()).type(indexRequest.type()).id(indexRequest.id())
+                    .routing(indexRequest.routing()).parent(indexRequest.parent()).timestamp(indexRequest.timestamp()).ttl(indexRequest.ttl());
+            Engine.IndexingOperation op;
+            if (indexRequest.opType() == IndexRequest.OpType.INDEX) {
+                op = indexShard.prepareIndex(sourceToParse).version(indexRequest.version()).versionType(indexRequest.versionType()).origin(Engine.Operation.Origin.PRIMARY);
+            } else {
+                op = indexShard.prepareCreate(sourceToParse).version(indexRequest.version()).versionType(indexRequest.versionType()).origin(Engine.Operation.Origin.PRIMARY);
+            }
+            return new ParsedIndexOperation(op, null);
+        } catch (Throwable t) {
+            return new ParsedIndexOperation(null, t);
+        }
+    }
+
     private WriteResult shardIndexOperation(BulkShardRequest request, IndexRequest indexRequest, ClusterState clusterState,
                                             IndexShard indexShard, boolean processed) {
+        return shardIndexOperation(request, indexRequest, clusterState, indexShard, processed, null);
+    }
+
+    private WriteResult shardIndexOperation(BulkShardRequest request, IndexRequest indexRequest, ClusterState clusterState,
+                                            IndexShard indexShard, boolean processed, @Nullable ParsedIndexOperation parsedOp) {
 
         // validate, if routing is required, that we got routing
         MappingMetaData mappingMd = clusterState.metaData().index(request.index()).mappingOrDefault(indexRequest.type());
@@ -384,20 +525,24 @@ public class TransportShardBulkAction extends TransportShardReplicationOperation
             indexRequest.process(clusterState.metaData(), indexRequest.index(), mappingMd, allowIdGeneration);
         }
 
-        SourceToParse sourceToParse = SourceToParse.source(SourceToParse.Origin.PRIMARY, indexRequest.source()).type(indexRequest.type()).id(indexRequest.id())
-                .routing(indexRequest.routing()).parent(indexRequest.parent()).timestamp(indexRequest.timestamp()).ttl(indexRequest.ttl());
+        if (parsedOp == null) {
+            parsedOp = parseIndexOperation(indexRequest, indexShard);
+        }
+        if (parsedOp.failure != null) {
+            throw ExceptionsHelper.convertToRuntime(parsedOp.failure);
+        }
 
         long version;
         boolean created;
         Engine.IndexingOperation op;
-        if (indexRequest.opType() == IndexRequest.OpType.INDEX) {
-            Engine.Index index = indexShard.prepareIndex(sourceToParse).version(indexRequest.version()).versionType(indexRequest.versionType()).origin(Engine.Operation.Origin.PRIMARY);
+        if (parsedOp.op instanceof Engine.Index) {
+            Engine.Index index = (Engine.Index) parsedOp.op;
             indexShard.index(index);
             version = index.version();
             op = index;
             created = index.created();
         } else {
-            Engine.Create create = indexShard.prepareCreate(sourceToParse).version(indexRequest.version()).versionType(indexRequest.versionType()).origin(Engine.Operation.Origin.PRIMARY);
+            Engine.Create create = (Engine.Create) parsedOp.op;
             indexShard.create(create);
             version = create.version();
             op = create;
@@ -21,6 +21,7 @@ package org.elasticsearch.action.search;
 
 import org.elasticsearch.ElasticsearchGenerationException;
 import org.elasticsearch.ElasticsearchIllegalArgumentException;
+import org.elasticsearch.Version;
 import org.elasticsearch.action.ActionRequest;
 import org.elasticsearch.action.ActionRequestValidationException;
 import org.elasticsearch.action.support.IndicesOptions;
@@ -41,6 +42,7 @@ import org.elasticsearch.search.builder.SearchSourceBuilder;
 import java.io.IOException;
 import java.util.Map;
 
+import static org.elasticsearch.action.ValidateActions.addValidationError;
 import static org.elasticsearch.search.Scroll.readScroll;
 
 /**
@@ -83,6 +85,8 @@ public class SearchRequest extends ActionRequest<SearchRequest> {
 
     private IndicesOptions indicesOptions = IndicesOptions.strict();
 
+    private int batchedReduceSize = 512;
+
     public SearchRequest() {
     }
 
@@ -109,6 +113,9 @@ public class SearchRequest extends ActionRequest<SearchRequest> {
 //        if (source == null && extraSource == null) {
 //            validationException = addValidationError("search source is missing", validationException);
 //        }
+        if (batchedReduceSize <= 1) {
+            validationException = addValidationError("batchedReduceSize must be >= 2", validationException);
+        }
         return validationException;
     }
 
@@ -445,6 +452,23 @@ public class SearchRequest extends ActionRequest<SearchRequest> {
         return scroll(new Scroll(TimeValue.parseTimeValue(keepAlive, null)));
     }
 
+    /**
+     * Sets the number of shard results that should be reduced at once on the coordinating node. The aggregations
+     * of the shard results are reduced in batches of this size as they come in, which bounds the memory used by
+     * requests that hit a large number of shards. Defaults to <tt>512</tt>.
+     */
+    public SearchRequest batchedReduceSize(int batchedReduceSize) {
+        this.batchedReduceSize = batchedReduceSize;
+        return this;
+    }
+
+    /**
+     * The number of shard results that should be reduced at once on the coordinating node.
+     */
+    public int batchedReduceSize() {
+        return batchedReduceSize;
+    }
+
     @Override
     public void readFrom(StreamInput in) throws IOException {
         super.readFrom(in);
@@ -471,6 +495,9 @@ public class SearchRequest extends ActionRequest<SearchRequest> {
 
         types = in.readStringArray();
         indicesOptions = IndicesOptions.readIndicesOptions(in);
+        if (in.getVersion().onOrAfter(Version.V_2_0_0)) {
+            batchedReduceSize = in.readVInt();
+        }
     }
 
     @Override
@@ -497,5 +524,8 @@ public class SearchRequest extends ActionRequest<SearchRequest> {
         out.writeBytesReference(extraSource);
         out.writeStringArray(types);
         indicesOptions.writeIndicesOptions(out);
+        if (out.getVersion().onOrAfter(Version.V_2_0_0)) {
+            out.writeVInt(batchedReduceSize);
+        }
     }
 }
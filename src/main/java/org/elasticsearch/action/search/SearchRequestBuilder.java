@@ -155,6 +155,15 @@ public class SearchRequestBuilder extends ActionRequestBuilder<SearchRequest, Se
         return this;
     }
 
+    /**
+     * Sets the number of shard results that should be reduced at once on the coordinating node. Defaults
+     * to <tt>512</tt>.
+     */
+    public SearchRequestBuilder setBatchedReduceSize(int batchedReduceSize) {
+        request.batchedReduceSize(batchedReduceSize);
+        return this;
+    }
+
     /**
      * Controls the the search operation threading model.
      */
@@ -531,6 +540,24 @@ public class SearchRequestBuilder extends ActionRequestBuilder<SearchRequest, Se
         return this;
     }
 
+    /**
+     * Returns the hits that sort after the given sort values, typically the sort values of the last hit of the
+     * previous page. Requires a sort, with a unique field as the last sort criteria to break ties.
+     */
+    public SearchRequestBuilder setSearchAfter(Object... values) {
+        sourceBuilder().searchAfter(values);
+        return this;
+    }
+
+    /**
+     * The maximum number of slices of segments each shard may search concurrently when collecting the top hits.
+     * Defaults to <tt>1</tt>, the segments are searched sequentially.
+     */
+    public SearchRequestBuilder setMaxConcurrentSegmentSearches(int maxConcurrentSegmentSearches) {
+        sourceBuilder().maxConcurrentSegmentSearches(maxConcurrentSegmentSearches);
+        return this;
+    }
+
     /**
      * Adds the fields to load and return as part of the search request. If none are specified,
      * the source of the document will be returned.
@@ -41,6 +41,7 @@ import org.elasticsearch.search.SearchPhaseResult;
 import org.elasticsearch.search.SearchShardTarget;
 import org.elasticsearch.search.action.SearchServiceListener;
 import org.elasticsearch.search.action.SearchServiceTransportAction;
+import org.elasticsearch.search.controller.BatchedAggregationsReducer;
 import org.elasticsearch.search.controller.SearchPhaseController;
 import org.elasticsearch.search.internal.InternalSearchResponse;
 import org.elasticsearch.search.internal.ShardSearchRequest;
@@ -94,6 +95,7 @@ public abstract class TransportSearchTypeAction extends TransportAction<SearchRe
         private volatile AtomicArray<ShardSearchFailure> shardFailures;
         private final Object shardFailuresMutex = new Object();
         protected volatile ScoreDoc[] sortedShardList;
+        protected final BatchedAggregationsReducer aggregationsReducer;
 
         protected final long startTime = System.currentTimeMillis();
 
@@ -120,6 +122,7 @@ public abstract class TransportSearchTypeAction extends TransportAction<SearchRe
             expectedTotalOps = shardsIts.totalSizeWith1ForEmpty();
 
             firstResults = new AtomicArray<FirstResult>(shardsIts.size());
+            aggregationsReducer = searchPhaseController.batchedAggregationsReducer(request.batchedReduceSize(), shardsIts.size());
         }
 
         public void start() {
@@ -385,6 +388,10 @@ public abstract class TransportSearchTypeAction extends TransportAction<SearchRe
 
         protected final void processFirstPhaseResult(int shardIndex, ShardRouting shard, FirstResult result) {
             firstResults.set(shardIndex, result);
+            if (aggregationsReducer != null && result instanceof QuerySearchResultProvider) {
+                // reduce the aggregations as they come in instead of keeping all of them until the last shard responded
+                aggregationsReducer.consume(((QuerySearchResultProvider) result).queryResult());
+            }
 
             // clean a previous error on this shard group (note, this code will be serialized on the same shardIndex value level
             // so its ok concurrency wise to miss potentially the shard failures being created because of another failure
@@ -23,6 +23,7 @@ import org.elasticsearch.ElasticsearchIllegalStateException;
 import org.elasticsearch.cluster.block.ClusterBlock;
 import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.cluster.routing.operation.OperationRouting;
+import org.elasticsearch.cluster.service.ClusterServiceStats;
 import org.elasticsearch.cluster.service.PendingClusterTask;
 import org.elasticsearch.common.Priority;
 import org.elasticsearch.common.component.LifecycleComponent;
@@ -106,6 +107,18 @@ public interface ClusterService extends LifecycleComponent<ClusterService> {
      */
     void submitStateUpdateTask(final String source, final ClusterStateUpdateTask updateTask);
 
+    /**
+     * Submits a task that will be executed together with all the other tasks queued for the same executor,
+     * resulting in a single cluster state update for the whole batch. The listener is notified individually
+     * once the batch has been processed.
+     */
+    <T> void submitStateUpdateTask(final String source, T task, Priority priority, ClusterStateTaskExecutor<T> executor, ClusterStateTaskListener listener);
+
+    /**
+     * Returns statistics about the cluster state update tasks executed by this node.
+     */
+    ClusterServiceStats stats();
+
     /**
      * Returns the tasks that are pending.
      */
@@ -21,6 +21,7 @@ package org.elasticsearch.cluster;
 
 import com.carrotsearch.hppc.cursors.ObjectCursor;
 import com.carrotsearch.hppc.cursors.ObjectObjectCursor;
+import com.google.common.base.Objects;
 import com.google.common.collect.ImmutableSet;
 import org.elasticsearch.ElasticsearchIllegalArgumentException;
 import org.elasticsearch.cluster.block.ClusterBlock;
@@ -576,6 +577,60 @@ public class ClusterState implements ToXContent {
             }
         }
 
+        /**
+         * Writes the changes from <tt>previous</tt> to <tt>state</tt>. The meta data, routing table and nodes are written
+         * as diffs, see {@link MetaData.Builder#writeDiffTo(MetaData, MetaData, StreamOutput)}, the rest in full.
+         */
+        public static void writeDiffTo(ClusterState previous, ClusterState state, StreamOutput out) throws IOException {
+            out.writeLong(previous.version());
+            out.writeOptionalString(previous.nodes().masterNodeId());
+            out.writeLong(state.version());
+            MetaData.Builder.writeDiffTo(previous.metaData(), state.metaData(), out);
+            RoutingTable.Builder.writeDiffTo(previous.routingTable(), state.routingTable(), out);
+            DiscoveryNodes.Builder.writeDiffTo(previous.nodes(), state.nodes(), out);
+            ClusterBlocks.Builder.writeClusterBlocks(state.blocks(), out);
+            state.allocationExplanation().writeTo(out);
+            out.writeVInt(state.customs().size());
+            for (ObjectObjectCursor<String, Custom> cursor : state.customs()) {
+                out.writeString(cursor.key);
+                lookupFactorySafe(cursor.key).writeTo(cursor.value, out);
+            }
+        }
+
+        /**
+         * Reads the changes written by {@link #writeDiffTo(ClusterState, ClusterState, StreamOutput)} and applies them to
+         * <tt>previous</tt>.
+         *
+         * @throws IncompatibleClusterStateVersionException if the diff was not computed from <tt>previous</tt>
+         */
+        public static ClusterState readDiffFrom(StreamInput in, @Nullable ClusterState previous, @Nullable DiscoveryNode localNode) throws IOException {
+            long previousVersion = in.readLong();
+            String previousMasterNodeId = in.readOptionalString();
+            if (previous == null) {
+                throw new IncompatibleClusterStateVersionException("received a diff from cluster state version [" + previousVersion + "] but no cluster state was received before");
+            }
+            // versions are only increasing for a given master, so the master has to be the same as well
+            if (previous.version() != previousVersion || !Objects.equal(previous.nodes().masterNodeId(), previousMasterNodeId)) {
+                throw new IncompatibleClusterStateVersionException("received a diff from cluster state version [" + previousVersion + "] of master ["
+                        + previousMasterNodeId + "] but the last received cluster state is version [" + previous.version() + "] of master ["
+                        + previous.nodes().masterNodeId() + "]");
+            }
+            Builder builder = new Builder();
+            builder.version = in.readLong();
+            builder.metaData = MetaData.Builder.readDiffFrom(in, previous.metaData());
+            builder.routingTable = RoutingTable.Builder.readDiffFrom(in, previous.routingTable());
+            builder.nodes = DiscoveryNodes.Builder.readDiffFrom(in, previous.nodes(), localNode);
+            builder.blocks = ClusterBlocks.Builder.readClusterBlocks(in);
+            builder.allocationExplanation = AllocationExplanation.readAllocationExplanation(in);
+            int customSize = in.readVInt();
+            for (int i = 0; i < customSize; i++) {
+                String type = in.readString();
+                Custom customIndexMetaData = lookupFactorySafe(type).readFrom(in);
+                builder.putCustom(type, customIndexMetaData);
+            }
+            return builder.build();
+        }
+
         public static ClusterState readFrom(StreamInput in, @Nullable DiscoveryNode localNode) throws IOException {
             Builder builder = new Builder();
             builder.version = in.readLong();
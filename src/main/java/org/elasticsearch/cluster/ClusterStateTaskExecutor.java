@@ -0,0 +1,38 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.cluster;
+
+import org.elasticsearch.common.Priority;
+
+import java.util.List;
+
+/**
+ * Executes a batch of cluster state update tasks of the same kind, producing a single new cluster state for
+ * all of them. Tasks submitted with the same executor instance are queued and drained together, see
+ * {@link ClusterService#submitStateUpdateTask(String, Object, Priority, ClusterStateTaskExecutor, ClusterStateTaskListener)}.
+ */
+public interface ClusterStateTaskExecutor<T> {
+
+    /**
+     * Update the cluster state based on the current state and the given tasks. Return the *same instance* if no state
+     * should be changed.
+     */
+    ClusterState execute(ClusterState currentState, List<T> tasks) throws Exception;
+}
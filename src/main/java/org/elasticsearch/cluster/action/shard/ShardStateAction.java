@@ -22,7 +22,8 @@ package org.elasticsearch.cluster.action.shard;
 import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.cluster.ClusterService;
 import org.elasticsearch.cluster.ClusterState;
-import org.elasticsearch.cluster.ClusterStateUpdateTask;
+import org.elasticsearch.cluster.ClusterStateTaskExecutor;
+import org.elasticsearch.cluster.ClusterStateTaskListener;
 import org.elasticsearch.cluster.metadata.IndexMetaData;
 import org.elasticsearch.cluster.metadata.MetaData;
 import org.elasticsearch.cluster.node.DiscoveryNodes;
@@ -38,14 +39,12 @@ import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.settings.Settings;
-import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.*;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.BlockingQueue;
 
 import static org.elasticsearch.cluster.routing.ImmutableShardRouting.readShardRoutingEntry;
 
@@ -59,8 +58,9 @@ public class ShardStateAction extends AbstractComponent {
     private final AllocationService allocationService;
     private final ThreadPool threadPool;
 
-    private final BlockingQueue<ShardRoutingEntry> startedShardsQueue = ConcurrentCollections.newBlockingQueue();
-    private final BlockingQueue<ShardRoutingEntry> failedShardQueue = ConcurrentCollections.newBlockingQueue();
+    private final ShardStartedTaskExecutor shardStartedTaskExecutor = new ShardStartedTaskExecutor();
+    private final ShardFailedTaskExecutor shardFailedTaskExecutor = new ShardFailedTaskExecutor();
+    private final ShardStateTaskListener shardStateTaskListener = new ShardStateTaskListener();
 
     @Inject
     public ShardStateAction(Settings settings, ClusterService clusterService, TransportService transportService,
@@ -114,154 +114,133 @@ public class ShardStateAction extends AbstractComponent {
 
     private void innerShardFailed(final ShardRoutingEntry shardRoutingEntry) {
         logger.warn("{} received shard failed for {}", shardRoutingEntry.shardRouting.shardId(), shardRoutingEntry);
-        failedShardQueue.add(shardRoutingEntry);
-        clusterService.submitStateUpdateTask("shard-failed (" + shardRoutingEntry.shardRouting + "), reason [" + shardRoutingEntry.reason + "]", Priority.HIGH, new ClusterStateUpdateTask() {
-            @Override
-            public ClusterState execute(ClusterState currentState) {
-                if (shardRoutingEntry.processed) {
-                    return currentState;
-                }
+        clusterService.submitStateUpdateTask("shard-failed (" + shardRoutingEntry.shardRouting + "), reason [" + shardRoutingEntry.reason + "]",
+                shardRoutingEntry, Priority.HIGH, shardFailedTaskExecutor, shardStateTaskListener);
+    }
 
-                List<ShardRoutingEntry> shardRoutingEntries = new ArrayList<ShardRoutingEntry>();
-                failedShardQueue.drainTo(shardRoutingEntries);
+    private void innerShardStarted(final ShardRoutingEntry shardRoutingEntry) {
+        logger.debug("received shard started for {}", shardRoutingEntry);
+        // all the shard started requests queued by the time the cluster service gets to them are applied
+        // as a single batch, this is to optimize the number of "started" events we generate. possibly, we
+        // can do time based batching as well, but usually, we would want to process started events as fast
+        // as possible, to make shards available
+        clusterService.submitStateUpdateTask("shard-started (" + shardRoutingEntry.shardRouting + "), reason [" + shardRoutingEntry.reason + "]",
+                shardRoutingEntry, Priority.URGENT, shardStartedTaskExecutor, shardStateTaskListener);
+    }
+
+    class ShardFailedTaskExecutor implements ClusterStateTaskExecutor<ShardRoutingEntry> {
 
-                // nothing to process (a previous event has processed it already)
-                if (shardRoutingEntries.isEmpty()) {
-                    return currentState;
+        @Override
+        public ClusterState execute(ClusterState currentState, List<ShardRoutingEntry> shardRoutingEntries) {
+            MetaData metaData = currentState.getMetaData();
+
+            List<ShardRouting> shardRoutingsToBeApplied = new ArrayList<ShardRouting>(shardRoutingEntries.size());
+            for (int i = 0; i < shardRoutingEntries.size(); i++) {
+                ShardRoutingEntry shardRoutingEntry = shardRoutingEntries.get(i);
+                ShardRouting shardRouting = shardRoutingEntry.shardRouting;
+                IndexMetaData indexMetaData = metaData.index(shardRouting.index());
+                // if there is no metadata or the current index is not of the right uuid, the index has been deleted while it was being allocated
+                // which is fine, we should just ignore this
+                if (indexMetaData == null) {
+                    continue;
                 }
+                if (!indexMetaData.isSameUUID(shardRoutingEntry.indexUUID)) {
+                    logger.debug("{} ignoring shard failed, different index uuid, current {}, got {}", shardRouting.shardId(), indexMetaData.getUUID(), shardRoutingEntry);
+                    continue;
+                }
+
+                logger.debug("{} will apply shard failed {}", shardRouting.shardId(), shardRoutingEntry);
+                shardRoutingsToBeApplied.add(shardRouting);
+            }
 
-                MetaData metaData = currentState.getMetaData();
+            RoutingAllocation.Result routingResult = allocationService.applyFailedShards(currentState, shardRoutingsToBeApplied);
+            if (!routingResult.changed()) {
+                return currentState;
+            }
+            return ClusterState.builder(currentState).routingResult(routingResult).build();
+        }
+    }
 
-                List<ShardRouting> shardRoutingsToBeApplied = new ArrayList<ShardRouting>(shardRoutingEntries.size());
-                for (int i = 0; i < shardRoutingEntries.size(); i++) {
-                    ShardRoutingEntry shardRoutingEntry = shardRoutingEntries.get(i);
-                    shardRoutingEntry.processed = true;
-                    ShardRouting shardRouting = shardRoutingEntry.shardRouting;
+    class ShardStartedTaskExecutor implements ClusterStateTaskExecutor<ShardRoutingEntry> {
+
+        @Override
+        public ClusterState execute(ClusterState currentState, List<ShardRoutingEntry> shardRoutingEntries) {
+            RoutingTable routingTable = currentState.routingTable();
+            MetaData metaData = currentState.getMetaData();
+
+            List<ShardRouting> shardRoutingToBeApplied = new ArrayList<ShardRouting>(shardRoutingEntries.size());
+
+            for (int i = 0; i < shardRoutingEntries.size(); i++) {
+                ShardRoutingEntry shardRoutingEntry = shardRoutingEntries.get(i);
+                ShardRouting shardRouting = shardRoutingEntry.shardRouting;
+                try {
                     IndexMetaData indexMetaData = metaData.index(shardRouting.index());
-                    // if there is no metadata or the current index is not of the right uuid, the index has been deleted while it was being allocated
+                    IndexRoutingTable indexRoutingTable = routingTable.index(shardRouting.index());
+                    // if there is no metadata, no routing table or the current index is not of the right uuid, the index has been deleted while it was being allocated
                     // which is fine, we should just ignore this
                     if (indexMetaData == null) {
                         continue;
                     }
+                    if (indexRoutingTable == null) {
+                        continue;
+                    }
+
                     if (!indexMetaData.isSameUUID(shardRoutingEntry.indexUUID)) {
-                        logger.debug("{} ignoring shard failed, different index uuid, current {}, got {}", shardRouting.shardId(), indexMetaData.getUUID(), shardRoutingEntry);
+                        logger.debug("{} ignoring shard started, different index uuid, current {}, got {}", shardRouting.shardId(), indexMetaData.getUUID(), shardRoutingEntry);
                         continue;
                     }
 
-                    logger.debug("{} will apply shard failed {}", shardRouting.shardId(), shardRoutingEntry);
-                    shardRoutingsToBeApplied.add(shardRouting);
-                }
+                    // find the one that maps to us, if its already started, no need to do anything...
+                    // the shard might already be started since the nodes that is starting the shards might get cluster events
+                    // with the shard still initializing, and it will try and start it again (until the verification comes)
 
-                RoutingAllocation.Result routingResult = allocationService.applyFailedShards(currentState, shardRoutingsToBeApplied);
-                if (!routingResult.changed()) {
-                    return currentState;
-                }
-                return ClusterState.builder(currentState).routingResult(routingResult).build();
-            }
+                    IndexShardRoutingTable indexShardRoutingTable = indexRoutingTable.shard(shardRouting.id());
 
-            @Override
-            public void onFailure(String source, Throwable t) {
-                logger.error("unexpected failure during [{}]", t, source);
-            }
-        });
-    }
+                    boolean applyShardEvent = true;
 
-    private void innerShardStarted(final ShardRoutingEntry shardRoutingEntry) {
-        logger.debug("received shard started for {}", shardRoutingEntry);
-        // buffer shard started requests, and the state update tasks will simply drain it
-        // this is to optimize the number of "started" events we generate, and batch them
-        // possibly, we can do time based batching as well, but usually, we would want to
-        // process started events as fast as possible, to make shards available
-        startedShardsQueue.add(shardRoutingEntry);
-
-        clusterService.submitStateUpdateTask("shard-started (" + shardRoutingEntry.shardRouting + "), reason [" + shardRoutingEntry.reason + "]", Priority.URGENT,
-                new ClusterStateUpdateTask() {
-                    @Override
-                    public ClusterState execute(ClusterState currentState) {
-
-                        if (shardRoutingEntry.processed) {
-                            return currentState;
+                    for (ShardRouting entry : indexShardRoutingTable) {
+                        if (shardRouting.currentNodeId().equals(entry.currentNodeId())) {
+                            // we found the same shard that exists on the same node id
+                            if (!entry.initializing()) {
+                                // shard is in initialized state, skipping event (probable already started)
+                                logger.debug("{} ignoring shard started event for {}, current state: {}", shardRouting.shardId(), shardRoutingEntry, entry.state());
+                                applyShardEvent = false;
+                            }
                         }
+                    }
 
-                        List<ShardRoutingEntry> shardRoutingEntries = new ArrayList<ShardRoutingEntry>();
-                        startedShardsQueue.drainTo(shardRoutingEntries);
+                    if (applyShardEvent) {
+                        shardRoutingToBeApplied.add(shardRouting);
+                        logger.debug("{} will apply shard started {}", shardRouting.shardId(), shardRoutingEntry);
+                    }
 
-                        // nothing to process (a previous event has processed it already)
-                        if (shardRoutingEntries.isEmpty()) {
-                            return currentState;
-                        }
+                } catch (Throwable t) {
+                    logger.error("{} unexpected failure while processing shard started [{}]", t, shardRouting.shardId(), shardRouting);
+                }
+            }
 
-                        RoutingTable routingTable = currentState.routingTable();
-                        MetaData metaData = currentState.getMetaData();
-
-                        List<ShardRouting> shardRoutingToBeApplied = new ArrayList<ShardRouting>(shardRoutingEntries.size());
-
-                        for (int i = 0; i < shardRoutingEntries.size(); i++) {
-                            ShardRoutingEntry shardRoutingEntry = shardRoutingEntries.get(i);
-                            shardRoutingEntry.processed = true;
-                            ShardRouting shardRouting = shardRoutingEntry.shardRouting;
-                            try {
-                                IndexMetaData indexMetaData = metaData.index(shardRouting.index());
-                                IndexRoutingTable indexRoutingTable = routingTable.index(shardRouting.index());
-                                // if there is no metadata, no routing table or the current index is not of the right uuid, the index has been deleted while it was being allocated
-                                // which is fine, we should just ignore this
-                                if (indexMetaData == null) {
-                                    continue;
-                                }
-                                if (indexRoutingTable == null) {
-                                    continue;
-                                }
-
-                                if (!indexMetaData.isSameUUID(shardRoutingEntry.indexUUID)) {
-                                    logger.debug("{} ignoring shard started, different index uuid, current {}, got {}", shardRouting.shardId(), indexMetaData.getUUID(), shardRoutingEntry);
-                                    continue;
-                                }
-
-                                // find the one that maps to us, if its already started, no need to do anything...
-                                // the shard might already be started since the nodes that is starting the shards might get cluster events
-                                // with the shard still initializing, and it will try and start it again (until the verification comes)
-
-                                IndexShardRoutingTable indexShardRoutingTable = indexRoutingTable.shard(shardRouting.id());
-
-                                boolean applyShardEvent = true;
-
-                                for (ShardRouting entry : indexShardRoutingTable) {
-                                    if (shardRouting.currentNodeId().equals(entry.currentNodeId())) {
-                                        // we found the same shard that exists on the same node id
-                                        if (!entry.initializing()) {
-                                            // shard is in initialized state, skipping event (probable already started)
-                                            logger.debug("{} ignoring shard started event for {}, current state: {}", shardRouting.shardId(), shardRoutingEntry, entry.state());
-                                            applyShardEvent = false;
-                                        }
-                                    }
-                                }
-
-                                if (applyShardEvent) {
-                                    shardRoutingToBeApplied.add(shardRouting);
-                                    logger.debug("{} will apply shard started {}", shardRouting.shardId(), shardRoutingEntry);
-                                }
-
-                            } catch (Throwable t) {
-                                logger.error("{} unexpected failure while processing shard started [{}]", t, shardRouting.shardId(), shardRouting);
-                            }
-                        }
+            if (shardRoutingToBeApplied.isEmpty()) {
+                return currentState;
+            }
 
-                        if (shardRoutingToBeApplied.isEmpty()) {
-                            return currentState;
-                        }
+            RoutingAllocation.Result routingResult = allocationService.applyStartedShards(currentState, shardRoutingToBeApplied, true);
+            if (!routingResult.changed()) {
+                return currentState;
+            }
+            return ClusterState.builder(currentState).routingResult(routingResult).build();
+        }
+    }
 
-                        RoutingAllocation.Result routingResult = allocationService.applyStartedShards(currentState, shardRoutingToBeApplied, true);
-                        if (!routingResult.changed()) {
-                            return currentState;
-                        }
-                        return ClusterState.builder(currentState).routingResult(routingResult).build();
-                    }
+    class ShardStateTaskListener implements ClusterStateTaskListener {
 
-                    @Override
-                    public void onFailure(String source, Throwable t) {
-                        logger.error("unexpected failure during [{}]", t, source);
-                    }
-                });
+        @Override
+        public void onFailure(String source, Throwable t) {
+            logger.error("unexpected failure during [{}]", t, source);
+        }
+
+        @Override
+        public void clusterStateProcessed(String source, ClusterState oldState, ClusterState newState) {
+        }
     }
 
     private class ShardFailedTransportHandler extends BaseTransportRequestHandler<ShardRoutingEntry> {
@@ -314,8 +293,6 @@ public class ShardStateAction extends AbstractComponent {
 
         private String reason;
 
-        volatile boolean processed; // state field, no need to serialize
-
         private ShardRoutingEntry() {
         }
 
@@ -1357,6 +1357,81 @@ public class MetaData implements Iterable<IndexMetaData> {
             return builder.build();
         }
 
+        /**
+         * Writes the changes from <tt>previous</tt> to <tt>metaData</tt>. Only the indices that were removed, added or
+         * changed are written, the settings, templates and customs are always written in full.
+         */
+        public static void writeDiffTo(MetaData previous, MetaData metaData, StreamOutput out) throws IOException {
+            out.writeLong(metaData.version);
+            out.writeString(metaData.uuid);
+            writeSettingsToStream(metaData.transientSettings(), out);
+            writeSettingsToStream(metaData.persistentSettings(), out);
+            List<String> removedIndices = newArrayList();
+            for (IndexMetaData indexMetaData : previous) {
+                if (!metaData.hasIndex(indexMetaData.index())) {
+                    removedIndices.add(indexMetaData.index());
+                }
+            }
+            out.writeVInt(removedIndices.size());
+            for (String index : removedIndices) {
+                out.writeString(index);
+            }
+            // index meta data is immutable and the builders keep the instances of the unchanged indices
+            List<IndexMetaData> changedIndices = newArrayList();
+            for (IndexMetaData indexMetaData : metaData) {
+                if (previous.index(indexMetaData.index()) != indexMetaData) {
+                    changedIndices.add(indexMetaData);
+                }
+            }
+            out.writeVInt(changedIndices.size());
+            for (IndexMetaData indexMetaData : changedIndices) {
+                IndexMetaData.Builder.writeTo(indexMetaData, out);
+            }
+            out.writeVInt(metaData.templates.size());
+            for (ObjectCursor<IndexTemplateMetaData> cursor : metaData.templates.values()) {
+                IndexTemplateMetaData.Builder.writeTo(cursor.value, out);
+            }
+            out.writeVInt(metaData.customs().size());
+            for (ObjectObjectCursor<String, Custom> cursor : metaData.customs()) {
+                out.writeString(cursor.key);
+                lookupFactorySafe(cursor.key).writeTo(cursor.value, out);
+            }
+        }
+
+        /**
+         * Reads the changes written by {@link #writeDiffTo(MetaData, MetaData, StreamOutput)} and applies them to
+         * <tt>previous</tt>, which must be the meta data the changes were computed from.
+         */
+        public static MetaData readDiffFrom(StreamInput in, MetaData previous) throws IOException {
+            Builder builder = new Builder();
+            builder.version = in.readLong();
+            builder.uuid = in.readString();
+            builder.transientSettings(readSettingsFromStream(in));
+            builder.persistentSettings(readSettingsFromStream(in));
+            for (IndexMetaData indexMetaData : previous) {
+                builder.put(indexMetaData, false);
+            }
+            int size = in.readVInt();
+            for (int i = 0; i < size; i++) {
+                builder.remove(in.readString());
+            }
+            size = in.readVInt();
+            for (int i = 0; i < size; i++) {
+                builder.put(IndexMetaData.Builder.readFrom(in), false);
+            }
+            size = in.readVInt();
+            for (int i = 0; i < size; i++) {
+                builder.put(IndexTemplateMetaData.Builder.readFrom(in));
+            }
+            int customSize = in.readVInt();
+            for (int i = 0; i < customSize; i++) {
+                String type = in.readString();
+                Custom customIndexMetaData = lookupFactorySafe(type).readFrom(in);
+                builder.putCustom(type, customIndexMetaData);
+            }
+            return builder.build();
+        }
+
         public static void writeTo(MetaData metaData, StreamOutput out) throws IOException {
             out.writeLong(metaData.version);
             out.writeString(metaData.uuid);
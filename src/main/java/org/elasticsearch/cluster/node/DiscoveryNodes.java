@@ -615,6 +615,58 @@ public class DiscoveryNodes implements Iterable<DiscoveryNode> {
             }
         }
 
+        /**
+         * Writes the changes from <tt>previous</tt> to <tt>nodes</tt>, only the nodes that were removed or added are written.
+         */
+        public static void writeDiffTo(DiscoveryNodes previous, DiscoveryNodes nodes, StreamOutput out) throws IOException {
+            out.writeOptionalString(nodes.masterNodeId());
+            List<String> removedNodes = newArrayList();
+            for (DiscoveryNode node : previous) {
+                if (!nodes.nodeExists(node.id())) {
+                    removedNodes.add(node.id());
+                }
+            }
+            out.writeVInt(removedNodes.size());
+            for (String nodeId : removedNodes) {
+                out.writeString(nodeId);
+            }
+            List<DiscoveryNode> addedNodes = newArrayList();
+            for (DiscoveryNode node : nodes) {
+                if (!previous.nodeExists(node.id())) {
+                    addedNodes.add(node);
+                }
+            }
+            out.writeVInt(addedNodes.size());
+            for (DiscoveryNode node : addedNodes) {
+                node.writeTo(out);
+            }
+        }
+
+        /**
+         * Reads the changes written by {@link #writeDiffTo(DiscoveryNodes, DiscoveryNodes, StreamOutput)} and applies them
+         * to <tt>previous</tt>, which must be the nodes the changes were computed from.
+         */
+        public static DiscoveryNodes readDiffFrom(StreamInput in, DiscoveryNodes previous, @Nullable DiscoveryNode localNode) throws IOException {
+            Builder builder = new Builder(previous);
+            builder.masterNodeId(in.readOptionalString());
+            if (localNode != null) {
+                builder.localNodeId(localNode.id());
+            }
+            int size = in.readVInt();
+            for (int i = 0; i < size; i++) {
+                builder.remove(in.readString());
+            }
+            size = in.readVInt();
+            for (int i = 0; i < size; i++) {
+                DiscoveryNode node = DiscoveryNode.readNode(in);
+                if (localNode != null && node.id().equals(localNode.id())) {
+                    node = localNode;
+                }
+                builder.put(node);
+            }
+            return builder.build();
+        }
+
         public static DiscoveryNodes readFrom(StreamInput in, @Nullable DiscoveryNode localNode) throws IOException {
             Builder builder = new Builder();
             if (in.readBoolean()) {
@@ -23,8 +23,10 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.UnmodifiableIterator;
 import jsr166y.ThreadLocalRandom;
+import org.apache.lucene.util.CollectionUtil;
 import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.cluster.node.DiscoveryNodes;
+import org.elasticsearch.cluster.routing.operation.ResponseCollectorService;
 import org.elasticsearch.common.collect.MapBuilder;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
@@ -304,6 +306,53 @@ public class IndexShardRoutingTable implements Iterable<ShardRouting> {
         return new PlainShardIterator(shardId, ordered);
     }
 
+    /**
+     * Returns an iterator over active and initializing shards, the active shards being ordered by the rank the
+     * given {@link ResponseCollectorService} computed for their nodes. Shards on nodes without statistics come
+     * first so that their nodes get probed, and ties are broken in a round robin fashion. The nodes that are not
+     * selected get their rank adjusted towards the one of the selected node, see
+     * {@link ResponseCollectorService#onNodeSelected(String, Iterable)}. Falls back to
+     * {@link #activeInitializingShardsRandomIt()} when there are no statistics for any of the nodes.
+     */
+    public ShardIterator activeInitializingShardsRankedIt(ResponseCollectorService collector) {
+        final int index = pickIndex();
+        if (activeShards.size() <= 1) {
+            return activeInitializingShardsIt(index);
+        }
+        final Map<String, Double> ranks = new HashMap<String, Double>(activeShards.size());
+        boolean hasRank = false;
+        for (ShardRouting shard : activeShards) {
+            Double rank = collector.rank(shard.currentNodeId());
+            if (rank != null) {
+                ranks.put(shard.currentNodeId(), rank);
+                hasRank = true;
+            }
+        }
+        if (!hasRank) {
+            return activeInitializingShardsIt(index);
+        }
+        ArrayList<ShardRouting> ordered = new ArrayList<ShardRouting>(activeShards.size() + allInitializingShards.size());
+        addToListFromIndex(activeShards, ordered, index);
+        // the sort is stable, so shards with the same rank keep their round robin order
+        CollectionUtil.timSort(ordered, new Comparator<ShardRouting>() {
+            @Override
+            public int compare(ShardRouting o1, ShardRouting o2) {
+                Double rank1 = ranks.get(o1.currentNodeId());
+                Double rank2 = ranks.get(o2.currentNodeId());
+                if (rank1 == null) {
+                    return rank2 == null ? 0 : -1;
+                }
+                if (rank2 == null) {
+                    return 1;
+                }
+                return Double.compare(rank1, rank2);
+            }
+        });
+        collector.onNodeSelected(ordered.get(0).currentNodeId(), ranks.keySet());
+        ordered.addAll(allInitializingShards);
+        return new PlainShardIterator(shardId, ordered);
+    }
+
     public ShardIterator assignedShardsRandomIt() {
         return new PlainShardIterator(shardId, assignedShards, pickIndex());
     }
@@ -437,6 +437,81 @@ public class RoutingTable implements Iterable<IndexRoutingTable> {
             return builder.build();
         }
 
+        /**
+         * Writes the changes from <tt>previous</tt> to <tt>table</tt>, only the routing of the indices that were
+         * removed, added or changed is written.
+         */
+        public static void writeDiffTo(RoutingTable previous, RoutingTable table, StreamOutput out) throws IOException {
+            out.writeLong(table.version);
+            List<String> removedIndices = newArrayList();
+            for (String index : previous.indicesRouting.keySet()) {
+                if (!table.indicesRouting.containsKey(index)) {
+                    removedIndices.add(index);
+                }
+            }
+            out.writeVInt(removedIndices.size());
+            for (String index : removedIndices) {
+                out.writeString(index);
+            }
+            List<IndexRoutingTable> changedIndices = newArrayList();
+            for (IndexRoutingTable index : table.indicesRouting.values()) {
+                if (!sameRouting(previous.indicesRouting.get(index.index()), index)) {
+                    changedIndices.add(index);
+                }
+            }
+            out.writeVInt(changedIndices.size());
+            for (IndexRoutingTable index : changedIndices) {
+                IndexRoutingTable.Builder.writeTo(index, out);
+            }
+        }
+
+        /**
+         * Reads the changes written by {@link #writeDiffTo(RoutingTable, RoutingTable, StreamOutput)} and applies them
+         * to <tt>previous</tt>, which must be the routing table the changes were computed from.
+         */
+        public static RoutingTable readDiffFrom(StreamInput in, RoutingTable previous) throws IOException {
+            Builder builder = new Builder();
+            builder.version = in.readLong();
+            builder.indicesRouting.putAll(previous.indicesRouting);
+            int size = in.readVInt();
+            for (int i = 0; i < size; i++) {
+                builder.remove(in.readString());
+            }
+            size = in.readVInt();
+            for (int i = 0; i < size; i++) {
+                builder.add(IndexRoutingTable.Builder.readFrom(in));
+            }
+            return builder.build();
+        }
+
+        /**
+         * The routing table is rebuilt from the routing nodes on every reroute, so the shard routings are compared
+         * by value, including their version which {@link ImmutableShardRouting#equals(Object)} ignores.
+         */
+        private static boolean sameRouting(IndexRoutingTable previous, IndexRoutingTable index) {
+            if (previous == index) {
+                return true;
+            }
+            if (previous == null || previous.shards().size() != index.shards().size()) {
+                return false;
+            }
+            for (IndexShardRoutingTable indexShard : index) {
+                IndexShardRoutingTable previousShard = previous.shard(indexShard.shardId().id());
+                if (previousShard == null || previousShard.primaryAllocatedPostApi() != indexShard.primaryAllocatedPostApi()
+                        || previousShard.size() != indexShard.size()) {
+                    return false;
+                }
+                for (int i = 0; i < indexShard.size(); i++) {
+                    ShardRouting shard = indexShard.shards().get(i);
+                    ShardRouting previousRouting = previousShard.shards().get(i);
+                    if (!shard.equals(previousRouting) || shard.version() != previousRouting.version()) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
         public static void writeTo(RoutingTable table, StreamOutput out) throws IOException {
             out.writeLong(table.version);
             out.writeVInt(table.indicesRouting.size());
@@ -23,6 +23,7 @@ import com.google.common.base.Predicate;
 import org.apache.lucene.util.ArrayUtil;
 import org.apache.lucene.util.IntroSorter;
 import org.elasticsearch.ElasticsearchIllegalArgumentException;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
 import org.elasticsearch.cluster.metadata.MetaData;
 import org.elasticsearch.cluster.routing.MutableShardRouting;
 import org.elasticsearch.cluster.routing.RoutingNode;
@@ -34,6 +35,7 @@ import org.elasticsearch.cluster.routing.allocation.StartedRerouteAllocation;
 import org.elasticsearch.cluster.routing.allocation.decider.AllocationDeciders;
 import org.elasticsearch.cluster.routing.allocation.decider.Decision;
 import org.elasticsearch.cluster.routing.allocation.decider.Decision.Type;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.collect.IdentityHashSet;
 import org.elasticsearch.common.component.AbstractComponent;
 import org.elasticsearch.common.inject.Inject;
@@ -70,6 +72,7 @@ public class BalancedShardsAllocator extends AbstractComponent implements Shards
     public static final String SETTING_INDEX_BALANCE_FACTOR = "cluster.routing.allocation.balance.index";
     public static final String SETTING_SHARD_BALANCE_FACTOR = "cluster.routing.allocation.balance.shard";
     public static final String SETTING_PRIMARY_BALANCE_FACTOR = "cluster.routing.allocation.balance.primary";
+    public static final String SETTING_INCREMENTAL = "cluster.routing.allocation.balance.incremental";
 
     private static final float DEFAULT_INDEX_BALANCE_FACTOR = 0.5f;
     private static final float DEFAULT_SHARD_BALANCE_FACTOR = 0.45f;
@@ -87,6 +90,12 @@ public class BalancedShardsAllocator extends AbstractComponent implements Shards
             }
             BalancedShardsAllocator.this.threshold = threshold;
             BalancedShardsAllocator.this.weightFunction = new WeightFunction(indexBalance, shardBalance, primaryBalance);
+            boolean incremental = settings.getAsBoolean(SETTING_INCREMENTAL, BalancedShardsAllocator.this.incremental);
+            if (incremental != BalancedShardsAllocator.this.incremental) {
+                logger.info("updating [{}] from [{}] to [{}]", SETTING_INCREMENTAL, BalancedShardsAllocator.this.incremental, incremental);
+                BalancedShardsAllocator.this.incremental = incremental;
+                BalancedShardsAllocator.this.balancedIndices = null;
+            }
         }
     }
 
@@ -94,6 +103,11 @@ public class BalancedShardsAllocator extends AbstractComponent implements Shards
 
     private volatile float threshold = 1.0f;
 
+    private volatile boolean incremental = false;
+
+    /* the indices found balanced by the last rebalance, only kept in incremental mode */
+    private volatile BalancedIndices balancedIndices;
+
 
     public BalancedShardsAllocator(Settings settings) {
         this(settings, new NodeSettingsService(settings));
@@ -121,7 +135,12 @@ public class BalancedShardsAllocator extends AbstractComponent implements Shards
     @Override
     public boolean rebalance(RoutingAllocation allocation) {
         final Balancer balancer = new Balancer(logger, allocation, weightFunction, threshold);
-        return balancer.balance();
+        if (!incremental) {
+            return balancer.balance();
+        }
+        final boolean changed = balancer.balance(balancedIndices);
+        balancedIndices = balancer.balancedIndices();
+        return changed;
     }
 
     @Override
@@ -158,6 +177,13 @@ public class BalancedShardsAllocator extends AbstractComponent implements Shards
         return weightFunction.shardBalance;
     }
 
+    /**
+     * Returns <code>true</code> if indices that are still balanced since the last rebalance are skipped.
+     */
+    public boolean isIncremental() {
+        return incremental;
+    }
+
 
     /**
      * This class is the primary weight function used to create balanced over nodes and shards in the cluster.
@@ -274,6 +300,11 @@ public class BalancedShardsAllocator extends AbstractComponent implements Shards
         private final float threshold;
         private final MetaData metaData;
 
+        /* set once the deciders are asked for a relocation, and once a shard moved on the model */
+        private boolean decidersConsulted;
+        private boolean modelChanged;
+        private BalancedIndices balancedIndices;
+
         private final Predicate<MutableShardRouting> assignedFilter = new Predicate<MutableShardRouting>() {
             @Override
             public boolean apply(MutableShardRouting input) {
@@ -370,6 +401,18 @@ public class BalancedShardsAllocator extends AbstractComponent implements Shards
          *         changed, otherwise <code>false</code>
          */
         public boolean balance() {
+            return balance(null, false);
+        }
+
+        /**
+         * Balances the nodes like {@link #balance()}, skipping the indices the previous run found balanced as long as
+         * they still are. The indices found balanced by this run are available through {@link #balancedIndices()}.
+         */
+        boolean balance(@Nullable BalancedIndices previous) {
+            return balance(previous, true);
+        }
+
+        private boolean balance(@Nullable BalancedIndices previous, boolean recordBalanced) {
             if (this.nodes.isEmpty()) {
                 /* with no nodes this is pointless */
                 return false;
@@ -382,78 +425,11 @@ public class BalancedShardsAllocator extends AbstractComponent implements Shards
             if (!changed) {
                 NodeSorter sorter = newNodeSorter();
                 if (nodes.size() > 1) { /* skip if we only have one node */
-                    for (String index : buildWeightOrderedIndidces(Operation.BALANCE, sorter)) {
-                        sorter.reset(Operation.BALANCE, index);
-                        final float[] weights = sorter.weights;
-                        final ModelNode[] modelNodes = sorter.modelNodes;
-                        int lowIdx = 0;
-                        int highIdx = weights.length - 1;
-                        while (true) {
-                            final ModelNode minNode = modelNodes[lowIdx];
-                            final ModelNode maxNode = modelNodes[highIdx];
-                            advance_range:
-                            if (maxNode.numShards(index) > 0) {
-                                float delta = weights[highIdx] - weights[lowIdx];
-                                delta = lessThan(delta, threshold) ? delta : sorter.weight(Operation.THRESHOLD_CHECK, maxNode) - sorter.weight(Operation.THRESHOLD_CHECK, minNode);
-                                if (lessThan(delta, threshold)) {
-                                    if (lowIdx > 0 && highIdx-1 > 0 // is there a chance for a higher delta?
-                                        && (weights[highIdx-1] - weights[0] > threshold) // check if we need to break at all
-                                        ) {
-                                        /* This is a special case if allocations from the "heaviest" to the "lighter" nodes is not possible
-                                         * due to some allocation decider restrictions like zone awareness. if one zone has for instance
-                                         * less nodes than another zone. so one zone is horribly overloaded from a balanced perspective but we
-                                         * can't move to the "lighter" shards since otherwise the zone would go over capacity.
-                                         *
-                                         * This break jumps straight to the condition below were we start moving from the high index towards
-                                         * the low index to shrink the window we are considering for balance from the other direction.
-                                         * (check shrinking the window from MAX to MIN)
-                                         * See #3580
-                                         */
-                                        break advance_range;
-                                    }
-                                    if (logger.isTraceEnabled()) {
-                                        logger.trace("Stop balancing index [{}]  min_node [{}] weight: [{}]  max_node [{}] weight: [{}]  delta: [{}]",
-                                                index, maxNode.getNodeId(), weights[highIdx], minNode.getNodeId(), weights[lowIdx], delta);
-                                    }
-                                    break;
-                                }
-                                if (logger.isTraceEnabled()) {
-                                    logger.trace("Balancing from node [{}] weight: [{}] to node [{}] weight: [{}]  delta: [{}]",
-                                            maxNode.getNodeId(), weights[highIdx], minNode.getNodeId(), weights[lowIdx], delta);
-                                }
-                                /* pass the delta to the replication function to prevent relocations that only swap the weights of the two nodes.
-                                 * a relocation must bring us closer to the balance if we only achieve the same delta the relocation is useless */
-                                if (tryRelocateShard(Operation.BALANCE, minNode, maxNode, index, delta)) {
-                                    /*
-                                     * TODO we could be a bit smarter here, we don't need to fully sort necessarily
-                                     * we could just find the place to insert linearly but the win might be minor
-                                     * compared to the added complexity
-                                     */
-                                    weights[lowIdx] = sorter.weight(Operation.BALANCE, modelNodes[lowIdx]);
-                                    weights[highIdx] = sorter.weight(Operation.BALANCE, modelNodes[highIdx]);
-                                    sorter.sort(0, weights.length);
-                                    lowIdx = 0;
-                                    highIdx = weights.length - 1;
-                                    changed = true;
-                                    continue;
-                                }
-                            }
-                            if (lowIdx < highIdx - 1) {
-                                /* Shrinking the window from MIN to MAX
-                                 * we can't move from any shard from the min node lets move on to the next node
-                                 * and see if the threshold still holds. We either don't have any shard of this
-                                 * index on this node of allocation deciders prevent any relocation.*/
-                                lowIdx++;
-                            } else if (lowIdx > 0) {
-                                /* Shrinking the window from MAX to MIN
-                                 * now we go max to min since obviously we can't move anything to the max node
-                                 * lets pick the next highest */
-                                lowIdx = 0;
-                                highIdx--;
-                            } else {
-                                /* we are done here, we either can't relocate anymore or we are balanced */
-                                break;
-                            }
+                    if (recordBalanced) {
+                        changed = balanceIncrementally(sorter, previous);
+                    } else {
+                        for (String index : buildWeightOrderedIndidces(Operation.BALANCE, sorter, indices)) {
+                            changed |= balanceIndex(index, sorter);
                         }
                     }
                 }
@@ -462,6 +438,144 @@ public class BalancedShardsAllocator extends AbstractComponent implements Shards
             return changed;
         }
 
+        /**
+         * Balances the shards of the given index over the nodes, see {@link #balance()}.
+         *
+         * @return <code>true</code> if the current configuration has been
+         *         changed, otherwise <code>false</code>
+         */
+        private boolean balanceIndex(String index, NodeSorter sorter) {
+            boolean changed = false;
+            sorter.reset(Operation.BALANCE, index);
+            final float[] weights = sorter.weights;
+            final ModelNode[] modelNodes = sorter.modelNodes;
+            int lowIdx = 0;
+            int highIdx = weights.length - 1;
+            while (true) {
+                final ModelNode minNode = modelNodes[lowIdx];
+                final ModelNode maxNode = modelNodes[highIdx];
+                advance_range:
+                if (maxNode.numShards(index) > 0) {
+                    float delta = weights[highIdx] - weights[lowIdx];
+                    delta = lessThan(delta, threshold) ? delta : sorter.weight(Operation.THRESHOLD_CHECK, maxNode) - sorter.weight(Operation.THRESHOLD_CHECK, minNode);
+                    if (lessThan(delta, threshold)) {
+                        if (lowIdx > 0 && highIdx-1 > 0 // is there a chance for a higher delta?
+                            && (weights[highIdx-1] - weights[0] > threshold) // check if we need to break at all
+                            ) {
+                            /* This is a special case if allocations from the "heaviest" to the "lighter" nodes is not possible
+                             * due to some allocation decider restrictions like zone awareness. if one zone has for instance
+                             * less nodes than another zone. so one zone is horribly overloaded from a balanced perspective but we
+                             * can't move to the "lighter" shards since otherwise the zone would go over capacity.
+                             *
+                             * This break jumps straight to the condition below were we start moving from the high index towards
+                             * the low index to shrink the window we are considering for balance from the other direction.
+                             * (check shrinking the window from MAX to MIN)
+                             * See #3580
+                             */
+                            break advance_range;
+                        }
+                        if (logger.isTraceEnabled()) {
+                            logger.trace("Stop balancing index [{}]  min_node [{}] weight: [{}]  max_node [{}] weight: [{}]  delta: [{}]",
+                                    index, maxNode.getNodeId(), weights[highIdx], minNode.getNodeId(), weights[lowIdx], delta);
+                        }
+                        break;
+                    }
+                    if (logger.isTraceEnabled()) {
+                        logger.trace("Balancing from node [{}] weight: [{}] to node [{}] weight: [{}]  delta: [{}]",
+                                maxNode.getNodeId(), weights[highIdx], minNode.getNodeId(), weights[lowIdx], delta);
+                    }
+                    /* pass the delta to the replication function to prevent relocations that only swap the weights of the two nodes.
+                     * a relocation must bring us closer to the balance if we only achieve the same delta the relocation is useless */
+                    if (tryRelocateShard(Operation.BALANCE, minNode, maxNode, index, delta)) {
+                        /*
+                         * TODO we could be a bit smarter here, we don't need to fully sort necessarily
+                         * we could just find the place to insert linearly but the win might be minor
+                         * compared to the added complexity
+                         */
+                        weights[lowIdx] = sorter.weight(Operation.BALANCE, modelNodes[lowIdx]);
+                        weights[highIdx] = sorter.weight(Operation.BALANCE, modelNodes[highIdx]);
+                        sorter.sort(0, weights.length);
+                        lowIdx = 0;
+                        highIdx = weights.length - 1;
+                        changed = true;
+                        continue;
+                    }
+                }
+                if (lowIdx < highIdx - 1) {
+                    /* Shrinking the window from MIN to MAX
+                     * we can't move from any shard from the min node lets move on to the next node
+                     * and see if the threshold still holds. We either don't have any shard of this
+                     * index on this node of allocation deciders prevent any relocation.*/
+                    lowIdx++;
+                } else if (lowIdx > 0) {
+                    /* Shrinking the window from MAX to MIN
+                     * now we go max to min since obviously we can't move anything to the max node
+                     * lets pick the next highest */
+                    lowIdx = 0;
+                    highIdx--;
+                } else {
+                    /* we are done here, we either can't relocate anymore or we are balanced */
+                    break;
+                }
+            }
+            return changed;
+        }
+
+        /**
+         * Balances the indices like {@link #balance()} does, except for the indices the previous run found balanced
+         * if neither the nodes nor the index changed since. Records the indices found balanced by this run, see
+         * {@link #balancedIndices()}.
+         */
+        private boolean balanceIncrementally(NodeSorter sorter, @Nullable BalancedIndices previous) {
+            final BalancedIndices current = new BalancedIndices(this);
+            final boolean sameNodes = previous != null && previous.sameNodes(current);
+            final Map<String, int[]> indexShardCounts = new HashMap<String, int[]>();
+            final List<String> toBalance = new ArrayList<String>();
+            final List<String> skipped = new ArrayList<String>();
+            for (String index : indices) {
+                final int[] shardCounts = current.shardCounts(this, index);
+                if (sameNodes && previous.isBalanced(index, shardCounts)) {
+                    skipped.add(index);
+                    current.balanced.put(index, shardCounts);
+                } else {
+                    toBalance.add(index);
+                    indexShardCounts.put(index, shardCounts);
+                }
+            }
+            if (logger.isTraceEnabled()) {
+                logger.trace("Balancing [{}] indices, skipping [{}] indices that are still balanced", toBalance.size(), skipped.size());
+            }
+            boolean changed = false;
+            for (String index : buildWeightOrderedIndidces(Operation.BALANCE, sorter, toBalance)) {
+                decidersConsulted = false;
+                changed |= balanceIndex(index, sorter);
+                if (!decidersConsulted) {
+                    /* the index is balanced by the weights alone, this only changes when the shard counts change */
+                    current.balanced.put(index, indexShardCounts.get(index));
+                }
+            }
+            if (modelChanged) {
+                /* a shard moved on the model which changes the weights of the nodes, so the skipped indices
+                 * might not be balanced anymore and nothing can be carried over to the next run */
+                for (String index : buildWeightOrderedIndidces(Operation.BALANCE, sorter, skipped)) {
+                    changed |= balanceIndex(index, sorter);
+                }
+                balancedIndices = null;
+            } else {
+                balancedIndices = current;
+            }
+            return changed;
+        }
+
+        /**
+         * Returns the indices found balanced by the last incremental run of this balancer, or <code>null</code> if
+         * the run changed the model or was not incremental.
+         */
+        @Nullable
+        BalancedIndices balancedIndices() {
+            return balancedIndices;
+        }
+
         /**
          * This builds a initial index ordering where the indices are returned
          * in most unbalanced first. We need this in order to prevent over
@@ -475,8 +589,8 @@ public class BalancedShardsAllocator extends AbstractComponent implements Shards
          * average. To re-balance we need to move shards back eventually likely
          * to the nodes we relocated them from.
          */
-        private String[] buildWeightOrderedIndidces(Operation operation, NodeSorter sorter) {
-            final String[] indices = this.indices.toArray(new String[this.indices.size()]);
+        private String[] buildWeightOrderedIndidces(Operation operation, NodeSorter sorter, Collection<String> toOrder) {
+            final String[] indices = toOrder.toArray(new String[toOrder.size()]);
             final float[] deltas = new float[indices.length];
             for (int i = 0; i < deltas.length; i++) {
                 sorter.reset(operation, indices[i]);
@@ -783,6 +897,7 @@ public class BalancedShardsAllocator extends AbstractComponent implements Shards
         private boolean tryRelocateShard(Operation operation, ModelNode minNode, ModelNode maxNode, String idx, float minCost) {
             final ModelIndex index = maxNode.getIndex(idx);
             Decision decision = null;
+            decidersConsulted = true;
             if (index != null) {
                 if (logger.isTraceEnabled()) {
                     logger.trace("Try relocating shard for index index [{}] from node [{}] to node [{}]", idx, maxNode.getNodeId(),
@@ -824,6 +939,7 @@ public class BalancedShardsAllocator extends AbstractComponent implements Shards
                     /* allocate on the model even if not throttled */
                     maxNode.removeShard(candidate);
                     minNode.addShard(candidate, decision);
+                    modelChanged = true;
                     if (decision.type() == Type.YES) { /* only allocate on the cluster if we are not throttled */
                         if (logger.isTraceEnabled()) {
                             logger.trace("Relocate shard [{}] from node [{}] to node [{}]", candidate, maxNode.getNodeId(),
@@ -854,6 +970,94 @@ public class BalancedShardsAllocator extends AbstractComponent implements Shards
 
     }
 
+    /**
+     * The indices a rebalance found balanced without asking the allocation deciders for any relocation, along with the
+     * model they were found balanced for. The outcome of balancing such an index only depends on the weight function,
+     * the threshold, the number of shards and primaries of each node and the number of shards of the index on each node,
+     * so the index does not need to be balanced again for as long as none of these change.
+     */
+    static final class BalancedIndices {
+
+        private final WeightFunction weightFunction;
+        private final float threshold;
+        private final int totalNumberOfShards;
+        private final int numberOfShards;
+        private final String[] nodeIds;
+        private final int[] nodeShards;
+        private final int[] nodePrimaries;
+        private final ModelNode[] nodes;
+
+        /* per index: its total shards and primaries, followed by (node ordinal, shard count) for each node holding it */
+        final Map<String, int[]> balanced = new HashMap<String, int[]>();
+
+        BalancedIndices(Balancer balancer) {
+            this.weightFunction = balancer.weight;
+            this.threshold = balancer.threshold;
+            this.totalNumberOfShards = balancer.metaData.totalNumberOfShards();
+            this.numberOfShards = balancer.metaData.numberOfShards();
+            this.nodes = balancer.nodesArray();
+            Arrays.sort(nodes, new Comparator<ModelNode>() {
+                @Override
+                public int compare(ModelNode o1, ModelNode o2) {
+                    return o1.getNodeId().compareTo(o2.getNodeId());
+                }
+            });
+            this.nodeIds = new String[nodes.length];
+            this.nodeShards = new int[nodes.length];
+            this.nodePrimaries = new int[nodes.length];
+            for (int i = 0; i < nodes.length; i++) {
+                nodeIds[i] = nodes[i].getNodeId();
+                nodeShards[i] = nodes[i].numShards();
+                nodePrimaries[i] = nodes[i].numPrimaries();
+            }
+        }
+
+        /**
+         * Returns the shard counts of the given index on the current model.
+         */
+        int[] shardCounts(Balancer balancer, String index) {
+            int holders = 0;
+            for (ModelNode node : nodes) {
+                if (node.numShards(index) > 0) {
+                    holders++;
+                }
+            }
+            final IndexMetaData indexMetaData = balancer.metaData.index(index);
+            final int[] counts = new int[2 + 2 * holders];
+            counts[0] = indexMetaData.totalNumberOfShards();
+            counts[1] = indexMetaData.numberOfShards();
+            int pos = 2;
+            for (int i = 0; i < nodes.length && pos < counts.length; i++) {
+                final int numShards = nodes[i].numShards(index);
+                if (numShards > 0) {
+                    counts[pos++] = i;
+                    counts[pos++] = numShards;
+                }
+            }
+            return counts;
+        }
+
+        /**
+         * Returns <code>true</code> if the other instance was built for the same weight function and the same nodes.
+         */
+        boolean sameNodes(BalancedIndices other) {
+            return weightFunction == other.weightFunction
+                    && threshold == other.threshold
+                    && totalNumberOfShards == other.totalNumberOfShards
+                    && numberOfShards == other.numberOfShards
+                    && Arrays.equals(nodeIds, other.nodeIds)
+                    && Arrays.equals(nodeShards, other.nodeShards)
+                    && Arrays.equals(nodePrimaries, other.nodePrimaries);
+        }
+
+        /**
+         * Returns <code>true</code> if the index was found balanced with the given shard counts.
+         */
+        boolean isBalanced(String index, int[] shardCounts) {
+            return Arrays.equals(balanced.get(index), shardCounts);
+        }
+    }
+
     static class ModelNode implements Iterable<ModelIndex> {
         private final String id;
         private final Map<String, ModelIndex> indices = new HashMap<String, ModelIndex>();
@@ -0,0 +1,177 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.cluster.routing.operation;
+
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Streamable;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentBuilderString;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The statistics collected by the {@link ResponseCollectorService} about the nodes this node sent search
+ * requests to, along with their current rank.
+ */
+public class AdaptiveSelectionStats implements Streamable, ToXContent {
+
+    private Map<String, NodeStats> nodeStats;
+
+    AdaptiveSelectionStats() {
+
+    }
+
+    public AdaptiveSelectionStats(Map<String, NodeStats> nodeStats) {
+        this.nodeStats = nodeStats;
+    }
+
+    /**
+     * The statistics per node id.
+     */
+    public Map<String, NodeStats> getNodeStats() {
+        return nodeStats;
+    }
+
+    public static AdaptiveSelectionStats readOptionalAdaptiveSelectionStats(StreamInput in) throws IOException {
+        return in.readOptionalStreamable(new AdaptiveSelectionStats());
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        int size = in.readVInt();
+        nodeStats = new HashMap<String, NodeStats>(size);
+        for (int i = 0; i < size; i++) {
+            String nodeId = in.readString();
+            NodeStats stats = new NodeStats();
+            stats.readFrom(in);
+            nodeStats.put(nodeId, stats);
+        }
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeVInt(nodeStats.size());
+        for (Map.Entry<String, NodeStats> entry : nodeStats.entrySet()) {
+            out.writeString(entry.getKey());
+            entry.getValue().writeTo(out);
+        }
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject(Fields.ADAPTIVE_SELECTION);
+        for (Map.Entry<String, NodeStats> entry : nodeStats.entrySet()) {
+            builder.startObject(entry.getKey(), XContentBuilder.FieldCaseConversion.NONE);
+            entry.getValue().toXContent(builder, params);
+            builder.endObject();
+        }
+        builder.endObject();
+        return builder;
+    }
+
+    public static class NodeStats implements Streamable, ToXContent {
+
+        private int outstandingRequests;
+        private double avgQueueSize;
+        private long avgResponseTimeNanos;
+        private double rank;
+
+        NodeStats() {
+
+        }
+
+        public NodeStats(int outstandingRequests, double avgQueueSize, long avgResponseTimeNanos, double rank) {
+            this.outstandingRequests = outstandingRequests;
+            this.avgQueueSize = avgQueueSize;
+            this.avgResponseTimeNanos = avgResponseTimeNanos;
+            this.rank = rank;
+        }
+
+        /**
+         * The number of search requests sent to the node that did not get a response yet.
+         */
+        public int getOutstandingRequests() {
+            return outstandingRequests;
+        }
+
+        /**
+         * The moving average of the search queue size reported by the node.
+         */
+        public double getAvgQueueSize() {
+            return avgQueueSize;
+        }
+
+        /**
+         * The moving average of the response time of the node.
+         */
+        public TimeValue getAvgResponseTime() {
+            return TimeValue.timeValueNanos(avgResponseTimeNanos);
+        }
+
+        /**
+         * The rank of the node, the lower the better.
+         */
+        public double getRank() {
+            return rank;
+        }
+
+        @Override
+        public void readFrom(StreamInput in) throws IOException {
+            outstandingRequests = in.readVInt();
+            avgQueueSize = in.readDouble();
+            avgResponseTimeNanos = in.readVLong();
+            rank = in.readDouble();
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            out.writeVInt(outstandingRequests);
+            out.writeDouble(avgQueueSize);
+            out.writeVLong(avgResponseTimeNanos);
+            out.writeDouble(rank);
+        }
+
+        @Override
+        public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+            builder.field(Fields.OUTSTANDING_SEARCH_REQUESTS, outstandingRequests);
+            builder.field(Fields.AVG_QUEUE_SIZE, avgQueueSize);
+            if (builder.humanReadable()) {
+                builder.field(Fields.AVG_RESPONSE_TIME, getAvgResponseTime().toString());
+            }
+            builder.field(Fields.AVG_RESPONSE_TIME_NS, avgResponseTimeNanos);
+            builder.field(Fields.RANK, rank);
+            return builder;
+        }
+    }
+
+    static final class Fields {
+        static final XContentBuilderString ADAPTIVE_SELECTION = new XContentBuilderString("adaptive_selection");
+        static final XContentBuilderString OUTSTANDING_SEARCH_REQUESTS = new XContentBuilderString("outstanding_search_requests");
+        static final XContentBuilderString AVG_QUEUE_SIZE = new XContentBuilderString("avg_queue_size");
+        static final XContentBuilderString AVG_RESPONSE_TIME = new XContentBuilderString("avg_response_time");
+        static final XContentBuilderString AVG_RESPONSE_TIME_NS = new XContentBuilderString("avg_response_time_ns");
+        static final XContentBuilderString RANK = new XContentBuilderString("rank");
+    }
+}
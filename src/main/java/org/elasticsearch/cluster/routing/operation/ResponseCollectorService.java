@@ -0,0 +1,257 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.cluster.routing.operation;
+
+import org.elasticsearch.cluster.ClusterChangedEvent;
+import org.elasticsearch.cluster.ClusterService;
+import org.elasticsearch.cluster.ClusterStateListener;
+import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.component.AbstractComponent;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.node.settings.NodeSettingsService;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Collects the response times and search queue sizes observed by this node when sending search requests to
+ * other nodes, and ranks the nodes by their expected latency. The rank is used by the operation routing to
+ * prefer the shard copies on the least loaded nodes when <tt>cluster.routing.use_adaptive_replica_selection</tt>
+ * is enabled.
+ */
+public class ResponseCollectorService extends AbstractComponent implements ClusterStateListener {
+
+    public static final String CLUSTER_ROUTING_USE_ADAPTIVE_REPLICA_SELECTION = "cluster.routing.use_adaptive_replica_selection";
+
+    /**
+     * The weight given to a new observation in the moving averages.
+     */
+    private static final double ALPHA = 0.3;
+
+    class ApplySettings implements NodeSettingsService.Listener {
+        @Override
+        public void onRefreshSettings(Settings settings) {
+            boolean useAdaptiveReplicaSelection = settings.getAsBoolean(CLUSTER_ROUTING_USE_ADAPTIVE_REPLICA_SELECTION, ResponseCollectorService.this.useAdaptiveReplicaSelection);
+            if (useAdaptiveReplicaSelection != ResponseCollectorService.this.useAdaptiveReplicaSelection) {
+                logger.info("updating [{}] from [{}] to [{}]", CLUSTER_ROUTING_USE_ADAPTIVE_REPLICA_SELECTION, ResponseCollectorService.this.useAdaptiveReplicaSelection, useAdaptiveReplicaSelection);
+                ResponseCollectorService.this.useAdaptiveReplicaSelection = useAdaptiveReplicaSelection;
+            }
+        }
+    }
+
+    private final ConcurrentMap<String, NodeStatistics> nodeIdToStats = ConcurrentCollections.newConcurrentMap();
+
+    private volatile boolean useAdaptiveReplicaSelection;
+
+    public ResponseCollectorService(Settings settings) {
+        super(settings);
+        this.useAdaptiveReplicaSelection = settings.getAsBoolean(CLUSTER_ROUTING_USE_ADAPTIVE_REPLICA_SELECTION, false);
+    }
+
+    @Inject
+    public ResponseCollectorService(Settings settings, ClusterService clusterService, NodeSettingsService nodeSettingsService) {
+        this(settings);
+        clusterService.add(this);
+        nodeSettingsService.addListener(new ApplySettings());
+    }
+
+    public boolean useAdaptiveReplicaSelection() {
+        return useAdaptiveReplicaSelection;
+    }
+
+    @Override
+    public void clusterChanged(ClusterChangedEvent event) {
+        if (event.nodesRemoved()) {
+            for (DiscoveryNode removedNode : event.nodesDelta().removedNodes()) {
+                nodeIdToStats.remove(removedNode.id());
+            }
+        }
+    }
+
+    /**
+     * Marks a search request as sent to the given node, it is accounted as outstanding until
+     * {@link #onResponse} or {@link #onFailure} is called for it.
+     */
+    public void onRequestSent(String nodeId) {
+        statistics(nodeId).onRequestSent();
+    }
+
+    /**
+     * Records the response of the given node.
+     *
+     * @param queueSize         the size of the search queue of the node, <tt>-1</tt> if unknown
+     * @param responseTimeNanos the time it took for the response to come back
+     */
+    public void onResponse(String nodeId, int queueSize, long responseTimeNanos) {
+        statistics(nodeId).onResponse(queueSize, responseTimeNanos);
+    }
+
+    public void onFailure(String nodeId) {
+        statistics(nodeId).onFailure();
+    }
+
+    /**
+     * Returns the rank of the given node, the lower the better, or <tt>null</tt> if no response was
+     * received from it yet.
+     */
+    @Nullable
+    public Double rank(String nodeId) {
+        NodeStatistics statistics = nodeIdToStats.get(nodeId);
+        if (statistics == null) {
+            return null;
+        }
+        return statistics.rank();
+    }
+
+    /**
+     * Called when the node with the given id was selected over the other given nodes. The statistics of the nodes
+     * that were not selected are moved towards the ones of the selected node until they tie with it: since a node is
+     * only observed when it is selected, a node that was slow once would otherwise never be tried again, even after
+     * it recovered.
+     */
+    public void onNodeSelected(String selectedNodeId, Iterable<String> unselectedNodeIds) {
+        NodeStatistics selected = nodeIdToStats.get(selectedNodeId);
+        if (selected == null) {
+            return;
+        }
+        double[] selectedStats = selected.averages();
+        if (selectedStats == null) {
+            return;
+        }
+        for (String nodeId : unselectedNodeIds) {
+            if (nodeId.equals(selectedNodeId)) {
+                continue;
+            }
+            NodeStatistics statistics = nodeIdToStats.get(nodeId);
+            if (statistics != null) {
+                statistics.adjustTowards(selectedStats[0], selectedStats[1]);
+            }
+        }
+    }
+
+    public AdaptiveSelectionStats stats() {
+        Map<String, AdaptiveSelectionStats.NodeStats> nodeStats = new HashMap<String, AdaptiveSelectionStats.NodeStats>(nodeIdToStats.size());
+        for (Map.Entry<String, NodeStatistics> entry : nodeIdToStats.entrySet()) {
+            AdaptiveSelectionStats.NodeStats stats = entry.getValue().stats();
+            if (stats != null) {
+                nodeStats.put(entry.getKey(), stats);
+            }
+        }
+        return new AdaptiveSelectionStats(nodeStats);
+    }
+
+    private NodeStatistics statistics(String nodeId) {
+        NodeStatistics statistics = nodeIdToStats.get(nodeId);
+        if (statistics == null) {
+            statistics = new NodeStatistics();
+            NodeStatistics existing = nodeIdToStats.putIfAbsent(nodeId, statistics);
+            if (existing != null) {
+                statistics = existing;
+            }
+        }
+        return statistics;
+    }
+
+    static class NodeStatistics {
+
+        private int outstandingRequests;
+        private boolean hasResponse;
+        private double queueSize;
+        private double responseTime;
+
+        synchronized void onRequestSent() {
+            outstandingRequests++;
+        }
+
+        synchronized void onFailure() {
+            if (outstandingRequests > 0) {
+                outstandingRequests--;
+            }
+        }
+
+        synchronized void onResponse(int queueSize, long responseTimeNanos) {
+            if (outstandingRequests > 0) {
+                outstandingRequests--;
+            }
+            if (!hasResponse) {
+                this.queueSize = Math.max(queueSize, 0);
+                this.responseTime = responseTimeNanos;
+                hasResponse = true;
+                return;
+            }
+            if (queueSize >= 0) {
+                this.queueSize = ALPHA * queueSize + (1 - ALPHA) * this.queueSize;
+            }
+            this.responseTime = ALPHA * responseTimeNanos + (1 - ALPHA) * this.responseTime;
+        }
+
+        /**
+         * Returns the average queue size and response time of the node, or <tt>null</tt> if no response was
+         * received from it yet.
+         */
+        synchronized double[] averages() {
+            if (!hasResponse) {
+                return null;
+            }
+            return new double[]{queueSize, responseTime};
+        }
+
+        /**
+         * Moves the averages of the node halfway towards the given ones where they are better, rounding the gap
+         * down so that the averages end up equal to the given ones and the nodes tie, rather than only getting
+         * infinitely close to them.
+         */
+        synchronized void adjustTowards(double queueSize, double responseTime) {
+            if (!hasResponse) {
+                return;
+            }
+            if (queueSize < this.queueSize) {
+                this.queueSize = queueSize + Math.floor((this.queueSize - queueSize) / 2);
+            }
+            if (responseTime < this.responseTime) {
+                this.responseTime = responseTime + Math.floor((this.responseTime - responseTime) / 2);
+            }
+        }
+
+        /**
+         * The expected latency of the node: its average response time, penalized by the cube of the requests
+         * that are expected to be queued ahead of a new one (the ones this node has in flight to it plus the ones
+         * in its search queue) so that a node which starts queueing is quickly avoided.
+         */
+        synchronized Double rank() {
+            if (!hasResponse) {
+                return null;
+            }
+            double queue = 1 + outstandingRequests + queueSize;
+            return responseTime * queue * queue * queue;
+        }
+
+        synchronized AdaptiveSelectionStats.NodeStats stats() {
+            if (!hasResponse) {
+                return null;
+            }
+            return new AdaptiveSelectionStats.NodeStats(outstandingRequests, queueSize, (long) responseTime, rank());
+        }
+    }
+}
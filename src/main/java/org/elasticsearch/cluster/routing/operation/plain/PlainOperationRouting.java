@@ -29,6 +29,7 @@ import org.elasticsearch.cluster.routing.IndexShardRoutingTable;
 import org.elasticsearch.cluster.routing.ShardIterator;
 import org.elasticsearch.cluster.routing.allocation.decider.AwarenessAllocationDecider;
 import org.elasticsearch.cluster.routing.operation.OperationRouting;
+import org.elasticsearch.cluster.routing.operation.ResponseCollectorService;
 import org.elasticsearch.cluster.routing.operation.hash.HashFunction;
 import org.elasticsearch.cluster.routing.operation.hash.djb.DjbHashFunction;
 import org.elasticsearch.common.Nullable;
@@ -57,12 +58,20 @@ public class PlainOperationRouting extends AbstractComponent implements Operatio
 
     private final AwarenessAllocationDecider awarenessAllocationDecider;
 
-    @Inject
+    private final ResponseCollectorService responseCollectorService;
+
     public PlainOperationRouting(Settings indexSettings, HashFunction hashFunction, AwarenessAllocationDecider awarenessAllocationDecider) {
+        this(indexSettings, hashFunction, awarenessAllocationDecider, new ResponseCollectorService(indexSettings));
+    }
+
+    @Inject
+    public PlainOperationRouting(Settings indexSettings, HashFunction hashFunction, AwarenessAllocationDecider awarenessAllocationDecider,
+                                 ResponseCollectorService responseCollectorService) {
         super(indexSettings);
         this.hashFunction = hashFunction;
         this.useType = indexSettings.getAsBoolean("cluster.routing.operation.use_type", false);
         this.awarenessAllocationDecider = awarenessAllocationDecider;
+        this.responseCollectorService = responseCollectorService;
     }
 
     @Override
@@ -77,12 +86,12 @@ public class PlainOperationRouting extends AbstractComponent implements Operatio
 
     @Override
     public ShardIterator getShards(ClusterState clusterState, String index, String type, String id, @Nullable String routing, @Nullable String preference) throws IndexMissingException, IndexShardMissingException {
-        return preferenceActiveShardIterator(shards(clusterState, index, type, id, routing), clusterState.nodes().localNodeId(), clusterState.nodes(), preference);
+        return preferenceActiveShardIterator(shards(clusterState, index, type, id, routing), clusterState.nodes().localNodeId(), clusterState.nodes(), preference, null);
     }
 
     @Override
     public ShardIterator getShards(ClusterState clusterState, String index, int shardId, @Nullable String preference) throws IndexMissingException, IndexShardMissingException {
-        return preferenceActiveShardIterator(shards(clusterState, index, shardId), clusterState.nodes().localNodeId(), clusterState.nodes(), preference);
+        return preferenceActiveShardIterator(shards(clusterState, index, shardId), clusterState.nodes().localNodeId(), clusterState.nodes(), preference, null);
     }
 
     @Override
@@ -121,7 +130,8 @@ public class PlainOperationRouting extends AbstractComponent implements Operatio
         final Set<IndexShardRoutingTable> shards = computeTargetedShards(clusterState, concreteIndices, routing);
         final Set<ShardIterator> set = new HashSet<ShardIterator>(shards.size());
         for (IndexShardRoutingTable shard : shards) {
-            ShardIterator iterator = preferenceActiveShardIterator(shard, clusterState.nodes().localNodeId(), clusterState.nodes(), preference);
+            ShardIterator iterator = preferenceActiveShardIterator(shard, clusterState.nodes().localNodeId(), clusterState.nodes(), preference,
+                    responseCollectorService.useAdaptiveReplicaSelection() ? responseCollectorService : null);
             if (iterator != null) {
                 set.add(iterator);
             }
@@ -157,14 +167,14 @@ public class PlainOperationRouting extends AbstractComponent implements Operatio
         return set;
     }
 
-    private ShardIterator preferenceActiveShardIterator(IndexShardRoutingTable indexShard, String localNodeId, DiscoveryNodes nodes, @Nullable String preference) {
+    /**
+     * @param collector when set, shard copies are ranked using the statistics it collected unless
+     *                  a preference or awareness attributes dictate the order
+     */
+    private ShardIterator preferenceActiveShardIterator(IndexShardRoutingTable indexShard, String localNodeId, DiscoveryNodes nodes, @Nullable String preference,
+                                                        @Nullable ResponseCollectorService collector) {
         if (preference == null || preference.isEmpty()) {
-            String[] awarenessAttributes = awarenessAllocationDecider.awarenessAttributes();
-            if (awarenessAttributes.length == 0) {
-                return indexShard.activeInitializingShardsRandomIt();
-            } else {
-                return indexShard.preferAttributesActiveInitializingShardsIt(awarenessAttributes, nodes);
-            }
+            return defaultActiveShardIterator(indexShard, nodes, collector);
         }
         if (preference.charAt(0) == '_') {
             if (preference.startsWith("_shards:")) {
@@ -189,12 +199,7 @@ public class PlainOperationRouting extends AbstractComponent implements Operatio
                 }
                 // no more preference
                 if (index == -1 || index == preference.length() - 1) {
-                    String[] awarenessAttributes = awarenessAllocationDecider.awarenessAttributes();
-                    if (awarenessAttributes.length == 0) {
-                        return indexShard.activeInitializingShardsRandomIt();
-                    } else {
-                        return indexShard.preferAttributesActiveInitializingShardsIt(awarenessAttributes, nodes);
-                    }
+                    return defaultActiveShardIterator(indexShard, nodes, collector);
                 } else {
                     // update the preference and continue
                     preference = preference.substring(index + 1);
@@ -230,6 +235,18 @@ public class PlainOperationRouting extends AbstractComponent implements Operatio
         }
     }
 
+    private ShardIterator defaultActiveShardIterator(IndexShardRoutingTable indexShard, DiscoveryNodes nodes, @Nullable ResponseCollectorService collector) {
+        String[] awarenessAttributes = awarenessAllocationDecider.awarenessAttributes();
+        if (awarenessAttributes.length == 0) {
+            if (collector != null) {
+                return indexShard.activeInitializingShardsRankedIt(collector);
+            }
+            return indexShard.activeInitializingShardsRandomIt();
+        } else {
+            return indexShard.preferAttributesActiveInitializingShardsIt(awarenessAttributes, nodes);
+        }
+    }
+
     public IndexMetaData indexMetaData(ClusterState clusterState, String index) {
         IndexMetaData indexMetaData = clusterState.metaData().index(index);
         if (indexMetaData == null) {
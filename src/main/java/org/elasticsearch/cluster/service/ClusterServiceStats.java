@@ -0,0 +1,120 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.cluster.service;
+
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Streamable;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentBuilderString;
+
+import java.io.IOException;
+
+/**
+ * Statistics about the cluster state update tasks of a node, including the tasks executed in batches.
+ */
+public class ClusterServiceStats implements Streamable, ToXContent {
+
+    private int pendingTasks;
+    private long batches;
+    private long batchedTasks;
+    private int maxBatchSize;
+
+    ClusterServiceStats() {
+    }
+
+    public ClusterServiceStats(int pendingTasks, long batches, long batchedTasks, int maxBatchSize) {
+        this.pendingTasks = pendingTasks;
+        this.batches = batches;
+        this.batchedTasks = batchedTasks;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * The number of cluster state update tasks waiting to be executed.
+     */
+    public int getPendingTasks() {
+        return pendingTasks;
+    }
+
+    /**
+     * The number of batches of tasks executed.
+     */
+    public long getBatches() {
+        return batches;
+    }
+
+    /**
+     * The total number of tasks executed as part of a batch.
+     */
+    public long getBatchedTasks() {
+        return batchedTasks;
+    }
+
+    /**
+     * The largest number of tasks executed in a single batch.
+     */
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public static ClusterServiceStats readOptionalClusterServiceStats(StreamInput in) throws IOException {
+        return in.readOptionalStreamable(new ClusterServiceStats());
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        pendingTasks = in.readVInt();
+        batches = in.readVLong();
+        batchedTasks = in.readVLong();
+        maxBatchSize = in.readVInt();
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeVInt(pendingTasks);
+        out.writeVLong(batches);
+        out.writeVLong(batchedTasks);
+        out.writeVInt(maxBatchSize);
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject(Fields.CLUSTER_SERVICE);
+        builder.field(Fields.PENDING_TASKS, pendingTasks);
+        builder.startObject(Fields.BATCHES);
+        builder.field(Fields.COUNT, batches);
+        builder.field(Fields.TASKS, batchedTasks);
+        builder.field(Fields.MAX_SIZE, maxBatchSize);
+        builder.endObject();
+        builder.endObject();
+        return builder;
+    }
+
+    static final class Fields {
+        static final XContentBuilderString CLUSTER_SERVICE = new XContentBuilderString("cluster_service");
+        static final XContentBuilderString PENDING_TASKS = new XContentBuilderString("pending_tasks");
+        static final XContentBuilderString BATCHES = new XContentBuilderString("batches");
+        static final XContentBuilderString COUNT = new XContentBuilderString("count");
+        static final XContentBuilderString TASKS = new XContentBuilderString("tasks");
+        static final XContentBuilderString MAX_SIZE = new XContentBuilderString("max_size");
+    }
+}
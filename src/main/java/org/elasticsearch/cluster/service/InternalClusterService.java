@@ -37,6 +37,7 @@ import org.elasticsearch.common.component.AbstractLifecycleComponent;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.logging.ESLogger;
 import org.elasticsearch.common.logging.Loggers;
+import org.elasticsearch.common.metrics.CounterMetric;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.text.StringText;
 import org.elasticsearch.common.unit.TimeValue;
@@ -48,8 +49,10 @@ import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.TransportService;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Queue;
 import java.util.concurrent.*;
 
@@ -87,6 +90,12 @@ public class InternalClusterService extends AbstractLifecycleComponent<ClusterSe
 
     private volatile ScheduledFuture reconnectToNodes;
 
+    private final Map<ClusterStateTaskExecutor, List<BatchedTask>> batchedTasks = new HashMap<ClusterStateTaskExecutor, List<BatchedTask>>();
+
+    private final CounterMetric batches = new CounterMetric();
+    private final CounterMetric executedBatchedTasks = new CounterMetric();
+    private volatile int maxBatchSize;
+
     @Inject
     public InternalClusterService(Settings settings, DiscoveryService discoveryService, OperationRouting operationRouting, TransportService transportService,
                                   NodeSettingsService nodeSettingsService, ThreadPool threadPool) {
@@ -261,6 +270,31 @@ public class InternalClusterService extends AbstractLifecycleComponent<ClusterSe
         }
     }
 
+    @Override
+    public <T> void submitStateUpdateTask(final String source, T task, Priority priority, ClusterStateTaskExecutor<T> executor, ClusterStateTaskListener listener) {
+        if (!lifecycle.started()) {
+            return;
+        }
+        synchronized (batchedTasks) {
+            List<BatchedTask> pending = batchedTasks.get(executor);
+            if (pending == null) {
+                pending = new ArrayList<BatchedTask>();
+                batchedTasks.put(executor, pending);
+            }
+            pending.add(new BatchedTask<T>(source, task, listener));
+        }
+        // every task gets its own update task so it shows up in the pending tasks, the first one to run drains
+        // all the tasks queued for the executor and the others are no-ops
+        submitStateUpdateTask(source, priority, new BatchUpdateTask<T>(executor));
+    }
+
+    @Override
+    public ClusterServiceStats stats() {
+        PrioritizedEsThreadPoolExecutor executor = updateTasksExecutor;
+        int pendingTasks = executor == null ? 0 : executor.getPending().length;
+        return new ClusterServiceStats(pendingTasks, batches.count(), executedBatchedTasks.count(), maxBatchSize);
+    }
+
     @Override
     public List<PendingClusterTask> pendingTasks() {
         long now = System.currentTimeMillis();
@@ -466,6 +500,85 @@ public class InternalClusterService extends AbstractLifecycleComponent<ClusterSe
         }
     }
 
+    static class BatchedTask<T> {
+
+        final String source;
+        final T task;
+        final ClusterStateTaskListener listener;
+
+        BatchedTask(String source, T task, ClusterStateTaskListener listener) {
+            this.source = source;
+            this.task = task;
+            this.listener = listener;
+        }
+    }
+
+    /**
+     * Drains the tasks queued for an executor when it runs and executes them together, so the whole batch
+     * results in a single new cluster state, published once.
+     */
+    class BatchUpdateTask<T> implements ProcessedClusterStateUpdateTask {
+
+        private final ClusterStateTaskExecutor<T> executor;
+        private List<BatchedTask<T>> batch;
+
+        BatchUpdateTask(ClusterStateTaskExecutor<T> executor) {
+            this.executor = executor;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public ClusterState execute(ClusterState currentState) throws Exception {
+            synchronized (batchedTasks) {
+                batch = (List) batchedTasks.remove(executor);
+            }
+            if (batch == null) {
+                // drained and executed by a previous update task
+                return currentState;
+            }
+            logger.debug("executing batch of [{}] tasks, first source [{}]", batch.size(), batch.get(0).source);
+            batches.inc();
+            executedBatchedTasks.inc(batch.size());
+            if (batch.size() > maxBatchSize) {
+                maxBatchSize = batch.size();
+            }
+            List<T> tasks = new ArrayList<T>(batch.size());
+            for (BatchedTask<T> batchedTask : batch) {
+                tasks.add(batchedTask.task);
+            }
+            return executor.execute(currentState, tasks);
+        }
+
+        @Override
+        public void onFailure(String source, Throwable t) {
+            if (batch == null) {
+                logger.error("unexpected failure during [{}]", t, source);
+                return;
+            }
+            for (BatchedTask<T> batchedTask : batch) {
+                try {
+                    batchedTask.listener.onFailure(batchedTask.source, t);
+                } catch (Throwable e) {
+                    logger.error("exception thrown by listener notifying of failure from [{}]", e, batchedTask.source);
+                }
+            }
+        }
+
+        @Override
+        public void clusterStateProcessed(String source, ClusterState oldState, ClusterState newState) {
+            if (batch == null) {
+                return;
+            }
+            for (BatchedTask<T> batchedTask : batch) {
+                try {
+                    batchedTask.listener.clusterStateProcessed(batchedTask.source, oldState, newState);
+                } catch (Throwable e) {
+                    logger.error("exception thrown by listener while notified of cluster state processed from [{}]", e, batchedTask.source);
+                }
+            }
+        }
+    }
+
     class NotifyTimeout implements Runnable {
         final TimeoutClusterStateListener listener;
         final TimeValue timeout;
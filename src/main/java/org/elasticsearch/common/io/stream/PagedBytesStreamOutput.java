@@ -0,0 +1,154 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.io.stream;
+
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.cache.recycler.PageCacheRecycler;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.lease.Releasables;
+import org.elasticsearch.common.recycler.Recycler;
+import org.elasticsearch.common.util.BigArrays;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@link StreamOutput} that writes into fixed size pages obtained from a {@link PageCacheRecycler}, so that
+ * the written bytes never need to be copied into a larger array as the stream grows. The content is exposed
+ * as one {@link ByteBuffer} per page, suitable for gathering writes to a channel. The pages are given back to
+ * the recycler on {@link #release()}.
+ */
+public class PagedBytesStreamOutput extends StreamOutput implements Releasable {
+
+    private static final int PAGE_SIZE = BigArrays.BYTE_PAGE_SIZE;
+
+    private final PageCacheRecycler recycler;
+    private final List<byte[]> pages = new ArrayList<byte[]>();
+    private final List<Recycler.V<byte[]>> recycledPages = new ArrayList<Recycler.V<byte[]>>();
+
+    private int count;
+
+    /**
+     * Creates a new stream, pages are allocated on the heap when the recycler is <tt>null</tt>.
+     */
+    public PagedBytesStreamOutput(@Nullable PageCacheRecycler recycler) {
+        this.recycler = recycler;
+    }
+
+    @Override
+    public boolean seekPositionSupported() {
+        return true;
+    }
+
+    @Override
+    public long position() throws IOException {
+        return count;
+    }
+
+    @Override
+    public void seek(long position) throws IOException {
+        if (position > (long) pages.size() * PAGE_SIZE) {
+            throw new UnsupportedOperationException("can't seek past the allocated pages");
+        }
+        count = (int) position;
+    }
+
+    @Override
+    public void writeByte(byte b) throws IOException {
+        ensureCapacity(count + 1);
+        pages.get(count / PAGE_SIZE)[count % PAGE_SIZE] = b;
+        count++;
+    }
+
+    @Override
+    public void writeBytes(byte[] b, int offset, int length) throws IOException {
+        if (length == 0) {
+            return;
+        }
+        ensureCapacity(count + length);
+        while (length > 0) {
+            final byte[] page = pages.get(count / PAGE_SIZE);
+            final int pageOffset = count % PAGE_SIZE;
+            final int toCopy = Math.min(length, PAGE_SIZE - pageOffset);
+            System.arraycopy(b, offset, page, pageOffset, toCopy);
+            offset += toCopy;
+            length -= toCopy;
+            count += toCopy;
+        }
+    }
+
+    private void ensureCapacity(long capacity) {
+        if (capacity > Integer.MAX_VALUE) {
+            throw new UnsupportedOperationException("can't write more than 2gb to a paged stream");
+        }
+        while ((long) pages.size() * PAGE_SIZE < capacity) {
+            if (recycler != null) {
+                final Recycler.V<byte[]> v = recycler.bytePage(false);
+                recycledPages.add(v);
+                pages.add(v.v());
+            } else {
+                pages.add(new byte[PAGE_SIZE]);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of bytes written so far.
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Returns the written bytes as one buffer per page. The buffers wrap the pages, they are only
+     * valid until this stream is released.
+     */
+    public ByteBuffer[] toByteBuffers() {
+        final int numPages = (count + PAGE_SIZE - 1) / PAGE_SIZE;
+        final ByteBuffer[] buffers = new ByteBuffer[numPages];
+        for (int i = 0; i < numPages; i++) {
+            final int length = i == numPages - 1 ? count - i * PAGE_SIZE : PAGE_SIZE;
+            buffers[i] = ByteBuffer.wrap(pages.get(i), 0, length);
+        }
+        return buffers;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        // nothing to do there
+    }
+
+    @Override
+    public void close() throws IOException {
+        release();
+    }
+
+    @Override
+    public boolean release() throws ElasticsearchException {
+        Releasables.release(recycledPages.toArray(new Releasable[recycledPages.size()]));
+        recycledPages.clear();
+        pages.clear();
+        count = 0;
+        return true;
+    }
+}
@@ -37,6 +37,9 @@ public class DocIdSets {
         if (docIdSet instanceof FixedBitSet) {
             return ((FixedBitSet) docIdSet).getBits().length * 8 + 16;
         }
+        if (docIdSet instanceof OffHeapDocIdSet) {
+            return ((OffHeapDocIdSet) docIdSet).sizeInBytes();
+        }
         // only for empty ones and unknowns...
         return 1;
     }
@@ -53,7 +56,7 @@ public class DocIdSets {
      * For example, it does not ends up iterating one doc at a time check for its "value".
      */
     public static boolean isFastIterator(DocIdSet set) {
-        return set instanceof FixedBitSet;
+        return set instanceof FixedBitSet || set instanceof OffHeapDocIdSet;
     }
 
     /**
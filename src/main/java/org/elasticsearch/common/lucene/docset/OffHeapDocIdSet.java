@@ -0,0 +1,326 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.common.lucene.docset;
+
+import org.apache.lucene.search.DocIdSet;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.FixedBitSet;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.elasticsearch.ElasticsearchIllegalStateException;
+import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.util.ByteBufferCleaner;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An immutable {@link DocIdSet} that keeps its doc ids in a direct {@link ByteBuffer}, outside of the heap.
+ * <p/>
+ * The encoding is picked per set, based on its density, as the smallest of:
+ * <ul>
+ * <li>a sorted list of the matching doc ids, for sparse sets</li>
+ * <li>a bitset of <tt>maxDoc</tt> bits</li>
+ * <li>a sorted list of the doc ids that do <b>not</b> match, for sets matching almost all docs</li>
+ * </ul>
+ * Only the bitset encoding provides random access through {@link #bits()}.
+ * <p/>
+ * The set is reference counted, it starts with a single reference owned by its creator. Readers must
+ * {@link #tryIncRef() acquire} a reference before using the set and {@link #release()} it once they stopped
+ * iterating, the direct memory is freed as soon as the last reference is released.
+ */
+public class OffHeapDocIdSet extends DocIdSet implements Releasable {
+
+    public static enum Encoding {
+        LIST, BITSET, INVERTED_LIST
+    }
+
+    private static final long SHALLOW_SIZE = RamUsageEstimator.shallowSizeOfInstance(OffHeapDocIdSet.class) + 64; // the direct buffer itself
+
+    private final Encoding encoding;
+    private final ByteBuffer buffer;
+    private final int maxDoc;
+    private final int cardinality;
+    // number of ints (lists) or longs (bitset) in the buffer
+    private final int length;
+
+    private final AtomicInteger refCount = new AtomicInteger(1);
+
+    private OffHeapDocIdSet(Encoding encoding, ByteBuffer buffer, int maxDoc, int cardinality, int length) {
+        this.encoding = encoding;
+        this.buffer = buffer;
+        this.maxDoc = maxDoc;
+        this.cardinality = cardinality;
+        this.length = length;
+    }
+
+    /**
+     * Copies the provided bitset into a new off heap set, using the most compact encoding.
+     */
+    public static OffHeapDocIdSet of(FixedBitSet bits) {
+        final int maxDoc = bits.length();
+        final int cardinality = bits.cardinality();
+        final long listBytes = (long) cardinality * 4;
+        final long bitsetBytes = (long) FixedBitSet.bits2words(maxDoc) * 8;
+        final long invertedBytes = (long) (maxDoc - cardinality) * 4;
+
+        if (listBytes <= bitsetBytes && listBytes <= invertedBytes) {
+            final ByteBuffer buffer = allocate(listBytes);
+            int i = 0;
+            for (int doc = maxDoc > 0 ? bits.nextSetBit(0) : -1; doc != -1; doc = doc + 1 < maxDoc ? bits.nextSetBit(doc + 1) : -1) {
+                buffer.putInt(i++ << 2, doc);
+            }
+            return new OffHeapDocIdSet(Encoding.LIST, buffer, maxDoc, cardinality, cardinality);
+        } else if (bitsetBytes <= invertedBytes) {
+            final ByteBuffer buffer = allocate(bitsetBytes);
+            final long[] words = bits.getBits();
+            final int numWords = FixedBitSet.bits2words(maxDoc);
+            for (int i = 0; i < numWords; i++) {
+                buffer.putLong(i << 3, words[i]);
+            }
+            return new OffHeapDocIdSet(Encoding.BITSET, buffer, maxDoc, cardinality, numWords);
+        } else {
+            final ByteBuffer buffer = allocate(invertedBytes);
+            int i = 0;
+            for (int doc = 0; doc < maxDoc; doc++) {
+                if (!bits.get(doc)) {
+                    buffer.putInt(i++ << 2, doc);
+                }
+            }
+            return new OffHeapDocIdSet(Encoding.INVERTED_LIST, buffer, maxDoc, cardinality, maxDoc - cardinality);
+        }
+    }
+
+    private static ByteBuffer allocate(long bytes) {
+        // the chosen encoding is never larger than the bitset one, so this is at most maxDoc / 8 bytes
+        return ByteBuffer.allocateDirect((int) bytes).order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Acquires a reference on the set, returns <tt>false</tt> if its memory has already been freed.
+     */
+    public boolean tryIncRef() {
+        int count;
+        while ((count = refCount.get()) > 0) {
+            if (refCount.compareAndSet(count, count + 1)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Releases a reference on the set, the direct memory is freed when the last one is released.
+     */
+    @Override
+    public boolean release() {
+        final int count = refCount.decrementAndGet();
+        if (count == 0) {
+            ByteBufferCleaner.clean(buffer);
+            return true;
+        }
+        if (count < 0) {
+            throw new ElasticsearchIllegalStateException("off heap doc id set released too many times");
+        }
+        return false;
+    }
+
+    public int refCount() {
+        return refCount.get();
+    }
+
+    public Encoding encoding() {
+        return encoding;
+    }
+
+    public int cardinality() {
+        return cardinality;
+    }
+
+    /**
+     * Returns the size of the set, most of it being off heap.
+     */
+    public long sizeInBytes() {
+        return buffer.capacity() + SHALLOW_SIZE;
+    }
+
+    @Override
+    public boolean isCacheable() {
+        return true;
+    }
+
+    @Override
+    public Bits bits() {
+        if (encoding == Encoding.BITSET) {
+            return new Bits() {
+                @Override
+                public boolean get(int index) {
+                    return (buffer.getLong((index >> 6) << 3) & (1L << index)) != 0;
+                }
+
+                @Override
+                public int length() {
+                    return maxDoc;
+                }
+            };
+        }
+        return null;
+    }
+
+    @Override
+    public DocIdSetIterator iterator() {
+        switch (encoding) {
+            case LIST:
+                return new ListIterator();
+            case BITSET:
+                return new BitSetIterator();
+            case INVERTED_LIST:
+                return new InvertedListIterator();
+            default:
+                throw new IllegalStateException("unknown encoding [" + encoding + "]");
+        }
+    }
+
+    /**
+     * Returns the index of the first int in <tt>[from, length)</tt> that is greater than or equal to
+     * <tt>target</tt>, or <tt>length</tt> if there is none.
+     */
+    private int ceil(int from, int target) {
+        int lo = from;
+        int hi = length - 1;
+        while (lo <= hi) {
+            final int mid = (lo + hi) >>> 1;
+            if (buffer.getInt(mid << 2) < target) {
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return lo;
+    }
+
+    private class ListIterator extends DocIdSetIterator {
+
+        private int index = -1;
+        private int doc = -1;
+
+        @Override
+        public int docID() {
+            return doc;
+        }
+
+        @Override
+        public int nextDoc() {
+            if (++index >= length) {
+                return doc = NO_MORE_DOCS;
+            }
+            return doc = buffer.getInt(index << 2);
+        }
+
+        @Override
+        public int advance(int target) {
+            index = ceil(index + 1, target);
+            if (index >= length) {
+                return doc = NO_MORE_DOCS;
+            }
+            return doc = buffer.getInt(index << 2);
+        }
+
+        @Override
+        public long cost() {
+            return cardinality;
+        }
+    }
+
+    private class BitSetIterator extends DocIdSetIterator {
+
+        private int doc = -1;
+
+        @Override
+        public int docID() {
+            return doc;
+        }
+
+        @Override
+        public int nextDoc() {
+            return advance(doc + 1);
+        }
+
+        @Override
+        public int advance(int target) {
+            if (target >= maxDoc) {
+                return doc = NO_MORE_DOCS;
+            }
+            int i = target >> 6;
+            long word = buffer.getLong(i << 3) >>> target;
+            if (word != 0) {
+                return doc = target + Long.numberOfTrailingZeros(word);
+            }
+            while (++i < length) {
+                word = buffer.getLong(i << 3);
+                if (word != 0) {
+                    return doc = (i << 6) + Long.numberOfTrailingZeros(word);
+                }
+            }
+            return doc = NO_MORE_DOCS;
+        }
+
+        @Override
+        public long cost() {
+            return cardinality;
+        }
+    }
+
+    private class InvertedListIterator extends DocIdSetIterator {
+
+        // index of the next missing doc that is greater than or equal to the current doc
+        private int missing = 0;
+        private int doc = -1;
+
+        @Override
+        public int docID() {
+            return doc;
+        }
+
+        @Override
+        public int nextDoc() {
+            return advance(doc + 1);
+        }
+
+        @Override
+        public int advance(int target) {
+            missing = ceil(missing, target);
+            while (missing < length && buffer.getInt(missing << 2) == target) {
+                // missing docs are sorted and unique, skip over a run of consecutive ones
+                target++;
+                missing++;
+            }
+            if (target >= maxDoc) {
+                return doc = NO_MORE_DOCS;
+            }
+            return doc = target;
+        }
+
+        @Override
+        public long cost() {
+            return cardinality;
+        }
+    }
+}
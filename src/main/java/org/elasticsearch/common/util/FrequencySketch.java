@@ -0,0 +1,109 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.common.util;
+
+/**
+ * A compact and approximate count of how often objects were recently seen, based on a count-min sketch of
+ * 4 bits counters. Each object is mapped to 4 counters and its frequency is the smallest of them, so it may
+ * be over estimated because of collisions but never under estimated. Counts saturate at <tt>15</tt>, and all
+ * counters are halved once the number of recorded events reaches <tt>10</tt> times the expected number of
+ * distinct objects, so that the counts reflect recent usage.
+ */
+public class FrequencySketch {
+
+    public static final int MAX_FREQUENCY = 15;
+
+    private static final long[] SEEDS = {0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+    private static final long RESET_MASK = 0x7777777777777777L;
+
+    private final long[] table;
+    private final int counterMask;
+    private final int sampleSize;
+    private int additions;
+
+    /**
+     * @param expectedSize the expected number of distinct objects, the sketch takes <tt>8</tt> bytes per object
+     */
+    public FrequencySketch(int expectedSize) {
+        final int size = Math.min(Math.max(expectedSize, 16), 1 << 26);
+        final int numLongs = Integer.highestOneBit(size - 1) << 1;
+        this.table = new long[numLongs];
+        this.counterMask = numLongs * 16 - 1;
+        this.sampleSize = 10 * size;
+    }
+
+    /**
+     * Records an occurrence of the given object.
+     */
+    public synchronized void increment(Object o) {
+        final int hash = spread(o.hashCode());
+        final int frequency = frequency(hash);
+        if (frequency < MAX_FREQUENCY) {
+            // conservative update, only the smallest counters are incremented which limits the over estimation
+            for (int i = 0; i < SEEDS.length; i++) {
+                final int index = indexOf(hash, i);
+                if (counter(index) == frequency) {
+                    table[index >>> 4] += 1L << ((index & 15) << 2);
+                }
+            }
+        }
+        if (++additions >= sampleSize) {
+            reset();
+        }
+    }
+
+    /**
+     * Returns the estimated number of recent occurrences of the given object, at most {@link #MAX_FREQUENCY}.
+     */
+    public synchronized int frequency(Object o) {
+        return frequency(spread(o.hashCode()));
+    }
+
+    private int frequency(int hash) {
+        int frequency = MAX_FREQUENCY;
+        for (int i = 0; i < SEEDS.length; i++) {
+            frequency = Math.min(frequency, counter(indexOf(hash, i)));
+        }
+        return frequency;
+    }
+
+    private int counter(int index) {
+        return (int) ((table[index >>> 4] >>> ((index & 15) << 2)) & 15L);
+    }
+
+    private int indexOf(int hash, int i) {
+        long h = (hash + SEEDS[i]) * SEEDS[i];
+        h += h >>> 32;
+        return (int) h & counterMask;
+    }
+
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        additions /= 2;
+    }
+
+    private static int spread(int hash) {
+        // the hash codes of the objects may be poorly distributed
+        hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+        hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+        return (hash >>> 16) ^ hash;
+    }
+}
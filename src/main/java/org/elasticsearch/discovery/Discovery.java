@@ -66,6 +66,11 @@ public interface Discovery extends LifecycleComponent<Discovery> {
      */
     void publish(ClusterState clusterState, AckListener ackListener);
 
+    /**
+     * Returns the statistics of this discovery.
+     */
+    DiscoveryStats stats();
+
     public static interface AckListener {
         void onNodeAck(DiscoveryNode node, @Nullable Throwable t);
         void onTimeout();
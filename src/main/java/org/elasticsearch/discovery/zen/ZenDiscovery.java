@@ -48,6 +48,7 @@ import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.discovery.Discovery;
 import org.elasticsearch.discovery.DiscoveryService;
 import org.elasticsearch.discovery.DiscoverySettings;
+import org.elasticsearch.discovery.DiscoveryStats;
 import org.elasticsearch.discovery.InitialStateDiscoveryListener;
 import org.elasticsearch.discovery.zen.elect.ElectMasterService;
 import org.elasticsearch.discovery.zen.fd.MasterFaultDetection;
@@ -272,6 +273,11 @@ public class ZenDiscovery extends AbstractLifecycleComponent<Discovery> implemen
         publishClusterState.publish(clusterState, ackListener);
     }
 
+    @Override
+    public DiscoveryStats stats() {
+        return new DiscoveryStats(publishClusterState.stats());
+    }
+
     private void asyncJoinCluster() {
         if (currentJoinThread != null) {
             // we are already joining, ignore...
@@ -22,14 +22,19 @@ package org.elasticsearch.discovery.zen.publish;
 import com.google.common.collect.Maps;
 import org.elasticsearch.Version;
 import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.IncompatibleClusterStateVersionException;
 import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.component.AbstractComponent;
 import org.elasticsearch.common.compress.Compressor;
 import org.elasticsearch.common.compress.CompressorFactory;
 import org.elasticsearch.common.io.stream.*;
+import org.elasticsearch.common.metrics.CounterMetric;
+import org.elasticsearch.common.metrics.MeanMetric;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.discovery.AckClusterStatePublishResponseHandler;
 import org.elasticsearch.discovery.ClusterStatePublishResponseHandler;
 import org.elasticsearch.discovery.Discovery;
@@ -38,7 +43,9 @@ import org.elasticsearch.discovery.zen.DiscoveryNodesProvider;
 import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.*;
 
+import java.io.IOException;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
  *
@@ -57,10 +64,27 @@ public class PublishClusterStateAction extends AbstractComponent {
         void onNewClusterState(ClusterState clusterState, NewStateProcessed newStateProcessed);
     }
 
+    public static final String PUBLISH_DIFF_ENABLE = "discovery.zen.publish_diff.enable";
+
     private final TransportService transportService;
     private final DiscoveryNodesProvider nodesProvider;
     private final NewClusterStateListener listener;
     private final DiscoverySettings discoverySettings;
+    private final boolean sendDiffs;
+
+    // the last cluster state published by this node, diffs are computed against it
+    private volatile ClusterState lastPublishedState;
+    // the last cluster state received from the master, diffs are applied to it
+    private volatile ClusterState lastReceivedState;
+
+    private final CounterMetric fullStatesSent = new CounterMetric();
+    private final CounterMetric fullStatesSentSize = new CounterMetric();
+    private final CounterMetric diffsSent = new CounterMetric();
+    private final CounterMetric diffsSentSize = new CounterMetric();
+    private final CounterMetric incompatibleDiffs = new CounterMetric();
+    private final CounterMetric fullStatesReceived = new CounterMetric();
+    private final CounterMetric diffsReceived = new CounterMetric();
+    private final MeanMetric applyTime = new MeanMetric();
 
     public PublishClusterStateAction(Settings settings, TransportService transportService, DiscoveryNodesProvider nodesProvider,
                                      NewClusterStateListener listener, DiscoverySettings discoverySettings) {
@@ -69,6 +93,7 @@ public class PublishClusterStateAction extends AbstractComponent {
         this.nodesProvider = nodesProvider;
         this.listener = listener;
         this.discoverySettings = discoverySettings;
+        this.sendDiffs = settings.getAsBoolean(PUBLISH_DIFF_ENABLE, true);
         transportService.registerHandler(PublishClusterStateRequestHandler.ACTION, new PublishClusterStateRequestHandler());
     }
 
@@ -76,63 +101,56 @@ public class PublishClusterStateAction extends AbstractComponent {
         transportService.removeHandler(PublishClusterStateRequestHandler.ACTION);
     }
 
+    public PublishClusterStateStats stats() {
+        return new PublishClusterStateStats(fullStatesSent.count(), fullStatesSentSize.count(), diffsSent.count(), diffsSentSize.count(),
+                incompatibleDiffs.count(), fullStatesReceived.count(), diffsReceived.count(), applyTime.count(),
+                TimeUnit.NANOSECONDS.toMillis(applyTime.sum()));
+    }
+
     public void publish(ClusterState clusterState, final Discovery.AckListener ackListener) {
         publish(clusterState, new AckClusterStatePublishResponseHandler(clusterState.nodes().size() - 1, ackListener));
     }
 
-    private void publish(ClusterState clusterState, final ClusterStatePublishResponseHandler publishResponseHandler) {
+    private void publish(final ClusterState clusterState, final ClusterStatePublishResponseHandler publishResponseHandler) {
 
         DiscoveryNode localNode = nodesProvider.nodes().localNode();
 
-        Map<Version, BytesReference> serializedStates = Maps.newHashMap();
+        ClusterState previousState = lastPublishedState;
+        lastPublishedState = clusterState;
+        if (previousState != null && (!sendDiffs || !localNode.id().equals(previousState.nodes().masterNodeId()))) {
+            // only diff against a state we published ourselves as the master
+            previousState = null;
+        }
+
+        final Map<Version, BytesReference> serializedStates = ConcurrentCollections.newConcurrentMap();
+        Map<Version, BytesReference> serializedDiffs = Maps.newHashMap();
 
         for (final DiscoveryNode node : clusterState.nodes()) {
             if (node.equals(localNode)) {
                 continue;
             }
+            // nodes that just joined, or that run an older version, get the full state. The other ones may have missed the
+            // previous state, in which case they reject the diff and we fall back to sending them the full state
+            final boolean sendDiff = previousState != null && previousState.nodes().nodeExists(node.id()) && node.version().onOrAfter(Version.V_2_0_0);
             // try and serialize the cluster state once (or per version), so we don't serialize it
             // per node when we send it over the wire, compress it while we are at it...
-            BytesReference bytes = serializedStates.get(node.version());
-            if (bytes == null) {
-                try {
-                    BytesStreamOutput bStream = new BytesStreamOutput();
-                    StreamOutput stream = new HandlesStreamOutput(CompressorFactory.defaultCompressor().streamOutput(bStream));
-                    stream.setVersion(node.version());
-                    ClusterState.Builder.writeTo(clusterState, stream);
-                    stream.close();
-                    bytes = bStream.bytes();
-                    serializedStates.put(node.version(), bytes);
-                } catch (Throwable e) {
-                    logger.warn("failed to serialize cluster_state before publishing it to node {}", e, node);
-                    publishResponseHandler.onFailure(node, e);
-                    continue;
-                }
-            }
+            BytesReference bytes;
             try {
-                TransportRequestOptions options = TransportRequestOptions.options().withType(TransportRequestOptions.Type.STATE).withCompress(false);
-                // no need to put a timeout on the options here, because we want the response to eventually be received
-                // and not log an error if it arrives after the timeout
-                transportService.sendRequest(node, PublishClusterStateRequestHandler.ACTION,
-                        new BytesTransportRequest(bytes, node.version()),
-                        options, // no need to compress, we already compressed the bytes
-
-                        new EmptyTransportResponseHandler(ThreadPool.Names.SAME) {
-
-                            @Override
-                            public void handleResponse(TransportResponse.Empty response) {
-                                publishResponseHandler.onResponse(node);
-                            }
-
-                            @Override
-                            public void handleException(TransportException exp) {
-                                logger.debug("failed to send cluster state to [{}]", exp, node);
-                                publishResponseHandler.onFailure(node, exp);
-                            }
-                        });
-            } catch (Throwable t) {
-                logger.debug("error sending cluster state to [{}]", t, node);
-                publishResponseHandler.onFailure(node, t);
+                if (sendDiff) {
+                    bytes = serializedDiffs.get(node.version());
+                    if (bytes == null) {
+                        bytes = serialize(previousState, clusterState, node.version());
+                        serializedDiffs.put(node.version(), bytes);
+                    }
+                } else {
+                    bytes = serializedFullState(clusterState, node.version(), serializedStates);
+                }
+            } catch (Throwable e) {
+                logger.warn("failed to serialize cluster_state before publishing it to node {}", e, node);
+                publishResponseHandler.onFailure(node, e);
+                continue;
             }
+            sendClusterState(clusterState, node, bytes, sendDiff, serializedStates, publishResponseHandler);
         }
 
         TimeValue publishTimeout = discoverySettings.getPublishTimeout();
@@ -150,6 +168,84 @@ public class PublishClusterStateAction extends AbstractComponent {
         }
     }
 
+    private void sendClusterState(final ClusterState clusterState, final DiscoveryNode node, BytesReference bytes, final boolean diff,
+                                  final Map<Version, BytesReference> serializedStates, final ClusterStatePublishResponseHandler publishResponseHandler) {
+        try {
+            TransportRequestOptions options = TransportRequestOptions.options().withType(TransportRequestOptions.Type.STATE).withCompress(false);
+            // no need to put a timeout on the options here, because we want the response to eventually be received
+            // and not log an error if it arrives after the timeout
+            transportService.sendRequest(node, PublishClusterStateRequestHandler.ACTION,
+                    new BytesTransportRequest(bytes, node.version()),
+                    options, // no need to compress, we already compressed the bytes
+
+                    new EmptyTransportResponseHandler(ThreadPool.Names.SAME) {
+
+                        @Override
+                        public void handleResponse(TransportResponse.Empty response) {
+                            publishResponseHandler.onResponse(node);
+                        }
+
+                        @Override
+                        public void handleException(TransportException exp) {
+                            if (diff && exp.unwrapCause() instanceof IncompatibleClusterStateVersionException) {
+                                logger.debug("node [{}] could not apply the diff of cluster state version {}, sending the full cluster state", node, clusterState.version());
+                                incompatibleDiffs.inc();
+                                BytesReference fullState;
+                                try {
+                                    fullState = serializedFullState(clusterState, node.version(), serializedStates);
+                                } catch (Throwable e) {
+                                    logger.warn("failed to serialize cluster_state before publishing it to node {}", e, node);
+                                    publishResponseHandler.onFailure(node, e);
+                                    return;
+                                }
+                                sendClusterState(clusterState, node, fullState, false, serializedStates, publishResponseHandler);
+                                return;
+                            }
+                            logger.debug("failed to send cluster state to [{}]", exp, node);
+                            publishResponseHandler.onFailure(node, exp);
+                        }
+                    });
+            if (diff) {
+                diffsSent.inc();
+                diffsSentSize.inc(bytes.length());
+            } else {
+                fullStatesSent.inc();
+                fullStatesSentSize.inc(bytes.length());
+            }
+        } catch (Throwable t) {
+            logger.debug("error sending cluster state to [{}]", t, node);
+            publishResponseHandler.onFailure(node, t);
+        }
+    }
+
+    private BytesReference serializedFullState(ClusterState clusterState, Version nodeVersion, Map<Version, BytesReference> serializedStates) throws IOException {
+        BytesReference bytes = serializedStates.get(nodeVersion);
+        if (bytes == null) {
+            bytes = serialize(null, clusterState, nodeVersion);
+            serializedStates.put(nodeVersion, bytes);
+        }
+        return bytes;
+    }
+
+    /**
+     * Serializes and compresses the cluster state, as a diff against <tt>previousState</tt> if it is not <tt>null</tt>.
+     */
+    private BytesReference serialize(@Nullable ClusterState previousState, ClusterState clusterState, Version nodeVersion) throws IOException {
+        BytesStreamOutput bStream = new BytesStreamOutput();
+        StreamOutput stream = new HandlesStreamOutput(CompressorFactory.defaultCompressor().streamOutput(bStream));
+        stream.setVersion(nodeVersion);
+        if (nodeVersion.onOrAfter(Version.V_2_0_0)) {
+            stream.writeBoolean(previousState != null);
+        }
+        if (previousState != null) {
+            ClusterState.Builder.writeDiffTo(previousState, clusterState, stream);
+        } else {
+            ClusterState.Builder.writeTo(clusterState, stream);
+        }
+        stream.close();
+        return bStream.bytes();
+    }
+
     private class PublishClusterStateRequestHandler extends BaseTransportRequestHandler<BytesTransportRequest> {
 
         static final String ACTION = "discovery/zen/publish";
@@ -169,11 +265,22 @@ public class PublishClusterStateAction extends AbstractComponent {
                 in = CachedStreamInput.cachedHandles(request.bytes().streamInput());
             }
             in.setVersion(request.version());
-            ClusterState clusterState = ClusterState.Builder.readFrom(in, nodesProvider.nodes().localNode());
-            logger.debug("received cluster state version {}", clusterState.version());
+            ClusterState clusterState;
+            if (request.version().onOrAfter(Version.V_2_0_0) && in.readBoolean()) {
+                clusterState = ClusterState.Builder.readDiffFrom(in, lastReceivedState, nodesProvider.nodes().localNode());
+                diffsReceived.inc();
+                logger.debug("received diff for cluster state version {}", clusterState.version());
+            } else {
+                clusterState = ClusterState.Builder.readFrom(in, nodesProvider.nodes().localNode());
+                fullStatesReceived.inc();
+                logger.debug("received cluster state version {}", clusterState.version());
+            }
+            lastReceivedState = clusterState;
+            final long startTime = System.nanoTime();
             listener.onNewClusterState(clusterState, new NewClusterStateListener.NewStateProcessed() {
                 @Override
                 public void onNewClusterStateProcessed() {
+                    applyTime.inc(System.nanoTime() - startTime);
                     try {
                         channel.sendResponse(TransportResponse.Empty.INSTANCE);
                     } catch (Throwable e) {
@@ -183,6 +290,7 @@ public class PublishClusterStateAction extends AbstractComponent {
 
                 @Override
                 public void onNewClusterStateFailed(Throwable t) {
+                    applyTime.inc(System.nanoTime() - startTime);
                     try {
                         channel.sendResponse(t);
                     } catch (Throwable e) {
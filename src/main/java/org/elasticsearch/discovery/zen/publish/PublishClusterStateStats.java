@@ -0,0 +1,185 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.discovery.zen.publish;
+
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Streamable;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentBuilderString;
+
+import java.io.IOException;
+
+/**
+ * Statistics about the cluster states published by this node while it is the master, and about the
+ * cluster states it received from the master.
+ */
+public class PublishClusterStateStats implements Streamable, ToXContent {
+
+    private long fullStatesSent;
+    private long fullStatesSentSizeInBytes;
+    private long diffsSent;
+    private long diffsSentSizeInBytes;
+    private long incompatibleDiffs;
+    private long fullStatesReceived;
+    private long diffsReceived;
+    private long applied;
+    private long applyTimeInMillis;
+
+    PublishClusterStateStats() {
+    }
+
+    public PublishClusterStateStats(long fullStatesSent, long fullStatesSentSizeInBytes, long diffsSent, long diffsSentSizeInBytes,
+                                    long incompatibleDiffs, long fullStatesReceived, long diffsReceived, long applied, long applyTimeInMillis) {
+        this.fullStatesSent = fullStatesSent;
+        this.fullStatesSentSizeInBytes = fullStatesSentSizeInBytes;
+        this.diffsSent = diffsSent;
+        this.diffsSentSizeInBytes = diffsSentSizeInBytes;
+        this.incompatibleDiffs = incompatibleDiffs;
+        this.fullStatesReceived = fullStatesReceived;
+        this.diffsReceived = diffsReceived;
+        this.applied = applied;
+        this.applyTimeInMillis = applyTimeInMillis;
+    }
+
+    /**
+     * The number of full cluster states sent to other nodes.
+     */
+    public long getFullStatesSent() {
+        return fullStatesSent;
+    }
+
+    /**
+     * The compressed size of the full cluster states sent to other nodes.
+     */
+    public ByteSizeValue getFullStatesSentSize() {
+        return new ByteSizeValue(fullStatesSentSizeInBytes);
+    }
+
+    /**
+     * The number of cluster state diffs sent to other nodes.
+     */
+    public long getDiffsSent() {
+        return diffsSent;
+    }
+
+    /**
+     * The compressed size of the cluster state diffs sent to other nodes.
+     */
+    public ByteSizeValue getDiffsSentSize() {
+        return new ByteSizeValue(diffsSentSizeInBytes);
+    }
+
+    /**
+     * The number of diffs that other nodes could not apply, and that were followed by a full cluster state.
+     */
+    public long getIncompatibleDiffs() {
+        return incompatibleDiffs;
+    }
+
+    public long getFullStatesReceived() {
+        return fullStatesReceived;
+    }
+
+    public long getDiffsReceived() {
+        return diffsReceived;
+    }
+
+    /**
+     * The number of received cluster states that were processed.
+     */
+    public long getApplied() {
+        return applied;
+    }
+
+    /**
+     * The total time it took to process the received cluster states.
+     */
+    public TimeValue getApplyTime() {
+        return new TimeValue(applyTimeInMillis);
+    }
+
+    public static PublishClusterStateStats readPublishClusterStateStats(StreamInput in) throws IOException {
+        PublishClusterStateStats stats = new PublishClusterStateStats();
+        stats.readFrom(in);
+        return stats;
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        fullStatesSent = in.readVLong();
+        fullStatesSentSizeInBytes = in.readVLong();
+        diffsSent = in.readVLong();
+        diffsSentSizeInBytes = in.readVLong();
+        incompatibleDiffs = in.readVLong();
+        fullStatesReceived = in.readVLong();
+        diffsReceived = in.readVLong();
+        applied = in.readVLong();
+        applyTimeInMillis = in.readVLong();
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeVLong(fullStatesSent);
+        out.writeVLong(fullStatesSentSizeInBytes);
+        out.writeVLong(diffsSent);
+        out.writeVLong(diffsSentSizeInBytes);
+        out.writeVLong(incompatibleDiffs);
+        out.writeVLong(fullStatesReceived);
+        out.writeVLong(diffsReceived);
+        out.writeVLong(applied);
+        out.writeVLong(applyTimeInMillis);
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject(Fields.PUBLISHED_STATES);
+        builder.field(Fields.FULL_STATES, fullStatesSent);
+        builder.byteSizeField(Fields.FULL_STATES_SIZE_IN_BYTES, Fields.FULL_STATES_SIZE, fullStatesSentSizeInBytes);
+        builder.field(Fields.DIFFS, diffsSent);
+        builder.byteSizeField(Fields.DIFFS_SIZE_IN_BYTES, Fields.DIFFS_SIZE, diffsSentSizeInBytes);
+        builder.field(Fields.INCOMPATIBLE_DIFFS, incompatibleDiffs);
+        builder.endObject();
+        builder.startObject(Fields.RECEIVED_STATES);
+        builder.field(Fields.FULL_STATES, fullStatesReceived);
+        builder.field(Fields.DIFFS, diffsReceived);
+        builder.field(Fields.APPLIED, applied);
+        builder.timeValueField(Fields.APPLY_TIME_IN_MILLIS, Fields.APPLY_TIME, applyTimeInMillis);
+        builder.endObject();
+        return builder;
+    }
+
+    static final class Fields {
+        static final XContentBuilderString PUBLISHED_STATES = new XContentBuilderString("published_cluster_states");
+        static final XContentBuilderString RECEIVED_STATES = new XContentBuilderString("received_cluster_states");
+        static final XContentBuilderString FULL_STATES = new XContentBuilderString("full_states");
+        static final XContentBuilderString FULL_STATES_SIZE = new XContentBuilderString("full_states_size");
+        static final XContentBuilderString FULL_STATES_SIZE_IN_BYTES = new XContentBuilderString("full_states_size_in_bytes");
+        static final XContentBuilderString DIFFS = new XContentBuilderString("diffs");
+        static final XContentBuilderString DIFFS_SIZE = new XContentBuilderString("diffs_size");
+        static final XContentBuilderString DIFFS_SIZE_IN_BYTES = new XContentBuilderString("diffs_size_in_bytes");
+        static final XContentBuilderString INCOMPATIBLE_DIFFS = new XContentBuilderString("incompatible_diffs");
+        static final XContentBuilderString APPLIED = new XContentBuilderString("applied");
+        static final XContentBuilderString APPLY_TIME = new XContentBuilderString("apply_time");
+        static final XContentBuilderString APPLY_TIME_IN_MILLIS = new XContentBuilderString("apply_time_in_millis");
+    }
+}
@@ -19,6 +19,7 @@
 
 package org.elasticsearch.index.cache.filter;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Streamable;
@@ -35,18 +36,24 @@ public class FilterCacheStats implements Streamable, ToXContent {
 
     long memorySize;
     long evictions;
+    long admissions;
+    long rejections;
 
     public FilterCacheStats() {
     }
 
-    public FilterCacheStats(long memorySize, long evictions) {
+    public FilterCacheStats(long memorySize, long evictions, long admissions, long rejections) {
         this.memorySize = memorySize;
         this.evictions = evictions;
+        this.admissions = admissions;
+        this.rejections = rejections;
     }
 
     public void add(FilterCacheStats stats) {
         this.memorySize += stats.memorySize;
         this.evictions += stats.evictions;
+        this.admissions += stats.admissions;
+        this.rejections += stats.rejections;
     }
 
     public long getMemorySizeInBytes() {
@@ -61,6 +68,20 @@ public class FilterCacheStats implements Streamable, ToXContent {
         return this.evictions;
     }
 
+    /**
+     * The number of filters that were added to the cache.
+     */
+    public long getAdmissions() {
+        return this.admissions;
+    }
+
+    /**
+     * The number of filters that were computed but not added to the cache by the admission policy.
+     */
+    public long getRejections() {
+        return this.rejections;
+    }
+
     public static FilterCacheStats readFilterCacheStats(StreamInput in) throws IOException {
         FilterCacheStats stats = new FilterCacheStats();
         stats.readFrom(in);
@@ -71,12 +92,20 @@ public class FilterCacheStats implements Streamable, ToXContent {
     public void readFrom(StreamInput in) throws IOException {
         memorySize = in.readVLong();
         evictions = in.readVLong();
+        if (in.getVersion().onOrAfter(Version.V_2_0_0)) {
+            admissions = in.readVLong();
+            rejections = in.readVLong();
+        }
     }
 
     @Override
     public void writeTo(StreamOutput out) throws IOException {
         out.writeVLong(memorySize);
         out.writeVLong(evictions);
+        if (out.getVersion().onOrAfter(Version.V_2_0_0)) {
+            out.writeVLong(admissions);
+            out.writeVLong(rejections);
+        }
     }
 
     @Override
@@ -84,6 +113,8 @@ public class FilterCacheStats implements Streamable, ToXContent {
         builder.startObject(Fields.FILTER_CACHE);
         builder.byteSizeField(Fields.MEMORY_SIZE_IN_BYTES, Fields.MEMORY_SIZE, memorySize);
         builder.field(Fields.EVICTIONS, getEvictions());
+        builder.field(Fields.ADMISSIONS, getAdmissions());
+        builder.field(Fields.REJECTIONS, getRejections());
         builder.endObject();
         return builder;
     }
@@ -93,5 +124,7 @@ public class FilterCacheStats implements Streamable, ToXContent {
         static final XContentBuilderString MEMORY_SIZE = new XContentBuilderString("memory_size");
         static final XContentBuilderString MEMORY_SIZE_IN_BYTES = new XContentBuilderString("memory_size_in_bytes");
         static final XContentBuilderString EVICTIONS = new XContentBuilderString("evictions");
+        static final XContentBuilderString ADMISSIONS = new XContentBuilderString("admissions");
+        static final XContentBuilderString REJECTIONS = new XContentBuilderString("rejections");
     }
 }
@@ -37,6 +37,8 @@ public class ShardFilterCache extends AbstractIndexShardComponent implements Rem
 
     final CounterMetric evictionsMetric = new CounterMetric();
     final CounterMetric totalMetric = new CounterMetric();
+    final CounterMetric admissionsMetric = new CounterMetric();
+    final CounterMetric rejectionsMetric = new CounterMetric();
 
     @Inject
     public ShardFilterCache(ShardId shardId, @IndexSettings Settings indexSettings) {
@@ -44,13 +46,21 @@ public class ShardFilterCache extends AbstractIndexShardComponent implements Rem
     }
 
     public FilterCacheStats stats() {
-        return new FilterCacheStats(totalMetric.count(), evictionsMetric.count());
+        return new FilterCacheStats(totalMetric.count(), evictionsMetric.count(), admissionsMetric.count(), rejectionsMetric.count());
     }
 
     public void onCached(long sizeInBytes) {
+        admissionsMetric.inc();
         totalMetric.inc(sizeInBytes);
     }
 
+    /**
+     * Called when a filter was computed but not cached by the admission policy.
+     */
+    public void onRejected() {
+        rejectionsMetric.inc();
+    }
+
     @Override
     public void onRemoval(RemovalNotification<WeightedFilterCache.FilterCacheKey, DocIdSet> removalNotification) {
         if (removalNotification.wasEvicted()) {
@@ -0,0 +1,143 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.index.cache.filter.offheap;
+
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queries.TermFilter;
+import org.apache.lucene.search.DocIdSet;
+import org.apache.lucene.search.Filter;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.FixedBitSet;
+import org.apache.lucene.util.StringHelper;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.lucene.docset.OffHeapDocIdSet;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.index.Index;
+import org.elasticsearch.index.cache.filter.weighted.WeightedFilterCache;
+import org.elasticsearch.index.mapper.internal.TypeFieldMapper;
+import org.elasticsearch.index.search.nested.NonNestedDocsFilter;
+import org.elasticsearch.index.settings.IndexSettings;
+import org.elasticsearch.indices.cache.filter.IndicesFilterCache;
+import org.elasticsearch.search.internal.SearchContext;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A filter cache that stores the cached doc id sets outside of the heap, as {@link OffHeapDocIdSet}s.
+ * <p/>
+ * Entries live in the same node level cache as the {@link WeightedFilterCache} ones, so they are bounded
+ * by <tt>indices.cache.filter.size</tt> (now counting direct memory) and are cleaned when segments get closed.
+ * The parent and nested type filters used by nested queries, facets and aggregations still get on heap
+ * {@link FixedBitSet}s since block joins need them.
+ * <p/>
+ * The direct memory of an entry is freed as soon as it is removed from the cache and the searches that
+ * acquired it are done: a search holds a reference on the sets it uses until the end of the search phase,
+ * and cached sets are only handed out to code running within a {@link SearchContext}. The entries of a
+ * segment are removed right away when the segment is closed, rather than by the periodic cleaning.
+ */
+public class OffHeapFilterCache extends WeightedFilterCache {
+
+    private static final BytesRef NESTED_TYPE_PREFIX = new BytesRef("__");
+
+    // the keys of the off heap entries per segment core
+    private final ConcurrentMap<Object, Set<FilterCacheKey>> offHeapKeys = ConcurrentCollections.newConcurrentMap();
+
+    @Inject
+    public OffHeapFilterCache(Index index, @IndexSettings Settings indexSettings, IndicesFilterCache indicesFilterCache) {
+        super(index, indexSettings, indicesFilterCache);
+    }
+
+    @Override
+    public String type() {
+        return "off_heap";
+    }
+
+    @Override
+    public void clear(String reason) {
+        super.clear(reason);
+        for (Object coreCacheKey : offHeapKeys.keySet()) {
+            invalidateOffHeapEntries(coreCacheKey);
+        }
+    }
+
+    @Override
+    public void clear(Object coreCacheKey) {
+        super.clear(coreCacheKey);
+        invalidateOffHeapEntries(coreCacheKey);
+    }
+
+    private void invalidateOffHeapEntries(Object coreCacheKey) {
+        Set<FilterCacheKey> keys = offHeapKeys.remove(coreCacheKey);
+        if (keys != null) {
+            indicesFilterCache.cache().invalidateAll(keys);
+        }
+    }
+
+    @Override
+    protected DocIdSet toCached(AtomicReaderContext context, FilterCacheKey cacheKey, Filter filter, DocIdSet docIdSet) throws IOException {
+        if (docIdSet instanceof FixedBitSet && !requiresFixedBitSet(filter)) {
+            Object coreCacheKey = context.reader().getCoreCacheKey();
+            Set<FilterCacheKey> keys = offHeapKeys.get(coreCacheKey);
+            if (keys == null) {
+                keys = ConcurrentCollections.newConcurrentSet();
+                Set<FilterCacheKey> previous = offHeapKeys.putIfAbsent(coreCacheKey, keys);
+                if (previous != null) {
+                    keys = previous;
+                }
+            }
+            keys.add(cacheKey);
+            return OffHeapDocIdSet.of((FixedBitSet) docIdSet);
+        }
+        return docIdSet;
+    }
+
+    @Override
+    protected DocIdSet acquire(DocIdSet cached) {
+        if (!(cached instanceof OffHeapDocIdSet)) {
+            return cached;
+        }
+        SearchContext searchContext = SearchContext.current();
+        if (searchContext == null) {
+            // nothing would release the reference
+            return null;
+        }
+        OffHeapDocIdSet offHeapDocIdSet = (OffHeapDocIdSet) cached;
+        if (!offHeapDocIdSet.tryIncRef()) {
+            // removed from the cache and freed concurrently
+            return null;
+        }
+        searchContext.addReleasable(offHeapDocIdSet);
+        return offHeapDocIdSet;
+    }
+
+    static boolean requiresFixedBitSet(Filter filter) {
+        if (filter instanceof NonNestedDocsFilter) {
+            return true;
+        }
+        if (filter instanceof TermFilter) {
+            Term term = ((TermFilter) filter).getTerm();
+            return TypeFieldMapper.NAME.equals(term.field()) && StringHelper.startsWith(term.bytes(), NESTED_TYPE_PREFIX);
+        }
+        return false;
+    }
+}
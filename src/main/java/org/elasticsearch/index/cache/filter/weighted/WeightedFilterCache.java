@@ -53,7 +53,7 @@ import java.util.concurrent.ConcurrentMap;
 
 public class WeightedFilterCache extends AbstractIndexComponent implements FilterCache, SegmentReader.CoreClosedListener {
 
-    final IndicesFilterCache indicesFilterCache;
+    protected final IndicesFilterCache indicesFilterCache;
     IndexService indexService;
 
     final ConcurrentMap<Object, Boolean> seenReaders = ConcurrentCollections.newConcurrentMap();
@@ -133,6 +133,21 @@ public class WeightedFilterCache extends AbstractIndexComponent implements Filte
         return new FilterCacheFilterWrapper(filterToCache, this);
     }
 
+    /**
+     * Converts the doc id set of a filter that has been admitted into the cache into the value that gets stored.
+     */
+    protected DocIdSet toCached(AtomicReaderContext context, FilterCacheKey cacheKey, Filter filter, DocIdSet docIdSet) throws IOException {
+        return docIdSet;
+    }
+
+    /**
+     * Acquires a cached value so that it can be handed out to the caller, or returns <tt>null</tt> if it can't
+     * be used, in which case the caller computes the filter again.
+     */
+    protected DocIdSet acquire(DocIdSet cached) {
+        return cached;
+    }
+
     static class FilterCacheFilterWrapper extends CachedFilter {
 
         private final Filter filter;
@@ -155,7 +170,12 @@ public class WeightedFilterCache extends AbstractIndexComponent implements Filte
             Cache<FilterCacheKey, DocIdSet> innerCache = cache.indicesFilterCache.cache();
 
             DocIdSet cacheValue = innerCache.getIfPresent(cacheKey);
-            if (cacheValue == null) {
+            if (cacheValue != null) {
+                cacheValue = cache.acquire(cacheValue);
+                if (cacheValue == null) {
+                    cacheValue = DocIdSets.toCacheable(context.reader(), filter.getDocIdSet(context, null));
+                }
+            } else {
                 if (!cache.seenReaders.containsKey(context.reader().getCoreCacheKey())) {
                     Boolean previous = cache.seenReaders.putIfAbsent(context.reader().getCoreCacheKey(), Boolean.TRUE);
                     if (previous == null) {
@@ -169,17 +189,30 @@ public class WeightedFilterCache extends AbstractIndexComponent implements Filte
                 // might be specific to a query. We don't pass the live docs either because a cache built for a specific
                 // generation of a segment might be reused by an older generation which has fewer deleted documents
                 cacheValue = DocIdSets.toCacheable(context.reader(), filter.getDocIdSet(context, null));
-                // we might put the same one concurrently, that's fine, it will be replaced and the removal
-                // will be called
+                long sizeInBytes = DocIdSets.sizeInBytes(cacheValue);
+                IndexShard shard = null;
                 ShardId shardId = ShardUtils.extractShardId(context.reader());
                 if (shardId != null) {
-                    IndexShard shard = cache.indexService.shard(shardId.id());
+                    shard = cache.indexService.shard(shardId.id());
+                }
+                if (cache.indicesFilterCache.admit(cacheKey, context.reader().maxDoc(), sizeInBytes)) {
+                    DocIdSet cached = cache.toCached(context, cacheKey, filter, cacheValue);
+                    sizeInBytes = DocIdSets.sizeInBytes(cached);
+                    // acquired before it gets shared, the entry might be evicted as soon as it is put
+                    DocIdSet acquired = cache.acquire(cached);
+                    // we might put the same one concurrently, that's fine, it will be replaced and the removal
+                    // will be called
                     if (shard != null) {
                         cacheKey.removalListener = shard.filterCache();
-                        shard.filterCache().onCached(DocIdSets.sizeInBytes(cacheValue));
+                        shard.filterCache().onCached(sizeInBytes);
+                    }
+                    innerCache.put(cacheKey, cached);
+                    if (acquired != null) {
+                        cacheValue = acquired;
                     }
+                } else if (shard != null) {
+                    shard.filterCache().onRejected();
                 }
-                innerCache.put(cacheKey, cacheValue);
             }
 
             // note, we don't wrap the return value with a BitsFilteredDocIdSet.wrap(docIdSet, acceptDocs) because
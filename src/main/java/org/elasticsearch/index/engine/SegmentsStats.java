@@ -19,12 +19,13 @@
 
 package org.elasticsearch.index.engine;
 
-import org.apache.lucene.util.Version;
+import org.elasticsearch.Version;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Streamable;
 import org.elasticsearch.common.lucene.Lucene;
 import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentBuilderString;
@@ -38,13 +39,17 @@ public class SegmentsStats implements Streamable, ToXContent {
 
     private long count;
     private long memoryInBytes;
+    private long versionMapMemoryInBytes;
+    private long versionMapTombstones;
+    private long versionMapPruneCount;
+    private long versionMapPruneTimeInMillis;
 
     public SegmentsStats() {
 
     }
 
     static {
-        assert Version.LUCENE_46.onOrAfter(Lucene.VERSION); // remove special -1 handling below
+        assert org.apache.lucene.util.Version.LUCENE_46.onOrAfter(Lucene.VERSION); // remove special -1 handling below
     }
 
     public void add(long count, long memoryInBytes) {
@@ -64,6 +69,22 @@ public class SegmentsStats implements Streamable, ToXContent {
             return;
         }
         add(mergeStats.count, mergeStats.memoryInBytes);
+        addVersionMapMemoryInBytes(mergeStats.versionMapMemoryInBytes);
+        addVersionMapTombstones(mergeStats.versionMapTombstones);
+        addVersionMapPrune(mergeStats.versionMapPruneCount, mergeStats.versionMapPruneTimeInMillis);
+    }
+
+    public void addVersionMapMemoryInBytes(long versionMapMemoryInBytes) {
+        this.versionMapMemoryInBytes += versionMapMemoryInBytes;
+    }
+
+    public void addVersionMapTombstones(long versionMapTombstones) {
+        this.versionMapTombstones += versionMapTombstones;
+    }
+
+    public void addVersionMapPrune(long count, long timeInMillis) {
+        this.versionMapPruneCount += count;
+        this.versionMapPruneTimeInMillis += timeInMillis;
     }
 
     /**
@@ -84,6 +105,36 @@ public class SegmentsStats implements Streamable, ToXContent {
         return new ByteSizeValue(memoryInBytes);
     }
 
+    /**
+     * Estimation of the memory used by the live version map of the engines, that holds the versions
+     * of the documents indexed or deleted since the last refresh.
+     */
+    public long getVersionMapMemoryInBytes() {
+        return this.versionMapMemoryInBytes;
+    }
+
+    public ByteSizeValue getVersionMapMemory() {
+        return new ByteSizeValue(versionMapMemoryInBytes);
+    }
+
+    /**
+     * The number of deletes whose versions are kept until they are garbage collected.
+     */
+    public long getVersionMapTombstones() {
+        return this.versionMapTombstones;
+    }
+
+    /**
+     * The number of times the version map was pruned, which happens on flush.
+     */
+    public long getVersionMapPruneCount() {
+        return this.versionMapPruneCount;
+    }
+
+    public TimeValue getVersionMapPruneTime() {
+        return new TimeValue(versionMapPruneTimeInMillis);
+    }
+
     public static SegmentsStats readSegmentsStats(StreamInput in) throws IOException {
         SegmentsStats stats = new SegmentsStats();
         stats.readFrom(in);
@@ -95,6 +146,10 @@ public class SegmentsStats implements Streamable, ToXContent {
         builder.startObject(Fields.SEGMENTS);
         builder.field(Fields.COUNT, count);
         builder.byteSizeField(Fields.MEMORY_IN_BYTES, Fields.MEMORY, memoryInBytes);
+        builder.byteSizeField(Fields.VERSION_MAP_MEMORY_IN_BYTES, Fields.VERSION_MAP_MEMORY, versionMapMemoryInBytes);
+        builder.field(Fields.VERSION_MAP_TOMBSTONES, versionMapTombstones);
+        builder.field(Fields.VERSION_MAP_PRUNE_TOTAL, versionMapPruneCount);
+        builder.timeValueField(Fields.VERSION_MAP_PRUNE_TIME_IN_MILLIS, Fields.VERSION_MAP_PRUNE_TIME, versionMapPruneTimeInMillis);
         builder.endObject();
         return builder;
     }
@@ -104,17 +159,35 @@ public class SegmentsStats implements Streamable, ToXContent {
         static final XContentBuilderString COUNT = new XContentBuilderString("count");
         static final XContentBuilderString MEMORY = new XContentBuilderString("memory");
         static final XContentBuilderString MEMORY_IN_BYTES = new XContentBuilderString("memory_in_bytes");
+        static final XContentBuilderString VERSION_MAP_MEMORY = new XContentBuilderString("version_map_memory");
+        static final XContentBuilderString VERSION_MAP_MEMORY_IN_BYTES = new XContentBuilderString("version_map_memory_in_bytes");
+        static final XContentBuilderString VERSION_MAP_TOMBSTONES = new XContentBuilderString("version_map_tombstones");
+        static final XContentBuilderString VERSION_MAP_PRUNE_TOTAL = new XContentBuilderString("version_map_prune_total");
+        static final XContentBuilderString VERSION_MAP_PRUNE_TIME = new XContentBuilderString("version_map_prune_time");
+        static final XContentBuilderString VERSION_MAP_PRUNE_TIME_IN_MILLIS = new XContentBuilderString("version_map_prune_time_in_millis");
     }
 
     @Override
     public void readFrom(StreamInput in) throws IOException {
         count = in.readVLong();
         memoryInBytes = in.readLong();
+        if (in.getVersion().onOrAfter(Version.V_2_0_0)) {
+            versionMapMemoryInBytes = in.readVLong();
+            versionMapTombstones = in.readVLong();
+            versionMapPruneCount = in.readVLong();
+            versionMapPruneTimeInMillis = in.readVLong();
+        }
     }
 
     @Override
     public void writeTo(StreamOutput out) throws IOException {
         out.writeVLong(count);
         out.writeLong(memoryInBytes);
+        if (out.getVersion().onOrAfter(Version.V_2_0_0)) {
+            out.writeVLong(versionMapMemoryInBytes);
+            out.writeVLong(versionMapTombstones);
+            out.writeVLong(versionMapPruneCount);
+            out.writeVLong(versionMapPruneTimeInMillis);
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,109 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.engine.internal;
+
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.common.lucene.HashedBytesRef;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.index.translog.Translog;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link LiveVersionMap} on top of a concurrent hash map of {@link HashedBytesRef} to
+ * {@link InternalEngine.VersionValue}.
+ */
+public class ConcurrentLiveVersionMap implements LiveVersionMap {
+
+    // the hash map entry, the key with its bytes ref and the value with its translog location
+    static final long BASE_BYTES_PER_ENTRY = RamUsageEstimator.NUM_BYTES_OBJECT_HEADER + 3 * RamUsageEstimator.NUM_BYTES_OBJECT_REF + RamUsageEstimator.NUM_BYTES_INT
+            + RamUsageEstimator.shallowSizeOfInstance(HashedBytesRef.class) + RamUsageEstimator.shallowSizeOfInstance(BytesRef.class) + RamUsageEstimator.NUM_BYTES_ARRAY_HEADER
+            + RamUsageEstimator.shallowSizeOfInstance(InternalEngine.VersionValue.class) + RamUsageEstimator.shallowSizeOfInstance(Translog.Location.class);
+
+    // we use the hashed variant since we iterate over it and check removal and additions on existing keys
+    private final ConcurrentMap<HashedBytesRef, InternalEngine.VersionValue> map = ConcurrentCollections.newConcurrentMapWithAggressiveConcurrency();
+
+    private final AtomicLong ramBytesUsed = new AtomicLong();
+
+    @Override
+    public InternalEngine.VersionValue get(BytesRef uid) {
+        return map.get(new HashedBytesRef(uid));
+    }
+
+    @Override
+    public void put(BytesRef uid, InternalEngine.VersionValue versionValue) {
+        if (map.put(new HashedBytesRef(uid), versionValue) == null) {
+            ramBytesUsed.addAndGet(BASE_BYTES_PER_ENTRY + uid.length);
+        }
+    }
+
+    @Override
+    public void remove(BytesRef uid, long maxTime) {
+        HashedBytesRef key = new HashedBytesRef(uid);
+        InternalEngine.VersionValue versionValue = map.get(key);
+        // only removes the value if it was not replaced in the meantime
+        if (versionValue != null && versionValue.time() <= maxTime && map.remove(key, versionValue)) {
+            ramBytesUsed.addAndGet(-(BASE_BYTES_PER_ENTRY + uid.length));
+        }
+    }
+
+    @Override
+    public void prune(long time, boolean gcDeletes, long gcDeletesInMillis) {
+        for (Map.Entry<HashedBytesRef, InternalEngine.VersionValue> entry : map.entrySet()) {
+            InternalEngine.VersionValue versionValue = entry.getValue();
+            if (time - versionValue.time() <= 0) {
+                continue; // its a newer value, from after/during we refreshed, don't clear it
+            }
+            if (versionValue.delete() && (!gcDeletes || (time - versionValue.time()) <= gcDeletesInMillis)) {
+                continue;
+            }
+            // only removes the value if it was not replaced in the meantime
+            if (map.remove(entry.getKey(), versionValue)) {
+                ramBytesUsed.addAndGet(-(BASE_BYTES_PER_ENTRY + entry.getKey().bytes.length));
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        return map.size();
+    }
+
+    @Override
+    public void clear() {
+        map.clear();
+        ramBytesUsed.set(0);
+    }
+
+    @Override
+    public long ramBytesUsed() {
+        return ramBytesUsed.get();
+    }
+
+    @Override
+    public boolean release() throws ElasticsearchException {
+        clear();
+        return true;
+    }
+}
@@ -34,22 +34,23 @@ import org.apache.lucene.util.IOUtils;
 import org.apache.lucene.util.Version;
 import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.ElasticsearchIllegalStateException;
+import org.elasticsearch.cache.recycler.PageCacheRecycler;
 import org.elasticsearch.cluster.routing.operation.hash.djb.DjbHashFunction;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.Preconditions;
 import org.elasticsearch.common.collect.MapBuilder;
 import org.elasticsearch.common.inject.Inject;
-import org.elasticsearch.common.lucene.HashedBytesRef;
 import org.elasticsearch.common.lucene.Lucene;
 import org.elasticsearch.common.lucene.SegmentReaderUtils;
 import org.elasticsearch.common.lucene.search.XFilteredQuery;
 import org.elasticsearch.common.lucene.uid.Versions;
+import org.elasticsearch.common.metrics.MeanMetric;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.ByteSizeUnit;
 import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.unit.TimeValue;
-import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.common.util.concurrent.KeyedLock;
 import org.elasticsearch.index.VersionType;
 import org.elasticsearch.index.analysis.AnalysisService;
 import org.elasticsearch.index.codec.CodecService;
@@ -71,13 +72,13 @@ import org.elasticsearch.index.similarity.SimilarityService;
 import org.elasticsearch.index.store.Store;
 import org.elasticsearch.index.translog.Translog;
 import org.elasticsearch.index.translog.TranslogStreams;
+import org.elasticsearch.indices.fielddata.breaker.CircuitBreakerService;
 import org.elasticsearch.indices.warmer.IndicesWarmer;
 import org.elasticsearch.indices.warmer.InternalIndicesWarmer;
 import org.elasticsearch.threadpool.ThreadPool;
 
 import java.io.IOException;
 import java.util.*;
-import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -115,6 +116,7 @@ public class InternalEngine extends AbstractIndexShardComponent implements Engin
     private final AnalysisService analysisService;
     private final SimilarityService similarityService;
     private final CodecService codecService;
+    private final CircuitBreakerService breakerService;
 
 
     private final ReadWriteLock rwl = new ReentrantReadWriteLock();
@@ -141,11 +143,18 @@ public class InternalEngine extends AbstractIndexShardComponent implements Engin
     private final RecoveryCounter onGoingRecoveries = new RecoveryCounter();
 
 
-    // A uid (in the form of BytesRef) to the version map
-    // we use the hashed variant since we iterate over it and check removal and additions on existing keys
-    private final ConcurrentMap<HashedBytesRef, VersionValue> versionMap;
+    // A uid (in the form of BytesRef) to the version map, for documents indexed since the last refresh
+    private final LiveVersionMap versionMap;
+    // the versions of deleted documents, kept until they are garbage collected
+    private final TombstoneIndex tombstones;
+    private final MeanMetric versionMapPruneMetric = new MeanMetric();
+    // the memory of the version map that was last accounted for in the circuit breaker
+    private long versionMapBreakerBytes;
+    private final Object versionMapBreakerMutex = new Object();
 
-    private final Object[] dirtyLocks;
+    // the locks protecting concurrent operations on the same uid, either striped or keyed by uid
+    private final ReentrantLock[] dirtyLocks;
+    private final KeyedLock<BytesRef> uidLocks;
 
     private final Object refreshMutex = new Object();
 
@@ -165,7 +174,8 @@ public class InternalEngine extends AbstractIndexShardComponent implements Engin
                           IndexSettingsService indexSettingsService, ShardIndexingService indexingService, @Nullable IndicesWarmer warmer,
                           Store store, SnapshotDeletionPolicy deletionPolicy, Translog translog,
                           MergePolicyProvider mergePolicyProvider, MergeSchedulerProvider mergeScheduler,
-                          AnalysisService analysisService, SimilarityService similarityService, CodecService codecService) throws EngineException {
+                          AnalysisService analysisService, SimilarityService similarityService, CodecService codecService,
+                          @Nullable PageCacheRecycler pageCacheRecycler, CircuitBreakerService breakerService) throws EngineException {
         super(shardId, indexSettings);
         Preconditions.checkNotNull(store, "Store must be provided to the engine");
         Preconditions.checkNotNull(deletionPolicy, "Snapshot deletion policy must be provided to the engine");
@@ -187,12 +197,22 @@ public class InternalEngine extends AbstractIndexShardComponent implements Engin
         this.analysisService = analysisService;
         this.similarityService = similarityService;
         this.codecService = codecService;
+        this.breakerService = breakerService;
         this.compoundOnFlush = indexSettings.getAsBoolean(INDEX_COMPOUND_ON_FLUSH, this.compoundOnFlush);
         this.indexConcurrency = indexSettings.getAsInt(INDEX_INDEX_CONCURRENCY, Math.max(IndexWriterConfig.DEFAULT_MAX_THREAD_STATES, (int) (EsExecutors.boundedNumberOfProcessors(indexSettings) * 0.65)));
-        this.versionMap = ConcurrentCollections.newConcurrentMapWithAggressiveConcurrency();
-        this.dirtyLocks = new Object[indexConcurrency * 50]; // we multiply it to have enough...
-        for (int i = 0; i < dirtyLocks.length; i++) {
-            dirtyLocks[i] = new Object();
+        LiveVersionMap.Type versionMapType = LiveVersionMap.Type.fromString(indexSettings.get(INDEX_VERSION_MAP_TYPE, LiveVersionMap.Type.CONCURRENT.name()));
+        this.versionMap = versionMapType.create(indexConcurrency, pageCacheRecycler);
+        this.tombstones = new TombstoneIndex(versionMapType.create(indexConcurrency, pageCacheRecycler));
+        if ("keyed".equalsIgnoreCase(indexSettings.get(INDEX_UID_LOCK_TYPE, "striped"))) {
+            // a lock per uid, so operations on unrelated uids never wait on each other
+            this.dirtyLocks = null;
+            this.uidLocks = new KeyedLock<BytesRef>();
+        } else {
+            this.dirtyLocks = new ReentrantLock[indexConcurrency * 50]; // we multiply it to have enough...
+            for (int i = 0; i < dirtyLocks.length; i++) {
+                dirtyLocks[i] = new ReentrantLock();
+            }
+            this.uidLocks = null;
         }
 
         this.indexSettingsService.addListener(applySettings);
@@ -315,7 +335,7 @@ public class InternalEngine extends AbstractIndexShardComponent implements Engin
         rwl.readLock().lock();
         try {
             if (get.realtime()) {
-                VersionValue versionValue = versionMap.get(versionKey(get.uid()));
+                VersionValue versionValue = loadVersionValue(get.uid().bytes());
                 if (versionValue != null) {
                     if (versionValue.delete()) {
                         return GetResult.NOT_EXISTS;
@@ -401,10 +421,10 @@ public class InternalEngine extends AbstractIndexShardComponent implements Engin
     }
 
     private void innerCreate(Create create, IndexWriter writer) throws IOException {
-        synchronized (dirtyLock(create.uid())) {
-            HashedBytesRef versionKey = versionKey(create.uid());
+        acquireUidLock(create.type(), create.uid());
+        try {
             final long currentVersion;
-            VersionValue versionValue = versionMap.get(versionKey);
+            VersionValue versionValue = loadVersionValue(create.uid().bytes());
             if (versionValue == null) {
                 currentVersion = loadCurrentVersionFromIndex(create.uid());
             } else {
@@ -463,9 +483,11 @@ public class InternalEngine extends AbstractIndexShardComponent implements Engin
             }
             Translog.Location translogLocation = translog.add(new Translog.Create(create));
 
-            versionMap.put(versionKey, new VersionValue(updatedVersion, false, threadPool.estimatedTimeInMillis(), translogLocation));
+            putVersionValue(create.uid().bytes(), new VersionValue(updatedVersion, false, threadPool.estimatedTimeInMillis(), translogLocation));
 
             indexingService.postCreateUnderLock(create);
+        } finally {
+            releaseUidLock(create.uid());
         }
     }
 
@@ -498,10 +520,10 @@ public class InternalEngine extends AbstractIndexShardComponent implements Engin
     }
 
     private void innerIndex(Index index, IndexWriter writer) throws IOException {
-        synchronized (dirtyLock(index.uid())) {
-            HashedBytesRef versionKey = versionKey(index.uid());
+        acquireUidLock(index.type(), index.uid());
+        try {
             final long currentVersion;
-            VersionValue versionValue = versionMap.get(versionKey);
+            VersionValue versionValue = loadVersionValue(index.uid().bytes());
             if (versionValue == null) {
                 currentVersion = loadCurrentVersionFromIndex(index.uid());
             } else {
@@ -555,9 +577,11 @@ public class InternalEngine extends AbstractIndexShardComponent implements Engin
             }
             Translog.Location translogLocation = translog.add(new Translog.Index(index));
 
-            versionMap.put(versionKey, new VersionValue(updatedVersion, false, threadPool.estimatedTimeInMillis(), translogLocation));
+            putVersionValue(index.uid().bytes(), new VersionValue(updatedVersion, false, threadPool.estimatedTimeInMillis(), translogLocation));
 
             indexingService.postIndexUnderLock(index);
+        } finally {
+            releaseUidLock(index.uid());
         }
     }
 
@@ -589,10 +613,10 @@ public class InternalEngine extends AbstractIndexShardComponent implements Engin
     }
 
     private void innerDelete(Delete delete, IndexWriter writer) throws IOException {
-        synchronized (dirtyLock(delete.uid())) {
+        acquireUidLock(delete.type(), delete.uid());
+        try {
             final long currentVersion;
-            HashedBytesRef versionKey = versionKey(delete.uid());
-            VersionValue versionValue = versionMap.get(versionKey);
+            VersionValue versionValue = loadVersionValue(delete.uid().bytes());
             if (versionValue == null) {
                 currentVersion = loadCurrentVersionFromIndex(delete.uid());
             } else {
@@ -629,20 +653,22 @@ public class InternalEngine extends AbstractIndexShardComponent implements Engin
                 // doc does not exists and no prior deletes
                 delete.version(updatedVersion).found(false);
                 Translog.Location translogLocation = translog.add(new Translog.Delete(delete));
-                versionMap.put(versionKey, new VersionValue(updatedVersion, true, threadPool.estimatedTimeInMillis(), translogLocation));
+                putVersionValue(delete.uid().bytes(), new VersionValue(updatedVersion, true, threadPool.estimatedTimeInMillis(), translogLocation));
             } else if (versionValue != null && versionValue.delete()) {
                 // a "delete on delete", in this case, we still increment the version, log it, and return that version
                 delete.version(updatedVersion).found(false);
                 Translog.Location translogLocation = translog.add(new Translog.Delete(delete));
-                versionMap.put(versionKey, new VersionValue(updatedVersion, true, threadPool.estimatedTimeInMillis(), translogLocation));
+                putVersionValue(delete.uid().bytes(), new VersionValue(updatedVersion, true, threadPool.estimatedTimeInMillis(), translogLocation));
             } else {
                 delete.version(updatedVersion).found(true);
                 writer.deleteDocuments(delete.uid());
                 Translog.Location translogLocation = translog.add(new Translog.Delete(delete));
-                versionMap.put(versionKey, new VersionValue(updatedVersion, true, threadPool.estimatedTimeInMillis(), translogLocation));
+                putVersionValue(delete.uid().bytes(), new VersionValue(updatedVersion, true, threadPool.estimatedTimeInMillis(), translogLocation));
             }
 
             indexingService.postDeleteUnderLock(delete);
+        } finally {
+            releaseUidLock(delete.uid());
         }
     }
 
@@ -919,23 +945,51 @@ public class InternalEngine extends AbstractIndexShardComponent implements Engin
     private void refreshVersioningTable(long time) {
         // we need to refresh in order to clear older version values
         refresh(new Refresh("version_table").force(true));
-        for (Map.Entry<HashedBytesRef, VersionValue> entry : versionMap.entrySet()) {
-            HashedBytesRef uid = entry.getKey();
-            synchronized (dirtyLock(uid.bytes)) { // can we do it without this lock on each value? maybe batch to a set and get the lock once per set?
-                VersionValue versionValue = versionMap.get(uid);
-                if (versionValue == null) {
-                    continue;
-                }
-                if (time - versionValue.time() <= 0) {
-                    continue; // its a newer value, from after/during we refreshed, don't clear it
-                }
-                if (versionValue.delete()) {
-                    if (enableGcDeletes && (time - versionValue.time()) > gcDeletesInMillis) {
-                        versionMap.remove(uid);
-                    }
-                } else {
-                    versionMap.remove(uid);
-                }
+        long start = System.nanoTime();
+        // the map checks and removes each entry atomically, so a concurrent put of the same uid is never lost,
+        // it only holds documents indexed since the last refresh, deletes are dropped in bulk by the tombstone index
+        versionMap.prune(time, false, gcDeletesInMillis);
+        tombstones.prune(time, enableGcDeletes, gcDeletesInMillis);
+        versionMapPruneMetric.inc(System.nanoTime() - start);
+        updateVersionMapBreaker();
+    }
+
+    /**
+     * Returns the version of the uid since the last refresh, or its tombstone if it was deleted.
+     */
+    private VersionValue loadVersionValue(BytesRef uid) {
+        VersionValue versionValue = versionMap.get(uid);
+        if (versionValue == null) {
+            versionValue = tombstones.get(uid);
+        }
+        return versionValue;
+    }
+
+    /**
+     * Publishes the new version of the uid. Must be called under the uid lock, the new value is made visible
+     * before the previous one is removed so that realtime gets never miss both of them.
+     */
+    private void putVersionValue(BytesRef uid, VersionValue versionValue) {
+        if (versionValue.delete()) {
+            tombstones.put(uid, versionValue);
+            versionMap.remove(uid, Long.MAX_VALUE);
+        } else {
+            versionMap.put(uid, versionValue);
+            tombstones.remove(uid);
+        }
+    }
+
+    /**
+     * Accounts for the memory used by the version map in the circuit breaker. The breaker is adjusted in
+     * batches, on refresh and close, rather than on each operation.
+     */
+    private void updateVersionMapBreaker() {
+        synchronized (versionMapBreakerMutex) {
+            long ramBytesUsed = closed ? 0 : versionMap.ramBytesUsed() + tombstones.ramBytesUsed();
+            long delta = ramBytesUsed - versionMapBreakerBytes;
+            if (delta != 0) {
+                breakerService.getBreaker().addWithoutBreaking(delta);
+                versionMapBreakerBytes = ramBytesUsed;
             }
         }
     }
@@ -1145,6 +1199,9 @@ public class InternalEngine extends AbstractIndexShardComponent implements Engin
                 for (AtomicReaderContext reader : searcher.reader().leaves()) {
                     stats.add(1, getReaderRamBytesUsed(reader));
                 }
+                stats.addVersionMapMemoryInBytes(versionMap.ramBytesUsed() + tombstones.ramBytesUsed());
+                stats.addVersionMapTombstones(tombstones.size());
+                stats.addVersionMapPrune(versionMapPruneMetric.count(), TimeUnit.NANOSECONDS.toMillis(versionMapPruneMetric.sum()));
                 return stats;
             } finally {
                 searcher.release();
@@ -1286,7 +1343,10 @@ public class InternalEngine extends AbstractIndexShardComponent implements Engin
         }
         indexSettingsService.removeListener(applySettings);
         closed = true;
-        this.versionMap.clear();
+        // give the pages of the version map back, clearing would allocate new ones
+        this.versionMap.release();
+        this.tombstones.release();
+        updateVersionMapBreaker();
         this.failedEngineListeners.clear();
         try {
             try {
@@ -1309,11 +1369,30 @@ public class InternalEngine extends AbstractIndexShardComponent implements Engin
         }
     }
 
-    private HashedBytesRef versionKey(Term uid) {
-        return new HashedBytesRef(uid.bytes());
+    /**
+     * Locks the uid for the version check, the write to the index and the publish to the version map. The lock
+     * has to cover the write to the index as well, otherwise two operations on the same uid could be applied to
+     * the index in a different order than the one of their versions.
+     */
+    private void acquireUidLock(String type, Term uid) {
+        final long start = System.nanoTime();
+        if (uidLocks != null) {
+            uidLocks.acquire(uid.bytes());
+        } else {
+            dirtyLock(uid).lock();
+        }
+        indexingService.uidLockWait(type, System.nanoTime() - start);
+    }
+
+    private void releaseUidLock(Term uid) {
+        if (uidLocks != null) {
+            uidLocks.release(uid.bytes());
+        } else {
+            dirtyLock(uid).unlock();
+        }
     }
 
-    private Object dirtyLock(BytesRef uid) {
+    private ReentrantLock dirtyLock(BytesRef uid) {
         int hash = DjbHashFunction.DJB_HASH(uid.bytes, uid.offset, uid.length);
         // abs returns Integer.MIN_VALUE, so we need to protect against it...
         if (hash == Integer.MIN_VALUE) {
@@ -1322,7 +1401,7 @@ public class InternalEngine extends AbstractIndexShardComponent implements Engin
         return dirtyLocks[Math.abs(hash) % dirtyLocks.length];
     }
 
-    private Object dirtyLock(Term uid) {
+    private ReentrantLock dirtyLock(Term uid) {
         return dirtyLock(uid.bytes());
     }
 
@@ -1408,6 +1487,8 @@ public class InternalEngine extends AbstractIndexShardComponent implements Engin
     public static final String INDEX_COMPOUND_ON_FLUSH = "index.compound_on_flush";
     public static final String INDEX_GC_DELETES = "index.gc_deletes";
     public static final String INDEX_FAIL_ON_MERGE_FAILURE = "index.fail_on_merge_failure";
+    public static final String INDEX_VERSION_MAP_TYPE = "index.engine.version_map.type";
+    public static final String INDEX_UID_LOCK_TYPE = "index.engine.uid_lock.type";
 
     class ApplySettings implements IndexSettingsService.Listener {
 
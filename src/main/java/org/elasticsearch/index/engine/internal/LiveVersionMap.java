@@ -0,0 +1,97 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.engine.internal;
+
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.ElasticsearchIllegalArgumentException;
+import org.elasticsearch.cache.recycler.PageCacheRecycler;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.lease.Releasable;
+
+/**
+ * Maps the uid of documents indexed or deleted since the last refresh to their {@link InternalEngine.VersionValue}.
+ * <p/>
+ * Implementations must be thread safe, callers make sure that operations on the same uid do not race with each other.
+ */
+public interface LiveVersionMap extends Releasable {
+
+    public static enum Type {
+
+        /**
+         * Keeps one key and one value object per entry in a concurrent hash map.
+         */
+        CONCURRENT() {
+            @Override
+            public LiveVersionMap create(int concurrencyLevel, @Nullable PageCacheRecycler recycler) {
+                return new ConcurrentLiveVersionMap();
+            }
+        },
+        /**
+         * Keeps entries in paged arrays, without any object per entry.
+         */
+        PAGED() {
+            @Override
+            public LiveVersionMap create(int concurrencyLevel, @Nullable PageCacheRecycler recycler) {
+                return new PagedLiveVersionMap(concurrencyLevel, recycler);
+            }
+        };
+
+        public abstract LiveVersionMap create(int concurrencyLevel, @Nullable PageCacheRecycler recycler);
+
+        public static Type fromString(String type) throws ElasticsearchIllegalArgumentException {
+            if (CONCURRENT.name().equalsIgnoreCase(type)) {
+                return CONCURRENT;
+            } else if (PAGED.name().equalsIgnoreCase(type)) {
+                return PAGED;
+            }
+            throw new ElasticsearchIllegalArgumentException("No version map type [" + type + "]");
+        }
+    }
+
+    /**
+     * Returns the version value associated with the uid, or <tt>null</tt> if there is none.
+     */
+    @Nullable
+    InternalEngine.VersionValue get(BytesRef uid);
+
+    void put(BytesRef uid, InternalEngine.VersionValue versionValue);
+
+    /**
+     * Removes the entry of the uid if it was added at or before <tt>maxTime</tt>, use {@link Long#MAX_VALUE}
+     * to remove it unconditionally.
+     */
+    void remove(BytesRef uid, long maxTime);
+
+    /**
+     * Removes all the entries that were added before <tt>time</tt>. Deletes are only removed if <tt>gcDeletes</tt>
+     * is set and they are older than <tt>gcDeletesInMillis</tt>. Checking and removing an entry is atomic with
+     * respect to a concurrent {@link #put(BytesRef, InternalEngine.VersionValue)} of the same uid.
+     */
+    void prune(long time, boolean gcDeletes, long gcDeletesInMillis);
+
+    int size();
+
+    void clear();
+
+    /**
+     * The estimated memory used by this map, in bytes.
+     */
+    long ramBytesUsed();
+}
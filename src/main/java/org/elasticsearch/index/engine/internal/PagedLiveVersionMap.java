@@ -0,0 +1,408 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.engine.internal;
+
+import com.carrotsearch.hppc.hash.MurmurHash3;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.cache.recycler.PageCacheRecycler;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.lease.Releasables;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.ByteArray;
+import org.elasticsearch.common.util.LongArray;
+import org.elasticsearch.index.translog.Translog;
+
+/**
+ * A {@link LiveVersionMap} that stores its entries in paged {@link BigArrays}, so that no object is kept per entry.
+ * <p/>
+ * The map is split into segments that are locked independently. Each segment is an open addressing hash table with
+ * linear probing that maps slots to entry ids. Entries are stored densely in a {@link LongArray}, {@link #ENTRY_SIZE}
+ * longs per entry, and the uid bytes are appended to a {@link ByteArray} that is compacted when it holds too many
+ * bytes of removed entries.
+ */
+public class PagedLiveVersionMap implements LiveVersionMap {
+
+    // layout of an entry
+    private static final int KEY_OFFSET = 0;
+    private static final int KEY_LENGTH_AND_HASH = 1;
+    private static final int VERSION = 2;
+    private static final int TIME = 3;
+    private static final int DELETE = 4;
+    private static final int TRANSLOG_ID = 5;
+    private static final int TRANSLOG_POSITION = 6;
+    private static final int TRANSLOG_SIZE = 7;
+    static final int ENTRY_SIZE = 8;
+
+    private static final float MAX_LOAD_FACTOR = 0.6f;
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Segment[] segments;
+    private final int segmentShift;
+
+    public PagedLiveVersionMap(int concurrencyLevel, @Nullable PageCacheRecycler recycler) {
+        int numSegments = Integer.highestOneBit(Math.max(1, Math.min(concurrencyLevel, 1 << 16)) - 1) << 1;
+        if (numSegments == 0) {
+            numSegments = 1;
+        }
+        this.segments = new Segment[numSegments];
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = new Segment(recycler);
+        }
+        // the top bits of the hash pick the segment, the bottom ones the slot within the segment
+        this.segmentShift = 32 - Integer.numberOfTrailingZeros(numSegments);
+    }
+
+    // BytesRef has a weak hashCode function so we try to improve it by rehashing using Murmur3
+    private static int hash(BytesRef uid) {
+        return MurmurHash3.hash(uid.hashCode());
+    }
+
+    private Segment segment(int hash) {
+        if (segments.length == 1) {
+            return segments[0];
+        }
+        return segments[hash >>> segmentShift];
+    }
+
+    @Override
+    public InternalEngine.VersionValue get(BytesRef uid) {
+        final int hash = hash(uid);
+        return segment(hash).get(uid, hash);
+    }
+
+    @Override
+    public void put(BytesRef uid, InternalEngine.VersionValue versionValue) {
+        final int hash = hash(uid);
+        segment(hash).put(uid, hash, versionValue);
+    }
+
+    @Override
+    public void remove(BytesRef uid, long maxTime) {
+        final int hash = hash(uid);
+        segment(hash).remove(uid, hash, maxTime);
+    }
+
+    @Override
+    public void prune(long time, boolean gcDeletes, long gcDeletesInMillis) {
+        for (Segment segment : segments) {
+            segment.prune(time, gcDeletes, gcDeletesInMillis);
+        }
+    }
+
+    @Override
+    public int size() {
+        long size = 0;
+        for (Segment segment : segments) {
+            size += segment.size;
+        }
+        return (int) size;
+    }
+
+    @Override
+    public void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    @Override
+    public long ramBytesUsed() {
+        long ramBytesUsed = 0;
+        for (Segment segment : segments) {
+            ramBytesUsed += segment.ramBytesUsed;
+        }
+        return ramBytesUsed;
+    }
+
+    @Override
+    public boolean release() throws ElasticsearchException {
+        for (Segment segment : segments) {
+            segment.release();
+        }
+        return true;
+    }
+
+    private static final class Segment {
+
+        private final PageCacheRecycler recycler;
+        private final BytesRef spare = new BytesRef();
+
+        // entry id + 1 per slot, 0 marks an empty slot
+        private LongArray slots;
+        private long mask;
+        private long maxSize;
+
+        private LongArray entries;
+        private volatile long size;
+
+        private ByteArray keys;
+        private long keysSize;
+        private long removedKeysSize;
+
+        private volatile long ramBytesUsed;
+
+        // once released the pages are back in the recycler, operations that race with the release are ignored
+        private boolean released;
+
+        Segment(PageCacheRecycler recycler) {
+            this.recycler = recycler;
+            init();
+        }
+
+        private void init() {
+            slots = BigArrays.newLongArray(INITIAL_CAPACITY, recycler, true);
+            mask = INITIAL_CAPACITY - 1;
+            maxSize = (long) (INITIAL_CAPACITY * MAX_LOAD_FACTOR);
+            entries = BigArrays.newLongArray(maxSize * ENTRY_SIZE, recycler, false);
+            keys = BigArrays.newByteArray(maxSize * 32, recycler, false);
+            size = 0;
+            keysSize = 0;
+            removedKeysSize = 0;
+            updateRamBytesUsed();
+        }
+
+        private void updateRamBytesUsed() {
+            ramBytesUsed = (slots.size() + entries.size()) * RamUsageEstimator.NUM_BYTES_LONG + keys.size();
+        }
+
+        private long entry(long id, int field) {
+            return entries.get(id * ENTRY_SIZE + field);
+        }
+
+        private void entry(long id, int field, long value) {
+            entries.set(id * ENTRY_SIZE + field, value);
+        }
+
+        private int hash(long id) {
+            return (int) entry(id, KEY_LENGTH_AND_HASH);
+        }
+
+        private BytesRef key(long id) {
+            final long keyLengthAndHash = entry(id, KEY_LENGTH_AND_HASH);
+            keys.get(entry(id, KEY_OFFSET), (int) (keyLengthAndHash >>> 32), spare);
+            return spare;
+        }
+
+        private long id(long slot) {
+            return slots.get(slot) - 1;
+        }
+
+        private long nextSlot(long slot) {
+            return (slot + 1) & mask;
+        }
+
+        /**
+         * Returns the slot that holds the uid, or the empty slot where it should be inserted.
+         */
+        private long slot(BytesRef uid, int hash) {
+            for (long slot = hash & mask; ; slot = nextSlot(slot)) {
+                final long id = id(slot);
+                if (id == -1 || (hash(id) == hash && key(id).bytesEquals(uid))) {
+                    return slot;
+                }
+            }
+        }
+
+        synchronized InternalEngine.VersionValue get(BytesRef uid, int hash) {
+            if (released) {
+                return null;
+            }
+            final long id = id(slot(uid, hash));
+            if (id == -1) {
+                return null;
+            }
+            final long translogId = entry(id, TRANSLOG_ID);
+            final Translog.Location translogLocation;
+            if (translogId == -1) {
+                translogLocation = null;
+            } else {
+                translogLocation = new Translog.Location(translogId, entry(id, TRANSLOG_POSITION), (int) entry(id, TRANSLOG_SIZE));
+            }
+            return new InternalEngine.VersionValue(entry(id, VERSION), entry(id, DELETE) == 1, entry(id, TIME), translogLocation);
+        }
+
+        synchronized void put(BytesRef uid, int hash, InternalEngine.VersionValue versionValue) {
+            if (released) {
+                return;
+            }
+            long slot = slot(uid, hash);
+            long id = id(slot);
+            if (id == -1) {
+                if (size >= maxSize) {
+                    grow();
+                    slot = slot(uid, hash);
+                }
+                id = size;
+                entries = BigArrays.grow(entries, (id + 1) * ENTRY_SIZE);
+                keys = BigArrays.grow(keys, keysSize + uid.length);
+                keys.set(keysSize, uid.bytes, uid.offset, uid.length);
+                entry(id, KEY_OFFSET, keysSize);
+                entry(id, KEY_LENGTH_AND_HASH, (((long) uid.length) << 32) | (hash & 0xFFFFFFFFL));
+                keysSize += uid.length;
+                slots.set(slot, id + 1);
+                size = id + 1;
+                updateRamBytesUsed();
+            }
+            entry(id, VERSION, versionValue.version());
+            entry(id, TIME, versionValue.time());
+            entry(id, DELETE, versionValue.delete() ? 1 : 0);
+            final Translog.Location translogLocation = versionValue.translogLocation();
+            if (translogLocation == null) {
+                entry(id, TRANSLOG_ID, -1);
+            } else {
+                entry(id, TRANSLOG_ID, translogLocation.translogId);
+                entry(id, TRANSLOG_POSITION, translogLocation.translogLocation);
+                entry(id, TRANSLOG_SIZE, translogLocation.size);
+            }
+        }
+
+        synchronized void prune(long time, boolean gcDeletes, long gcDeletesInMillis) {
+            if (released) {
+                return;
+            }
+            // removing an entry moves the last one in its place, going backwards makes sure we visit all of them once
+            for (long id = size - 1; id >= 0; id--) {
+                final long entryTime = entry(id, TIME);
+                if (time - entryTime <= 0) {
+                    continue; // its a newer value, from after/during we refreshed, don't clear it
+                }
+                if (entry(id, DELETE) == 1 && (!gcDeletes || (time - entryTime) <= gcDeletesInMillis)) {
+                    continue;
+                }
+                remove(id);
+            }
+            maybeCompactKeys();
+            updateRamBytesUsed();
+        }
+
+        synchronized void remove(BytesRef uid, int hash, long maxTime) {
+            if (released) {
+                return;
+            }
+            final long id = id(slot(uid, hash));
+            if (id == -1 || entry(id, TIME) > maxTime) {
+                return;
+            }
+            remove(id);
+            if (maybeCompactKeys()) {
+                updateRamBytesUsed();
+            }
+        }
+
+        private long slotOf(long id) {
+            for (long slot = hash(id) & mask; ; slot = nextSlot(slot)) {
+                if (id(slot) == id) {
+                    return slot;
+                }
+            }
+        }
+
+        private void remove(long id) {
+            removedKeysSize += entry(id, KEY_LENGTH_AND_HASH) >>> 32;
+            // backward shift deletion, so that lookups don't need tombstones
+            long free = slotOf(id);
+            slots.set(free, 0);
+            for (long slot = nextSlot(free); ; slot = nextSlot(slot)) {
+                final long curId = id(slot);
+                if (curId == -1) {
+                    break;
+                }
+                final long ideal = hash(curId) & mask;
+                // move the entry back if its ideal slot is not in (free, slot]
+                if (((slot - ideal) & mask) >= ((slot - free) & mask)) {
+                    slots.set(free, curId + 1);
+                    slots.set(slot, 0);
+                    free = slot;
+                }
+            }
+            // keep entries dense by moving the last one in the hole
+            final long last = size - 1;
+            if (id != last) {
+                final long lastSlot = slotOf(last);
+                for (int field = 0; field < ENTRY_SIZE; field++) {
+                    entry(id, field, entry(last, field));
+                }
+                slots.set(lastSlot, id + 1);
+            }
+            size = last;
+        }
+
+        private boolean maybeCompactKeys() {
+            if (removedKeysSize > BigArrays.PAGE_SIZE_IN_BYTES && removedKeysSize > keysSize / 2) {
+                compactKeys();
+                return true;
+            }
+            return false;
+        }
+
+        private void compactKeys() {
+            final ByteArray newKeys = BigArrays.newByteArray(Math.max(1, keysSize - removedKeysSize), recycler, false);
+            long newKeysSize = 0;
+            for (long id = 0; id < size; id++) {
+                final BytesRef key = key(id);
+                newKeys.set(newKeysSize, key.bytes, key.offset, key.length);
+                entry(id, KEY_OFFSET, newKeysSize);
+                newKeysSize += key.length;
+            }
+            Releasables.release(keys);
+            keys = newKeys;
+            keysSize = newKeysSize;
+            removedKeysSize = 0;
+        }
+
+        private void grow() {
+            final long newCapacity = slots.size() << 1;
+            Releasables.release(slots);
+            slots = BigArrays.newLongArray(newCapacity, recycler, true);
+            mask = newCapacity - 1;
+            maxSize = (long) (newCapacity * MAX_LOAD_FACTOR);
+            for (long id = 0; id < size; id++) {
+                long slot = hash(id) & mask;
+                while (id(slot) != -1) {
+                    slot = nextSlot(slot);
+                }
+                slots.set(slot, id + 1);
+            }
+        }
+
+        synchronized void clear() {
+            if (released) {
+                return;
+            }
+            Releasables.release(slots, entries, keys);
+            init();
+        }
+
+        synchronized void release() {
+            if (released) {
+                return;
+            }
+            released = true;
+            Releasables.release(slots, entries, keys);
+            slots = null;
+            entries = null;
+            keys = null;
+            size = 0;
+            ramBytesUsed = 0;
+        }
+    }
+}
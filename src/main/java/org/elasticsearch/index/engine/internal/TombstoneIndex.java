@@ -0,0 +1,159 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.engine.internal;
+
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.BytesRefArray;
+import org.apache.lucene.util.BytesRefIterator;
+import org.apache.lucene.util.Counter;
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.common.lease.Releasable;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Holds the versions of deleted documents (tombstones) until they can be garbage collected.
+ * <p/>
+ * Next to the map of uid to delete version, the uids of deletes are appended to generations, a new generation
+ * being started on each {@link #prune(long, boolean, long)}. Expired deletes are then dropped by dropping whole
+ * generations, without looking at the tombstones that are still alive or at the live version map.
+ */
+public class TombstoneIndex implements Releasable {
+
+    private final LiveVersionMap map;
+
+    // oldest first, the current generation is always the last one
+    private final Deque<Generation> generations = new ArrayDeque<Generation>();
+    private Generation current = new Generation();
+
+    public TombstoneIndex(LiveVersionMap map) {
+        this.map = map;
+        generations.add(current);
+    }
+
+    public InternalEngine.VersionValue get(BytesRef uid) {
+        return map.get(uid);
+    }
+
+    public void put(BytesRef uid, InternalEngine.VersionValue versionValue) {
+        assert versionValue.delete();
+        map.put(uid, versionValue);
+        synchronized (this) {
+            current.add(uid, versionValue.time());
+        }
+    }
+
+    /**
+     * Removes the tombstone of the uid, if any, since it was indexed again. Its uid stays in its
+     * generation and is just skipped when the generation expires.
+     */
+    public void remove(BytesRef uid) {
+        map.remove(uid, Long.MAX_VALUE);
+    }
+
+    /**
+     * Starts a new generation and, if <tt>gcDeletes</tt> is set, drops the tombstones of all the generations
+     * which only hold deletes older than <tt>gcDeletesInMillis</tt>.
+     */
+    public void prune(long time, boolean gcDeletes, long gcDeletesInMillis) {
+        List<Generation> expired = null;
+        synchronized (this) {
+            if (current.uids.size() > 0) {
+                current = new Generation();
+                generations.add(current);
+            }
+            if (gcDeletes) {
+                while (generations.size() > 1 && (time - generations.peekFirst().maxTime) > gcDeletesInMillis) {
+                    if (expired == null) {
+                        expired = new ArrayList<Generation>();
+                    }
+                    expired.add(generations.pollFirst());
+                }
+            }
+        }
+        if (expired == null) {
+            return;
+        }
+        // outside of the lock, so that deletes can go on while we drop tombstones
+        try {
+            for (Generation generation : expired) {
+                BytesRefIterator iterator = generation.uids.iterator();
+                for (BytesRef uid = iterator.next(); uid != null; uid = iterator.next()) {
+                    // the uid might have been deleted again since, in which case it lives in a newer generation
+                    map.remove(uid, generation.maxTime);
+                }
+                generation.uids.clear();
+            }
+        } catch (IOException e) {
+            // iterating over bytes in memory can't fail
+            throw new ElasticsearchException("failed to prune tombstones", e);
+        }
+    }
+
+    /**
+     * The number of tombstones.
+     */
+    public int size() {
+        return map.size();
+    }
+
+    public long ramBytesUsed() {
+        long ramBytesUsed = map.ramBytesUsed();
+        synchronized (this) {
+            for (Generation generation : generations) {
+                ramBytesUsed += generation.bytesUsed.get();
+            }
+        }
+        return ramBytesUsed;
+    }
+
+    public synchronized void clear() {
+        map.clear();
+        generations.clear();
+        current = new Generation();
+        generations.add(current);
+    }
+
+    @Override
+    public boolean release() throws ElasticsearchException {
+        synchronized (this) {
+            generations.clear();
+            current = new Generation();
+            generations.add(current);
+        }
+        return map.release();
+    }
+
+    private static final class Generation {
+
+        final Counter bytesUsed = Counter.newCounter();
+        final BytesRefArray uids = new BytesRefArray(bytesUsed);
+        long maxTime = Long.MIN_VALUE;
+
+        void add(BytesRef uid, long time) {
+            uids.append(uid);
+            maxTime = Math.max(maxTime, time);
+        }
+    }
+}
@@ -30,6 +30,7 @@ import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.index.Index;
 import org.elasticsearch.index.IndexComponent;
 import org.elasticsearch.index.fielddata.fieldcomparator.SortMode;
+import org.elasticsearch.index.fielddata.ordinals.GlobalOrdinalsMapping;
 import org.elasticsearch.index.mapper.FieldMapper;
 import org.elasticsearch.index.settings.IndexSettings;
 import org.elasticsearch.indices.fielddata.breaker.CircuitBreakerService;
@@ -186,6 +187,16 @@ public interface IndexFieldData<FD extends AtomicFieldData> extends IndexCompone
          * Loads directly the atomic field data for the reader, ignoring any caching involved.
          */
         FD loadDirect(AtomicReaderContext context) throws Exception;
+
+        /**
+         * Loads the global ordinals of the field for the top-level reader, possibly cached.
+         */
+        GlobalOrdinalsMapping loadGlobalOrdinals(IndexReader indexReader);
+
+        /**
+         * Loads directly the global ordinals of the field for the top-level reader, ignoring any caching involved.
+         */
+        GlobalOrdinalsMapping loadGlobalOrdinalsDirect(IndexReader indexReader) throws Exception;
     }
 
 }
@@ -24,9 +24,11 @@ import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.RemovalListener;
 import com.google.common.cache.RemovalNotification;
 import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.SegmentReader;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.lucene.SegmentReaderUtils;
+import org.elasticsearch.index.fielddata.ordinals.GlobalOrdinalsMapping;
 import org.elasticsearch.index.mapper.FieldMapper;
 import org.elasticsearch.index.service.IndexService;
 import org.elasticsearch.index.shard.ShardId;
@@ -42,6 +44,12 @@ public interface IndexFieldDataCache {
 
     <FD extends AtomicFieldData, IFD extends IndexFieldData<FD>> FD load(AtomicReaderContext context, IFD indexFieldData) throws Exception;
 
+    /**
+     * Loads the global ordinals of the field for the given top-level reader. The global ordinals are evicted once the
+     * reader is closed, eg. on refresh.
+     */
+    GlobalOrdinalsMapping loadGlobalOrdinals(IndexReader indexReader, IndexFieldData.WithOrdinals<?> indexFieldData) throws Exception;
+
     /**
      * Clears all the field data stored cached in on this index.
      */
@@ -64,12 +72,13 @@ public interface IndexFieldDataCache {
     /**
      * The resident field data cache is a *per field* cache that keeps all the values in memory.
      */
-    static abstract class FieldBased implements IndexFieldDataCache, SegmentReader.CoreClosedListener, RemovalListener<FieldBased.Key, AtomicFieldData> {
+    static abstract class FieldBased implements IndexFieldDataCache, SegmentReader.CoreClosedListener, IndexReader.ReaderClosedListener, RemovalListener<FieldBased.Key, AtomicFieldData> {
         @Nullable
         private final IndexService indexService;
         private final FieldMapper.Names fieldNames;
         private final FieldDataType fieldDataType;
         private final Cache<Key, AtomicFieldData> cache;
+        private final Cache<Object, GlobalOrdinalsMapping> globalOrdinalsCache = CacheBuilder.newBuilder().build();
 
         protected FieldBased(@Nullable IndexService indexService, FieldMapper.Names fieldNames, FieldDataType fieldDataType, CacheBuilder cache) {
             this.indexService = indexService;
@@ -124,14 +133,27 @@ public interface IndexFieldDataCache {
             });
         }
 
+        @Override
+        public GlobalOrdinalsMapping loadGlobalOrdinals(final IndexReader indexReader, final IndexFieldData.WithOrdinals<?> indexFieldData) throws Exception {
+            return globalOrdinalsCache.get(indexReader.getCoreCacheKey(), new Callable<GlobalOrdinalsMapping>() {
+                @Override
+                public GlobalOrdinalsMapping call() throws Exception {
+                    indexReader.addReaderClosedListener(FieldBased.this);
+                    return indexFieldData.loadGlobalOrdinalsDirect(indexReader);
+                }
+            });
+        }
+
         @Override
         public void clear() {
             cache.invalidateAll();
+            globalOrdinalsCache.invalidateAll();
         }
 
         @Override
         public void clear(String fieldName) {
             cache.invalidateAll();
+            globalOrdinalsCache.invalidateAll();
         }
 
         @Override
@@ -144,6 +166,11 @@ public interface IndexFieldDataCache {
             cache.invalidate(new Key(coreCacheKey));
         }
 
+        @Override
+        public void onClose(IndexReader reader) {
+            globalOrdinalsCache.invalidate(reader.getCoreCacheKey());
+        }
+
         static class Key {
             final Object readerKey;
             @Nullable
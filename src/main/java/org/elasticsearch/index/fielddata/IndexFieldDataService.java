@@ -142,6 +142,13 @@ public class IndexFieldDataService extends AbstractIndexComponent {
         this.indexService = indexService;
     }
 
+    /**
+     * Returns the breaker service that field data loading registers its memory usage with.
+     */
+    public CircuitBreakerService circuitBreakerService() {
+        return circuitBreakerService;
+    }
+
     public void clear() {
         synchronized (loadedFieldData) {
             for (IndexFieldData<?> fieldData : loadedFieldData.values()) {
@@ -0,0 +1,204 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.fielddata.ordinals;
+
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.PriorityQueue;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.apache.lucene.util.packed.AppendingPackedLongBuffer;
+import org.apache.lucene.util.packed.MonotonicAppendingLongBuffer;
+import org.elasticsearch.index.fielddata.BytesValues;
+import org.elasticsearch.index.fielddata.IndexFieldData;
+
+import java.util.List;
+
+/**
+ * A mapping from the ordinals of every segment of a top-level reader to <i>global ordinals</i>, ie. ordinals that
+ * are comparable across segments because they are the ordinals of the terms in the sorted union of the terms
+ * of all segments. Global ordinals start at {@link Ordinals#MIN_ORDINAL}, {@link Ordinals#MISSING_ORDINAL} is
+ * mapped to itself.
+ * <p/>
+ * The mapping is only valid for the top-level reader it has been built on and needs to be rebuilt on refresh.
+ */
+public final class GlobalOrdinalsMapping {
+
+    private final long maxOrd;
+    // per segment, segment ordinal - 1 -> global ordinal, null if the mapping is the identity
+    private final MonotonicAppendingLongBuffer[] segmentToGlobalOrds;
+    // global ordinal - 1 -> first segment that contains the term
+    private final AppendingPackedLongBuffer firstSegments;
+    // global ordinal - 1 -> global ordinal - ordinal of the term in the first segment that contains it
+    private final MonotonicAppendingLongBuffer firstSegmentOrdDeltas;
+
+    private GlobalOrdinalsMapping(long maxOrd, MonotonicAppendingLongBuffer[] segmentToGlobalOrds,
+                                  AppendingPackedLongBuffer firstSegments, MonotonicAppendingLongBuffer firstSegmentOrdDeltas) {
+        this.maxOrd = maxOrd;
+        this.segmentToGlobalOrds = segmentToGlobalOrds;
+        this.firstSegments = firstSegments;
+        this.firstSegmentOrdDeltas = firstSegmentOrdDeltas;
+    }
+
+    /**
+     * Builds the global ordinals of the given field over all segments of the given reader by merging the
+     * (sorted) terms of each segment.
+     */
+    public static GlobalOrdinalsMapping build(IndexReader indexReader, IndexFieldData.WithOrdinals<?> indexFieldData) {
+        final List<AtomicReaderContext> leaves = indexReader.leaves();
+        if (leaves.size() == 1) {
+            // global ordinals are the segment ordinals
+            final long maxOrd = indexFieldData.load(leaves.get(0)).getBytesValues(false).ordinals().getMaxOrd();
+            return new GlobalOrdinalsMapping(maxOrd, new MonotonicAppendingLongBuffer[1], null, null);
+        }
+
+        final MonotonicAppendingLongBuffer[] segmentToGlobalOrds = new MonotonicAppendingLongBuffer[leaves.size()];
+        final AppendingPackedLongBuffer firstSegments = new AppendingPackedLongBuffer();
+        final MonotonicAppendingLongBuffer firstSegmentOrdDeltas = new MonotonicAppendingLongBuffer();
+        final TermsQueue queue = new TermsQueue(leaves.size());
+        for (int i = 0; i < leaves.size(); ++i) {
+            segmentToGlobalOrds[i] = new MonotonicAppendingLongBuffer();
+            final SegmentTerms terms = new SegmentTerms(i, indexFieldData.load(leaves.get(i)).getBytesValues(false));
+            if (terms.next()) {
+                queue.add(terms);
+            }
+        }
+
+        final BytesRef currentTerm = new BytesRef();
+        long globalOrd = Ordinals.MISSING_ORDINAL;
+        while (queue.size() > 0) {
+            final SegmentTerms top = queue.top();
+            if (globalOrd == Ordinals.MISSING_ORDINAL || !currentTerm.bytesEquals(top.term)) {
+                ++globalOrd;
+                currentTerm.copyBytes(top.term);
+                firstSegments.add(top.segment);
+                firstSegmentOrdDeltas.add(globalOrd - top.ord);
+            }
+            segmentToGlobalOrds[top.segment].add(globalOrd);
+            if (top.next()) {
+                queue.updateTop();
+            } else {
+                queue.pop();
+            }
+        }
+
+        for (MonotonicAppendingLongBuffer segmentToGlobalOrd : segmentToGlobalOrds) {
+            segmentToGlobalOrd.freeze();
+        }
+        firstSegments.freeze();
+        firstSegmentOrdDeltas.freeze();
+        return new GlobalOrdinalsMapping(globalOrd + 1, segmentToGlobalOrds, firstSegments, firstSegmentOrdDeltas);
+    }
+
+    /**
+     * Returns the global ordinal of the given ordinal of the segment at index <code>segment</code> in the
+     * leaves of the top-level reader.
+     */
+    public long getGlobalOrd(int segment, long segmentOrd) {
+        final MonotonicAppendingLongBuffer segmentToGlobalOrd = segmentToGlobalOrds[segment];
+        if (segmentToGlobalOrd == null || segmentOrd == Ordinals.MISSING_ORDINAL) {
+            return segmentOrd;
+        }
+        return segmentToGlobalOrd.get(segmentOrd - 1);
+    }
+
+    /**
+     * Returns the index of the first segment which contains the term of the given global ordinal.
+     */
+    public int getFirstSegment(long globalOrd) {
+        if (firstSegments == null) {
+            return 0;
+        }
+        return (int) firstSegments.get(globalOrd - 1);
+    }
+
+    /**
+     * Returns the ordinal of the term of the given global ordinal in the segment returned by {@link #getFirstSegment(long)}.
+     */
+    public long getFirstSegmentOrd(long globalOrd) {
+        if (firstSegmentOrdDeltas == null) {
+            return globalOrd;
+        }
+        return globalOrd - firstSegmentOrdDeltas.get(globalOrd - 1);
+    }
+
+    /**
+     * Returns the number of global ordinals, including the {@link Ordinals#MISSING_ORDINAL}.
+     */
+    public long getMaxOrd() {
+        return maxOrd;
+    }
+
+    /**
+     * The memory size this mapping takes.
+     */
+    public long getMemorySizeInBytes() {
+        long size = RamUsageEstimator.NUM_BYTES_OBJECT_HEADER + RamUsageEstimator.sizeOf(segmentToGlobalOrds);
+        for (MonotonicAppendingLongBuffer segmentToGlobalOrd : segmentToGlobalOrds) {
+            if (segmentToGlobalOrd != null) {
+                size += segmentToGlobalOrd.ramBytesUsed();
+            }
+        }
+        if (firstSegments != null) {
+            size += firstSegments.ramBytesUsed() + firstSegmentOrdDeltas.ramBytesUsed();
+        }
+        return size;
+    }
+
+    private static class SegmentTerms {
+
+        final int segment;
+        final BytesValues.WithOrdinals values;
+        final long maxOrd;
+        final BytesRef term = new BytesRef();
+        long ord = Ordinals.MISSING_ORDINAL;
+
+        SegmentTerms(int segment, BytesValues.WithOrdinals values) {
+            this.segment = segment;
+            this.values = values;
+            this.maxOrd = values.ordinals().getMaxOrd();
+        }
+
+        boolean next() {
+            if (++ord >= maxOrd) {
+                return false;
+            }
+            // the returned bytes may be shared, take a copy
+            term.copyBytes(values.getValueByOrd(ord));
+            return true;
+        }
+    }
+
+    private static class TermsQueue extends PriorityQueue<SegmentTerms> {
+
+        TermsQueue(int size) {
+            super(size);
+        }
+
+        @Override
+        protected boolean lessThan(SegmentTerms a, SegmentTerms b) {
+            final int cmp = a.term.compareTo(b.term);
+            if (cmp != 0) {
+                return cmp < 0;
+            }
+            return a.segment < b.segment;
+        }
+    }
+}
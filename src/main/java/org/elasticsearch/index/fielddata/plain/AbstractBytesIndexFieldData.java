@@ -20,17 +20,20 @@ package org.elasticsearch.index.fielddata.plain;
 
 import org.apache.lucene.index.AtomicReader;
 import org.apache.lucene.index.FilteredTermsEnum;
+import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.Terms;
 import org.apache.lucene.index.TermsEnum;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.CharsRef;
 import org.apache.lucene.util.UnicodeUtil;
+import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.index.Index;
 import org.elasticsearch.index.fielddata.*;
 import org.elasticsearch.index.fielddata.fieldcomparator.BytesRefFieldComparatorSource;
 import org.elasticsearch.index.fielddata.fieldcomparator.SortMode;
+import org.elasticsearch.index.fielddata.ordinals.GlobalOrdinalsMapping;
 import org.elasticsearch.index.mapper.FieldMapper.Names;
 
 import java.io.IOException;
@@ -61,6 +64,24 @@ public abstract class AbstractBytesIndexFieldData<FD extends AtomicFieldData.Wit
     public XFieldComparatorSource comparatorSource(@Nullable Object missingValue, SortMode sortMode) {
         return new BytesRefFieldComparatorSource(this, missingValue, sortMode);
     }
+
+    @Override
+    public GlobalOrdinalsMapping loadGlobalOrdinals(IndexReader indexReader) {
+        try {
+            return cache.loadGlobalOrdinals(indexReader, this);
+        } catch (Throwable e) {
+            if (e instanceof ElasticsearchException) {
+                throw (ElasticsearchException) e;
+            } else {
+                throw new ElasticsearchException(e.getMessage(), e);
+            }
+        }
+    }
+
+    @Override
+    public GlobalOrdinalsMapping loadGlobalOrdinalsDirect(IndexReader indexReader) throws Exception {
+        return GlobalOrdinalsMapping.build(indexReader, this);
+    }
     
     protected TermsEnum filter(Terms terms, AtomicReader reader) throws IOException {
         TermsEnum iterator = terms.iterator(null);
@@ -97,7 +97,7 @@ public abstract class DocValuesIndexFieldData {
             } else if (numericType != null) {
                 return new BinaryDVNumericIndexFieldData(index, fieldNames, numericType);
             } else {
-                return new SortedSetDVBytesIndexFieldData(index, fieldNames);
+                return new SortedSetDVBytesIndexFieldData(index, cache, fieldNames);
             }
         }
 
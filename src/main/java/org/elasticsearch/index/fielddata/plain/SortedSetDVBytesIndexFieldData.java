@@ -20,16 +20,23 @@
 package org.elasticsearch.index.fielddata.plain;
 
 import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.index.IndexReader;
+import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.index.Index;
 import org.elasticsearch.index.fielddata.IndexFieldData;
+import org.elasticsearch.index.fielddata.IndexFieldDataCache;
 import org.elasticsearch.index.fielddata.fieldcomparator.BytesRefFieldComparatorSource;
 import org.elasticsearch.index.fielddata.fieldcomparator.SortMode;
+import org.elasticsearch.index.fielddata.ordinals.GlobalOrdinalsMapping;
 import org.elasticsearch.index.mapper.FieldMapper.Names;
 
 public class SortedSetDVBytesIndexFieldData extends DocValuesIndexFieldData implements IndexFieldData.WithOrdinals<SortedSetDVBytesAtomicFieldData> {
 
-    public SortedSetDVBytesIndexFieldData(Index index, Names fieldNames) {
+    private final IndexFieldDataCache cache;
+
+    public SortedSetDVBytesIndexFieldData(Index index, IndexFieldDataCache cache, Names fieldNames) {
         super(index, fieldNames);
+        this.cache = cache;
     }
 
     @Override
@@ -50,4 +57,22 @@ public class SortedSetDVBytesIndexFieldData extends DocValuesIndexFieldData impl
     public SortedSetDVBytesAtomicFieldData loadDirect(AtomicReaderContext context) throws Exception {
         return load(context);
     }
+
+    @Override
+    public GlobalOrdinalsMapping loadGlobalOrdinals(IndexReader indexReader) {
+        try {
+            return cache.loadGlobalOrdinals(indexReader, this);
+        } catch (Throwable e) {
+            if (e instanceof ElasticsearchException) {
+                throw (ElasticsearchException) e;
+            } else {
+                throw new ElasticsearchException(e.getMessage(), e);
+            }
+        }
+    }
+
+    @Override
+    public GlobalOrdinalsMapping loadGlobalOrdinalsDirect(IndexReader indexReader) throws Exception {
+        return GlobalOrdinalsMapping.build(indexReader, this);
+    }
 }
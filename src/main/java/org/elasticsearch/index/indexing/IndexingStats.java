@@ -19,6 +19,7 @@
 
 package org.elasticsearch.index.indexing;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
@@ -46,6 +47,8 @@ public class IndexingStats implements Streamable, ToXContent {
         private long deleteTimeInMillis;
         private long deleteCurrent;
 
+        private long uidLockWaitTimeInMillis;
+
         Stats() {
 
         }
@@ -59,6 +62,11 @@ public class IndexingStats implements Streamable, ToXContent {
             this.deleteCurrent = deleteCurrent;
         }
 
+        public Stats(long indexCount, long indexTimeInMillis, long indexCurrent, long deleteCount, long deleteTimeInMillis, long deleteCurrent, long uidLockWaitTimeInMillis) {
+            this(indexCount, indexTimeInMillis, indexCurrent, deleteCount, deleteTimeInMillis, deleteCurrent);
+            this.uidLockWaitTimeInMillis = uidLockWaitTimeInMillis;
+        }
+
         public void add(Stats stats) {
             indexCount += stats.indexCount;
             indexTimeInMillis += stats.indexTimeInMillis;
@@ -67,6 +75,8 @@ public class IndexingStats implements Streamable, ToXContent {
             deleteCount += stats.deleteCount;
             deleteTimeInMillis += stats.deleteTimeInMillis;
             deleteCurrent += stats.deleteCurrent;
+
+            uidLockWaitTimeInMillis += stats.uidLockWaitTimeInMillis;
         }
 
         public long getIndexCount() {
@@ -101,6 +111,17 @@ public class IndexingStats implements Streamable, ToXContent {
             return deleteCurrent;
         }
 
+        /**
+         * The time spent by index, create and delete operations waiting for the lock on their uid.
+         */
+        public TimeValue getUidLockWaitTime() {
+            return new TimeValue(uidLockWaitTimeInMillis);
+        }
+
+        public long getUidLockWaitTimeInMillis() {
+            return uidLockWaitTimeInMillis;
+        }
+
         public static Stats readStats(StreamInput in) throws IOException {
             Stats stats = new Stats();
             stats.readFrom(in);
@@ -116,6 +137,10 @@ public class IndexingStats implements Streamable, ToXContent {
             deleteCount = in.readVLong();
             deleteTimeInMillis = in.readVLong();
             deleteCurrent = in.readVLong();
+
+            if (in.getVersion().onOrAfter(Version.V_2_0_0)) {
+                uidLockWaitTimeInMillis = in.readVLong();
+            }
         }
 
         @Override
@@ -127,6 +152,10 @@ public class IndexingStats implements Streamable, ToXContent {
             out.writeVLong(deleteCount);
             out.writeVLong(deleteTimeInMillis);
             out.writeVLong(deleteCurrent);
+
+            if (out.getVersion().onOrAfter(Version.V_2_0_0)) {
+                out.writeVLong(uidLockWaitTimeInMillis);
+            }
         }
 
         @Override
@@ -139,6 +168,8 @@ public class IndexingStats implements Streamable, ToXContent {
             builder.timeValueField(Fields.DELETE_TIME_IN_MILLIS, Fields.DELETE_TIME, deleteTimeInMillis);
             builder.field(Fields.DELETE_CURRENT, deleteCurrent);
 
+            builder.timeValueField(Fields.UID_LOCK_WAIT_TIME_IN_MILLIS, Fields.UID_LOCK_WAIT_TIME, uidLockWaitTimeInMillis);
+
             return builder;
         }
     }
@@ -218,6 +249,8 @@ public class IndexingStats implements Streamable, ToXContent {
         static final XContentBuilderString DELETE_TIME = new XContentBuilderString("delete_time");
         static final XContentBuilderString DELETE_TIME_IN_MILLIS = new XContentBuilderString("delete_time_in_millis");
         static final XContentBuilderString DELETE_CURRENT = new XContentBuilderString("delete_current");
+        static final XContentBuilderString UID_LOCK_WAIT_TIME = new XContentBuilderString("uid_lock_wait_time");
+        static final XContentBuilderString UID_LOCK_WAIT_TIME_IN_MILLIS = new XContentBuilderString("uid_lock_wait_time_in_millis");
     }
 
     public static IndexingStats readIndexingStats(StreamInput in) throws IOException {
@@ -213,6 +213,14 @@ public class ShardIndexingService extends AbstractIndexShardComponent {
         return deleteByQuery;
     }
 
+    /**
+     * Records the time an operation on a document of the given type waited for the lock on its uid.
+     */
+    public void uidLockWait(String type, long tookInNanos) {
+        totalStats.uidLockWaitMetric.inc(tookInNanos);
+        typeStats(type).uidLockWaitMetric.inc(tookInNanos);
+    }
+
     public void postDeleteByQuery(Engine.DeleteByQuery deleteByQuery) {
         for (IndexingOperationListener listener : listeners) {
             listener.postDeleteByQuery(deleteByQuery);
@@ -254,11 +262,13 @@ public class ShardIndexingService extends AbstractIndexShardComponent {
         public final MeanMetric deleteMetric = new MeanMetric();
         public final CounterMetric indexCurrent = new CounterMetric();
         public final CounterMetric deleteCurrent = new CounterMetric();
+        public final MeanMetric uidLockWaitMetric = new MeanMetric();
 
         public IndexingStats.Stats stats() {
             return new IndexingStats.Stats(
                     indexMetric.count(), TimeUnit.NANOSECONDS.toMillis(indexMetric.sum()), indexCurrent.count(),
-                    deleteMetric.count(), TimeUnit.NANOSECONDS.toMillis(deleteMetric.sum()), deleteCurrent.count());
+                    deleteMetric.count(), TimeUnit.NANOSECONDS.toMillis(deleteMetric.sum()), deleteCurrent.count(),
+                    TimeUnit.NANOSECONDS.toMillis(uidLockWaitMetric.sum()));
         }
 
         public long totalCurrent() {
@@ -268,6 +278,7 @@ public class ShardIndexingService extends AbstractIndexShardComponent {
         public void clear() {
             indexMetric.clear();
             deleteMetric.clear();
+            uidLockWaitMetric.clear();
         }
     }
 }
@@ -19,6 +19,7 @@
 
 package org.elasticsearch.index.percolator;
 
+import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.queries.TermFilter;
 import org.apache.lucene.search.Query;
@@ -53,6 +54,7 @@ import org.elasticsearch.index.shard.service.IndexShard;
 import org.elasticsearch.indices.IndicesLifecycle;
 import org.elasticsearch.percolator.PercolatorService;
 
+import java.io.IOException;
 import java.util.Map;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -77,6 +79,7 @@ public class PercolatorQueriesRegistry extends AbstractIndexShardComponent {
     private final ShardPercolateService shardPercolateService;
 
     private final ConcurrentMap<HashedBytesRef, Query> percolateQueries = ConcurrentCollections.newConcurrentMapWithAggressiveConcurrency();
+    private final QueryTermsIndex queryTermsIndex = new QueryTermsIndex();
     private final ShardLifecycleListener shardLifecycleListener = new ShardLifecycleListener();
     private final RealTimePercolatorOperationListener realTimePercolatorOperationListener = new RealTimePercolatorOperationListener();
     private final PercolateTypeListener percolateTypeListener = new PercolateTypeListener();
@@ -103,6 +106,13 @@ public class PercolatorQueriesRegistry extends AbstractIndexShardComponent {
         return percolateQueries;
     }
 
+    /**
+     * Returns the registered queries that might match the documents of the given reader, see {@link QueryTermsIndex}.
+     */
+    public Map<HashedBytesRef, Query> candidateQueries(IndexReader reader) throws IOException {
+        return queryTermsIndex.candidateQueries(reader, percolateQueries);
+    }
+
     public void close() {
         mapperService.removeTypeListener(percolateTypeListener);
         indicesLifecycle.removeListener(shardLifecycleListener);
@@ -112,6 +122,7 @@ public class PercolatorQueriesRegistry extends AbstractIndexShardComponent {
 
     public void clear() {
         percolateQueries.clear();
+        queryTermsIndex.clear();
     }
 
     void enableRealTimePercolator() {
@@ -130,6 +141,7 @@ public class PercolatorQueriesRegistry extends AbstractIndexShardComponent {
         Query newquery = parsePercolatorDocument(idAsString, source);
         HashedBytesRef id = new HashedBytesRef(new BytesRef(idAsString));
         Query previousQuery = percolateQueries.put(id, newquery);
+        queryTermsIndex.add(id, previousQuery, newquery);
         shardPercolateService.addedQuery(id, previousQuery, newquery);
     }
 
@@ -137,6 +149,7 @@ public class PercolatorQueriesRegistry extends AbstractIndexShardComponent {
         HashedBytesRef id = new HashedBytesRef(idAsString);
         Query query = percolateQueries.remove(id);
         if (query != null) {
+            queryTermsIndex.remove(id, query);
             shardPercolateService.removedQuery(id, query);
         }
     }
@@ -268,6 +281,7 @@ public class PercolatorQueriesRegistry extends AbstractIndexShardComponent {
                     Map<HashedBytesRef, Query> queries = queryCollector.queries();
                     for (Map.Entry<HashedBytesRef, Query> entry : queries.entrySet()) {
                         Query previousQuery = percolateQueries.put(entry.getKey(), entry.getValue());
+                        queryTermsIndex.add(entry.getKey(), previousQuery, entry.getValue());
                         shardPercolateService.addedQuery(entry.getKey(), previousQuery, entry.getValue());
                     }
                 } finally {
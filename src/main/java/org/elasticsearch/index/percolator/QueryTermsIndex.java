@@ -0,0 +1,245 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.percolator;
+
+import org.apache.lucene.index.*;
+import org.apache.lucene.queries.TermFilter;
+import org.apache.lucene.search.*;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.lucene.HashedBytesRef;
+import org.elasticsearch.common.lucene.search.XFilteredQuery;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * An inverted index of the terms that the registered percolator queries require in order to match. For each
+ * query a set of terms is extracted at registration time so that any document matching the query contains at
+ * least one of these terms. Percolating a document then only needs to evaluate the queries that are indexed
+ * under one of the document's terms, plus the queries no terms could be extracted from.
+ */
+public class QueryTermsIndex {
+
+    private final ConcurrentMap<Term, Set<HashedBytesRef>> termsToQueries = ConcurrentCollections.newConcurrentMapWithAggressiveConcurrency();
+    private final Set<HashedBytesRef> unindexedQueries = ConcurrentCollections.newConcurrentSet();
+
+    /**
+     * Adds the given query, replacing the previous query registered under the same id if any.
+     */
+    public void add(HashedBytesRef id, @Nullable Query previousQuery, Query query) {
+        if (previousQuery != null) {
+            remove(id, previousQuery);
+        }
+        final Set<Term> terms = extractQueryTerms(query);
+        if (terms == null) {
+            unindexedQueries.add(id);
+            return;
+        }
+        for (Term term : terms) {
+            Set<HashedBytesRef> ids = termsToQueries.get(term);
+            if (ids == null) {
+                final Set<HashedBytesRef> newIds = ConcurrentCollections.newConcurrentSet();
+                ids = termsToQueries.putIfAbsent(term, newIds);
+                if (ids == null) {
+                    ids = newIds;
+                }
+            }
+            ids.add(id);
+        }
+    }
+
+    /**
+     * Removes the given query, which must be the query that is registered under the given id.
+     */
+    public void remove(HashedBytesRef id, Query query) {
+        final Set<Term> terms = extractQueryTerms(query);
+        if (terms == null) {
+            unindexedQueries.remove(id);
+            return;
+        }
+        for (Term term : terms) {
+            final Set<HashedBytesRef> ids = termsToQueries.get(term);
+            if (ids != null) {
+                ids.remove(id);
+                // empty sets are left in place, they are likely to be reused by queries on the same terms
+            }
+        }
+    }
+
+    public void clear() {
+        termsToQueries.clear();
+        unindexedQueries.clear();
+    }
+
+    /**
+     * Returns the queries that might match the documents of the given reader: the queries that are indexed under one of
+     * the terms of these documents and the queries that could not be indexed.
+     */
+    public Map<HashedBytesRef, Query> candidateQueries(IndexReader reader, Map<HashedBytesRef, Query> queries) throws IOException {
+        final Map<HashedBytesRef, Query> candidates = new HashMap<HashedBytesRef, Query>();
+        for (HashedBytesRef id : unindexedQueries) {
+            addCandidate(id, queries, candidates);
+        }
+        final Fields fields = MultiFields.getFields(reader);
+        if (fields == null) {
+            return candidates;
+        }
+        TermsEnum termsEnum = null;
+        for (String field : fields) {
+            final Terms terms = fields.terms(field);
+            if (terms == null) {
+                continue;
+            }
+            termsEnum = terms.iterator(termsEnum);
+            for (BytesRef term = termsEnum.next(); term != null; term = termsEnum.next()) {
+                final Set<HashedBytesRef> ids = termsToQueries.get(new Term(field, term));
+                if (ids != null) {
+                    for (HashedBytesRef id : ids) {
+                        addCandidate(id, queries, candidates);
+                    }
+                }
+            }
+        }
+        return candidates;
+    }
+
+    private static void addCandidate(HashedBytesRef id, Map<HashedBytesRef, Query> queries, Map<HashedBytesRef, Query> candidates) {
+        final Query query = queries.get(id);
+        if (query != null) { // might have been removed concurrently
+            candidates.put(id, query);
+        }
+    }
+
+    /**
+     * Extracts a set of terms so that any document that matches the query contains at least one of them, or
+     * <tt>null</tt> if no such set can be extracted, eg. for range or match all queries.
+     */
+    @Nullable
+    static Set<Term> extractQueryTerms(Query query) {
+        if (query instanceof TermQuery) {
+            return Collections.singleton(((TermQuery) query).getTerm());
+        } else if (query instanceof PhraseQuery) {
+            // all terms are required, a single one is enough
+            return bestTerms(terms(((PhraseQuery) query).getTerms()));
+        } else if (query instanceof BooleanQuery) {
+            return extractBooleanQueryTerms((BooleanQuery) query);
+        } else if (query instanceof DisjunctionMaxQuery) {
+            return union(((DisjunctionMaxQuery) query).getDisjuncts());
+        } else if (query instanceof ConstantScoreQuery) {
+            final Query innerQuery = ((ConstantScoreQuery) query).getQuery();
+            if (innerQuery != null) {
+                return extractQueryTerms(innerQuery);
+            }
+            return extractFilterTerms(((ConstantScoreQuery) query).getFilter());
+        } else if (query instanceof XFilteredQuery) {
+            return extractFilteredQueryTerms(((XFilteredQuery) query).getQuery(), ((XFilteredQuery) query).getFilter());
+        } else if (query instanceof FilteredQuery) {
+            return extractFilteredQueryTerms(((FilteredQuery) query).getQuery(), ((FilteredQuery) query).getFilter());
+        }
+        return null;
+    }
+
+    private static Set<Term> extractFilteredQueryTerms(Query query, Filter filter) {
+        // both the query and the filter are required
+        final Set<Term> queryTerms = extractQueryTerms(query);
+        final Set<Term> filterTerms = extractFilterTerms(filter);
+        if (queryTerms == null) {
+            return filterTerms;
+        } else if (filterTerms == null) {
+            return queryTerms;
+        }
+        return bestTerms(Arrays.asList(queryTerms, filterTerms));
+    }
+
+    private static Set<Term> extractFilterTerms(Filter filter) {
+        if (filter instanceof TermFilter) {
+            return Collections.singleton(((TermFilter) filter).getTerm());
+        }
+        return null;
+    }
+
+    private static Set<Term> extractBooleanQueryTerms(BooleanQuery query) {
+        final List<Set<Term>> requiredTerms = new ArrayList<Set<Term>>();
+        final List<Query> optionalQueries = new ArrayList<Query>();
+        boolean hasRequiredClauses = false;
+        for (BooleanClause clause : query.clauses()) {
+            if (clause.isRequired()) {
+                hasRequiredClauses = true;
+                final Set<Term> terms = extractQueryTerms(clause.getQuery());
+                if (terms != null) {
+                    requiredTerms.add(terms);
+                }
+            } else if (!clause.isProhibited()) {
+                optionalQueries.add(clause.getQuery());
+            }
+        }
+        if (hasRequiredClauses) {
+            // optional clauses are not needed to match if there are required clauses
+            return requiredTerms.isEmpty() ? null : bestTerms(requiredTerms);
+        }
+        if (optionalQueries.isEmpty()) {
+            return null;
+        }
+        return union(optionalQueries);
+    }
+
+    private static Set<Term> union(Collection<Query> queries) {
+        final Set<Term> terms = new HashSet<Term>();
+        for (Query query : queries) {
+            final Set<Term> queryTerms = extractQueryTerms(query);
+            if (queryTerms == null) {
+                return null;
+            }
+            terms.addAll(queryTerms);
+        }
+        return terms;
+    }
+
+    private static List<Set<Term>> terms(Term[] terms) {
+        final List<Set<Term>> termSets = new ArrayList<Set<Term>>(terms.length);
+        for (Term term : terms) {
+            termSets.add(Collections.singleton(term));
+        }
+        return termSets;
+    }
+
+    /**
+     * Picks, among sets of terms that are all required, the one that is the most selective. Longer terms are assumed to
+     * be rarer, so the set whose shortest term is the longest wins.
+     */
+    private static Set<Term> bestTerms(List<Set<Term>> termSets) {
+        Set<Term> best = null;
+        int bestLength = -1;
+        for (Set<Term> terms : termSets) {
+            int minLength = Integer.MAX_VALUE;
+            for (Term term : terms) {
+                minLength = Math.min(minLength, term.bytes().length);
+            }
+            if (minLength > bestLength) {
+                best = terms;
+                bestLength = minLength;
+            }
+        }
+        return best;
+    }
+}
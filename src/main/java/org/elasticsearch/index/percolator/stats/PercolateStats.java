@@ -18,6 +18,7 @@
  */
 package org.elasticsearch.index.percolator.stats;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Streamable;
@@ -39,6 +40,8 @@ public class PercolateStats implements Streamable, ToXContent {
     private long current;
     private long memorySizeInBytes;
     private long numQueries;
+    private long numCandidates;
+    private long numMatches;
 
     /**
      * Noop constructor for serialazation purposes.
@@ -46,12 +49,15 @@ public class PercolateStats implements Streamable, ToXContent {
     public PercolateStats() {
     }
 
-    PercolateStats(long percolateCount, long percolateTimeInMillis, long current, long memorySizeInBytes, long numQueries) {
+    PercolateStats(long percolateCount, long percolateTimeInMillis, long current, long memorySizeInBytes, long numQueries,
+                   long numCandidates, long numMatches) {
         this.percolateCount = percolateCount;
         this.percolateTimeInMillis = percolateTimeInMillis;
         this.current = current;
         this.memorySizeInBytes = memorySizeInBytes;
         this.numQueries = numQueries;
+        this.numCandidates = numCandidates;
+        this.numMatches = numMatches;
     }
 
     /**
@@ -89,6 +95,20 @@ public class PercolateStats implements Streamable, ToXContent {
         return numQueries;
     }
 
+    /**
+     * @return The total number of queries that have been evaluated because they were candidates for a percolated document.
+     */
+    public long getNumCandidates() {
+        return numCandidates;
+    }
+
+    /**
+     * @return The total number of queries that matched a percolated document.
+     */
+    public long getNumMatches() {
+        return numMatches;
+    }
+
     /**
      * @return The total size the loaded queries take in memory.
      */
@@ -112,6 +132,8 @@ public class PercolateStats implements Streamable, ToXContent {
         builder.field(Fields.MEMORY_SIZE_IN_BYTES, memorySizeInBytes);
         builder.field(Fields.MEMORY_SIZE, getMemorySize());
         builder.field(Fields.QUERIES, getNumQueries());
+        builder.field(Fields.CANDIDATES, getNumCandidates());
+        builder.field(Fields.MATCHES, getNumMatches());
         builder.endObject();
         return builder;
     }
@@ -126,6 +148,8 @@ public class PercolateStats implements Streamable, ToXContent {
         current += percolate.getCurrent();
         memorySizeInBytes += percolate.getMemorySizeInBytes();
         numQueries += percolate.getNumQueries();
+        numCandidates += percolate.getNumCandidates();
+        numMatches += percolate.getNumMatches();
     }
 
     static final class Fields {
@@ -137,6 +161,8 @@ public class PercolateStats implements Streamable, ToXContent {
         static final XContentBuilderString MEMORY_SIZE_IN_BYTES = new XContentBuilderString("memory_size_in_bytes");
         static final XContentBuilderString MEMORY_SIZE = new XContentBuilderString("memory_size");
         static final XContentBuilderString QUERIES = new XContentBuilderString("queries");
+        static final XContentBuilderString CANDIDATES = new XContentBuilderString("candidates");
+        static final XContentBuilderString MATCHES = new XContentBuilderString("matches");
     }
 
     public static PercolateStats readPercolateStats(StreamInput in) throws IOException {
@@ -152,6 +178,10 @@ public class PercolateStats implements Streamable, ToXContent {
         current = in.readVLong();
         memorySizeInBytes = in.readVLong();
         numQueries = in.readVLong();
+        if (in.getVersion().onOrAfter(Version.V_2_0_0)) {
+            numCandidates = in.readVLong();
+            numMatches = in.readVLong();
+        }
     }
 
     @Override
@@ -161,5 +191,9 @@ public class PercolateStats implements Streamable, ToXContent {
         out.writeVLong(current);
         out.writeVLong(memorySizeInBytes);
         out.writeVLong(numQueries);
+        if (out.getVersion().onOrAfter(Version.V_2_0_0)) {
+            out.writeVLong(numCandidates);
+            out.writeVLong(numMatches);
+        }
     }
 }
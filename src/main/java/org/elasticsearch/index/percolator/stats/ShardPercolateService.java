@@ -39,6 +39,7 @@ import java.util.concurrent.TimeUnit;
  *     <li> the current number of percolate requests
  *     <li> number of registered percolate queries
  *     <li> the estimated amount of memory the registered queries take
+ *     <li> number of candidate queries that have been evaluated and number of them that matched
  * </ul>
  */
 public class ShardPercolateService extends AbstractIndexShardComponent {
@@ -54,6 +55,9 @@ public class ShardPercolateService extends AbstractIndexShardComponent {
     private final CounterMetric numberOfQueries = new CounterMetric();
     private final CounterMetric memorySizeInBytes = new CounterMetric();
 
+    private final CounterMetric candidateQueries = new CounterMetric();
+    private final CounterMetric matchingQueries = new CounterMetric();
+
     public void prePercolate() {
         currentMetric.inc();
     }
@@ -63,6 +67,15 @@ public class ShardPercolateService extends AbstractIndexShardComponent {
         percolateMetric.inc(tookInNanos);
     }
 
+    /**
+     * Records the number of candidate queries that have been evaluated for a percolate request and the number of
+     * them that matched.
+     */
+    public void postQueries(long numCandidates, long numMatches) {
+        candidateQueries.inc(numCandidates);
+        matchingQueries.inc(numMatches);
+    }
+
     public void addedQuery(HashedBytesRef id, Query previousQuery, Query newQuery) {
         if (previousQuery != null) {
             memorySizeInBytes.dec(computeSizeInMemory(id, previousQuery));
@@ -81,7 +94,8 @@ public class ShardPercolateService extends AbstractIndexShardComponent {
      * @return The current metrics
      */
     public PercolateStats stats() {
-        return new PercolateStats(percolateMetric.count(), TimeUnit.NANOSECONDS.toMillis(percolateMetric.sum()), currentMetric.count(), memorySizeInBytes.count(), numberOfQueries.count());
+        return new PercolateStats(percolateMetric.count(), TimeUnit.NANOSECONDS.toMillis(percolateMetric.sum()), currentMetric.count(), memorySizeInBytes.count(), numberOfQueries.count(),
+                candidateQueries.count(), matchingQueries.count());
     }
 
     private static long computeSizeInMemory(HashedBytesRef id, Query query) {
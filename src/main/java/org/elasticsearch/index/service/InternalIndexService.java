@@ -34,6 +34,7 @@ import org.elasticsearch.index.aliases.IndexAliasesService;
 import org.elasticsearch.index.analysis.AnalysisService;
 import org.elasticsearch.index.cache.IndexCache;
 import org.elasticsearch.index.cache.filter.ShardFilterCacheModule;
+import org.elasticsearch.index.cache.query.ShardQueryCacheModule;
 import org.elasticsearch.index.cache.id.ShardIdCacheModule;
 import org.elasticsearch.index.deletionpolicy.DeletionPolicyModule;
 import org.elasticsearch.index.engine.Engine;
@@ -329,6 +330,7 @@ public class InternalIndexService extends AbstractIndexComponent implements Inde
         modules.add(new MergePolicyModule(indexSettings));
         modules.add(new MergeSchedulerModule(indexSettings));
         modules.add(new ShardFilterCacheModule());
+        modules.add(new ShardQueryCacheModule());
         modules.add(new ShardFieldDataModule());
         modules.add(new ShardIdCacheModule());
         modules.add(new TranslogModule(indexSettings));
@@ -28,6 +28,8 @@ import org.elasticsearch.index.cache.filter.FilterCacheStats;
 import org.elasticsearch.index.cache.filter.ShardFilterCache;
 import org.elasticsearch.index.cache.id.IdCacheStats;
 import org.elasticsearch.index.cache.id.ShardIdCache;
+import org.elasticsearch.index.cache.query.QueryCacheStats;
+import org.elasticsearch.index.cache.query.ShardQueryCache;
 import org.elasticsearch.index.deletionpolicy.SnapshotIndexCommit;
 import org.elasticsearch.index.engine.Engine;
 import org.elasticsearch.index.engine.EngineException;
@@ -75,6 +77,8 @@ public interface IndexShard extends IndexShardComponent {
 
     ShardFilterCache filterCache();
 
+    ShardQueryCache queryCache();
+
     ShardIdCache idCache();
 
     ShardFieldData fieldData();
@@ -103,6 +107,8 @@ public interface IndexShard extends IndexShardComponent {
 
     FilterCacheStats filterCacheStats();
 
+    QueryCacheStats queryCacheStats();
+
     IdCacheStats idCacheStats();
 
     FieldDataStats fieldDataStats(String... fields);
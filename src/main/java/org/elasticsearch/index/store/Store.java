@@ -279,6 +279,23 @@ public class Store extends AbstractIndexShardComponent implements CloseableIndex
         return metaData.directory().openInput(name, context);
     }
 
+    /**
+     * Returns the file the given raw file is stored in, or <tt>null</tt> if it isn't stored in a file system
+     * directory.
+     */
+    @Nullable
+    public File physicalFile(String name) throws IOException {
+        StoreFileMetaData metaData = filesMetadata.get(name);
+        if (metaData == null) {
+            throw new FileNotFoundException(name);
+        }
+        FSDirectory fsDirectory = DirectoryUtils.getLeaf(metaData.directory(), FSDirectory.class);
+        if (fsDirectory == null) {
+            return null;
+        }
+        return new File(fsDirectory.getDirectory(), name);
+    }
+
     public void writeChecksum(String name, String checksum) throws IOException {
         // update the metadata to include the checksum and write a new checksums file
         synchronized (mutex) {
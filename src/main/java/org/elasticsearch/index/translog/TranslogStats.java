@@ -18,9 +18,11 @@
  */
 package org.elasticsearch.index.translog;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Streamable;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentBuilderString;
@@ -34,6 +36,9 @@ public class TranslogStats implements ToXContent, Streamable {
 
     private long translogSizeInBytes = 0;
     private int estimatedNumberOfOperations = 0;
+    private long syncCount = 0;
+    private long syncedOperations = 0;
+    private long syncTimeInMillis = 0;
 
     public TranslogStats() {}
 
@@ -42,6 +47,13 @@ public class TranslogStats implements ToXContent, Streamable {
         this.translogSizeInBytes = translogSizeInBytes;
     }
 
+    public TranslogStats(int estimatedNumberOfOperations, long translogSizeInBytes, long syncCount, long syncedOperations, long syncTimeInMillis) {
+        this(estimatedNumberOfOperations, translogSizeInBytes);
+        this.syncCount = syncCount;
+        this.syncedOperations = syncedOperations;
+        this.syncTimeInMillis = syncTimeInMillis;
+    }
+
     public void add(TranslogStats translogStats) {
         if (translogStats == null) {
             return;
@@ -49,6 +61,36 @@ public class TranslogStats implements ToXContent, Streamable {
 
         this.estimatedNumberOfOperations += translogStats.estimatedNumberOfOperations;
         this.translogSizeInBytes =+ translogStats.translogSizeInBytes;
+        this.syncCount += translogStats.syncCount;
+        this.syncedOperations += translogStats.syncedOperations;
+        this.syncTimeInMillis += translogStats.syncTimeInMillis;
+    }
+
+    public int estimatedNumberOfOperations() {
+        return estimatedNumberOfOperations;
+    }
+
+    /**
+     * The number of fsync calls done on the translog.
+     */
+    public long getSyncCount() {
+        return syncCount;
+    }
+
+    /**
+     * The number of operations made durable by the fsync calls, divided by {@link #getSyncCount()}
+     * this gives the average sync batch size.
+     */
+    public long getSyncedOperations() {
+        return syncedOperations;
+    }
+
+    public double getAvgSyncBatchSize() {
+        return syncCount == 0 ? 0 : (double) syncedOperations / syncCount;
+    }
+
+    public TimeValue getSyncTime() {
+        return new TimeValue(syncTimeInMillis);
     }
 
     @Override
@@ -56,6 +98,12 @@ public class TranslogStats implements ToXContent, Streamable {
         builder.startObject(Fields.TRANSLOG);
         builder.field(Fields.OPERATIONS, estimatedNumberOfOperations);
         builder.byteSizeField(Fields.SIZE_IN_BYTES, Fields.SIZE, translogSizeInBytes);
+        builder.startObject(Fields.SYNC);
+        builder.field(Fields.TOTAL, syncCount);
+        builder.field(Fields.OPERATIONS, syncedOperations);
+        builder.field(Fields.AVG_BATCH_SIZE, getAvgSyncBatchSize());
+        builder.timeValueField(Fields.TOTAL_TIME_IN_MILLIS, Fields.TOTAL_TIME, syncTimeInMillis);
+        builder.endObject();
         builder.endObject();
         return builder;
     }
@@ -65,15 +113,30 @@ public class TranslogStats implements ToXContent, Streamable {
         static final XContentBuilderString OPERATIONS = new XContentBuilderString("operations");
         static final XContentBuilderString SIZE = new XContentBuilderString("size");
         static final XContentBuilderString SIZE_IN_BYTES = new XContentBuilderString("size_in_bytes");
+        static final XContentBuilderString SYNC = new XContentBuilderString("sync");
+        static final XContentBuilderString TOTAL = new XContentBuilderString("total");
+        static final XContentBuilderString AVG_BATCH_SIZE = new XContentBuilderString("avg_batch_size");
+        static final XContentBuilderString TOTAL_TIME = new XContentBuilderString("total_time");
+        static final XContentBuilderString TOTAL_TIME_IN_MILLIS = new XContentBuilderString("total_time_in_millis");
     }
 
     @Override
     public void readFrom(StreamInput in) throws IOException {
         estimatedNumberOfOperations = in.readVInt();
+        if (in.getVersion().onOrAfter(Version.V_2_0_0)) {
+            syncCount = in.readVLong();
+            syncedOperations = in.readVLong();
+            syncTimeInMillis = in.readVLong();
+        }
     }
 
     @Override
     public void writeTo(StreamOutput out) throws IOException {
         out.writeVInt(estimatedNumberOfOperations);
+        if (out.getVersion().onOrAfter(Version.V_2_0_0)) {
+            out.writeVLong(syncCount);
+            out.writeVLong(syncedOperations);
+            out.writeVLong(syncTimeInMillis);
+        }
     }
 }
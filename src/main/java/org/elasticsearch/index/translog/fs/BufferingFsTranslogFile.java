@@ -29,29 +29,47 @@ import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
+ * A translog file that buffers the added operations and writes them to the file when the buffer is full or on sync.
+ * <p/>
+ * With group commit, fsync calls are batched across concurrent writers: only one fsync runs at a time, writers that
+ * arrive while it is in flight keep appending and queue up on the sync mutex. The first of them to get it flushes
+ * and fsyncs everything appended so far, which releases all the others at once, since their operations are then
+ * already covered by the last synced position.
  */
 public class BufferingFsTranslogFile implements FsTranslogFile {
 
     private final long id;
     private final ShardId shardId;
     private final RafReference raf;
+    private final FsTranslogSyncMetrics syncMetrics;
+
+    private final boolean groupCommit;
 
     private final ReadWriteLock rwl = new ReentrantReadWriteLock();
 
+    private final Object syncMutex = new Object();
+
     private volatile int operationCounter;
 
-    private long lastPosition;
+    private volatile long lastPosition;
     private volatile long lastWrittenPosition;
 
     private volatile long lastSyncPosition = 0;
+    private int lastSyncOperationCounter = 0;
 
     private byte[] buffer;
     private int bufferCount;
 
-    public BufferingFsTranslogFile(ShardId shardId, long id, RafReference raf, int bufferSize) throws IOException {
+    public BufferingFsTranslogFile(ShardId shardId, long id, RafReference raf, int bufferSize, FsTranslogSyncMetrics syncMetrics) throws IOException {
+        this(shardId, id, raf, bufferSize, syncMetrics, false);
+    }
+
+    public BufferingFsTranslogFile(ShardId shardId, long id, RafReference raf, int bufferSize, FsTranslogSyncMetrics syncMetrics, boolean groupCommit) throws IOException {
+        this.groupCommit = groupCommit;
         this.shardId = shardId;
         this.id = id;
         this.raf = raf;
+        this.syncMetrics = syncMetrics;
         this.buffer = new byte[bufferSize];
         raf.raf().setLength(0);
     }
@@ -95,6 +113,38 @@ public class BufferingFsTranslogFile implements FsTranslogFile {
         }
     }
 
+    @Override
+    public Translog.Location add(ByteBuffer[] data, int size) throws IOException {
+        rwl.writeLock().lock();
+        try {
+            operationCounter++;
+            long position = lastPosition;
+            if (size >= buffer.length) {
+                flushBuffer();
+                // gathering write straight from the given buffers
+                long written = 0;
+                while (written < size) {
+                    written += raf.channel().write(data);
+                }
+                lastWrittenPosition += size;
+                lastPosition += size;
+                return new Translog.Location(id, position, size);
+            }
+            if (size > buffer.length - bufferCount) {
+                flushBuffer();
+            }
+            for (ByteBuffer buf : data) {
+                int length = buf.remaining();
+                buf.get(buffer, bufferCount, length);
+                bufferCount += length;
+            }
+            lastPosition += size;
+            return new Translog.Location(id, position, size);
+        } finally {
+            rwl.writeLock().unlock();
+        }
+    }
+
     private void flushBuffer() throws IOException {
         if (bufferCount > 0) {
             // we use the channel to write, since on windows, writing to the RAF might not be reflected
@@ -117,9 +167,7 @@ public class BufferingFsTranslogFile implements FsTranslogFile {
         } finally {
             rwl.readLock().unlock();
         }
-        ByteBuffer buffer = ByteBuffer.allocate(location.size);
-        raf.channel().read(buffer, location.translogLocation);
-        return buffer.array();
+        return raf.read(location.translogLocation, location.size, lastWrittenPosition);
     }
 
     @Override
@@ -145,6 +193,10 @@ public class BufferingFsTranslogFile implements FsTranslogFile {
 
     @Override
     public void sync() {
+        if (groupCommit) {
+            groupSync();
+            return;
+        }
         try {
             // check if we really need to sync here...
             long last = lastPosition;
@@ -152,13 +204,52 @@ public class BufferingFsTranslogFile implements FsTranslogFile {
                 return;
             }
             lastSyncPosition = last;
+            int operations;
             rwl.writeLock().lock();
             try {
                 flushBuffer();
+                operations = operationCounter;
             } finally {
                 rwl.writeLock().unlock();
             }
+            long start = System.nanoTime();
             raf.channel().force(false);
+            syncMetrics.onSync(operations - lastSyncOperationCounter, System.nanoTime() - start);
+            lastSyncOperationCounter = operations;
+        } catch (Exception e) {
+            // ignore
+        }
+    }
+
+    private void groupSync() {
+        // everything appended by the calling thread is below this position
+        long position = lastPosition;
+        if (position <= lastSyncPosition) {
+            return;
+        }
+        try {
+            synchronized (syncMutex) {
+                // the fsync we waited on might have covered our operations already
+                if (position <= lastSyncPosition) {
+                    return;
+                }
+                long syncPosition;
+                int operations;
+                rwl.writeLock().lock();
+                try {
+                    flushBuffer();
+                    syncPosition = lastWrittenPosition;
+                    operations = operationCounter;
+                } finally {
+                    rwl.writeLock().unlock();
+                }
+                // writers are not blocked while we fsync, they pile up for the next batch
+                long start = System.nanoTime();
+                raf.channel().force(false);
+                syncMetrics.onSync(operations - lastSyncOperationCounter, System.nanoTime() - start);
+                lastSyncOperationCounter = operations;
+                lastSyncPosition = syncPosition;
+            }
         } catch (Exception e) {
             // ignore
         }
@@ -166,7 +257,10 @@ public class BufferingFsTranslogFile implements FsTranslogFile {
 
     @Override
     public void close(boolean delete) {
-        if (!delete) {
+        if (!delete && groupCommit) {
+            // sync flushes the buffer, don't hold the write lock here since sync acquires it under the sync mutex
+            sync();
+        } else if (!delete) {
             rwl.writeLock().lock();
             try {
                 flushBuffer();
@@ -21,6 +21,7 @@ package org.elasticsearch.index.translog.fs;
 
 import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.common.io.FileChannelInputStream;
+import org.elasticsearch.common.io.stream.ByteBufferStreamInput;
 import org.elasticsearch.common.io.stream.BytesStreamInput;
 import org.elasticsearch.index.translog.Translog;
 import org.elasticsearch.index.translog.TranslogStreams;
@@ -112,6 +113,13 @@ public class FsChannelSnapshot implements Translog.Snapshot {
                 position -= 4;
                 return false;
             }
+            ByteBuffer mapped = raf.mapped(position, opSize, length);
+            if (mapped != null) {
+                // read the operation straight from the memory mapped file, without copying it to a buffer first
+                position += opSize;
+                lastOperationRead = TranslogStreams.readTranslogOperation(new ByteBufferStreamInput(mapped));
+                return true;
+            }
             if (cacheBuffer.capacity() < opSize) {
                 cacheBuffer = ByteBuffer.allocate(opSize);
             }
@@ -21,10 +21,13 @@ package org.elasticsearch.index.translog.fs;
 
 import jsr166y.ThreadLocalRandom;
 import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.cache.recycler.PageCacheRecycler;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.index.translog.TranslogStats;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.io.FileSystemUtils;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.PagedBytesStreamOutput;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.env.NodeEnvironment;
@@ -48,6 +51,8 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
 public class FsTranslog extends AbstractIndexShardComponent implements Translog {
 
     public static final String INDEX_TRANSLOG_FS_TYPE = "index.translog.fs.type";
+    public static final String INDEX_TRANSLOG_FS_PAGED_WRITES = "index.translog.fs.paged_writes";
+    public static final String INDEX_TRANSLOG_FS_MMAP_READS = "index.translog.fs.mmap_reads";
 
     class ApplySettings implements IndexSettingsService.Listener {
         @Override
@@ -57,14 +62,27 @@ public class FsTranslog extends AbstractIndexShardComponent implements Translog
                 logger.info("updating type from [{}] to [{}]", FsTranslog.this.type, type);
                 FsTranslog.this.type = type;
             }
+            boolean pagedWrites = settings.getAsBoolean(INDEX_TRANSLOG_FS_PAGED_WRITES, FsTranslog.this.pagedWrites);
+            if (pagedWrites != FsTranslog.this.pagedWrites) {
+                logger.info("updating paged_writes from [{}] to [{}]", FsTranslog.this.pagedWrites, pagedWrites);
+                FsTranslog.this.pagedWrites = pagedWrites;
+            }
+            boolean mmapReads = settings.getAsBoolean(INDEX_TRANSLOG_FS_MMAP_READS, FsTranslog.this.mmapReads);
+            if (mmapReads != FsTranslog.this.mmapReads) {
+                logger.info("updating mmap_reads from [{}] to [{}], applies from the next translog file", FsTranslog.this.mmapReads, mmapReads);
+                FsTranslog.this.mmapReads = mmapReads;
+            }
         }
     }
 
     private final IndexSettingsService indexSettingsService;
+    private final PageCacheRecycler pageCacheRecycler;
 
     private final ReadWriteLock rwl = new ReentrantReadWriteLock();
     private final File[] locations;
 
+    private final FsTranslogSyncMetrics syncMetrics = new FsTranslogSyncMetrics();
+
     private volatile FsTranslogFile current;
     private volatile FsTranslogFile trans;
 
@@ -75,12 +93,18 @@ public class FsTranslog extends AbstractIndexShardComponent implements Translog
     private volatile int bufferSize;
     private volatile int transientBufferSize;
 
+    private volatile boolean pagedWrites;
+
+    private volatile boolean mmapReads;
+
     private final ApplySettings applySettings = new ApplySettings();
 
     @Inject
-    public FsTranslog(ShardId shardId, @IndexSettings Settings indexSettings, IndexSettingsService indexSettingsService, NodeEnvironment nodeEnv) {
+    public FsTranslog(ShardId shardId, @IndexSettings Settings indexSettings, IndexSettingsService indexSettingsService, NodeEnvironment nodeEnv,
+                      PageCacheRecycler pageCacheRecycler) {
         super(shardId, indexSettings);
         this.indexSettingsService = indexSettingsService;
+        this.pageCacheRecycler = pageCacheRecycler;
         File[] shardLocations = nodeEnv.shardLocations(shardId);
         this.locations = new File[shardLocations.length];
         for (int i = 0; i < shardLocations.length; i++) {
@@ -91,17 +115,28 @@ public class FsTranslog extends AbstractIndexShardComponent implements Translog
         this.type = FsTranslogFile.Type.fromString(componentSettings.get("type", FsTranslogFile.Type.BUFFERED.name()));
         this.bufferSize = (int) componentSettings.getAsBytesSize("buffer_size", ByteSizeValue.parseBytesSizeValue("64k")).bytes(); // Not really interesting, updated by IndexingMemoryController...
         this.transientBufferSize = (int) componentSettings.getAsBytesSize("transient_buffer_size", ByteSizeValue.parseBytesSizeValue("8k")).bytes();
+        this.pagedWrites = componentSettings.getAsBoolean("paged_writes", false);
+        this.mmapReads = componentSettings.getAsBoolean("mmap_reads", false);
 
         indexSettingsService.addListener(applySettings);
     }
 
     public FsTranslog(ShardId shardId, @IndexSettings Settings indexSettings, File location) {
+        this(shardId, indexSettings, location, null);
+    }
+
+    public FsTranslog(ShardId shardId, @IndexSettings Settings indexSettings, File location, @Nullable PageCacheRecycler pageCacheRecycler) {
         super(shardId, indexSettings);
         this.indexSettingsService = null;
+        this.pageCacheRecycler = pageCacheRecycler;
         this.locations = new File[]{location};
         FileSystemUtils.mkdirs(location);
 
         this.type = FsTranslogFile.Type.fromString(componentSettings.get("type", FsTranslogFile.Type.BUFFERED.name()));
+        this.bufferSize = (int) componentSettings.getAsBytesSize("buffer_size", ByteSizeValue.parseBytesSizeValue("64k")).bytes();
+        this.transientBufferSize = (int) componentSettings.getAsBytesSize("transient_buffer_size", ByteSizeValue.parseBytesSizeValue("8k")).bytes();
+        this.pagedWrites = componentSettings.getAsBoolean("paged_writes", false);
+        this.mmapReads = componentSettings.getAsBoolean("mmap_reads", false);
     }
 
     @Override
@@ -231,7 +266,7 @@ public class FsTranslog extends AbstractIndexShardComponent implements Translog
                 }
             }
             try {
-                newFile = type.create(shardId, id, new RafReference(new File(location, "translog-" + id)), bufferSize);
+                newFile = type.create(shardId, id, new RafReference(new File(location, "translog-" + id), mmapReads), bufferSize, syncMetrics);
             } catch (IOException e) {
                 throw new TranslogException(shardId, "failed to create new translog file", e);
             }
@@ -266,7 +301,7 @@ public class FsTranslog extends AbstractIndexShardComponent implements Translog
                     location = file;
                 }
             }
-            this.trans = type.create(shardId, id, new RafReference(new File(location, "translog-" + id)), transientBufferSize);
+            this.trans = type.create(shardId, id, new RafReference(new File(location, "translog-" + id), mmapReads), transientBufferSize, syncMetrics);
         } catch (IOException e) {
             throw new TranslogException(shardId, "failed to create new translog file", e);
         } finally {
@@ -333,6 +368,9 @@ public class FsTranslog extends AbstractIndexShardComponent implements Translog
 
     @Override
     public Location add(Operation operation) throws TranslogException {
+        if (pagedWrites) {
+            return addPaged(operation);
+        }
         rwl.readLock().lock();
         try {
             BytesStreamOutput out = new BytesStreamOutput();
@@ -364,6 +402,43 @@ public class FsTranslog extends AbstractIndexShardComponent implements Translog
         }
     }
 
+    /**
+     * Serializes the operation into recycled pages and hands them to the translog files as is, saving the
+     * allocation and the copies of a growing array.
+     */
+    private Location addPaged(Operation operation) throws TranslogException {
+        PagedBytesStreamOutput out = new PagedBytesStreamOutput(pageCacheRecycler);
+        rwl.readLock().lock();
+        try {
+            out.writeInt(0); // marker for the size...
+            TranslogStreams.writeTranslogOperation(out, operation);
+
+            int size = out.size();
+            out.seek(0);
+            out.writeInt(size - 4);
+            out.seek(size);
+
+            Location location = current.add(out.toByteBuffers(), size);
+            if (syncOnEachOperation) {
+                current.sync();
+            }
+            FsTranslogFile trans = this.trans;
+            if (trans != null) {
+                try {
+                    location = trans.add(out.toByteBuffers(), size);
+                } catch (ClosedChannelException e) {
+                    // ignore
+                }
+            }
+            return location;
+        } catch (Exception e) {
+            throw new TranslogException(shardId, "Failed to write operation [" + operation + "]", e);
+        } finally {
+            rwl.readLock().unlock();
+            out.release();
+        }
+    }
+
     @Override
     public FsChannelSnapshot snapshot() throws TranslogException {
         while (true) {
@@ -402,6 +477,10 @@ public class FsTranslog extends AbstractIndexShardComponent implements Translog
     @Override
     public void syncOnEachOperation(boolean syncOnEachOperation) {
         this.syncOnEachOperation = syncOnEachOperation;
+        if (type == FsTranslogFile.Type.GROUP_COMMIT) {
+            // group commit batches the per operation syncs on its own, keep it
+            return;
+        }
         if (syncOnEachOperation) {
             type = FsTranslogFile.Type.SIMPLE;
         } else {
@@ -411,6 +490,7 @@ public class FsTranslog extends AbstractIndexShardComponent implements Translog
 
     @Override
     public TranslogStats stats() {
-        return new TranslogStats(estimatedNumberOfOperations(), translogSizeInBytes());
+        return new TranslogStats(estimatedNumberOfOperations(), translogSizeInBytes(),
+                syncMetrics.syncCount(), syncMetrics.syncedOperations(), syncMetrics.syncTimeInMillis());
     }
 }
@@ -25,6 +25,7 @@ import org.elasticsearch.index.translog.Translog;
 import org.elasticsearch.index.translog.TranslogException;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 public interface FsTranslogFile {
 
@@ -32,24 +33,32 @@ public interface FsTranslogFile {
 
         SIMPLE() {
             @Override
-            public FsTranslogFile create(ShardId shardId, long id, RafReference raf, int bufferSize) throws IOException {
-                return new SimpleFsTranslogFile(shardId, id, raf);
+            public FsTranslogFile create(ShardId shardId, long id, RafReference raf, int bufferSize, FsTranslogSyncMetrics syncMetrics) throws IOException {
+                return new SimpleFsTranslogFile(shardId, id, raf, syncMetrics);
             }
         },
         BUFFERED() {
             @Override
-            public FsTranslogFile create(ShardId shardId, long id, RafReference raf, int bufferSize) throws IOException {
-                return new BufferingFsTranslogFile(shardId, id, raf, bufferSize);
+            public FsTranslogFile create(ShardId shardId, long id, RafReference raf, int bufferSize, FsTranslogSyncMetrics syncMetrics) throws IOException {
+                return new BufferingFsTranslogFile(shardId, id, raf, bufferSize, syncMetrics);
+            }
+        },
+        GROUP_COMMIT() {
+            @Override
+            public FsTranslogFile create(ShardId shardId, long id, RafReference raf, int bufferSize, FsTranslogSyncMetrics syncMetrics) throws IOException {
+                return new BufferingFsTranslogFile(shardId, id, raf, bufferSize, syncMetrics, true);
             }
         };
 
-        public abstract FsTranslogFile create(ShardId shardId, long id, RafReference raf, int bufferSize) throws IOException;
+        public abstract FsTranslogFile create(ShardId shardId, long id, RafReference raf, int bufferSize, FsTranslogSyncMetrics syncMetrics) throws IOException;
 
         public static Type fromString(String type) throws ElasticsearchIllegalArgumentException {
             if (SIMPLE.name().equalsIgnoreCase(type)) {
                 return SIMPLE;
             } else if (BUFFERED.name().equalsIgnoreCase(type)) {
                 return BUFFERED;
+            } else if (GROUP_COMMIT.name().equalsIgnoreCase(type)) {
+                return GROUP_COMMIT;
             }
             throw new ElasticsearchIllegalArgumentException("No translog fs type [" + type + "]");
         }
@@ -63,6 +72,12 @@ public interface FsTranslogFile {
 
     Translog.Location add(byte[] data, int from, int size) throws IOException;
 
+    /**
+     * Adds the <tt>size</tt> remaining bytes of the given buffers as a single operation, without copying them
+     * into an intermediate array where the file writes straight to its channel.
+     */
+    Translog.Location add(ByteBuffer[] data, int size) throws IOException;
+
     byte[] read(Translog.Location location) throws IOException;
 
     void close(boolean delete) throws TranslogException;
@@ -0,0 +1,57 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.translog.fs;
+
+import org.elasticsearch.common.metrics.MeanMetric;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks how many operations each fsync of a translog file covered and how long it took.
+ * Shared by all the translog files of a shard, so it survives translog rolls on flush.
+ */
+public class FsTranslogSyncMetrics {
+
+    private final MeanMetric syncedOperations = new MeanMetric();
+    private final MeanMetric syncTime = new MeanMetric();
+
+    public void onSync(int operations, long tookInNanos) {
+        syncedOperations.inc(operations);
+        syncTime.inc(tookInNanos);
+    }
+
+    /**
+     * The number of fsync calls done.
+     */
+    public long syncCount() {
+        return syncedOperations.count();
+    }
+
+    /**
+     * The total number of operations made durable by the fsync calls.
+     */
+    public long syncedOperations() {
+        return syncedOperations.sum();
+    }
+
+    public long syncTimeInMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(syncTime.sum());
+    }
+}
@@ -19,11 +19,18 @@
 
 package org.elasticsearch.index.translog.fs;
 
+import org.elasticsearch.common.logging.ESLogger;
+import org.elasticsearch.common.logging.Loggers;
+import org.elasticsearch.common.util.ByteBufferCleaner;
+
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
+import java.util.Arrays;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -31,6 +38,14 @@ import java.util.concurrent.atomic.AtomicInteger;
  */
 public class RafReference {
 
+    private static final ESLogger logger = Loggers.getLogger(RafReference.class);
+
+    /**
+     * The size of the regions the file is mapped in. Only regions that have been fully written are mapped, so that
+     * mappings never need to be redone as the file grows, reads of the tail of the file go through the channel.
+     */
+    static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+
     private final File file;
 
     private final RandomAccessFile raf;
@@ -39,8 +54,30 @@ public class RafReference {
 
     private final AtomicInteger refCount = new AtomicInteger();
 
+    private final boolean mmap;
+
+    private final int chunkSize;
+
+    private volatile MappedByteBuffer[] chunks = new MappedByteBuffer[0];
+
+    // whether the file should be deleted once the last reference is released
+    private volatile boolean delete;
+
     public RafReference(File file) throws FileNotFoundException {
+        this(file, false);
+    }
+
+    /**
+     * @param mmap whether reads should go through read only memory mappings of the written part of the file
+     */
+    public RafReference(File file, boolean mmap) throws FileNotFoundException {
+        this(file, mmap, DEFAULT_CHUNK_SIZE);
+    }
+
+    RafReference(File file, boolean mmap, int chunkSize) throws FileNotFoundException {
         this.file = file;
+        this.mmap = mmap;
+        this.chunkSize = chunkSize;
         this.raf = new RandomAccessFile(file, "rw");
         this.channel = raf.getChannel();
         this.refCount.incrementAndGet();
@@ -58,6 +95,80 @@ public class RafReference {
         return this.raf;
     }
 
+    /**
+     * Returns a read only view over the <tt>size</tt> bytes at the given position, or <tt>null</tt> if memory mapping
+     * is disabled or if the bytes are not fully contained in a single chunk of the file that has been written
+     * completely, <tt>writtenLength</tt> being how much of the file is known to be written. The returned view is only
+     * valid as long as the caller holds a reference on this file, since mappings are released with the file.
+     */
+    public ByteBuffer mapped(long position, int size, long writtenLength) throws IOException {
+        if (!mmap) {
+            return null;
+        }
+        final int chunk = (int) (position / chunkSize);
+        final int offset = (int) (position % chunkSize);
+        if (offset + size > chunkSize || ((long) chunk + 1) * chunkSize > writtenLength) {
+            return null;
+        }
+        MappedByteBuffer[] chunks = this.chunks;
+        if (chunk >= chunks.length || chunks[chunk] == null) {
+            synchronized (this) {
+                if (refCount.get() <= 0) {
+                    return null;
+                }
+                chunks = this.chunks;
+                if (chunk >= chunks.length) {
+                    chunks = Arrays.copyOf(chunks, chunk + 1);
+                }
+                if (chunks[chunk] == null) {
+                    chunks[chunk] = channel.map(FileChannel.MapMode.READ_ONLY, (long) chunk * chunkSize, chunkSize);
+                }
+                this.chunks = chunks;
+            }
+        }
+        // callers get their own position and limit
+        ByteBuffer mapped = chunks[chunk].duplicate();
+        mapped.limit(offset + size);
+        mapped.position(offset);
+        return mapped.slice();
+    }
+
+    /**
+     * Reads <tt>size</tt> bytes, that must have been written already, at the given position. <tt>writtenLength</tt>
+     * is how much of the file is known to be written, only fully written chunks of the file are read through mappings.
+     */
+    public byte[] read(long position, int size, long writtenLength) throws IOException {
+        byte[] data = new byte[size];
+        if (mmap && increaseRefCount()) {
+            // hold a reference while reading, so that the mapping can't be released underneath us
+            try {
+                ByteBuffer mapped = mapped(position, size, writtenLength);
+                if (mapped != null) {
+                    mapped.get(data, 0, size);
+                    return data;
+                }
+            } finally {
+                release();
+            }
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        channel.read(buffer, position);
+        return data;
+    }
+
+    /**
+     * Returns the number of chunks of the file that are currently mapped.
+     */
+    int mappedChunks() {
+        int count = 0;
+        for (MappedByteBuffer chunk : chunks) {
+            if (chunk != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
     /**
      * Increases the ref count, and returns <tt>true</tt> if it managed to
      * actually increment it.
@@ -67,7 +178,21 @@ public class RafReference {
     }
 
     public void decreaseRefCount(boolean delete) {
+        this.delete = delete;
+        release();
+    }
+
+    private void release() {
         if (refCount.decrementAndGet() <= 0) {
+            synchronized (this) {
+                // unmap explicitly, otherwise the file can't be deleted on Windows until the mappings are garbage collected
+                for (MappedByteBuffer chunk : chunks) {
+                    if (chunk != null) {
+                        unmap(chunk);
+                    }
+                }
+                chunks = new MappedByteBuffer[0];
+            }
             try {
                 raf.close();
                 if (delete) {
@@ -78,4 +203,11 @@ public class RafReference {
             }
         }
     }
+
+    private static void unmap(MappedByteBuffer buffer) {
+        if (!ByteBufferCleaner.clean(buffer)) {
+            // the mapping will be released once the buffer is garbage collected
+            logger.trace("failed to unmap translog file chunk");
+        }
+    }
 }
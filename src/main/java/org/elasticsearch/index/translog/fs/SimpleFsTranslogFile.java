@@ -33,6 +33,7 @@ public class SimpleFsTranslogFile implements FsTranslogFile {
     private final long id;
     private final ShardId shardId;
     private final RafReference raf;
+    private final FsTranslogSyncMetrics syncMetrics;
 
     private final AtomicInteger operationCounter = new AtomicInteger();
 
@@ -40,11 +41,13 @@ public class SimpleFsTranslogFile implements FsTranslogFile {
     private final AtomicLong lastWrittenPosition = new AtomicLong(0);
 
     private volatile long lastSyncPosition = 0;
+    private int lastSyncOperationCounter = 0;
 
-    public SimpleFsTranslogFile(ShardId shardId, long id, RafReference raf) throws IOException {
+    public SimpleFsTranslogFile(ShardId shardId, long id, RafReference raf, FsTranslogSyncMetrics syncMetrics) throws IOException {
         this.shardId = shardId;
         this.id = id;
         this.raf = raf;
+        this.syncMetrics = syncMetrics;
         raf.raf().setLength(0);
     }
 
@@ -68,10 +71,22 @@ public class SimpleFsTranslogFile implements FsTranslogFile {
         return new Translog.Location(id, position, size);
     }
 
+    public Translog.Location add(ByteBuffer[] data, int size) throws IOException {
+        long position = lastPosition.getAndAdd(size);
+        // positional writes, so concurrent writers don't need to share the channel position
+        long writePosition = position;
+        for (ByteBuffer buffer : data) {
+            while (buffer.hasRemaining()) {
+                writePosition += raf.channel().write(buffer, writePosition);
+            }
+        }
+        lastWrittenPosition.getAndAdd(size);
+        operationCounter.incrementAndGet();
+        return new Translog.Location(id, position, size);
+    }
+
     public byte[] read(Translog.Location location) throws IOException {
-        ByteBuffer buffer = ByteBuffer.allocate(location.size);
-        raf.channel().read(buffer, location.translogLocation);
-        return buffer.array();
+        return raf.read(location.translogLocation, location.size, lastWrittenPosition.get());
     }
 
     public void close(boolean delete) {
@@ -106,7 +121,11 @@ public class SimpleFsTranslogFile implements FsTranslogFile {
                 return;
             }
             lastSyncPosition = last;
+            int operations = operationCounter.get();
+            long start = System.nanoTime();
             raf.channel().force(false);
+            syncMetrics.onSync(operations - lastSyncOperationCounter, System.nanoTime() - start);
+            lastSyncOperationCounter = operations;
         } catch (Exception e) {
             // ignore
         }
@@ -29,11 +29,13 @@ import org.apache.lucene.search.DocIdSet;
 import org.elasticsearch.cache.recycler.CacheRecycler;
 import org.elasticsearch.common.component.AbstractComponent;
 import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.lease.Releasable;
 import org.elasticsearch.common.recycler.Recycler;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.unit.MemorySizeValue;
 import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.FrequencySketch;
 import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
 import org.elasticsearch.index.cache.filter.weighted.WeightedFilterCache;
@@ -59,11 +61,19 @@ public class IndicesFilterCache extends AbstractComponent implements RemovalList
 
     private final Set<Object> readersKeysToClean = ConcurrentCollections.newConcurrentSet();
 
+    private volatile int minFrequency;
+    private volatile int minSegmentDocs;
+    private volatile ByteSizeValue smallSize;
+    private final FrequencySketch frequencySketch;
+
     private volatile boolean closed;
 
 
     public static final String INDICES_CACHE_FILTER_SIZE = "indices.cache.filter.size";
     public static final String INDICES_CACHE_FILTER_EXPIRE = "indices.cache.filter.expire";
+    public static final String INDICES_CACHE_FILTER_ADMISSION_MIN_FREQUENCY = "indices.cache.filter.admission.min_frequency";
+    public static final String INDICES_CACHE_FILTER_ADMISSION_MIN_SEGMENT_DOCS = "indices.cache.filter.admission.min_segment_docs";
+    public static final String INDICES_CACHE_FILTER_ADMISSION_SMALL_SIZE = "indices.cache.filter.admission.small_size";
 
     class ApplySettings implements NodeSettingsService.Listener {
         @Override
@@ -81,6 +91,21 @@ public class IndicesFilterCache extends AbstractComponent implements RemovalList
                 IndicesFilterCache.this.expire = expire;
                 replace = true;
             }
+            int minFrequency = settings.getAsInt(INDICES_CACHE_FILTER_ADMISSION_MIN_FREQUENCY, IndicesFilterCache.this.minFrequency);
+            if (minFrequency != IndicesFilterCache.this.minFrequency) {
+                logger.info("updating [indices.cache.filter.admission.min_frequency] from [{}] to [{}]", IndicesFilterCache.this.minFrequency, minFrequency);
+                IndicesFilterCache.this.minFrequency = minFrequency;
+            }
+            int minSegmentDocs = settings.getAsInt(INDICES_CACHE_FILTER_ADMISSION_MIN_SEGMENT_DOCS, IndicesFilterCache.this.minSegmentDocs);
+            if (minSegmentDocs != IndicesFilterCache.this.minSegmentDocs) {
+                logger.info("updating [indices.cache.filter.admission.min_segment_docs] from [{}] to [{}]", IndicesFilterCache.this.minSegmentDocs, minSegmentDocs);
+                IndicesFilterCache.this.minSegmentDocs = minSegmentDocs;
+            }
+            ByteSizeValue smallSize = settings.getAsBytesSize(INDICES_CACHE_FILTER_ADMISSION_SMALL_SIZE, IndicesFilterCache.this.smallSize);
+            if (!smallSize.equals(IndicesFilterCache.this.smallSize)) {
+                logger.info("updating [indices.cache.filter.admission.small_size] from [{}] to [{}]", IndicesFilterCache.this.smallSize, smallSize);
+                IndicesFilterCache.this.smallSize = smallSize;
+            }
             if (replace) {
                 Cache<WeightedFilterCache.FilterCacheKey, DocIdSet> oldCache = IndicesFilterCache.this.cache;
                 computeSizeInBytes();
@@ -98,10 +123,14 @@ public class IndicesFilterCache extends AbstractComponent implements RemovalList
         this.size = componentSettings.get("size", "20%");
         this.expire = componentSettings.getAsTime("expire", null);
         this.cleanInterval = componentSettings.getAsTime("clean_interval", TimeValue.timeValueSeconds(60));
+        this.minFrequency = componentSettings.getAsInt("admission.min_frequency", 1);
+        this.minSegmentDocs = componentSettings.getAsInt("admission.min_segment_docs", 0);
+        this.smallSize = componentSettings.getAsBytesSize("admission.small_size", new ByteSizeValue(1024));
+        this.frequencySketch = new FrequencySketch(componentSettings.getAsInt("admission.sketch_size", 1 << 16));
         computeSizeInBytes();
         buildCache();
-        logger.debug("using [node] weighted filter cache with size [{}], actual_size [{}], expire [{}], clean_interval [{}]",
-                size, new ByteSizeValue(sizeInBytes), expire, cleanInterval);
+        logger.debug("using [node] weighted filter cache with size [{}], actual_size [{}], expire [{}], clean_interval [{}], admission min_frequency [{}], min_segment_docs [{}], small_size [{}]",
+                size, new ByteSizeValue(sizeInBytes), expire, cleanInterval, minFrequency, minSegmentDocs, smallSize);
 
         nodeSettingsService.addListener(new ApplySettings());
         threadPool.schedule(cleanInterval, ThreadPool.Names.SAME, new ReaderCleaner());
@@ -139,15 +168,35 @@ public class IndicesFilterCache extends AbstractComponent implements RemovalList
         return this.cache;
     }
 
+    /**
+     * Decides whether a filter that is not in the cache yet should be cached, this is called on every cache miss.
+     * Filters on segments with less than <tt>min_segment_docs</tt> documents are never cached, other filters are
+     * cached once they have been used <tt>min_frequency</tt> times recently, or right away if their cached value
+     * takes at most <tt>small_size</tt> bytes.
+     */
+    public boolean admit(WeightedFilterCache.FilterCacheKey key, int maxDoc, long sizeInBytes) {
+        if (maxDoc < minSegmentDocs) {
+            return false;
+        }
+        final int minFrequency = this.minFrequency;
+        if (minFrequency <= 1 || sizeInBytes <= smallSize.bytes()) {
+            return true;
+        }
+        frequencySketch.increment(key);
+        return frequencySketch.frequency(key) >= Math.min(minFrequency, FrequencySketch.MAX_FREQUENCY);
+    }
+
     @Override
     public void onRemoval(RemovalNotification<WeightedFilterCache.FilterCacheKey, DocIdSet> removalNotification) {
         WeightedFilterCache.FilterCacheKey key = removalNotification.getKey();
-        if (key == null) {
-            return;
-        }
-        if (key.removalListener != null) {
+        if (key != null && key.removalListener != null) {
             key.removalListener.onRemoval(removalNotification);
         }
+        DocIdSet value = removalNotification.getValue();
+        if (value instanceof Releasable) {
+            // off heap values free their memory once the searches still using them are done
+            ((Releasable) value).release();
+        }
     }
 
     /**
@@ -0,0 +1,380 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.indices.cache.query;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.cache.Weigher;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.action.search.SearchType;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.component.AbstractComponent;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.MemorySizeValue;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.index.shard.IndexShardState;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.index.shard.service.IndexShard;
+import org.elasticsearch.indices.IndicesLifecycle;
+import org.elasticsearch.search.internal.SearchContext;
+import org.elasticsearch.search.internal.ShardSearchRequest;
+import org.elasticsearch.search.query.QueryPhase;
+import org.elasticsearch.search.query.QuerySearchResult;
+import org.elasticsearch.threadpool.ThreadPool;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A node level cache of the results of the query phase of shard requests that only compute hit counts, facets and
+ * aggregations (search type <tt>count</tt>). The serialized {@link QuerySearchResult} is cached under the shard, the
+ * version of its reader and the request source, so a refresh that opens a new reader makes the previous entries
+ * unreachable, and they are cleaned once the reader is closed. The entries of a shard are removed when the shard
+ * is closed. The cache is enabled per index with the <tt>index.cache.query.enable</tt> setting.
+ */
+public class IndicesQueryCache extends AbstractComponent implements RemovalListener<IndicesQueryCache.Key, BytesReference> {
+
+    public static final String INDEX_CACHE_QUERY_ENABLED = "index.cache.query.enable";
+
+    private final ThreadPool threadPool;
+
+    private final Cache<Key, BytesReference> cache;
+
+    private final TimeValue cleanInterval;
+
+    private final ConcurrentMap<CleanupKey, Boolean> registeredClosedListeners = ConcurrentCollections.newConcurrentMap();
+    private final Set<CleanupKey> keysToClean = ConcurrentCollections.newConcurrentSet();
+
+    private volatile boolean closed;
+
+    @Inject
+    public IndicesQueryCache(Settings settings, ThreadPool threadPool, IndicesLifecycle indicesLifecycle) {
+        super(settings);
+        this.threadPool = threadPool;
+        String size = componentSettings.get("size", "1%");
+        TimeValue expire = componentSettings.getAsTime("expire", null);
+        this.cleanInterval = componentSettings.getAsTime("clean_interval", TimeValue.timeValueSeconds(60));
+        long sizeInBytes = MemorySizeValue.parseBytesSizeValueOrHeapRatio(size).bytes();
+
+        CacheBuilder<Key, BytesReference> cacheBuilder = CacheBuilder.newBuilder()
+                .maximumWeight(sizeInBytes).weigher(new QueryCacheWeigher()).removalListener(this);
+        // defaults to 4, but this is a busy map for all indices, increase it a bit
+        cacheBuilder.concurrencyLevel(16);
+        if (expire != null) {
+            cacheBuilder.expireAfterAccess(expire.millis(), TimeUnit.MILLISECONDS);
+        }
+        cache = cacheBuilder.build();
+        logger.debug("using [node] query cache with size [{}], actual_size [{}], expire [{}], clean_interval [{}]",
+                size, new ByteSizeValue(sizeInBytes), expire, cleanInterval);
+
+        threadPool.schedule(cleanInterval, ThreadPool.Names.SAME, new Reaper());
+        indicesLifecycle.addListener(new IndicesLifecycle.Listener() {
+            @Override
+            public void beforeIndexShardClosed(ShardId shardId, @Nullable IndexShard indexShard) {
+                clear(indexShard);
+            }
+        });
+    }
+
+    public void close() {
+        closed = true;
+        cache.invalidateAll();
+    }
+
+    /**
+     * Removes all the entries of the given shard.
+     */
+    public void clear(@Nullable IndexShard shard) {
+        if (shard == null) {
+            return;
+        }
+        for (Iterator<Key> it = cache.asMap().keySet().iterator(); it.hasNext(); ) {
+            if (it.next().shard == shard) {
+                it.remove();
+            }
+        }
+    }
+
+    @Override
+    public void onRemoval(RemovalNotification<Key, BytesReference> notification) {
+        if (notification.getKey() == null) {
+            return;
+        }
+        notification.getKey().shard.queryCache().onRemoval(notification);
+    }
+
+    /**
+     * Can the query phase result of the given request be cached? Only requests that don't return hits are cached,
+     * and only if the cache is enabled on their index.
+     */
+    public boolean canCache(ShardSearchRequest request, SearchContext context) {
+        if (context.searchType() != SearchType.COUNT) {
+            return false;
+        }
+        if (request.scroll() != null) {
+            return false;
+        }
+        if (!(context.searcher().getIndexReader() instanceof DirectoryReader)) {
+            return false;
+        }
+        return context.indexShard().indexService().settingsService().getSettings().getAsBoolean(INDEX_CACHE_QUERY_ENABLED, false);
+    }
+
+    /**
+     * Loads the query phase result of the request into the context, either from the cache or by executing the query
+     * phase and caching its result.
+     */
+    public void loadIntoContext(ShardSearchRequest request, SearchContext context, QueryPhase queryPhase) throws Exception {
+        DirectoryReader reader = (DirectoryReader) context.searcher().getIndexReader();
+        Key key = buildKey(request, context, reader);
+        Loader loader = new Loader(queryPhase, context, key);
+        BytesReference value;
+        try {
+            value = cache.get(key, loader);
+        } catch (ExecutionException e) {
+            throw ExceptionsHelper.convertToRuntime(e.getCause());
+        } catch (UncheckedExecutionException e) {
+            throw ExceptionsHelper.convertToRuntime(e.getCause());
+        }
+        if (loader.isLoaded()) {
+            key.shard.queryCache().onMiss();
+            if (context.queryResult().searchTimedOut()) {
+                // partial results must not be served to the next requests
+                cache.invalidate(key);
+            }
+            // see if its the first time we see this reader, and make sure to register a cleanup key
+            CleanupKey cleanupKey = new CleanupKey(context.indexShard(), reader.getVersion());
+            if (!registeredClosedListeners.containsKey(cleanupKey)) {
+                Boolean previous = registeredClosedListeners.putIfAbsent(cleanupKey, Boolean.TRUE);
+                if (previous == null) {
+                    reader.addReaderClosedListener(cleanupKey);
+                }
+            }
+        } else {
+            key.shard.queryCache().onHit();
+            // restore the cached query result into the context
+            final QuerySearchResult result = context.queryResult();
+            result.readFromWithId(context.id(), value.streamInput());
+            result.shardTarget(context.shardTarget());
+        }
+    }
+
+    private static class Loader implements Callable<BytesReference> {
+
+        private final QueryPhase queryPhase;
+        private final SearchContext context;
+        private final IndicesQueryCache.Key key;
+        private boolean loaded;
+
+        Loader(QueryPhase queryPhase, SearchContext context, IndicesQueryCache.Key key) {
+            this.queryPhase = queryPhase;
+            this.context = context;
+            this.key = key;
+        }
+
+        public boolean isLoaded() {
+            return this.loaded;
+        }
+
+        @Override
+        public BytesReference call() throws Exception {
+            queryPhase.execute(context);
+
+            BytesStreamOutput out = new BytesStreamOutput();
+            context.queryResult().writeToNoId(out);
+            // copy it over to an exact size array
+            BytesReference value = new BytesArray(out.bytes().toBytes());
+            loaded = true;
+            key.shard.queryCache().onCached(key, value);
+            return value;
+        }
+    }
+
+    private static Key buildKey(ShardSearchRequest request, SearchContext context, DirectoryReader reader) throws IOException {
+        BytesStreamOutput out = new BytesStreamOutput();
+        out.writeBytesReference(request.source());
+        out.writeBytesReference(request.extraSource());
+        out.writeStringArrayNullable(request.types());
+        out.writeStringArrayNullable(request.filteringAliases());
+        return new Key(context.indexShard(), reader.getVersion(), new BytesArray(out.bytes().toBytes()));
+    }
+
+    public static class Key {
+
+        public final IndexShard shard; // use as identity equality
+        public final long readerVersion; // use the reader version to not keep a reference to a "short" lived reader until its reaped
+        public final BytesReference value;
+
+        Key(IndexShard shard, long readerVersion, BytesReference value) {
+            this.shard = shard;
+            this.readerVersion = readerVersion;
+            this.value = value;
+        }
+
+        public long ramBytesUsed() {
+            return RamUsageEstimator.NUM_BYTES_OBJECT_HEADER + RamUsageEstimator.NUM_BYTES_LONG + 2 * RamUsageEstimator.NUM_BYTES_OBJECT_REF
+                    + value.length();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            Key key = (Key) o;
+            if (readerVersion != key.readerVersion) return false;
+            if (shard != key.shard) return false;
+            if (!value.equals(key.value)) return false;
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = shard.hashCode();
+            result = 31 * result + (int) (readerVersion ^ (readerVersion >>> 32));
+            result = 31 * result + value.hashCode();
+            return result;
+        }
+    }
+
+    private class CleanupKey implements IndexReader.ReaderClosedListener {
+
+        final IndexShard indexShard;
+        final long readerVersion;
+
+        private CleanupKey(IndexShard indexShard, long readerVersion) {
+            this.indexShard = indexShard;
+            this.readerVersion = readerVersion;
+        }
+
+        @Override
+        public void onClose(IndexReader reader) {
+            Boolean remove = registeredClosedListeners.remove(this);
+            if (remove != null) {
+                keysToClean.add(this);
+            }
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            CleanupKey that = (CleanupKey) o;
+            if (readerVersion != that.readerVersion) return false;
+            if (indexShard != that.indexShard) return false;
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = indexShard.hashCode();
+            result = 31 * result + (int) (readerVersion ^ (readerVersion >>> 32));
+            return result;
+        }
+    }
+
+    static class QueryCacheWeigher implements Weigher<Key, BytesReference> {
+
+        @Override
+        public int weigh(Key key, BytesReference value) {
+            return (int) (key.ramBytesUsed() + value.length());
+        }
+    }
+
+    /**
+     * Removes the entries of the readers that have been closed since the last run, and of the shards that have been
+     * closed. Iterating over all the entries is expensive, so it is done periodically rather than on every reader close.
+     */
+    private class Reaper implements Runnable {
+
+        @Override
+        public void run() {
+            if (closed) {
+                return;
+            }
+            try {
+                threadPool.executor(ThreadPool.Names.GENERIC).execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            reap();
+                        } finally {
+                            schedule();
+                        }
+                    }
+                });
+            } catch (EsRejectedExecutionException ex) {
+                logger.debug("Can not run Reaper - execution rejected", ex);
+            }
+        }
+
+        private void reap() {
+            cache.cleanUp();
+            if (keysToClean.isEmpty()) {
+                boolean hasClosedShards = false;
+                for (Key key : cache.asMap().keySet()) {
+                    if (key.shard.state() == IndexShardState.CLOSED) {
+                        hasClosedShards = true;
+                        break;
+                    }
+                }
+                if (!hasClosedShards) {
+                    return;
+                }
+            }
+            Set<CleanupKey> currentKeysToClean = ConcurrentCollections.newConcurrentSet();
+            for (Iterator<CleanupKey> it = keysToClean.iterator(); it.hasNext(); ) {
+                currentKeysToClean.add(it.next());
+                it.remove();
+            }
+            for (Iterator<Key> it = cache.asMap().keySet().iterator(); it.hasNext(); ) {
+                Key key = it.next();
+                if (key.shard.state() == IndexShardState.CLOSED) {
+                    it.remove();
+                } else if (currentKeysToClean.contains(new CleanupKey(key.shard, key.readerVersion))) {
+                    it.remove();
+                }
+            }
+        }
+
+        private void schedule() {
+            try {
+                threadPool.schedule(cleanInterval, ThreadPool.Names.SAME, this);
+            } catch (EsRejectedExecutionException ex) {
+                logger.debug("Can not schedule Reaper - execution rejected", ex);
+            }
+        }
+    }
+}
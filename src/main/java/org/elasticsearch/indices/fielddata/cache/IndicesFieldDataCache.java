@@ -21,6 +21,7 @@ package org.elasticsearch.indices.fielddata.cache;
 
 import com.google.common.cache.*;
 import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.SegmentReader;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.component.AbstractComponent;
@@ -34,6 +35,7 @@ import org.elasticsearch.index.fielddata.AtomicFieldData;
 import org.elasticsearch.index.fielddata.FieldDataType;
 import org.elasticsearch.index.fielddata.IndexFieldData;
 import org.elasticsearch.index.fielddata.IndexFieldDataCache;
+import org.elasticsearch.index.fielddata.ordinals.GlobalOrdinalsMapping;
 import org.elasticsearch.index.mapper.FieldMapper;
 import org.elasticsearch.index.service.IndexService;
 import org.elasticsearch.index.shard.ShardId;
@@ -48,6 +50,7 @@ import java.util.concurrent.TimeUnit;
 public class IndicesFieldDataCache extends AbstractComponent implements RemovalListener<IndicesFieldDataCache.Key, AtomicFieldData> {
 
     Cache<Key, AtomicFieldData> cache;
+    Cache<Key, GlobalOrdinalsMapping> globalOrdinalsCache;
 
     private volatile String size;
     private volatile long sizeInBytes;
@@ -76,10 +79,13 @@ public class IndicesFieldDataCache extends AbstractComponent implements RemovalL
         }
         logger.debug("using size [{}] [{}], expire [{}]", size, new ByteSizeValue(sizeInBytes), expire);
         cache = cacheBuilder.build();
+        // global ordinals are bound to a top-level reader and are evicted as soon as the reader is closed
+        globalOrdinalsCache = CacheBuilder.newBuilder().concurrencyLevel(16).build();
     }
 
     public void close() {
         cache.invalidateAll();
+        globalOrdinalsCache.invalidateAll();
     }
 
     public IndexFieldDataCache buildIndexFieldDataCache(@Nullable IndexService indexService, Index index, FieldMapper.Names fieldNames, FieldDataType fieldDataType) {
@@ -113,7 +119,7 @@ public class IndicesFieldDataCache extends AbstractComponent implements RemovalL
     /**
      * A specific cache instance for the relevant parameters of it (index, fieldNames, fieldType).
      */
-    class IndexFieldCache implements IndexFieldDataCache, SegmentReader.CoreClosedListener {
+    class IndexFieldCache implements IndexFieldDataCache, SegmentReader.CoreClosedListener, IndexReader.ReaderClosedListener {
 
         @Nullable
         private final IndexService indexService;
@@ -157,11 +163,28 @@ public class IndicesFieldDataCache extends AbstractComponent implements RemovalL
             });
         }
 
+        @Override
+        public GlobalOrdinalsMapping loadGlobalOrdinals(final IndexReader indexReader, final IndexFieldData.WithOrdinals<?> indexFieldData) throws Exception {
+            final Key key = new Key(this, indexReader.getCoreCacheKey());
+            return globalOrdinalsCache.get(key, new Callable<GlobalOrdinalsMapping>() {
+                @Override
+                public GlobalOrdinalsMapping call() throws Exception {
+                    indexReader.addReaderClosedListener(IndexFieldCache.this);
+                    return indexFieldData.loadGlobalOrdinalsDirect(indexReader);
+                }
+            });
+        }
+
         @Override
         public void onClose(Object coreKey) {
             cache.invalidate(new Key(this, coreKey));
         }
 
+        @Override
+        public void onClose(IndexReader reader) {
+            globalOrdinalsCache.invalidate(new Key(this, reader.getCoreCacheKey()));
+        }
+
         @Override
         public void clear() {
             for (Key key : cache.asMap().keySet()) {
@@ -169,6 +192,11 @@ public class IndicesFieldDataCache extends AbstractComponent implements RemovalL
                     cache.invalidate(key);
                 }
             }
+            for (Key key : globalOrdinalsCache.asMap().keySet()) {
+                if (key.indexCache.index.equals(index)) {
+                    globalOrdinalsCache.invalidate(key);
+                }
+            }
         }
 
         @Override
@@ -180,6 +208,13 @@ public class IndicesFieldDataCache extends AbstractComponent implements RemovalL
                     }
                 }
             }
+            for (Key key : globalOrdinalsCache.asMap().keySet()) {
+                if (key.indexCache.index.equals(index)) {
+                    if (key.indexCache.fieldNames.fullName().equals(fieldName)) {
+                        globalOrdinalsCache.invalidate(key);
+                    }
+                }
+            }
         }
 
         @Override
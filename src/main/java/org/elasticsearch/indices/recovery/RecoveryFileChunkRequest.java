@@ -24,15 +24,20 @@ import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.lease.Releasable;
 import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.transport.FileRegionTransportRequest;
 import org.elasticsearch.transport.TransportRequest;
 
+import java.io.EOFException;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 
 /**
  *
  */
-class RecoveryFileChunkRequest extends TransportRequest {
+class RecoveryFileChunkRequest extends TransportRequest implements FileRegionTransportRequest {
 
     private long recoveryId;
     private ShardId shardId;
@@ -42,6 +47,10 @@ class RecoveryFileChunkRequest extends TransportRequest {
     private String checksum;
     private BytesReference content;
 
+    // set instead of the content when the chunk is sent from the file
+    private SharedFileChannel fileChannel;
+    private int contentLength;
+
     RecoveryFileChunkRequest() {
     }
 
@@ -53,6 +62,23 @@ class RecoveryFileChunkRequest extends TransportRequest {
         this.length = length;
         this.checksum = checksum;
         this.content = content;
+        this.contentLength = content.length();
+    }
+
+    /**
+     * A chunk whose content is read from the file only when it is sent, the file must have the same
+     * content as the store file. The transport retains the file channel if it writes the region
+     * asynchronously.
+     */
+    RecoveryFileChunkRequest(long recoveryId, ShardId shardId, String name, long position, long length, String checksum, SharedFileChannel fileChannel, int contentLength) {
+        this.recoveryId = recoveryId;
+        this.shardId = shardId;
+        this.name = name;
+        this.position = position;
+        this.length = length;
+        this.checksum = checksum;
+        this.fileChannel = fileChannel;
+        this.contentLength = contentLength;
     }
 
     public long recoveryId() {
@@ -80,10 +106,33 @@ class RecoveryFileChunkRequest extends TransportRequest {
         return length;
     }
 
+    /**
+     * The content of the chunk, <tt>null</tt> on the sending side if it is sent from the file.
+     */
     public BytesReference content() {
         return content;
     }
 
+    @Override
+    public FileChannel fileChannel() {
+        return fileChannel == null ? null : fileChannel.channel();
+    }
+
+    @Override
+    public Releasable retainFileChannel() {
+        return fileChannel.retain();
+    }
+
+    @Override
+    public long regionPosition() {
+        return position;
+    }
+
+    @Override
+    public int regionLength() {
+        return contentLength;
+    }
+
     public RecoveryFileChunkRequest readFileChunk(StreamInput in) throws IOException {
         RecoveryFileChunkRequest request = new RecoveryFileChunkRequest();
         request.readFrom(in);
@@ -103,7 +152,7 @@ class RecoveryFileChunkRequest extends TransportRequest {
     }
 
     @Override
-    public void writeTo(StreamOutput out) throws IOException {
+    public void writeThin(StreamOutput out) throws IOException {
         super.writeTo(out);
         out.writeLong(recoveryId);
         shardId.writeTo(out);
@@ -111,7 +160,24 @@ class RecoveryFileChunkRequest extends TransportRequest {
         out.writeVLong(position);
         out.writeVLong(length);
         out.writeOptionalString(checksum);
-        out.writeBytesReference(content);
+        out.writeVInt(contentLength);
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        writeThin(out);
+        if (fileChannel == null) {
+            content.writeTo(out);
+            return;
+        }
+        // the transport can't send the region from the file (compression for example), read it
+        ByteBuffer buffer = ByteBuffer.allocate(contentLength);
+        while (buffer.hasRemaining()) {
+            if (fileChannel.channel().read(buffer, position + buffer.position()) == -1) {
+                throw new EOFException("read past EOF of [" + name + "], position [" + (position + buffer.position()) + "]");
+            }
+        }
+        out.writeBytes(buffer.array(), 0, contentLength);
     }
 
     @Override
@@ -19,6 +19,9 @@
 
 package org.elasticsearch.indices.recovery;
 
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import org.elasticsearch.Version;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.index.shard.ShardId;
@@ -27,6 +30,7 @@ import org.elasticsearch.transport.TransportRequest;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 /**
  *
@@ -42,6 +46,7 @@ class RecoveryFilesInfoRequest extends TransportRequest {
     List<Long> phase1ExistingFileSizes;
     long phase1TotalSize;
     long phase1ExistingTotalSize;
+    Map<String, Long> phase1ResumedFileOffsets = ImmutableMap.of();
 
     RecoveryFilesInfoRequest() {
     }
@@ -96,6 +101,14 @@ class RecoveryFilesInfoRequest extends TransportRequest {
 
         phase1TotalSize = in.readVLong();
         phase1ExistingTotalSize = in.readVLong();
+
+        if (in.getVersion().onOrAfter(Version.V_2_0_0)) {
+            size = in.readVInt();
+            phase1ResumedFileOffsets = Maps.newHashMapWithExpectedSize(size);
+            for (int i = 0; i < size; i++) {
+                phase1ResumedFileOffsets.put(in.readString(), in.readVLong());
+            }
+        }
     }
 
     @Override
@@ -126,5 +139,13 @@ class RecoveryFilesInfoRequest extends TransportRequest {
 
         out.writeVLong(phase1TotalSize);
         out.writeVLong(phase1ExistingTotalSize);
+
+        if (out.getVersion().onOrAfter(Version.V_2_0_0)) {
+            out.writeVInt(phase1ResumedFileOffsets.size());
+            for (Map.Entry<String, Long> entry : phase1ResumedFileOffsets.entrySet()) {
+                out.writeString(entry.getKey());
+                out.writeVLong(entry.getValue());
+            }
+        }
     }
 }
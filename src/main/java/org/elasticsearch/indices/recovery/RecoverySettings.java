@@ -27,6 +27,7 @@ import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.ByteSizeUnit;
 import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.util.concurrent.EsExecutors;
 import org.elasticsearch.node.settings.NodeSettingsService;
 
@@ -44,6 +45,10 @@ public class RecoverySettings extends AbstractComponent {
     public static final String INDICES_RECOVERY_CONCURRENT_STREAMS = "indices.recovery.concurrent_streams";
     public static final String INDICES_RECOVERY_CONCURRENT_SMALL_FILE_STREAMS = "indices.recovery.concurrent_small_file_streams";
     public static final String INDICES_RECOVERY_MAX_BYTES_PER_SEC = "indices.recovery.max_bytes_per_sec";
+    public static final String INDICES_RECOVERY_CONCURRENT_FILE_CHUNKS = "indices.recovery.concurrent_file_chunks";
+    public static final String INDICES_RECOVERY_MAX_RESUME_ATTEMPTS = "indices.recovery.max_resume_attempts";
+    public static final String INDICES_RECOVERY_RESUME_DELAY = "indices.recovery.resume_delay";
+    public static final String INDICES_RECOVERY_ZERO_COPY = "indices.recovery.zero_copy";
 
     public static final long SMALL_FILE_CUTOFF_BYTES = ByteSizeValue.parseBytesSizeValue("5mb").bytes();
 
@@ -63,6 +68,11 @@ public class RecoverySettings extends AbstractComponent {
     private volatile int concurrentSmallFileStreams;
     private final ThreadPoolExecutor concurrentStreamPool;
     private final ThreadPoolExecutor concurrentSmallFileStreamPool;
+    private volatile int concurrentFileChunks;
+    private volatile boolean zeroCopy;
+
+    private volatile int maxResumeAttempts;
+    private volatile TimeValue resumeDelay;
 
     private volatile ByteSizeValue maxBytesPerSec;
     private volatile SimpleRateLimiter rateLimiter;
@@ -80,6 +90,11 @@ public class RecoverySettings extends AbstractComponent {
         this.concurrentStreamPool = EsExecutors.newScaling(0, concurrentStreams, 60, TimeUnit.SECONDS, EsExecutors.daemonThreadFactory(settings, "[recovery_stream]"));
         this.concurrentSmallFileStreams = componentSettings.getAsInt("concurrent_small_file_streams", settings.getAsInt("index.shard.recovery.concurrent_small_file_streams", 2));
         this.concurrentSmallFileStreamPool = EsExecutors.newScaling(0, concurrentSmallFileStreams, 60, TimeUnit.SECONDS, EsExecutors.daemonThreadFactory(settings, "[small_file_recovery_stream]"));
+        this.concurrentFileChunks = componentSettings.getAsInt("concurrent_file_chunks", 2);
+        this.zeroCopy = componentSettings.getAsBoolean("zero_copy", false);
+
+        this.maxResumeAttempts = componentSettings.getAsInt("max_resume_attempts", 3);
+        this.resumeDelay = componentSettings.getAsTime("resume_delay", TimeValue.timeValueSeconds(5));
 
         this.maxBytesPerSec = componentSettings.getAsBytesSize("max_bytes_per_sec", componentSettings.getAsBytesSize("max_size_per_sec", new ByteSizeValue(20, ByteSizeUnit.MB)));
         if (maxBytesPerSec.bytes() <= 0) {
@@ -88,8 +103,8 @@ public class RecoverySettings extends AbstractComponent {
             rateLimiter = new SimpleRateLimiter(maxBytesPerSec.mbFrac());
         }
 
-        logger.debug("using max_bytes_per_sec[{}], concurrent_streams [{}], file_chunk_size [{}], translog_size [{}], translog_ops [{}], and compress [{}]",
-                maxBytesPerSec, concurrentStreams, fileChunkSize, translogSize, translogOps, compress);
+        logger.debug("using max_bytes_per_sec[{}], concurrent_streams [{}], concurrent_file_chunks [{}], file_chunk_size [{}], translog_size [{}], translog_ops [{}], and compress [{}]",
+                maxBytesPerSec, concurrentStreams, concurrentFileChunks, fileChunkSize, translogSize, translogOps, compress);
 
         nodeSettingsService.addListener(new ApplySettings());
     }
@@ -132,6 +147,33 @@ public class RecoverySettings extends AbstractComponent {
         return concurrentSmallFileStreamPool;
     }
 
+    /**
+     * The number of chunks of a single file that are sent to the recovery target without waiting for the
+     * previous ones to be acknowledged.
+     */
+    public int concurrentFileChunks() {
+        return concurrentFileChunks;
+    }
+
+    /**
+     * Whether file chunks that are not compressed are sent straight from the files, without reading them on the heap.
+     */
+    public boolean zeroCopy() {
+        return zeroCopy;
+    }
+
+    /**
+     * How many times a recovery that failed while copying files is resumed from the already copied bytes
+     * before it is failed.
+     */
+    public int maxResumeAttempts() {
+        return maxResumeAttempts;
+    }
+
+    public TimeValue resumeDelay() {
+        return resumeDelay;
+    }
+
     public RateLimiter rateLimiter() {
         return rateLimiter;
     }
@@ -189,6 +231,30 @@ public class RecoverySettings extends AbstractComponent {
                 RecoverySettings.this.concurrentSmallFileStreams = concurrentSmallFileStreams;
                 RecoverySettings.this.concurrentSmallFileStreamPool.setMaximumPoolSize(concurrentSmallFileStreams);
             }
+
+            int concurrentFileChunks = settings.getAsInt(INDICES_RECOVERY_CONCURRENT_FILE_CHUNKS, RecoverySettings.this.concurrentFileChunks);
+            if (concurrentFileChunks != RecoverySettings.this.concurrentFileChunks) {
+                logger.info("updating [indices.recovery.concurrent_file_chunks] from [{}] to [{}]", RecoverySettings.this.concurrentFileChunks, concurrentFileChunks);
+                RecoverySettings.this.concurrentFileChunks = concurrentFileChunks;
+            }
+
+            boolean zeroCopy = settings.getAsBoolean(INDICES_RECOVERY_ZERO_COPY, RecoverySettings.this.zeroCopy);
+            if (zeroCopy != RecoverySettings.this.zeroCopy) {
+                logger.info("updating [indices.recovery.zero_copy] from [{}] to [{}]", RecoverySettings.this.zeroCopy, zeroCopy);
+                RecoverySettings.this.zeroCopy = zeroCopy;
+            }
+
+            int maxResumeAttempts = settings.getAsInt(INDICES_RECOVERY_MAX_RESUME_ATTEMPTS, RecoverySettings.this.maxResumeAttempts);
+            if (maxResumeAttempts != RecoverySettings.this.maxResumeAttempts) {
+                logger.info("updating [indices.recovery.max_resume_attempts] from [{}] to [{}]", RecoverySettings.this.maxResumeAttempts, maxResumeAttempts);
+                RecoverySettings.this.maxResumeAttempts = maxResumeAttempts;
+            }
+
+            TimeValue resumeDelay = settings.getAsTime(INDICES_RECOVERY_RESUME_DELAY, RecoverySettings.this.resumeDelay);
+            if (!resumeDelay.equals(RecoverySettings.this.resumeDelay)) {
+                logger.info("updating [indices.recovery.resume_delay] from [{}] to [{}]", RecoverySettings.this.resumeDelay, resumeDelay);
+                RecoverySettings.this.resumeDelay = resumeDelay;
+            }
         }
     }
 }
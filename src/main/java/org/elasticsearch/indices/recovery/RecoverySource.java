@@ -20,6 +20,7 @@
 package org.elasticsearch.indices.recovery;
 
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import org.apache.lucene.store.IOContext;
 import org.apache.lucene.store.IndexInput;
@@ -28,6 +29,7 @@ import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.cluster.ClusterService;
 import org.elasticsearch.cluster.routing.RoutingNode;
 import org.elasticsearch.cluster.routing.ShardRouting;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.StopWatch;
 import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.component.AbstractComponent;
@@ -48,9 +50,13 @@ import org.elasticsearch.indices.IndicesService;
 import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.*;
 
+import java.io.File;
+import java.io.RandomAccessFile;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -119,6 +125,7 @@ public class RecoverySource extends AbstractComponent {
             public void phase1(final SnapshotIndexCommit snapshot) throws ElasticsearchException {
                 long totalSize = 0;
                 long existingTotalSize = 0;
+                final Map<String, Long> resumedFileOffsets = Maps.newHashMap();
                 try {
                     StopWatch stopWatch = new StopWatch().start();
 
@@ -137,6 +144,14 @@ public class RecoverySource extends AbstractComponent {
                                 }
                             }
                         }
+                        final long recoveredLength = recoveredLength(md, request.partialFiles().get(name), request.partialFileOffsets().get(name));
+                        if (!useExisting && recoveredLength == md.length()) {
+                            // a previous attempt of this recovery already copied the whole file
+                            response.phase1ExistingFileNames.add(name);
+                            response.phase1ExistingFileSizes.add(md.length());
+                            existingTotalSize += md.length();
+                            useExisting = true;
+                        }
                         if (!useExisting) {
                             if (request.existingFiles().containsKey(name)) {
                                 logger.trace("[{}][{}] recovery [phase1] to {}: recovering [{}], exists in local store, but is different: remote [{}], local [{}]", request.shardId().index().name(), request.shardId().id(), request.targetNode(), name, request.existingFiles().get(name), md);
@@ -145,6 +160,11 @@ public class RecoverySource extends AbstractComponent {
                             }
                             response.phase1FileNames.add(name);
                             response.phase1FileSizes.add(md.length());
+                            // a previous attempt of this recovery might have copied part of the file already
+                            if (recoveredLength > 0) {
+                                resumedFileOffsets.put(name, recoveredLength);
+                                logger.trace("[{}][{}] recovery [phase1] to {}: resuming [{}] from [{}]", request.shardId().index().name(), request.shardId().id(), request.targetNode(), name, recoveredLength);
+                            }
                         }
                         totalSize += md.length();
                     }
@@ -155,6 +175,7 @@ public class RecoverySource extends AbstractComponent {
 
                     RecoveryFilesInfoRequest recoveryInfoFilesRequest = new RecoveryFilesInfoRequest(request.recoveryId(), request.shardId(), response.phase1FileNames, response.phase1FileSizes,
                             response.phase1ExistingFileNames, response.phase1ExistingFileSizes, response.phase1TotalSize, response.phase1ExistingTotalSize);
+                    recoveryInfoFilesRequest.phase1ResumedFileOffsets = resumedFileOffsets;
                     transportService.submitRequest(request.targetNode(), RecoveryTarget.Actions.FILES_INFO, recoveryInfoFilesRequest, TransportRequestOptions.options().withTimeout(internalActionTimeout), EmptyTransportResponseHandler.INSTANCE_SAME).txGet();
 
                     final CountDownLatch latch = new CountDownLatch(response.phase1FileNames.size());
@@ -173,9 +194,10 @@ public class RecoverySource extends AbstractComponent {
                             @Override
                             public void run() {
                                 IndexInput indexInput = null;
+                                SharedFileChannel fileChannel = null;
                                 try {
                                     final int BUFFER_SIZE = (int) recoverySettings.fileChunkSize().bytes();
-                                    byte[] buf = new byte[BUFFER_SIZE];
+                                    final AtomicReference<Throwable> chunkFailure = new AtomicReference<Throwable>();
                                     StoreFileMetaData md = shard.store().metaData(name);
                                     // TODO: maybe use IOContext.READONCE?
                                     indexInput = shard.store().openInputRaw(name, IOContext.READ);
@@ -183,30 +205,83 @@ public class RecoverySource extends AbstractComponent {
                                     if (CompressorFactory.isCompressed(indexInput)) {
                                         shouldCompressRequest = false;
                                     }
+                                    if (recoverySettings.zeroCopy() && !shouldCompressRequest) {
+                                        // the chunks are sent from the file, the transport reads them only if it needs to compress them
+                                        File file = shard.store().physicalFile(name);
+                                        if (file != null) {
+                                            fileChannel = new SharedFileChannel(new RandomAccessFile(file, "r").getChannel());
+                                        }
+                                    }
+                                    TransportRequestOptions options = TransportRequestOptions.options().withCompress(shouldCompressRequest).withType(TransportRequestOptions.Type.RECOVERY).withTimeout(internalActionTimeout);
+                                    // chunks are sent without waiting for the previous ones to be acknowledged, up
+                                    // to the number of permits, the target writes them in order
+                                    final int concurrentChunks = recoverySettings.concurrentFileChunks();
+                                    final Semaphore inFlightChunks = new Semaphore(concurrentChunks);
 
                                     long len = indexInput.length();
                                     long readCount = 0;
-                                    while (readCount < len) {
+                                    Long resumeOffset = resumedFileOffsets.get(name);
+                                    if (resumeOffset != null) {
+                                        indexInput.seek(resumeOffset);
+                                        readCount = resumeOffset;
+                                    }
+                                    while (readCount < len && chunkFailure.get() == null) {
                                         if (shard.state() == IndexShardState.CLOSED) { // check if the shard got closed on us
                                             throw new IndexShardClosedException(shard.shardId());
                                         }
                                         int toRead = readCount + BUFFER_SIZE > len ? (int) (len - readCount) : BUFFER_SIZE;
-                                        long position = indexInput.getFilePointer();
+                                        long position = readCount;
 
                                         if (recoverySettings.rateLimiter() != null) {
                                             recoverySettings.rateLimiter().pause(toRead);
                                         }
 
-                                        indexInput.readBytes(buf, 0, toRead, false);
-                                        BytesArray content = new BytesArray(buf, 0, toRead);
-                                        transportService.submitRequest(request.targetNode(), RecoveryTarget.Actions.FILE_CHUNK, new RecoveryFileChunkRequest(request.recoveryId(), request.shardId(), name, position, len, md.checksum(), content),
-                                                TransportRequestOptions.options().withCompress(shouldCompressRequest).withType(TransportRequestOptions.Type.RECOVERY).withTimeout(internalActionTimeout), EmptyTransportResponseHandler.INSTANCE_SAME).txGet();
+                                        inFlightChunks.acquire();
+                                        RecoveryFileChunkRequest chunkRequest;
+                                        try {
+                                            if (fileChannel != null) {
+                                                chunkRequest = new RecoveryFileChunkRequest(request.recoveryId(), request.shardId(), name, position, len, md.checksum(), fileChannel, toRead);
+                                            } else {
+                                                // the buffer can't be reused, it is still referenced by the in flight requests
+                                                byte[] buf = new byte[toRead];
+                                                indexInput.readBytes(buf, 0, toRead, false);
+                                                BytesArray content = new BytesArray(buf, 0, toRead);
+                                                chunkRequest = new RecoveryFileChunkRequest(request.recoveryId(), request.shardId(), name, position, len, md.checksum(), content);
+                                            }
+                                        } catch (Throwable e) {
+                                            // the permit is only released by the response handler once the request is sent
+                                            inFlightChunks.release();
+                                            throw e;
+                                        }
+                                        transportService.sendRequest(request.targetNode(), RecoveryTarget.Actions.FILE_CHUNK, chunkRequest,
+                                                options, new EmptyTransportResponseHandler(ThreadPool.Names.SAME) {
+                                                    @Override
+                                                    public void handleResponse(TransportResponse.Empty response) {
+                                                        inFlightChunks.release();
+                                                    }
+
+                                                    @Override
+                                                    public void handleException(TransportException exp) {
+                                                        chunkFailure.compareAndSet(null, exp);
+                                                        inFlightChunks.release();
+                                                    }
+                                                });
                                         readCount += toRead;
                                     }
+                                    // wait for the in flight chunks to be acknowledged
+                                    inFlightChunks.acquire(concurrentChunks);
+                                    if (chunkFailure.get() != null) {
+                                        throw chunkFailure.get();
+                                    }
                                 } catch (Throwable e) {
                                     lastException.set(e);
                                 } finally {
                                     IOUtils.closeWhileHandlingException(indexInput);
+                                    if (fileChannel != null) {
+                                        // the transport retains the file channel until the regions it still has to write are
+                                        // transferred, a request may have timed out while its region is queued on the network
+                                        fileChannel.release();
+                                    }
                                     latch.countDown();
                                 }
                             }
@@ -320,6 +395,22 @@ public class RecoverySource extends AbstractComponent {
         return response;
     }
 
+    /**
+     * Returns how many bytes of the given file the target already has from a previous attempt of the recovery,
+     * or <tt>-1</tt> if it has none that can be reused: the target's copy is only reused if it was made from a
+     * file with the same length and checksum. A return value equal to the length of the file means that the
+     * file was completely copied.
+     */
+    static long recoveredLength(StoreFileMetaData md, @Nullable StoreFileMetaData partialFile, @Nullable Long partialOffset) {
+        if (partialFile == null || partialOffset == null || !md.isSame(partialFile)) {
+            return -1;
+        }
+        if (partialOffset < 0 || partialOffset > md.length()) {
+            return -1;
+        }
+        return partialOffset;
+    }
+
     class StartRecoveryTransportRequestHandler extends BaseTransportRequestHandler<StartRecoveryRequest> {
 
         @Override
@@ -19,14 +19,20 @@
 
 package org.elasticsearch.indices.recovery;
 
+import com.google.common.collect.Maps;
 import org.apache.lucene.store.IndexOutput;
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.shard.service.InternalIndexShard;
 import org.elasticsearch.index.store.Store;
+import org.elasticsearch.index.store.StoreFileMetaData;
+import org.elasticsearch.transport.TransportChannel;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.ConcurrentMap;
@@ -61,6 +67,11 @@ public class RecoveryStatus {
 
     private volatile ConcurrentMap<String, IndexOutput> openIndexOutputs = ConcurrentCollections.newConcurrentMap();
     ConcurrentMap<String, String> checksums = ConcurrentCollections.newConcurrentMap();
+    // the meta data of the files being written, and the chunks that arrived ahead of the ones they follow,
+    // both keyed by the same name as the open index outputs
+    private final ConcurrentMap<String, StoreFileMetaData> openIndexOutputsMetaData = ConcurrentCollections.newConcurrentMap();
+    private final ConcurrentMap<String, Map<Long, PendingFileChunk>> pendingFileChunks = ConcurrentCollections.newConcurrentMap();
+    private final ConcurrentMap<String, StoreFileMetaData> recoveredFilesMetaData = ConcurrentCollections.newConcurrentMap();
 
     final long startTime = System.currentTimeMillis();
     long time;
@@ -74,6 +85,11 @@ public class RecoveryStatus {
     volatile Stage stage = Stage.INIT;
     volatile long currentTranslogOperations = 0;
     AtomicLong currentFilesSize = new AtomicLong();
+    // the bytes received by this recovery, not counting the ones of files resumed from a previous attempt
+    final AtomicLong transferredFilesSize = new AtomicLong();
+    volatile long indexStartTime;
+    volatile long indexTime;
+    volatile int resumeAttempts;
 
     public long startTime() {
         return startTime;
@@ -102,6 +118,28 @@ public class RecoveryStatus {
     public long currentFilesSize() {
         return currentFilesSize.get();
     }
+
+    /**
+     * The rate at which the files of the shard have been copied, in bytes per second.
+     */
+    public long filesThroughput() {
+        final long startTime = indexStartTime;
+        if (startTime == 0) {
+            return 0;
+        }
+        long took = indexTime;
+        if (took == 0) {
+            took = System.currentTimeMillis() - startTime;
+        }
+        return transferredFilesSize.get() * 1000 / Math.max(1, took);
+    }
+
+    /**
+     * The number of times copying the files was resumed after a failure.
+     */
+    public int resumeAttempts() {
+        return resumeAttempts;
+    }
     
     public boolean isCanceled() {
         return canceled;
@@ -136,16 +174,141 @@ public class RecoveryStatus {
         if (outputs == null) {
             return null;
         }
+        openIndexOutputsMetaData.remove(name);
+        failPendingFileChunks(name);
         return outputs.remove(name);
     }
 
-    public synchronized IndexOutput openAndPutIndexOutput(String key, String name, Store store) throws IOException {
+    /**
+     * Returns the output of the given file, creating it on the first chunk that is received for it.
+     */
+    public synchronized IndexOutput getOrOpenIndexOutput(String name, long length, String checksum, Store store) throws IOException {
         if (isCanceled()) {
             return null;
         }
         final ConcurrentMap<String, IndexOutput> outputs = openIndexOutputs;
-        IndexOutput indexOutput = store.createOutputRaw(name);
-        outputs.put(key, indexOutput);
+        IndexOutput indexOutput = outputs.get(name);
+        if (indexOutput != null) {
+            return indexOutput;
+        }
+        checksums.remove(name);
+        recoveredFilesMetaData.remove(name);
+        // we create an output with no checksum, this is because the pure binary data of the file is not
+        // the checksum (because of seek). We will create the checksum file once copying is done
+
+        // also, we check if the file already exists, if it does, we create a file name based
+        // on the current recovery "id" and later we make the switch, the reason for that is that
+        // we only want to overwrite the index files once we copied all over, and not create a
+        // case where the index is half moved
+        String fileName = name;
+        if (store.directory().fileExists(fileName)) {
+            fileName = "recovery." + startTime + "." + fileName;
+        }
+        indexOutput = store.createOutputRaw(fileName);
+        outputs.put(name, indexOutput);
+        openIndexOutputsMetaData.put(name, new StoreFileMetaData(name, length, checksum));
+        pendingFileChunks.put(name, Maps.<Long, PendingFileChunk>newHashMap());
         return indexOutput;
     }
+
+    /**
+     * The chunks of the given file that can't be written yet since they don't directly follow the written
+     * bytes, only to be accessed while holding the lock on the file output.
+     */
+    Map<Long, PendingFileChunk> pendingFileChunks(String name) {
+        return pendingFileChunks.get(name);
+    }
+
+    /**
+     * Fails the chunks of the given file that are waiting to be written, they won't be written anymore. Should be
+     * called while holding the lock on the file output.
+     */
+    void failPendingFileChunks(String name) {
+        Map<Long, PendingFileChunk> pendingChunks = pendingFileChunks.remove(name);
+        if (pendingChunks != null) {
+            failPendingFileChunks(name, pendingChunks);
+        }
+    }
+
+    void failPendingFileChunks(String name, Map<Long, PendingFileChunk> pendingChunks) {
+        for (PendingFileChunk pendingChunk : pendingChunks.values()) {
+            try {
+                pendingChunk.channel.sendResponse(new ElasticsearchException("failed to write chunk of file [" + name + "], the file is not written anymore"));
+            } catch (IOException e) {
+                // the source fails on its own if the response can't be sent
+            }
+        }
+        pendingChunks.clear();
+    }
+
+    /**
+     * Marks the file as completely written, should be called before its output is removed.
+     */
+    void fileRecovered(String name) {
+        StoreFileMetaData md = openIndexOutputsMetaData.get(name);
+        if (md != null) {
+            recoveredFilesMetaData.put(name, md);
+        }
+    }
+
+    boolean isFileRecovered(String name) {
+        return recoveredFilesMetaData.containsKey(name);
+    }
+
+    /**
+     * Forgets that the file was written, a new attempt of this recovery copies it again.
+     */
+    void clearFileRecovered(String name) {
+        recoveredFilesMetaData.remove(name);
+    }
+
+    /**
+     * The files written by this recovery so far, with the number of bytes written, so that a new attempt of
+     * this recovery can resume copying them. Completely written files have an offset equal to their length.
+     */
+    synchronized Map<String, Long> partialFileOffsets() {
+        final ConcurrentMap<String, IndexOutput> outputs = openIndexOutputs;
+        Map<String, Long> offsets = Maps.newHashMap();
+        if (outputs == null) {
+            return offsets;
+        }
+        for (StoreFileMetaData md : recoveredFilesMetaData.values()) {
+            offsets.put(md.name(), md.length());
+        }
+        for (Entry<String, IndexOutput> entry : outputs.entrySet()) {
+            synchronized (entry.getValue()) {
+                offsets.put(entry.getKey(), entry.getValue().getFilePointer());
+            }
+        }
+        return offsets;
+    }
+
+    synchronized Map<String, StoreFileMetaData> partialFiles(Set<String> names) {
+        Map<String, StoreFileMetaData> partialFiles = Maps.newHashMap();
+        for (String name : names) {
+            StoreFileMetaData md = openIndexOutputsMetaData.get(name);
+            if (md == null) {
+                md = recoveredFilesMetaData.get(name);
+            }
+            if (md != null) {
+                partialFiles.put(name, md);
+            }
+        }
+        return partialFiles;
+    }
+
+    /**
+     * A chunk that arrived ahead of the written bytes of its file. It is only acknowledged once it is written, so that
+     * the chunks kept in memory are bounded by the number of chunks the source sends concurrently.
+     */
+    static class PendingFileChunk {
+
+        final BytesReference content;
+        final TransportChannel channel;
+
+        PendingFileChunk(BytesReference content, TransportChannel channel) {
+            this.content = content;
+            this.channel = channel;
+        }
+    }
 }
@@ -24,6 +24,7 @@ import org.apache.lucene.store.AlreadyClosedException;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.IndexOutput;
 import org.apache.lucene.util.IOUtils;
+import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.StopWatch;
@@ -48,8 +49,11 @@ import org.elasticsearch.indices.IndicesService;
 import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.*;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
@@ -207,6 +211,10 @@ public class RecoveryTarget extends AbstractComponent {
         try {
             logger.trace("[{}][{}] starting recovery from {}", request.shardId().index().name(), request.shardId().id(), request.sourceNode());
 
+            // let the source resume copying the files a previous attempt of this recovery didn't complete
+            Map<String, Long> partialFileOffsets = recoveryStatus.partialFileOffsets();
+            request.partialFiles(recoveryStatus.partialFiles(partialFileOffsets.keySet()), partialFileOffsets);
+
             StopWatch stopWatch = new StopWatch().start();
             RecoveryResponse recoveryResponse = transportService.submitRequest(request.sourceNode(), RecoverySource.Actions.START_RECOVERY, request, new FutureTransportResponseHandler<RecoveryResponse>() {
                 @Override
@@ -252,17 +260,7 @@ public class RecoveryTarget extends AbstractComponent {
                 listener.onIgnoreRecovery(false, "local shard closed, stop recovery");
                 return;
             }
-            Throwable cause = ExceptionsHelper.unwrapCause(e);
-            if (cause instanceof RecoveryEngineException) {
-                // unwrap an exception that was thrown as part of the recovery
-                cause = cause.getCause();
-            }
-            // do it twice, in case we have double transport exception
-            cause = ExceptionsHelper.unwrapCause(cause);
-            if (cause instanceof RecoveryEngineException) {
-                // unwrap an exception that was thrown as part of the recovery
-                cause = cause.getCause();
-            }
+            Throwable cause = unwrapRecoveryFailure(e);
 
             // here, we would add checks against exception that need to be retried (and not removeAndClean in this case)
 
@@ -277,6 +275,20 @@ public class RecoveryTarget extends AbstractComponent {
                 return;
             }
 
+            if (recoveryStatus.stage == RecoveryStatus.Stage.INDEX && isResumableFailure(cause)
+                    && recoveryStatus.resumeAttempts < recoverySettings.maxResumeAttempts()) {
+                // the files copied so far are kept, the next attempt only copies what is missing
+                recoveryStatus.resumeAttempts++;
+                logger.debug("[{}][{}] recovery from [{}] failed while copying files, resuming in [{}], attempt [{}]", request.shardId().index().name(), request.shardId().id(), request.sourceNode(), recoverySettings.resumeDelay(), recoveryStatus.resumeAttempts);
+                threadPool.schedule(recoverySettings.resumeDelay(), ThreadPool.Names.GENERIC, new Runnable() {
+                    @Override
+                    public void run() {
+                        doRecovery(request, recoveryStatus, listener);
+                    }
+                });
+                return;
+            }
+
             // here, we check against ignore recovery options
 
             // in general, no need to clean the shard on ignored recovery, since we want to try and reuse it later
@@ -352,6 +364,7 @@ public class RecoveryTarget extends AbstractComponent {
         while (iterator.hasNext()) {
             Map.Entry<String, IndexOutput> entry = iterator.next();
             synchronized (entry.getValue()) {
+                status.failPendingFileChunks(entry.getKey());
                 IOUtils.closeWhileHandlingException(entry.getValue());
             }
             iterator.remove();
@@ -384,6 +397,9 @@ public class RecoveryTarget extends AbstractComponent {
                 throw new IndexShardClosedException(request.shardId());
             }
 
+            if (onGoingRecovery.indexStartTime > 0) {
+                onGoingRecovery.indexTime = Math.max(1, System.currentTimeMillis() - onGoingRecovery.indexStartTime);
+            }
             onGoingRecovery.stage = RecoveryStatus.Stage.TRANSLOG;
 
             onGoingRecovery.indexShard.performRecoveryPrepareForTranslog();
@@ -491,6 +507,34 @@ public class RecoveryTarget extends AbstractComponent {
             onGoingRecovery.phase1ExistingFileSizes = request.phase1ExistingFileSizes;
             onGoingRecovery.phase1TotalSize = request.phase1TotalSize;
             onGoingRecovery.phase1ExistingTotalSize = request.phase1ExistingTotalSize;
+
+            // drop the files a previous attempt of this recovery partially copied, unless the source resumes them
+            long resumedSize = 0;
+            for (String name : onGoingRecovery.partialFileOffsets().keySet()) {
+                Long offset = request.phase1ResumedFileOffsets.get(name);
+                IndexOutput indexOutput;
+                if (onGoingRecovery.isFileRecovered(name)) {
+                    if (request.phase1FileNames.contains(name)) {
+                        onGoingRecovery.clearFileRecovered(name);
+                    }
+                } else if (offset == null) {
+                    indexOutput = onGoingRecovery.removeOpenIndexOutputs(name);
+                    IOUtils.closeWhileHandlingException(indexOutput);
+                } else if ((indexOutput = onGoingRecovery.getOpenIndexOutput(name)) != null) {
+                    synchronized (indexOutput) {
+                        // these chunks were sent by the previous attempt, the source resends them
+                        Map<Long, RecoveryStatus.PendingFileChunk> pendingChunks = onGoingRecovery.pendingFileChunks(name);
+                        if (pendingChunks != null) {
+                            onGoingRecovery.failPendingFileChunks(name, pendingChunks);
+                        }
+                    }
+                    resumedSize += offset;
+                }
+            }
+            onGoingRecovery.currentFilesSize.set(resumedSize);
+            if (onGoingRecovery.indexStartTime == 0) {
+                onGoingRecovery.indexStartTime = System.currentTimeMillis();
+            }
             onGoingRecovery.stage = RecoveryStatus.Stage.INDEX;
             channel.sendResponse(TransportResponse.Empty.INSTANCE);
         }
@@ -564,6 +608,72 @@ public class RecoveryTarget extends AbstractComponent {
         }
     }
 
+    /**
+     * Unwraps the transport and recovery engine exceptions a recovery failure may be wrapped in.
+     */
+    static Throwable unwrapRecoveryFailure(Throwable e) {
+        Throwable cause = ExceptionsHelper.unwrapCause(e);
+        if (cause instanceof RecoveryEngineException) {
+            // unwrap an exception that was thrown as part of the recovery
+            cause = cause.getCause();
+        }
+        // do it twice, in case we have double transport exception
+        cause = ExceptionsHelper.unwrapCause(cause);
+        if (cause instanceof RecoveryEngineException) {
+            // unwrap an exception that was thrown as part of the recovery
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+
+    /**
+     * Returns <tt>true</tt> if copying the files can be resumed after the given (unwrapped) failure, that is if
+     * the connection between the nodes dropped or a request timed out.
+     */
+    static boolean isResumableFailure(Throwable cause) {
+        return cause instanceof ConnectTransportException || cause instanceof ReceiveTimeoutTransportException;
+    }
+
+    /**
+     * Writes the chunk of a file at the given position, along with the pending chunks that directly follow it. A
+     * chunk that arrives ahead of the written bytes is added to the pending chunks, and a chunk that was already
+     * written by a previous attempt of the recovery is ignored. The channels of the chunks that got written or
+     * ignored are added to <tt>acknowledged</tt>, the caller responds on them. Must be called while holding the
+     * lock on the output.
+     *
+     * @return the number of bytes that were written
+     */
+    static long writeFileChunk(IndexOutput indexOutput, Map<Long, RecoveryStatus.PendingFileChunk> pendingChunks, long position,
+                               BytesReference content, TransportChannel channel, List<TransportChannel> acknowledged) throws IOException {
+        if (position > indexOutput.getFilePointer()) {
+            // not acknowledged until written, otherwise the source would send more chunks while this one waits
+            RecoveryStatus.PendingFileChunk previous = pendingChunks.put(position, new RecoveryStatus.PendingFileChunk(content.copyBytesArray(), channel));
+            if (previous != null) {
+                // sent again by a new attempt of the recovery
+                acknowledged.add(previous.channel);
+            }
+            return 0;
+        }
+        acknowledged.add(channel);
+        if (position < indexOutput.getFilePointer()) {
+            return 0;
+        }
+        long written = 0;
+        while (true) {
+            if (!content.hasArray()) {
+                content = content.toBytesArray();
+            }
+            indexOutput.writeBytes(content.array(), content.arrayOffset(), content.length());
+            written += content.length();
+            RecoveryStatus.PendingFileChunk next = pendingChunks.remove(indexOutput.getFilePointer());
+            if (next == null) {
+                return written;
+            }
+            content = next.content;
+            acknowledged.add(next.channel);
+        }
+    }
+
     class FileChunkTransportRequestHandler extends BaseTransportRequestHandler<RecoveryFileChunkRequest> {
 
 
@@ -591,44 +701,34 @@ public class RecoveryTarget extends AbstractComponent {
 
             Store store = onGoingRecovery.indexShard.store();
 
-            IndexOutput indexOutput;
-            if (request.position() == 0) {
-                // first request
-                onGoingRecovery.checksums.remove(request.name());
-                indexOutput = onGoingRecovery.removeOpenIndexOutputs(request.name());
-                IOUtils.closeWhileHandlingException(indexOutput);
-                // we create an output with no checksum, this is because the pure binary data of the file is not
-                // the checksum (because of seek). We will create the checksum file once copying is done
-
-                // also, we check if the file already exists, if it does, we create a file name based
-                // on the current recovery "id" and later we make the switch, the reason for that is that
-                // we only want to overwrite the index files once we copied all over, and not create a
-                // case where the index is half moved
-
-                String fileName = request.name();
-                if (store.directory().fileExists(fileName)) {
-                    fileName = "recovery." + onGoingRecovery.startTime + "." + fileName;
-                }
-                indexOutput = onGoingRecovery.openAndPutIndexOutput(request.name(), fileName, store);
-            } else {
-                indexOutput = onGoingRecovery.getOpenIndexOutput(request.name());
+            if (onGoingRecovery.isFileRecovered(request.name())) {
+                // a chunk sent by a previous attempt of this recovery for a file that is already written
+                channel.sendResponse(TransportResponse.Empty.INSTANCE);
+                return;
             }
+            IndexOutput indexOutput = onGoingRecovery.getOrOpenIndexOutput(request.name(), request.length(), request.checksum(), store);
             if (indexOutput == null) {
                 // shard is getting closed on us
                 throw new IndexShardClosedException(request.shardId());
             }
+            final List<TransportChannel> acknowledged = new ArrayList<TransportChannel>();
             boolean success = false;
             synchronized (indexOutput) {
                 try {
                     if (recoverySettings.rateLimiter() != null) {
                         recoverySettings.rateLimiter().pause(request.content().length());
                     }
-                    BytesReference content = request.content();
-                    if (!content.hasArray()) {
-                        content = content.toBytesArray();
+                    // several chunks of a file are in flight, they are written in order, the ones that arrive ahead
+                    // are kept until the chunks they follow are written
+                    Map<Long, RecoveryStatus.PendingFileChunk> pendingChunks = onGoingRecovery.pendingFileChunks(request.name());
+                    if (pendingChunks == null) {
+                        // the output got removed on us
+                        throw new IndexShardClosedException(request.shardId());
                     }
-                    indexOutput.writeBytes(content.array(), content.arrayOffset(), content.length());
-                    onGoingRecovery.currentFilesSize.addAndGet(request.length());
+                    long written = writeFileChunk(indexOutput, pendingChunks, request.position(), request.content(), channel, acknowledged);
+                    onGoingRecovery.currentFilesSize.addAndGet(written);
+                    onGoingRecovery.transferredFilesSize.addAndGet(written);
+
                     if (indexOutput.getFilePointer() == request.length()) {
                         // we are done
                         indexOutput.close();
@@ -637,6 +737,7 @@ public class RecoveryTarget extends AbstractComponent {
                             onGoingRecovery.checksums.put(request.name(), request.checksum());
                         }
                         store.directory().sync(Collections.singleton(request.name()));
+                        onGoingRecovery.fileRecovered(request.name());
                         IndexOutput remove = onGoingRecovery.removeOpenIndexOutputs(request.name());
                         assert remove == indexOutput;
 
@@ -648,13 +749,36 @@ public class RecoveryTarget extends AbstractComponent {
                         assert remove == indexOutput;
                         IOUtils.closeWhileHandlingException(indexOutput);
                     }
+                    if (!success) {
+                        // the chunks that were written along with this one are lost as well
+                        failFileChunks(acknowledged, channel, new ElasticsearchException("failed to write chunk of file [" + request.name() + "]"));
+                    }
                 }
             }
             if (onGoingRecovery.isCanceled()) {
                 onGoingRecovery.sentCanceledToSource = true;
-                throw new IndexShardClosedException(request.shardId());
+                IndexShardClosedException e = new IndexShardClosedException(request.shardId());
+                failFileChunks(acknowledged, channel, e);
+                throw e;
+            }
+            for (TransportChannel ackChannel : acknowledged) {
+                ackChannel.sendResponse(TransportResponse.Empty.INSTANCE);
+            }
+        }
+
+        /**
+         * Fails the chunks that were held until written, the failure of the current request is thrown to its channel.
+         */
+        private void failFileChunks(List<TransportChannel> acknowledged, TransportChannel current, Throwable failure) {
+            for (TransportChannel ackChannel : acknowledged) {
+                if (ackChannel != current) {
+                    try {
+                        ackChannel.sendResponse(failure);
+                    } catch (IOException e) {
+                        logger.debug("failed to send failure for a file chunk", e);
+                    }
+                }
             }
-            channel.sendResponse(TransportResponse.Empty.INSTANCE);
         }
     }
 }
@@ -0,0 +1,63 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.indices.recovery;
+
+import org.apache.lucene.util.IOUtils;
+import org.elasticsearch.common.lease.Releasable;
+
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The file channel the chunks of a file are sent from during a recovery. It is closed once its creator and every
+ * transport write of a region of the file that was still pending released it.
+ */
+class SharedFileChannel implements Releasable {
+
+    private final FileChannel channel;
+
+    private final AtomicInteger refCount = new AtomicInteger(1);
+
+    SharedFileChannel(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    FileChannel channel() {
+        return channel;
+    }
+
+    /**
+     * Acquires a reference on the file channel, only to be called while already holding one.
+     */
+    SharedFileChannel retain() {
+        int count = refCount.incrementAndGet();
+        assert count > 1 : "the file channel is already closed";
+        return this;
+    }
+
+    @Override
+    public boolean release() {
+        if (refCount.decrementAndGet() == 0) {
+            IOUtils.closeWhileHandlingException(channel);
+            return true;
+        }
+        return false;
+    }
+}
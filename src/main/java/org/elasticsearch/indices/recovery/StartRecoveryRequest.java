@@ -19,7 +19,9 @@
 
 package org.elasticsearch.indices.recovery;
 
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
+import org.elasticsearch.Version;
 import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
@@ -50,6 +52,10 @@ public class StartRecoveryRequest extends TransportRequest {
 
     private Map<String, StoreFileMetaData> existingFiles;
 
+    private Map<String, StoreFileMetaData> partialFiles = ImmutableMap.of();
+
+    private Map<String, Long> partialFileOffsets = ImmutableMap.of();
+
     StartRecoveryRequest() {
     }
 
@@ -95,6 +101,26 @@ public class StartRecoveryRequest extends TransportRequest {
         return existingFiles;
     }
 
+    /**
+     * The files that were partially copied by a previous attempt of this recovery, the source can resume
+     * copying them from {@link #partialFileOffsets()} if its own copy is the same.
+     */
+    public Map<String, StoreFileMetaData> partialFiles() {
+        return partialFiles;
+    }
+
+    /**
+     * The number of bytes already written on the target for each of the {@link #partialFiles()}.
+     */
+    public Map<String, Long> partialFileOffsets() {
+        return partialFileOffsets;
+    }
+
+    void partialFiles(Map<String, StoreFileMetaData> partialFiles, Map<String, Long> partialFileOffsets) {
+        this.partialFiles = partialFiles;
+        this.partialFileOffsets = partialFileOffsets;
+    }
+
     @Override
     public void readFrom(StreamInput in) throws IOException {
         super.readFrom(in);
@@ -109,6 +135,16 @@ public class StartRecoveryRequest extends TransportRequest {
             StoreFileMetaData md = StoreFileMetaData.readStoreFileMetaData(in);
             existingFiles.put(md.name(), md);
         }
+        if (in.getVersion().onOrAfter(Version.V_2_0_0)) {
+            size = in.readVInt();
+            partialFiles = Maps.newHashMapWithExpectedSize(size);
+            partialFileOffsets = Maps.newHashMapWithExpectedSize(size);
+            for (int i = 0; i < size; i++) {
+                StoreFileMetaData md = StoreFileMetaData.readStoreFileMetaData(in);
+                partialFiles.put(md.name(), md);
+                partialFileOffsets.put(md.name(), in.readVLong());
+            }
+        }
     }
 
     @Override
@@ -123,5 +159,12 @@ public class StartRecoveryRequest extends TransportRequest {
         for (StoreFileMetaData md : existingFiles.values()) {
             md.writeTo(out);
         }
+        if (out.getVersion().onOrAfter(Version.V_2_0_0)) {
+            out.writeVInt(partialFiles.size());
+            for (StoreFileMetaData md : partialFiles.values()) {
+                md.writeTo(out);
+                out.writeVLong(partialFileOffsets.get(md.name()));
+            }
+        }
     }
 }
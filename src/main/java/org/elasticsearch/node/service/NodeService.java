@@ -25,6 +25,8 @@ import org.elasticsearch.Version;
 import org.elasticsearch.action.admin.cluster.node.info.NodeInfo;
 import org.elasticsearch.action.admin.cluster.node.stats.NodeStats;
 import org.elasticsearch.action.admin.indices.stats.CommonStatsFlags;
+import org.elasticsearch.cluster.ClusterService;
+import org.elasticsearch.cluster.routing.operation.ResponseCollectorService;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.collect.MapBuilder;
 import org.elasticsearch.common.component.AbstractComponent;
@@ -49,6 +51,7 @@ public class NodeService extends AbstractComponent {
     private final IndicesService indicesService;
     private final PluginsService pluginService;
     private final CircuitBreakerService circuitBreakerService;
+    private final ResponseCollectorService responseCollectorService;
     @Nullable
     private HttpServer httpServer;
 
@@ -58,10 +61,13 @@ public class NodeService extends AbstractComponent {
 
     private final Discovery disovery;
 
+    private final ClusterService clusterService;
+
     @Inject
     public NodeService(Settings settings, ThreadPool threadPool, MonitorService monitorService, Discovery discovery,
                        TransportService transportService, IndicesService indicesService,
-                       PluginsService pluginService, CircuitBreakerService circuitBreakerService, Version version) {
+                       PluginsService pluginService, CircuitBreakerService circuitBreakerService, ResponseCollectorService responseCollectorService,
+                       ClusterService clusterService, Version version) {
         super(settings);
         this.threadPool = threadPool;
         this.monitorService = monitorService;
@@ -72,6 +78,8 @@ public class NodeService extends AbstractComponent {
         this.version = version;
         this.pluginService = pluginService;
         this.circuitBreakerService = circuitBreakerService;
+        this.responseCollectorService = responseCollectorService;
+        this.clusterService = clusterService;
     }
 
     public void setHttpServer(@Nullable HttpServer httpServer) {
@@ -145,12 +153,16 @@ public class NodeService extends AbstractComponent {
                 monitorService.fsService().stats(),
                 transportService.stats(),
                 httpServer == null ? null : httpServer.stats(),
-                circuitBreakerService.stats()
+                circuitBreakerService.stats(),
+                responseCollectorService.stats(),
+                disovery.stats(),
+                clusterService.stats()
         );
     }
 
     public NodeStats stats(CommonStatsFlags indices, boolean os, boolean process, boolean jvm, boolean threadPool, boolean network,
-                           boolean fs, boolean transport, boolean http, boolean circuitBreaker) {
+                           boolean fs, boolean transport, boolean http, boolean circuitBreaker, boolean adaptiveSelection,
+                           boolean discovery, boolean clusterService) {
         // for indices stats we want to include previous allocated shards stats as well (it will
         // only be applied to the sensible ones to use, like refresh/merge/flush/indexing stats)
         return new NodeStats(disovery.localNode(), System.currentTimeMillis(),
@@ -163,7 +175,10 @@ public class NodeService extends AbstractComponent {
                 fs ? monitorService.fsService().stats() : null,
                 transport ? transportService.stats() : null,
                 http ? (httpServer == null ? null : httpServer.stats()) : null,
-                circuitBreaker ? circuitBreakerService.stats() : null
+                circuitBreaker ? circuitBreakerService.stats() : null,
+                adaptiveSelection ? responseCollectorService.stats() : null,
+                discovery ? disovery.stats() : null,
+                clusterService ? this.clusterService.stats() : null
         );
     }
 }
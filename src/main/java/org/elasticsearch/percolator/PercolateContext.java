@@ -22,6 +22,7 @@ import com.google.common.collect.ImmutableList;
 import org.apache.lucene.index.AtomicReaderContext;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.search.FieldDoc;
 import org.apache.lucene.search.Filter;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
@@ -32,6 +33,7 @@ import org.elasticsearch.action.search.SearchType;
 import org.elasticsearch.cache.recycler.CacheRecycler;
 import org.elasticsearch.cache.recycler.PageCacheRecycler;
 import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.lease.Releasables;
 import org.elasticsearch.common.lucene.HashedBytesRef;
 import org.elasticsearch.common.text.StringText;
 import org.elasticsearch.index.analysis.AnalysisService;
@@ -72,10 +74,11 @@ import org.elasticsearch.search.rescore.RescoreSearchContext;
 import org.elasticsearch.search.scan.ScanContext;
 import org.elasticsearch.search.suggest.SuggestionSearchContext;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentMap;
 
 /**
  */
@@ -95,7 +98,7 @@ public class PercolateContext extends SearchContext {
     private final CacheRecycler cacheRecycler;
     private final PageCacheRecycler pageCacheRecycler;
     private final ScriptService scriptService;
-    private final ConcurrentMap<HashedBytesRef, Query> percolateQueries;
+    private Map<HashedBytesRef, Query> percolateQueries;
     private String[] types;
 
     private Engine.Searcher docSearcher;
@@ -113,6 +116,7 @@ public class PercolateContext extends SearchContext {
     private SearchContextAggregations aggregations;
     private QuerySearchResult querySearchResult;
     private Sort sort;
+    private List<Releasable> clearables;
 
     public PercolateContext(PercolateShardRequest request, SearchShardTarget searchShardTarget, IndexShard indexShard,
                             IndexService indexService, CacheRecycler cacheRecycler, PageCacheRecycler pageCacheRecycler,
@@ -140,6 +144,12 @@ public class PercolateContext extends SearchContext {
         this.docSearcher = docSearcher;
 
         IndexReader indexReader = docSearcher.reader();
+        try {
+            // only keep the queries that can possibly match the document
+            percolateQueries = indexShard.percolateRegistry().candidateQueries(indexReader);
+        } catch (IOException e) {
+            throw new ElasticsearchException("failed to compute the candidate queries", e);
+        }
         AtomicReaderContext atomicReaderContext = indexReader.leaves().get(0);
         lookup().setNextReader(atomicReaderContext);
         lookup().setNextDocId(0);
@@ -163,7 +173,7 @@ public class PercolateContext extends SearchContext {
         return indexService;
     }
 
-    public ConcurrentMap<HashedBytesRef, Query> percolateQueries() {
+    public Map<HashedBytesRef, Query> percolateQueries() {
         return percolateQueries;
     }
 
@@ -208,6 +218,7 @@ public class PercolateContext extends SearchContext {
     @Override
     public boolean release() throws ElasticsearchException {
         try {
+            clearReleasables();
             if (docSearcher != null) {
                 IndexReader indexReader = docSearcher.reader();
                 fieldDataService.clear(indexReader);
@@ -531,6 +542,26 @@ public class PercolateContext extends SearchContext {
         return trackScores;
     }
 
+    @Override
+    public SearchContext searchAfter(FieldDoc searchAfter) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public FieldDoc searchAfter() {
+        return null;
+    }
+
+    @Override
+    public SearchContext maxConcurrentSegmentSearches(int maxConcurrentSegmentSearches) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int maxConcurrentSegmentSearches() {
+        return 1;
+    }
+
     @Override
     public SearchContext parsedPostFilter(ParsedFilter postFilter) {
         throw new UnsupportedOperationException();
@@ -667,13 +698,19 @@ public class PercolateContext extends SearchContext {
     }
 
     @Override
-    public void addReleasable(Releasable releasable) {
-        throw new UnsupportedOperationException();
+    public synchronized void addReleasable(Releasable releasable) {
+        if (clearables == null) {
+            clearables = new ArrayList<Releasable>();
+        }
+        clearables.add(releasable);
     }
 
     @Override
-    public void clearReleasables() {
-        throw new UnsupportedOperationException();
+    public synchronized void clearReleasables() {
+        if (clearables != null) {
+            Releasables.release(clearables);
+            clearables.clear();
+        }
     }
 
     @Override
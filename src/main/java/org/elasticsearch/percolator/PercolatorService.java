@@ -22,9 +22,15 @@ import com.carrotsearch.hppc.ByteObjectOpenHashMap;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.MultiReader;
 import org.apache.lucene.index.ReaderUtil;
+import org.apache.lucene.index.SlowCompositeReaderWrapper;
+import org.apache.lucene.queries.CommonTermsQuery;
+import org.apache.lucene.sandbox.queries.FuzzyLikeThisQuery;
 import org.apache.lucene.search.*;
 import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.FixedBitSet;
 import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.ElasticsearchIllegalArgumentException;
 import org.elasticsearch.ElasticsearchParseException;
@@ -40,9 +46,12 @@ import org.elasticsearch.common.component.AbstractComponent;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.lucene.HashedBytesRef;
-import org.elasticsearch.common.lucene.Lucene;
 import org.elasticsearch.common.lucene.search.XCollector;
+import org.elasticsearch.common.lucene.search.MoreLikeThisQuery;
 import org.elasticsearch.common.lucene.search.XConstantScoreQuery;
+import org.elasticsearch.common.lucene.search.XFilteredQuery;
+import org.elasticsearch.common.lucene.search.function.FiltersFunctionScoreQuery;
+import org.elasticsearch.common.lucene.search.function.FunctionScoreQuery;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.text.BytesText;
 import org.elasticsearch.common.text.StringText;
@@ -82,6 +91,7 @@ import org.elasticsearch.search.highlight.HighlightPhase;
 import org.elasticsearch.search.highlight.SearchContextHighlight;
 import org.elasticsearch.search.internal.SearchContext;
 import org.elasticsearch.search.sort.SortParseElement;
+import org.elasticsearch.threadpool.ThreadPool;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -105,7 +115,8 @@ public class PercolatorService extends AbstractComponent {
     private final ClusterService clusterService;
 
     private final PercolatorIndex single;
-    private final PercolatorIndex multi;
+    private final MultiDocumentPercolatorIndex multi;
+    private final QueryMatcher queryMatcher;
 
     private final FacetPhase facetPhase;
     private final HighlightPhase highlightPhase;
@@ -116,7 +127,7 @@ public class PercolatorService extends AbstractComponent {
     @Inject
     public PercolatorService(Settings settings, IndicesService indicesService, CacheRecycler cacheRecycler, PageCacheRecycler pageCacheRecycler,
                              HighlightPhase highlightPhase, ClusterService clusterService, FacetPhase facetPhase,
-                             AggregationPhase aggregationPhase, ScriptService scriptService) {
+                             AggregationPhase aggregationPhase, ScriptService scriptService, ThreadPool threadPool) {
         super(settings);
         this.indicesService = indicesService;
         this.cacheRecycler = cacheRecycler;
@@ -130,6 +141,7 @@ public class PercolatorService extends AbstractComponent {
 
         single = new SingleDocumentPercolatorIndex(settings);
         multi = new MultiDocumentPercolatorIndex();
+        queryMatcher = new QueryMatcher(settings, threadPool, highlightPhase);
 
         percolatorTypes = new ByteObjectOpenHashMap<PercolatorType>(6);
         percolatorTypes.put(countPercolator.id(), countPercolator);
@@ -159,33 +171,11 @@ public class PercolatorService extends AbstractComponent {
                 request, searchShardTarget, indexShard, percolateIndexService, cacheRecycler, pageCacheRecycler, scriptService
         );
         try {
-            ParsedDocument parsedDocument = parseRequest(percolateIndexService, request, context);
-            if (context.percolateQueries().isEmpty()) {
+            ParsedDocument parsedDocument = prepareRequest(percolateIndexService, request, context);
+            if (parsedDocument == null) {
                 return new PercolateShardResponse(context, request.index(), request.shardId());
             }
 
-            if (request.docSource() != null && request.docSource().length() != 0) {
-                parsedDocument = parseFetchedDoc(context, request.docSource(), percolateIndexService, request.documentType());
-            } else if (parsedDocument == null) {
-                throw new ElasticsearchIllegalArgumentException("Nothing to percolate");
-            }
-
-            if (context.percolateQuery() == null && (context.trackScores() || context.doSort || context.facets() != null || context.aggregations() != null)) {
-                context.percolateQuery(new MatchAllDocsQuery());
-            }
-
-            if (context.doSort && !context.limit) {
-                throw new ElasticsearchIllegalArgumentException("Can't sort if size isn't specified");
-            }
-
-            if (context.highlight() != null && !context.limit) {
-                throw new ElasticsearchIllegalArgumentException("Can't highlight if size isn't specified");
-            }
-
-            if (context.size < 0) {
-                context.size = 0;
-            }
-
             // parse the source either into one MemoryIndex, if it is a single document or index multiple docs if nested
             PercolatorIndex percolatorIndex;
             if (indexShard.mapperService().documentMapper(request.documentType()).hasNestedObjects()) {
@@ -211,13 +201,282 @@ public class PercolatorService extends AbstractComponent {
             percolatorIndex.prepare(context, parsedDocument);
 
             indexShard.readAllowed();
-            return action.doPercolate(request, context);
+            PercolateShardResponse response = action.doPercolate(request, context);
+            shardPercolateService.postQueries(context.percolateQueries().size(), response.count());
+            return response;
         } finally {
             context.release();
             shardPercolateService.postPercolate(System.nanoTime() - startTime);
         }
     }
 
+    /**
+     * Parses the request and validates the percolate options, returns the document to percolate or <tt>null</tt> if there
+     * are no registered queries to percolate it against.
+     */
+    private ParsedDocument prepareRequest(IndexService percolateIndexService, PercolateShardRequest request, PercolateContext context) {
+        ParsedDocument parsedDocument = parseRequest(percolateIndexService, request, context);
+        if (context.percolateQueries().isEmpty()) {
+            return null;
+        }
+
+        if (request.docSource() != null && request.docSource().length() != 0) {
+            parsedDocument = parseFetchedDoc(context, request.docSource(), percolateIndexService, request.documentType());
+        } else if (parsedDocument == null) {
+            throw new ElasticsearchIllegalArgumentException("Nothing to percolate");
+        }
+
+        if (context.percolateQuery() == null && (context.trackScores() || context.doSort || context.facets() != null || context.aggregations() != null)) {
+            context.percolateQuery(new MatchAllDocsQuery());
+        }
+
+        if (context.doSort && !context.limit) {
+            throw new ElasticsearchIllegalArgumentException("Can't sort if size isn't specified");
+        }
+
+        if (context.highlight() != null && !context.limit) {
+            throw new ElasticsearchIllegalArgumentException("Can't highlight if size isn't specified");
+        }
+
+        if (context.size < 0) {
+            context.size = 0;
+        }
+        return parsedDocument;
+    }
+
+    /**
+     * Percolates several documents against the queries of the same shard. The documents that are only matched against
+     * the registered queries (no query, filter, highlighting, facets or aggregations and no nested objects) are indexed
+     * together in a single in-memory index, so that each candidate query is executed once for all of them, except for the
+     * queries that depend on the term statistics of the index which are executed against each document on its own. The
+     * other documents are percolated one by one.
+     * <p/>
+     * For each request, either the response or the failure is set at the same index in the given arrays.
+     */
+    public void percolate(List<PercolateShardRequest> requests, PercolateShardResponse[] responses, Throwable[] failures) {
+        final List<Integer> batchSlots = new ArrayList<Integer>(requests.size());
+        final List<PercolateShardRequest> batchRequests = new ArrayList<PercolateShardRequest>(requests.size());
+        final List<PercolateContext> batchContexts = new ArrayList<PercolateContext>(requests.size());
+        final List<ParsedDocument> batchDocuments = new ArrayList<ParsedDocument>(requests.size());
+        final List<Long> batchStartTimes = new ArrayList<Long>(requests.size());
+        IndexShard batchShard = null;
+        try {
+            for (int i = 0; i < requests.size(); i++) {
+                final PercolateShardRequest request = requests.get(i);
+                final long startTime = System.nanoTime();
+                PercolateContext context = null;
+                boolean batched = false;
+                try {
+                    IndexService percolateIndexService = indicesService.indexServiceSafe(request.index());
+                    IndexShard indexShard = percolateIndexService.shardSafe(request.shardId());
+                    SearchShardTarget searchShardTarget = new SearchShardTarget(clusterService.localNode().id(), request.index(), request.shardId());
+                    context = new PercolateContext(
+                            request, searchShardTarget, indexShard, percolateIndexService, cacheRecycler, pageCacheRecycler, scriptService
+                    );
+                    ParsedDocument parsedDocument = prepareRequest(percolateIndexService, request, context);
+                    if (parsedDocument != null && context.percolateQuery() == null && context.highlight() == null
+                            && !indexShard.mapperService().documentMapper(request.documentType()).hasNestedObjects()
+                            && (batchShard == null || batchShard == indexShard)) {
+                        indexShard.shardPercolateService().prePercolate();
+                        context.percolatorTypeId = request.onlyCount() ? countPercolator.id() : matchPercolator.id();
+                        batchShard = indexShard;
+                        batchSlots.add(i);
+                        batchRequests.add(request);
+                        batchContexts.add(context);
+                        batchDocuments.add(parsedDocument);
+                        batchStartTimes.add(startTime);
+                        batched = true;
+                    }
+                } catch (Throwable t) {
+                    // the regular percolate path reports the failure
+                } finally {
+                    if (!batched && context != null) {
+                        context.release();
+                    }
+                }
+
+                if (!batched) {
+                    try {
+                        responses[i] = percolate(request);
+                    } catch (Throwable t) {
+                        failures[i] = t;
+                    }
+                }
+            }
+
+            if (!batchContexts.isEmpty()) {
+                try {
+                    final PercolateShardResponse[] batchResponses = percolateBatch(batchShard, batchRequests, batchContexts, batchDocuments);
+                    for (int i = 0; i < batchSlots.size(); i++) {
+                        responses[batchSlots.get(i)] = batchResponses[i];
+                    }
+                } catch (Throwable t) {
+                    for (int slot : batchSlots) {
+                        failures[slot] = t;
+                    }
+                }
+            }
+        } finally {
+            for (int i = 0; i < batchContexts.size(); i++) {
+                batchContexts.get(i).release();
+                batchShard.shardPercolateService().postPercolate(System.nanoTime() - batchStartTimes.get(i));
+            }
+        }
+    }
+
+    private PercolateShardResponse[] percolateBatch(IndexShard indexShard, List<PercolateShardRequest> requests, List<PercolateContext> contexts, List<ParsedDocument> documents) throws IOException {
+        // one single document in-memory index per percolated document, exposed as a single segment: the doc id of a
+        // document is its position in the batch
+        final IndexReader[] memoryIndices = new IndexReader[documents.size()];
+        for (int i = 0; i < documents.size(); i++) {
+            final ParsedDocument document = documents.get(i);
+            memoryIndices[i] = multi.indexDoc(document.rootDoc(), document.analyzer()).createSearcher().getIndexReader();
+        }
+        final IndexReader reader = SlowCompositeReaderWrapper.wrap(new MultiReader(memoryIndices, true));
+        try {
+            final IndexSearcher searcher = new IndexSearcher(reader);
+            final Map<HashedBytesRef, Query> candidates = indexShard.percolateRegistry().candidateQueries(reader);
+
+            final long[] counts = new long[contexts.size()];
+            final List<List<BytesRef>> matches = new ArrayList<List<BytesRef>>(contexts.size());
+            for (int i = 0; i < contexts.size(); i++) {
+                matches.add(new ArrayList<BytesRef>());
+            }
+            indexShard.readAllowed();
+            final BatchCollector collector = new BatchCollector(reader.maxDoc());
+            IndexSearcher[] documentSearchers = null;
+            for (Map.Entry<HashedBytesRef, Query> entry : candidates.entrySet()) {
+                collector.reset();
+                try {
+                    final Query query = entry.getValue();
+                    if (dependsOnCollectionStatistics(query)) {
+                        // the other documents of the batch would skew the statistics, so the query is executed against
+                        // each document on its own, as if it was percolated alone
+                        if (documentSearchers == null) {
+                            documentSearchers = new IndexSearcher[memoryIndices.length];
+                            for (int i = 0; i < memoryIndices.length; i++) {
+                                documentSearchers[i] = new IndexSearcher(memoryIndices[i]);
+                            }
+                        }
+                        for (int i = 0; i < documentSearchers.length; i++) {
+                            collector.docOffset = i;
+                            documentSearchers[i].search(query, collector);
+                        }
+                    } else {
+                        collector.docOffset = 0;
+                        searcher.search(query, collector);
+                    }
+                } catch (Throwable e) {
+                    logger.warn("[" + entry.getKey() + "] failed to execute query", e);
+                    continue;
+                }
+                for (int doc = collector.docs.nextSetBit(0); doc != -1; doc = collector.docs.nextSetBit(doc + 1)) {
+                    final PercolateContext context = contexts.get(doc);
+                    if (!context.limit || counts[doc] < context.size) {
+                        matches.get(doc).add(entry.getKey().bytes);
+                    }
+                    counts[doc]++;
+                }
+            }
+
+            final PercolateShardResponse[] responses = new PercolateShardResponse[contexts.size()];
+            for (int i = 0; i < contexts.size(); i++) {
+                final PercolateContext context = contexts.get(i);
+                final PercolateShardRequest request = requests.get(i);
+                if (request.onlyCount()) {
+                    responses[i] = new PercolateShardResponse(counts[i], context, request.index(), request.shardId());
+                } else {
+                    final List<BytesRef> docMatches = matches.get(i);
+                    responses[i] = new PercolateShardResponse(docMatches.toArray(new BytesRef[docMatches.size()]),
+                            new ArrayList<Map<String, HighlightField>>(), counts[i], context, request.index(), request.shardId());
+                }
+                indexShard.shardPercolateService().postQueries(candidates.size(), counts[i]);
+            }
+            return responses;
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Returns <tt>true</tt> if which documents the given query matches depends on the term statistics of the index it
+     * is executed against, like the common terms query (or a match query with a cutoff frequency) that turns frequent
+     * terms into optional ones or the more like this queries that pick terms by document frequency. Multi term queries
+     * that only expand to their top terms, like the fuzzy query, also depend on the other documents of a batch since
+     * their expansions are picked across all of them.
+     */
+    static boolean dependsOnCollectionStatistics(Query query) {
+        if (query instanceof CommonTermsQuery || query instanceof MoreLikeThisQuery || query instanceof FuzzyLikeThisQuery) {
+            return true;
+        }
+        if (query instanceof MultiTermQuery) {
+            return ((MultiTermQuery) query).getRewriteMethod() instanceof TopTermsRewrite;
+        } else if (query instanceof BooleanQuery) {
+            for (BooleanClause clause : ((BooleanQuery) query).clauses()) {
+                if (dependsOnCollectionStatistics(clause.getQuery())) {
+                    return true;
+                }
+            }
+        } else if (query instanceof DisjunctionMaxQuery) {
+            for (Query disjunct : ((DisjunctionMaxQuery) query).getDisjuncts()) {
+                if (dependsOnCollectionStatistics(disjunct)) {
+                    return true;
+                }
+            }
+        } else if (query instanceof XFilteredQuery) {
+            return dependsOnCollectionStatistics(((XFilteredQuery) query).getQuery());
+        } else if (query instanceof FilteredQuery) {
+            return dependsOnCollectionStatistics(((FilteredQuery) query).getQuery());
+        } else if (query instanceof ConstantScoreQuery) {
+            // wraps either a query or a filter
+            Query wrapped = ((ConstantScoreQuery) query).getQuery();
+            return wrapped != null && dependsOnCollectionStatistics(wrapped);
+        } else if (query instanceof FunctionScoreQuery) {
+            return dependsOnCollectionStatistics(((FunctionScoreQuery) query).getSubQuery());
+        } else if (query instanceof FiltersFunctionScoreQuery) {
+            return dependsOnCollectionStatistics(((FiltersFunctionScoreQuery) query).getSubQuery());
+        }
+        return false;
+    }
+
+    /**
+     * Collects the doc ids of the documents of a batch that match a query.
+     */
+    private static class BatchCollector extends Collector {
+
+        final FixedBitSet docs;
+        // the doc id of the first document of the reader that is searched within the batch
+        int docOffset;
+        private int docBase;
+
+        BatchCollector(int numDocs) {
+            this.docs = new FixedBitSet(numDocs);
+        }
+
+        void reset() {
+            docs.clear(0, docs.length());
+        }
+
+        @Override
+        public void setScorer(Scorer scorer) throws IOException {
+        }
+
+        @Override
+        public void collect(int doc) throws IOException {
+            docs.set(docOffset + docBase + doc);
+        }
+
+        @Override
+        public void setNextReader(AtomicReaderContext context) throws IOException {
+            docBase = context.docBase;
+        }
+
+        @Override
+        public boolean acceptsDocsOutOfOrder() {
+            return true;
+        }
+    }
+
     private ParsedDocument parseRequest(IndexService documentIndexService, PercolateShardRequest request, PercolateContext context) throws ElasticsearchException {
         BytesReference source = request.source();
         if (source == null || source.length() == 0) {
@@ -429,20 +688,7 @@ public class PercolatorService extends AbstractComponent {
 
         @Override
         public PercolateShardResponse doPercolate(PercolateShardRequest request, PercolateContext context) {
-            long count = 0;
-            Lucene.ExistsCollector collector = new Lucene.ExistsCollector();
-            for (Map.Entry<HashedBytesRef, Query> entry : context.percolateQueries().entrySet()) {
-                collector.reset();
-                try {
-                    context.docSearcher().search(entry.getValue(), collector);
-                } catch (IOException e) {
-                    logger.warn("[" + entry.getKey() + "] failed to execute query", e);
-                }
-
-                if (collector.exists()) {
-                    count++;
-                }
-            }
+            long count = queryMatcher.match(context, false).count;
             return new PercolateShardResponse(count, context, request.index(), request.shardId());
         }
 
@@ -519,37 +765,9 @@ public class PercolatorService extends AbstractComponent {
 
         @Override
         public PercolateShardResponse doPercolate(PercolateShardRequest request, PercolateContext context) {
-            long count = 0;
-            List<BytesRef> matches = new ArrayList<BytesRef>();
-            List<Map<String, HighlightField>> hls = new ArrayList<Map<String, HighlightField>>();
-            Lucene.ExistsCollector collector = new Lucene.ExistsCollector();
-
-            for (Map.Entry<HashedBytesRef, Query> entry : context.percolateQueries().entrySet()) {
-                collector.reset();
-                if (context.highlight() != null) {
-                    context.parsedQuery(new ParsedQuery(entry.getValue(), ImmutableMap.<String, Filter>of()));
-                    context.hitContext().cache().clear();
-                }
-                try {
-                    context.docSearcher().search(entry.getValue(), collector);
-                } catch (Throwable e) {
-                    logger.warn("[" + entry.getKey() + "] failed to execute query", e);
-                }
-
-                if (collector.exists()) {
-                    if (!context.limit || count < context.size) {
-                        matches.add(entry.getKey().bytes);
-                        if (context.highlight() != null) {
-                            highlightPhase.hitExecute(context, context.hitContext());
-                            hls.add(context.hitContext().hit().getHighlightFields());
-                        }
-                    }
-                    count++;
-                }
-            }
-
-            BytesRef[] finalMatches = matches.toArray(new BytesRef[matches.size()]);
-            return new PercolateShardResponse(finalMatches, hls, count, context, request.index(), request.shardId());
+            QueryMatcher.Matches matches = queryMatcher.match(context, true);
+            BytesRef[] finalMatches = matches.matches.toArray(new BytesRef[matches.matches.size()]);
+            return new PercolateShardResponse(finalMatches, matches.hls, matches.count, context, request.index(), request.shardId());
         }
     };
 
@@ -0,0 +1,173 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.percolator;
+
+import com.google.common.collect.ImmutableMap;
+import org.apache.lucene.search.Filter;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.component.AbstractComponent;
+import org.elasticsearch.common.lucene.HashedBytesRef;
+import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.index.query.ParsedQuery;
+import org.elasticsearch.search.highlight.HighlightField;
+import org.elasticsearch.search.highlight.HighlightPhase;
+import org.elasticsearch.threadpool.ThreadPool;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the percolator queries of a request against the in-memory index of the percolated document. When there are
+ * enough queries, they are split into partitions that are evaluated concurrently on the percolate thread pool, the
+ * calling thread evaluating partitions as well, and the partial results are merged in partition order.
+ */
+class QueryMatcher extends AbstractComponent {
+
+    private final ThreadPool threadPool;
+    private final HighlightPhase highlightPhase;
+    private final int concurrency;
+    private final int concurrencyMinQueries;
+
+    QueryMatcher(Settings settings, ThreadPool threadPool, HighlightPhase highlightPhase) {
+        super(settings);
+        this.threadPool = threadPool;
+        this.highlightPhase = highlightPhase;
+        this.concurrency = settings.getAsInt("percolator.concurrency", EsExecutors.boundedNumberOfProcessors(settings));
+        this.concurrencyMinQueries = settings.getAsInt("percolator.concurrency.min_queries", 1000);
+    }
+
+    /**
+     * The matching queries of a request: the total number of matches and, if requested, the ids of the matching
+     * queries and their highlights.
+     */
+    static class Matches {
+
+        long count;
+        final List<BytesRef> matches = new ArrayList<BytesRef>();
+        final List<Map<String, HighlightField>> hls = new ArrayList<Map<String, HighlightField>>();
+
+    }
+
+    /**
+     * Returns the queries of the given context that match the percolated document, the ids of the matches are only
+     * collected if <tt>collectMatches</tt> is set.
+     */
+    Matches match(final PercolateContext context, final boolean collectMatches) {
+        final List<Map.Entry<HashedBytesRef, Query>> queries = new ArrayList<Map.Entry<HashedBytesRef, Query>>(context.percolateQueries().entrySet());
+        // highlighting works on the shared hit context of the request, so it needs to run on a single thread
+        final int numPartitions;
+        if (context.highlight() == null && queries.size() >= concurrencyMinQueries) {
+            numPartitions = Math.min(concurrency, queries.size());
+        } else {
+            numPartitions = 1;
+        }
+        if (numPartitions <= 1) {
+            return match(context, queries, collectMatches);
+        }
+
+        // the in-memory index of the document is read-only at this point and its terms have already been sorted
+        // when looking up the candidate queries, so it can safely be searched from several threads
+        final int partitionSize = (queries.size() + numPartitions - 1) / numPartitions;
+        final Matches[] partitions = new Matches[numPartitions];
+        final AtomicInteger nextPartition = new AtomicInteger();
+        final CountDownLatch latch = new CountDownLatch(numPartitions);
+        final Runnable worker = new Runnable() {
+            @Override
+            public void run() {
+                for (int partition = nextPartition.getAndIncrement(); partition < numPartitions; partition = nextPartition.getAndIncrement()) {
+                    try {
+                        final int from = Math.min(partition * partitionSize, queries.size());
+                        final int to = Math.min(from + partitionSize, queries.size());
+                        partitions[partition] = match(context, queries.subList(from, to), collectMatches);
+                    } finally {
+                        latch.countDown();
+                    }
+                }
+            }
+        };
+        for (int i = 1; i < numPartitions; ++i) {
+            try {
+                threadPool.executor(ThreadPool.Names.PERCOLATE).execute(worker);
+            } catch (EsRejectedExecutionException e) {
+                // the calling thread evaluates the partitions that are not picked up by the pool
+                break;
+            }
+        }
+        worker.run();
+        try {
+            // the partitions that are still being evaluated have been picked up by threads that are already running
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PercolateException(context.indexShard().shardId(), "interrupted while percolating", e);
+        }
+
+        final Matches merged = new Matches();
+        for (Matches partition : partitions) {
+            if (partition == null) {
+                throw new PercolateException("failed to percolate a partition of the queries", context.indexShard().shardId());
+            }
+            merged.count += partition.count;
+            for (BytesRef match : partition.matches) {
+                if (context.limit && merged.matches.size() >= context.size) {
+                    break;
+                }
+                merged.matches.add(match);
+            }
+        }
+        return merged;
+    }
+
+    private Matches match(PercolateContext context, List<Map.Entry<HashedBytesRef, Query>> queries, boolean collectMatches) {
+        final Matches result = new Matches();
+        final Lucene.ExistsCollector collector = new Lucene.ExistsCollector();
+        for (Map.Entry<HashedBytesRef, Query> entry : queries) {
+            collector.reset();
+            if (collectMatches && context.highlight() != null) {
+                context.parsedQuery(new ParsedQuery(entry.getValue(), ImmutableMap.<String, Filter>of()));
+                context.hitContext().cache().clear();
+            }
+            try {
+                context.docSearcher().search(entry.getValue(), collector);
+            } catch (Throwable e) {
+                logger.warn("[" + entry.getKey() + "] failed to execute query", e);
+            }
+
+            if (collector.exists()) {
+                if (collectMatches && (!context.limit || result.count < context.size)) {
+                    result.matches.add(entry.getKey().bytes);
+                    if (context.highlight() != null) {
+                        highlightPhase.hitExecute(context, context.hitContext());
+                        result.hls.add(context.hitContext().hit().getHighlightFields());
+                    }
+                }
+                result.count++;
+            }
+        }
+        return result;
+    }
+}
@@ -82,6 +82,9 @@ public class RestNodesStatsAction extends BaseRestHandler {
             nodesStatsRequest.indices(metrics.contains("indices"));
             nodesStatsRequest.process(metrics.contains("process"));
             nodesStatsRequest.breaker(metrics.contains("breaker"));
+            nodesStatsRequest.adaptiveSelection(metrics.contains("adaptive_selection"));
+            nodesStatsRequest.discovery(metrics.contains("discovery"));
+            nodesStatsRequest.clusterService(metrics.contains("cluster_service"));
 
             // check for index specific metrics
             if (metrics.contains("indices")) {
@@ -79,6 +79,9 @@ public class RestClearIndicesCacheAction extends BaseRestHandler {
             if (request.hasParam("id_cache")) {
                 clearIndicesCacheRequest.idCache(request.paramAsBoolean("id_cache", clearIndicesCacheRequest.idCache()));
             }
+            if (request.hasParam("query_cache")) {
+                clearIndicesCacheRequest.queryCache(request.paramAsBoolean("query_cache", clearIndicesCacheRequest.queryCache()));
+            }
             if (request.hasParam("recycler")) {
                 clearIndicesCacheRequest.recycler(request.paramAsBoolean("recycler", clearIndicesCacheRequest.recycler()));
             }
@@ -84,6 +84,7 @@ public class RestIndicesStatsAction extends BaseRestHandler {
             indicesStatsRequest.flush(metrics.contains("flush"));
             indicesStatsRequest.warmer(metrics.contains("warmer"));
             indicesStatsRequest.filterCache(metrics.contains("filter_cache"));
+            indicesStatsRequest.queryCache(metrics.contains("query_cache"));
             indicesStatsRequest.idCache(metrics.contains("id_cache"));
             indicesStatsRequest.percolate(metrics.contains("percolate"));
             indicesStatsRequest.segments(metrics.contains("segments"));
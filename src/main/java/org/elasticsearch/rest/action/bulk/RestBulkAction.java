@@ -109,6 +109,11 @@ public class RestBulkAction extends BaseRestHandler {
                     XContentBuilder builder = restContentBuilder(request);
                     builder.startObject();
                     builder.field(Fields.TOOK, response.getTookInMillis());
+                    builder.startObject(Fields.PHASES);
+                    builder.timeValueField(Fields.PARSE_TIME_IN_MILLIS, Fields.PARSE_TIME, response.getParseTime());
+                    builder.timeValueField(Fields.INDEX_TIME_IN_MILLIS, Fields.INDEX_TIME, response.getIndexTime());
+                    builder.timeValueField(Fields.REPLICATE_TIME_IN_MILLIS, Fields.REPLICATE_TIME, response.getReplicateTime());
+                    builder.endObject();
                     builder.field(Fields.ERRORS, response.hasFailures());
                     builder.startArray(Fields.ITEMS);
                     for (BulkItemResponse itemResponse : response) {
@@ -181,6 +186,13 @@ public class RestBulkAction extends BaseRestHandler {
         static final XContentBuilderString STATUS = new XContentBuilderString("status");
         static final XContentBuilderString ERROR = new XContentBuilderString("error");
         static final XContentBuilderString TOOK = new XContentBuilderString("took");
+        static final XContentBuilderString PHASES = new XContentBuilderString("phases");
+        static final XContentBuilderString PARSE_TIME = new XContentBuilderString("parse_time");
+        static final XContentBuilderString PARSE_TIME_IN_MILLIS = new XContentBuilderString("parse_time_in_millis");
+        static final XContentBuilderString INDEX_TIME = new XContentBuilderString("index_time");
+        static final XContentBuilderString INDEX_TIME_IN_MILLIS = new XContentBuilderString("index_time_in_millis");
+        static final XContentBuilderString REPLICATE_TIME = new XContentBuilderString("replicate_time");
+        static final XContentBuilderString REPLICATE_TIME_IN_MILLIS = new XContentBuilderString("replicate_time_in_millis");
         static final XContentBuilderString _VERSION = new XContentBuilderString("_version");
         static final XContentBuilderString FOUND = new XContentBuilderString("found");
     }
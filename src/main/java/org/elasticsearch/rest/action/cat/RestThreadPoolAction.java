@@ -62,6 +62,7 @@ public class RestThreadPoolAction extends AbstractCatAction {
             ThreadPool.Names.PERCOLATE,
             ThreadPool.Names.REFRESH,
             ThreadPool.Names.SEARCH,
+            ThreadPool.Names.SEGMENT_SEARCH,
             ThreadPool.Names.SNAPSHOT,
             ThreadPool.Names.SUGGEST,
             ThreadPool.Names.WARMER
@@ -79,6 +80,7 @@ public class RestThreadPoolAction extends AbstractCatAction {
             "p",
             "r",
             "s",
+            "se",
             "sn",
             "su",
             "w"
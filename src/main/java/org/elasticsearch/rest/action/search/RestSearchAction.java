@@ -142,6 +142,7 @@ public class RestSearchAction extends BaseRestHandler {
         searchRequest.types(Strings.splitStringByCommaToArray(request.param("type")));
         searchRequest.routing(request.param("routing"));
         searchRequest.preference(request.param("preference"));
+        searchRequest.batchedReduceSize(request.paramAsInt("batched_reduce_size", searchRequest.batchedReduceSize()));
         searchRequest.indicesOptions(IndicesOptions.fromRequest(request, searchRequest.indicesOptions()));
 
         return searchRequest;
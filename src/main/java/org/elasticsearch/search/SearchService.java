@@ -57,6 +57,7 @@ import org.elasticsearch.index.service.IndexService;
 import org.elasticsearch.index.shard.service.IndexShard;
 import org.elasticsearch.indices.IndicesLifecycle;
 import org.elasticsearch.indices.IndicesService;
+import org.elasticsearch.indices.cache.query.IndicesQueryCache;
 import org.elasticsearch.indices.warmer.IndicesWarmer;
 import org.elasticsearch.indices.warmer.IndicesWarmer.WarmerContext;
 import org.elasticsearch.script.ScriptService;
@@ -78,6 +79,7 @@ import java.util.Map;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.atomic.AtomicLong;
 
 import static org.elasticsearch.common.unit.TimeValue.timeValueMinutes;
@@ -114,6 +116,8 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> {
 
     private final FetchPhase fetchPhase;
 
+    private final IndicesQueryCache indicesQueryCache;
+
     private final long defaultKeepAlive;
 
     private final ScheduledFuture<?> keepAliveReaper;
@@ -126,7 +130,8 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> {
 
     @Inject
     public SearchService(Settings settings, ClusterService clusterService, IndicesService indicesService, IndicesLifecycle indicesLifecycle, IndicesWarmer indicesWarmer, ThreadPool threadPool,
-                         ScriptService scriptService, CacheRecycler cacheRecycler, PageCacheRecycler pageCacheRecycler, DfsPhase dfsPhase, QueryPhase queryPhase, FetchPhase fetchPhase) {
+                         ScriptService scriptService, CacheRecycler cacheRecycler, PageCacheRecycler pageCacheRecycler, DfsPhase dfsPhase, QueryPhase queryPhase, FetchPhase fetchPhase,
+                         IndicesQueryCache indicesQueryCache) {
         super(settings);
         this.threadPool = threadPool;
         this.clusterService = clusterService;
@@ -138,6 +143,7 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> {
         this.dfsPhase = dfsPhase;
         this.queryPhase = queryPhase;
         this.fetchPhase = fetchPhase;
+        this.indicesQueryCache = indicesQueryCache;
 
         TimeValue keepAliveInterval = componentSettings.getAsTime(KEEPALIVE_INTERVAL_COMPONENENT_KEY, timeValueMinutes(1));
         // we can have 5 minutes here, since we make sure to clean with search requests and when shard/index closes
@@ -202,7 +208,7 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> {
             contextProcessing(context);
             queryPhase.execute(context);
             contextProcessedSuccessfully(context);
-            return context.queryResult();
+            return withNodeQueueSize(context.queryResult());
         } catch (Throwable e) {
             logger.trace("Scan phase failed", e);
             freeContext(context);
@@ -230,7 +236,7 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> {
             } else {
                 contextProcessedSuccessfully(context);
             }
-            return new ScrollQueryFetchSearchResult(new QueryFetchSearchResult(context.queryResult(), context.fetchResult()), context.shardTarget());
+            return new ScrollQueryFetchSearchResult(new QueryFetchSearchResult(withNodeQueueSize(context.queryResult()), context.fetchResult()), context.shardTarget());
         } catch (Throwable e) {
             logger.trace("Scan phase failed", e);
             freeContext(context);
@@ -246,14 +252,18 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> {
             context.indexShard().searchService().onPreQueryPhase(context);
             long time = System.nanoTime();
             contextProcessing(context);
-            queryPhase.execute(context);
+            if (indicesQueryCache.canCache(request, context)) {
+                indicesQueryCache.loadIntoContext(request, context, queryPhase);
+            } else {
+                queryPhase.execute(context);
+            }
             if (context.searchType() == SearchType.COUNT) {
                 freeContext(context.id());
             } else {
                 contextProcessedSuccessfully(context);
             }
             context.indexShard().searchService().onQueryPhase(context, System.nanoTime() - time);
-            return context.queryResult();
+            return withNodeQueueSize(context.queryResult());
         } catch (Throwable e) {
             context.indexShard().searchService().onFailedQueryPhase(context);
             logger.trace("Query phase failed", e);
@@ -274,7 +284,7 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> {
             queryPhase.execute(context);
             contextProcessedSuccessfully(context);
             context.indexShard().searchService().onQueryPhase(context, System.nanoTime() - time);
-            return new ScrollQuerySearchResult(context.queryResult(), context.shardTarget());
+            return new ScrollQuerySearchResult(withNodeQueueSize(context.queryResult()), context.shardTarget());
         } catch (Throwable e) {
             context.indexShard().searchService().onFailedQueryPhase(context);
             logger.trace("Query phase failed", e);
@@ -301,7 +311,7 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> {
             queryPhase.execute(context);
             contextProcessedSuccessfully(context);
             context.indexShard().searchService().onQueryPhase(context, System.nanoTime() - time);
-            return context.queryResult();
+            return withNodeQueueSize(context.queryResult());
         } catch (Throwable e) {
             context.indexShard().searchService().onFailedQueryPhase(context);
             logger.trace("Query phase failed", e);
@@ -340,7 +350,7 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> {
                 throw ExceptionsHelper.convertToRuntime(e);
             }
             context.indexShard().searchService().onFetchPhase(context, System.nanoTime() - time2);
-            return new QueryFetchSearchResult(context.queryResult(), context.fetchResult());
+            return new QueryFetchSearchResult(withNodeQueueSize(context.queryResult()), context.fetchResult());
         } catch (Throwable e) {
             logger.trace("Fetch phase failed", e);
             freeContext(context);
@@ -385,7 +395,7 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> {
                 throw ExceptionsHelper.convertToRuntime(e);
             }
             context.indexShard().searchService().onFetchPhase(context, System.nanoTime() - time2);
-            return new QueryFetchSearchResult(context.queryResult(), context.fetchResult());
+            return new QueryFetchSearchResult(withNodeQueueSize(context.queryResult()), context.fetchResult());
         } catch (Throwable e) {
             logger.trace("Fetch phase failed", e);
             freeContext(context);
@@ -424,7 +434,7 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> {
                 throw ExceptionsHelper.convertToRuntime(e);
             }
             context.indexShard().searchService().onFetchPhase(context, System.nanoTime() - time2);
-            return new ScrollQueryFetchSearchResult(new QueryFetchSearchResult(context.queryResult(), context.fetchResult()), context.shardTarget());
+            return new ScrollQueryFetchSearchResult(new QueryFetchSearchResult(withNodeQueueSize(context.queryResult()), context.fetchResult()), context.shardTarget());
         } catch (Throwable e) {
             logger.trace("Fetch phase failed", e);
             freeContext(context);
@@ -563,6 +573,14 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> {
         SearchContext.removeCurrent();
     }
 
+    private QuerySearchResult withNodeQueueSize(QuerySearchResult queryResult) {
+        Executor executor = threadPool.executor(ThreadPool.Names.SEARCH);
+        if (executor instanceof ThreadPoolExecutor) {
+            queryResult.nodeQueueSize(((ThreadPoolExecutor) executor).getQueue().size());
+        }
+        return queryResult;
+    }
+
     private void parseSource(SearchContext context, BytesReference source) throws SearchParseException {
         // nothing to parse...
         if (source == null || source.length() == 0) {
@@ -24,6 +24,7 @@ import org.elasticsearch.action.search.ClearScrollRequest;
 import org.elasticsearch.action.search.SearchRequest;
 import org.elasticsearch.cluster.ClusterService;
 import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.cluster.routing.operation.ResponseCollectorService;
 import org.elasticsearch.common.component.AbstractComponent;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.io.stream.StreamInput;
@@ -40,6 +41,7 @@ import org.elasticsearch.search.internal.InternalScrollSearchRequest;
 import org.elasticsearch.search.internal.ShardSearchRequest;
 import org.elasticsearch.search.query.QuerySearchRequest;
 import org.elasticsearch.search.query.QuerySearchResult;
+import org.elasticsearch.search.query.QuerySearchResultProvider;
 import org.elasticsearch.search.query.ScrollQuerySearchResult;
 import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.*;
@@ -73,13 +75,17 @@ public class SearchServiceTransportAction extends AbstractComponent {
 
     private final SearchService searchService;
 
+    private final ResponseCollectorService responseCollectorService;
+
     private final FreeContextResponseHandler freeContextResponseHandler = new FreeContextResponseHandler(logger);
 
     @Inject
-    public SearchServiceTransportAction(Settings settings, TransportService transportService, ClusterService clusterService, SearchService searchService) {
+    public SearchServiceTransportAction(Settings settings, TransportService transportService, ClusterService clusterService, SearchService searchService,
+                                        ResponseCollectorService responseCollectorService) {
         super(settings);
         this.transportService = transportService;
         this.clusterService = clusterService;
+        this.responseCollectorService = responseCollectorService;
         this.searchService = searchService;
 
         transportService.registerHandler(SearchFreeContextTransportHandler.ACTION, new SearchFreeContextTransportHandler());
@@ -162,6 +168,28 @@ public class SearchServiceTransportAction extends AbstractComponent {
         }
     }
 
+    /**
+     * Wraps the listener of a shard level search request so that the response time and the search queue size
+     * of the node are recorded, they are used to rank the shard copies when adaptive replica selection is enabled.
+     */
+    private <T extends QuerySearchResultProvider> SearchServiceListener<T> collectResponse(final DiscoveryNode node, final SearchServiceListener<T> listener) {
+        final long startTime = System.nanoTime();
+        responseCollectorService.onRequestSent(node.id());
+        return new SearchServiceListener<T>() {
+            @Override
+            public void onResult(T result) {
+                responseCollectorService.onResponse(node.id(), result.queryResult().nodeQueueSize(), System.nanoTime() - startTime);
+                listener.onResult(result);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                responseCollectorService.onFailure(node.id());
+                listener.onFailure(t);
+            }
+        };
+    }
+
     public void sendExecuteDfs(DiscoveryNode node, final ShardSearchRequest request, final SearchServiceListener<DfsSearchResult> listener) {
         if (clusterService.state().nodes().localNodeId().equals(node.id())) {
             try {
@@ -197,12 +225,13 @@ public class SearchServiceTransportAction extends AbstractComponent {
     }
 
     public void sendExecuteQuery(DiscoveryNode node, final ShardSearchRequest request, final SearchServiceListener<QuerySearchResult> listener) {
+        final SearchServiceListener<QuerySearchResult> collectingListener = collectResponse(node, listener);
         if (clusterService.state().nodes().localNodeId().equals(node.id())) {
             try {
                 QuerySearchResult result = searchService.executeQueryPhase(request);
-                listener.onResult(result);
+                collectingListener.onResult(result);
             } catch (Throwable e) {
-                listener.onFailure(e);
+                collectingListener.onFailure(e);
             }
         } else {
             transportService.sendRequest(node, SearchQueryTransportHandler.ACTION, request, new BaseTransportResponseHandler<QuerySearchResult>() {
@@ -214,12 +243,12 @@ public class SearchServiceTransportAction extends AbstractComponent {
 
                 @Override
                 public void handleResponse(QuerySearchResult response) {
-                    listener.onResult(response);
+                    collectingListener.onResult(response);
                 }
 
                 @Override
                 public void handleException(TransportException exp) {
-                    listener.onFailure(exp);
+                    collectingListener.onFailure(exp);
                 }
 
                 @Override
@@ -299,12 +328,13 @@ public class SearchServiceTransportAction extends AbstractComponent {
     }
 
     public void sendExecuteFetch(DiscoveryNode node, final ShardSearchRequest request, final SearchServiceListener<QueryFetchSearchResult> listener) {
+        final SearchServiceListener<QueryFetchSearchResult> collectingListener = collectResponse(node, listener);
         if (clusterService.state().nodes().localNodeId().equals(node.id())) {
             try {
                 QueryFetchSearchResult result = searchService.executeFetchPhase(request);
-                listener.onResult(result);
+                collectingListener.onResult(result);
             } catch (Throwable e) {
-                listener.onFailure(e);
+                collectingListener.onFailure(e);
             }
         } else {
             transportService.sendRequest(node, SearchQueryFetchTransportHandler.ACTION, request, new BaseTransportResponseHandler<QueryFetchSearchResult>() {
@@ -316,12 +346,12 @@ public class SearchServiceTransportAction extends AbstractComponent {
 
                 @Override
                 public void handleResponse(QueryFetchSearchResult response) {
-                    listener.onResult(response);
+                    collectingListener.onResult(response);
                 }
 
                 @Override
                 public void handleException(TransportException exp) {
-                    listener.onFailure(exp);
+                    collectingListener.onFailure(exp);
                 }
 
                 @Override
@@ -31,8 +31,10 @@ import org.elasticsearch.search.aggregations.bucket.range.geodistance.GeoDistanc
 import org.elasticsearch.search.aggregations.bucket.range.ipv4.IPv4RangeBuilder;
 import org.elasticsearch.search.aggregations.bucket.terms.TermsBuilder;
 import org.elasticsearch.search.aggregations.metrics.avg.AvgBuilder;
+import org.elasticsearch.search.aggregations.metrics.cardinality.CardinalityBuilder;
 import org.elasticsearch.search.aggregations.metrics.max.MaxBuilder;
 import org.elasticsearch.search.aggregations.metrics.min.MinBuilder;
+import org.elasticsearch.search.aggregations.metrics.percentiles.PercentilesBuilder;
 import org.elasticsearch.search.aggregations.metrics.stats.StatsBuilder;
 import org.elasticsearch.search.aggregations.metrics.stats.extended.ExtendedStatsBuilder;
 import org.elasticsearch.search.aggregations.metrics.sum.SumBuilder;
@@ -74,6 +76,14 @@ public class AggregationBuilders {
         return new ExtendedStatsBuilder(name);
     }
 
+    public static CardinalityBuilder cardinality(String name) {
+        return new CardinalityBuilder(name);
+    }
+
+    public static PercentilesBuilder percentiles(String name) {
+        return new PercentilesBuilder(name);
+    }
+
     public static FilterAggregationBuilder filter(String name) {
         return new FilterAggregationBuilder(name);
     }
@@ -80,10 +80,16 @@ public abstract class InternalAggregation implements Aggregation, ToXContent, St
 
         private final List<InternalAggregation> aggregations;
         private final CacheRecycler cacheRecycler;
+        private final boolean finalReduce;
 
         public ReduceContext(List<InternalAggregation> aggregations, CacheRecycler cacheRecycler) {
+            this(aggregations, cacheRecycler, true);
+        }
+
+        public ReduceContext(List<InternalAggregation> aggregations, CacheRecycler cacheRecycler, boolean finalReduce) {
             this.aggregations = aggregations;
             this.cacheRecycler = cacheRecycler;
+            this.finalReduce = finalReduce;
         }
 
         public List<InternalAggregation> aggregations() {
@@ -93,6 +99,15 @@ public abstract class InternalAggregation implements Aggregation, ToXContent, St
         public CacheRecycler cacheRecycler() {
             return cacheRecycler;
         }
+
+        /**
+         * Returns <tt>false</tt> when the result of this reduce will be reduced again with other results, in which
+         * case aggregations must not prune anything (eg. buckets beyond the requested size or under the minimum doc
+         * count) as the final counts are not known yet.
+         */
+        public boolean isFinalReduce() {
+            return finalReduce;
+        }
     }
 
 
@@ -119,6 +119,14 @@ public class InternalAggregations implements Aggregations, ToXContent, Streamabl
      * @return                  The reduced addAggregation
      */
     public static InternalAggregations reduce(List<InternalAggregations> aggregationsList, CacheRecycler cacheRecycler) {
+        return reduce(aggregationsList, cacheRecycler, true);
+    }
+
+    /**
+     * Reduces the given lists of aggregations. A partial reduce (<tt>finalReduce</tt> set to <tt>false</tt>) keeps
+     * all the information needed to reduce its result again with other aggregations later on.
+     */
+    public static InternalAggregations reduce(List<InternalAggregations> aggregationsList, CacheRecycler cacheRecycler, boolean finalReduce) {
         if (aggregationsList.isEmpty()) {
             return null;
         }
@@ -143,7 +151,7 @@ public class InternalAggregations implements Aggregations, ToXContent, Streamabl
         for (Map.Entry<String, List<InternalAggregation>> entry : aggByName.entrySet()) {
             List<InternalAggregation> aggregations = entry.getValue();
             InternalAggregation first = aggregations.get(0); // the list can't be empty as it's created on demand
-            reducedAggregations.add(first.reduce(new InternalAggregation.ReduceContext(aggregations, cacheRecycler)));
+            reducedAggregations.add(first.reduce(new InternalAggregation.ReduceContext(aggregations, cacheRecycler, finalReduce)));
         }
         InternalAggregations result = aggregationsList.get(0);
         result.reset(reducedAggregations);
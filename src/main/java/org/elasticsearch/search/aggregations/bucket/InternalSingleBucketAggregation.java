@@ -66,7 +66,9 @@ public abstract class InternalSingleBucketAggregation extends InternalAggregatio
         List<InternalAggregation> aggregations = reduceContext.aggregations();
         if (aggregations.size() == 1) {
             InternalSingleBucketAggregation reduced = ((InternalSingleBucketAggregation) aggregations.get(0));
-            reduced.aggregations.reduce(reduceContext.cacheRecycler());
+            if (reduceContext.isFinalReduce()) {
+                reduced.aggregations.reduce(reduceContext.cacheRecycler());
+            }
             return reduced;
         }
         InternalSingleBucketAggregation reduced = null;
@@ -79,7 +81,7 @@ public abstract class InternalSingleBucketAggregation extends InternalAggregatio
             }
             subAggregationsList.add(((InternalSingleBucketAggregation) aggregation).aggregations);
         }
-        reduced.aggregations = InternalAggregations.reduce(subAggregationsList, reduceContext.cacheRecycler());
+        reduced.aggregations = InternalAggregations.reduce(subAggregationsList, reduceContext.cacheRecycler(), reduceContext.isFinalReduce());
         return reduced;
     }
 
@@ -106,11 +106,13 @@ public class InternalGeoHashGrid extends InternalAggregation implements GeoHashG
             return 0;
         }
 
-        public Bucket reduce(List<? extends Bucket> buckets, CacheRecycler cacheRecycler) {
+        public Bucket reduce(List<? extends Bucket> buckets, CacheRecycler cacheRecycler, boolean finalReduce) {
             if (buckets.size() == 1) {
                 // we still need to reduce the sub aggs
                 Bucket bucket = buckets.get(0);
-                bucket.aggregations.reduce(cacheRecycler);
+                if (finalReduce) {
+                    bucket.aggregations.reduce(cacheRecycler);
+                }
                 return bucket;
             }
             Bucket reduced = null;
@@ -123,7 +125,7 @@ public class InternalGeoHashGrid extends InternalAggregation implements GeoHashG
                 }
                 aggregationsList.add(bucket.aggregations);
             }
-            reduced.aggregations = InternalAggregations.reduce(aggregationsList, cacheRecycler);
+            reduced.aggregations = InternalAggregations.reduce(aggregationsList, cacheRecycler, finalReduce);
             return reduced;
         }
 
@@ -184,7 +186,9 @@ public class InternalGeoHashGrid extends InternalAggregation implements GeoHashG
         List<InternalAggregation> aggregations = reduceContext.aggregations();
         if (aggregations.size() == 1) {
             InternalGeoHashGrid grid = (InternalGeoHashGrid) aggregations.get(0);
-            grid.reduceAndTrimBuckets(reduceContext.cacheRecycler());
+            if (reduceContext.isFinalReduce()) {
+                grid.reduceAndTrimBuckets(reduceContext.cacheRecycler());
+            }
             return grid;
         }
         InternalGeoHashGrid reduced = null;
@@ -214,14 +218,14 @@ public class InternalGeoHashGrid extends InternalAggregation implements GeoHashG
         }
 
         // TODO: would it be better to sort the backing array buffer of the hppc map directly instead of using a PQ?
-        final int size = Math.min(requiredSize, buckets.v().size());
+        final int size = reduceContext.isFinalReduce() ? Math.min(requiredSize, buckets.v().size()) : buckets.v().size();
         BucketPriorityQueue ordered = new BucketPriorityQueue(size);
         Object[] internalBuckets = buckets.v().values;
         boolean[] states = buckets.v().allocated;
         for (int i = 0; i < states.length; i++) {
             if (states[i]) {
                 List<Bucket> sameCellBuckets = (List<Bucket>) internalBuckets[i];
-                ordered.insertWithOverflow(sameCellBuckets.get(0).reduce(sameCellBuckets, reduceContext.cacheRecycler()));
+                ordered.insertWithOverflow(sameCellBuckets.get(0).reduce(sameCellBuckets, reduceContext.cacheRecycler(), reduceContext.isFinalReduce()));
             }
         }
         buckets.release();
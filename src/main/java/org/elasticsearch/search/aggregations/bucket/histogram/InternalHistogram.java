@@ -100,11 +100,13 @@ public class InternalHistogram<B extends InternalHistogram.Bucket> extends Inter
             return aggregations;
         }
 
-        <B extends Bucket> B reduce(List<B> buckets, CacheRecycler cacheRecycler) {
+        <B extends Bucket> B reduce(List<B> buckets, CacheRecycler cacheRecycler, boolean finalReduce) {
             if (buckets.size() == 1) {
                 // we only need to reduce the sub aggregations
                 Bucket bucket = buckets.get(0);
-                bucket.aggregations.reduce(cacheRecycler);
+                if (finalReduce) {
+                    bucket.aggregations.reduce(cacheRecycler);
+                }
                 return (B) bucket;
             }
             List<InternalAggregations> aggregations = new ArrayList<InternalAggregations>(buckets.size());
@@ -117,7 +119,7 @@ public class InternalHistogram<B extends InternalHistogram.Bucket> extends Inter
                 }
                 aggregations.add((InternalAggregations) bucket.getAggregations());
             }
-            reduced.aggregations = InternalAggregations.reduce(aggregations, cacheRecycler);
+            reduced.aggregations = InternalAggregations.reduce(aggregations, cacheRecycler, finalReduce);
             return (B) reduced;
         }
     }
@@ -215,6 +217,11 @@ public class InternalHistogram<B extends InternalHistogram.Bucket> extends Inter
 
             InternalHistogram<B> histo = (InternalHistogram<B>) aggregations.get(0);
 
+            if (!reduceContext.isFinalReduce()) {
+                // empty buckets and the min_doc_count are only applied once all the buckets are known
+                return histo;
+            }
+
             if (minDocCount == 1) {
                 for (B bucket : histo.buckets) {
                     bucket.aggregations.reduce(reduceContext.cacheRecycler());
@@ -281,8 +288,8 @@ public class InternalHistogram<B extends InternalHistogram.Bucket> extends Inter
         boolean[] allocated = bucketsByKey.v().allocated;
         for (int i = 0; i < allocated.length; i++) {
             if (allocated[i]) {
-                B bucket = ((List<B>) buckets[i]).get(0).reduce(((List<B>) buckets[i]), reduceContext.cacheRecycler());
-                if (bucket.getDocCount() >= minDocCount) {
+                B bucket = ((List<B>) buckets[i]).get(0).reduce(((List<B>) buckets[i]), reduceContext.cacheRecycler(), reduceContext.isFinalReduce());
+                if (bucket.getDocCount() >= minDocCount || !reduceContext.isFinalReduce()) {
                     reducedBuckets.add(bucket);
                 }
             }
@@ -290,7 +297,7 @@ public class InternalHistogram<B extends InternalHistogram.Bucket> extends Inter
         bucketsByKey.release();
 
         // adding empty buckets in needed
-        if (minDocCount == 0) {
+        if (minDocCount == 0 && reduceContext.isFinalReduce()) {
             CollectionUtil.introSort(reducedBuckets, order.asc ? InternalOrder.KEY_ASC.comparator() : InternalOrder.KEY_DESC.comparator());
             List<B> list = order.asc ? reducedBuckets : Lists.reverse(reducedBuckets);
             B prevBucket = null;
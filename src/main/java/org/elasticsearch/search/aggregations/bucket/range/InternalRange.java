@@ -109,11 +109,13 @@ public class InternalRange<B extends InternalRange.Bucket> extends InternalAggre
             return aggregations;
         }
 
-        Bucket reduce(List<Bucket> ranges, CacheRecycler cacheRecycler) {
+        Bucket reduce(List<Bucket> ranges, CacheRecycler cacheRecycler, boolean finalReduce) {
             if (ranges.size() == 1) {
                 // we stil need to call reduce on all the sub aggregations
                 Bucket bucket = ranges.get(0);
-                bucket.aggregations.reduce(cacheRecycler);
+                if (finalReduce) {
+                    bucket.aggregations.reduce(cacheRecycler);
+                }
                 return bucket;
             }
             Bucket reduced = null;
@@ -126,7 +128,7 @@ public class InternalRange<B extends InternalRange.Bucket> extends InternalAggre
                 }
                 aggregationsList.add(range.aggregations);
             }
-            reduced.aggregations = InternalAggregations.reduce(aggregationsList, cacheRecycler);
+            reduced.aggregations = InternalAggregations.reduce(aggregationsList, cacheRecycler, finalReduce);
             return reduced;
         }
 
@@ -225,8 +227,10 @@ public class InternalRange<B extends InternalRange.Bucket> extends InternalAggre
         List<InternalAggregation> aggregations = reduceContext.aggregations();
         if (aggregations.size() == 1) {
             InternalRange<B> reduced = (InternalRange<B>) aggregations.get(0);
-            for (B bucket : reduced.ranges) {
-                bucket.aggregations.reduce(reduceContext.cacheRecycler());
+            if (reduceContext.isFinalReduce()) {
+                for (B bucket : reduced.ranges) {
+                    bucket.aggregations.reduce(reduceContext.cacheRecycler());
+                }
             }
             return reduced;
         }
@@ -259,7 +263,7 @@ public class InternalRange<B extends InternalRange.Bucket> extends InternalAggre
         InternalRange reduced = (InternalRange) aggregations.get(0);
         int i = 0;
         for (List<Bucket> sameRangeList : rangesList) {
-            reduced.ranges.set(i++, (sameRangeList.get(0)).reduce(sameRangeList, reduceContext.cacheRecycler()));
+            reduced.ranges.set(i++, (sameRangeList.get(0)).reduce(sameRangeList, reduceContext.cacheRecycler(), reduceContext.isFinalReduce()));
         }
         return reduced;
     }
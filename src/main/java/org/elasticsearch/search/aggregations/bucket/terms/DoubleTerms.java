@@ -112,7 +112,9 @@ public class DoubleTerms extends InternalTerms {
         List<InternalAggregation> aggregations = reduceContext.aggregations();
         if (aggregations.size() == 1) {
             InternalTerms terms = (InternalTerms) aggregations.get(0);
-            terms.trimExcessEntries(reduceContext.cacheRecycler());
+            if (reduceContext.isFinalReduce()) {
+                terms.trimExcessEntries(reduceContext.cacheRecycler());
+            }
             return terms;
         }
         InternalTerms reduced = null;
@@ -145,15 +147,15 @@ public class DoubleTerms extends InternalTerms {
         }
 
         // TODO: would it be better to sort the backing array buffer of hppc map directly instead of using a PQ?
-        final int size = Math.min(requiredSize, buckets.v().size());
+        final int size = reduceContext.isFinalReduce() ? Math.min(requiredSize, buckets.v().size()) : buckets.v().size();
         BucketPriorityQueue ordered = new BucketPriorityQueue(size, order.comparator(null));
         boolean[] states = buckets.v().allocated;
         Object[] internalBuckets = buckets.v().values;
         for (int i = 0; i < states.length; i++) {
             if (states[i]) {
                 List<DoubleTerms.Bucket> sameTermBuckets = (List<DoubleTerms.Bucket>) internalBuckets[i];
-                final InternalTerms.Bucket b = sameTermBuckets.get(0).reduce(sameTermBuckets, reduceContext.cacheRecycler());
-                if (b.getDocCount() >= minDocCount) {
+                final InternalTerms.Bucket b = sameTermBuckets.get(0).reduce(sameTermBuckets, reduceContext.cacheRecycler(), reduceContext.isFinalReduce());
+                if (b.getDocCount() >= minDocCount || !reduceContext.isFinalReduce()) {
                     ordered.insertWithOverflow(b);
                 }
             }
@@ -0,0 +1,171 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.aggregations.bucket.terms;
+
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.text.Text;
+import org.elasticsearch.index.fielddata.BytesValues;
+import org.elasticsearch.index.fielddata.ordinals.GlobalOrdinalsMapping;
+import org.elasticsearch.index.fielddata.ordinals.Ordinals;
+import org.elasticsearch.search.aggregations.Aggregator;
+import org.elasticsearch.search.aggregations.AggregatorFactories;
+import org.elasticsearch.search.aggregations.bucket.BucketsAggregator;
+import org.elasticsearch.search.aggregations.bucket.terms.support.BucketPriorityQueue;
+import org.elasticsearch.search.aggregations.support.AggregationContext;
+import org.elasticsearch.search.aggregations.support.bytes.BytesValuesSource;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An aggregator of string values that uses global ordinals as bucket ordinals: document counts are collected into a
+ * flat array indexed by global ordinal and terms are only resolved for the top buckets when the aggregation is built.
+ */
+public class GlobalOrdinalsStringTermsAggregator extends BucketsAggregator {
+
+    private final BytesValuesSource.WithOrdinals valuesSource;
+    private final InternalOrder order;
+    private final int requiredSize;
+    private final int shardSize;
+    private final long minDocCount;
+
+    private GlobalOrdinalsMapping globalOrdinals;
+    private Ordinals.Docs ordinals;
+    private int segment;
+
+    public GlobalOrdinalsStringTermsAggregator(String name, AggregatorFactories factories, BytesValuesSource.WithOrdinals valuesSource, long estimatedBucketCount,
+                                               InternalOrder order, int requiredSize, int shardSize, long minDocCount, AggregationContext aggregationContext, Aggregator parent) {
+        super(name, BucketAggregationMode.PER_BUCKET, factories, estimatedBucketCount, aggregationContext, parent);
+        this.valuesSource = valuesSource;
+        this.order = InternalOrder.validate(order, this);
+        this.requiredSize = requiredSize;
+        this.shardSize = shardSize;
+        this.minDocCount = minDocCount;
+    }
+
+    @Override
+    public boolean shouldCollect() {
+        return true;
+    }
+
+    private GlobalOrdinalsMapping globalOrdinals() {
+        if (globalOrdinals == null) {
+            globalOrdinals = valuesSource.globalOrdinals(context.searchContext().searcher().getIndexReader());
+        }
+        return globalOrdinals;
+    }
+
+    @Override
+    public void setNextReader(AtomicReaderContext reader) {
+        globalOrdinals();
+        ordinals = valuesSource.bytesValues().ordinals();
+        segment = reader.ord;
+    }
+
+    @Override
+    public void collect(int doc, long owningBucketOrdinal) throws IOException {
+        assert owningBucketOrdinal == 0 : "this is a per_bucket aggregator";
+        final int valuesCount = ordinals.setDocument(doc);
+
+        for (int i = 0; i < valuesCount; ++i) {
+            collectBucket(doc, globalOrdinals.getGlobalOrd(segment, ordinals.nextOrd()));
+        }
+    }
+
+    @Override
+    public StringTerms buildAggregation(long owningBucketOrdinal) {
+        assert owningBucketOrdinal == 0;
+        final GlobalOrdinalsMapping globalOrdinals = globalOrdinals();
+        final long maxOrd = globalOrdinals.getMaxOrd();
+
+        final int size = (int) Math.min(maxOrd - Ordinals.MIN_ORDINAL, shardSize);
+        BucketPriorityQueue ordered = new BucketPriorityQueue(size, order.comparator(this));
+        OrdBucket spare = null;
+        for (long globalOrd = Ordinals.MIN_ORDINAL; globalOrd < maxOrd; ++globalOrd) {
+            final long docCount = bucketDocCount(globalOrd);
+            if (docCount == 0 && minDocCount > 0) {
+                continue;
+            }
+            if (spare == null) {
+                spare = new OrdBucket();
+            }
+            spare.bucketOrd = globalOrd;
+            spare.docCount = docCount;
+            spare = (OrdBucket) ordered.insertWithOverflow(spare);
+        }
+
+        // only the terms of the top buckets are resolved, from the first segment that contains them
+        final List<AtomicReaderContext> leaves = context.searchContext().searcher().getIndexReader().leaves();
+        final BytesValues.WithOrdinals[] segmentValues = new BytesValues.WithOrdinals[leaves.size()];
+        final InternalTerms.Bucket[] list = new InternalTerms.Bucket[ordered.size()];
+        for (int i = ordered.size() - 1; i >= 0; --i) {
+            final OrdBucket bucket = (OrdBucket) ordered.pop();
+            final int firstSegment = globalOrdinals.getFirstSegment(bucket.bucketOrd);
+            if (segmentValues[firstSegment] == null) {
+                segmentValues[firstSegment] = valuesSource.bytesValues(leaves.get(firstSegment));
+            }
+            final BytesRef term = segmentValues[firstSegment].getValueByOrd(globalOrdinals.getFirstSegmentOrd(bucket.bucketOrd));
+            // the returned bytes may be shared, we need to pull a copy
+            list[i] = new StringTerms.Bucket(BytesRef.deepCopyOf(term), bucket.docCount, bucketAggregations(bucket.bucketOrd));
+        }
+
+        return new StringTerms(name, order, requiredSize, minDocCount, Arrays.asList(list));
+    }
+
+    @Override
+    public StringTerms buildEmptyAggregation() {
+        return new StringTerms(name, order, requiredSize, minDocCount, Collections.<InternalTerms.Bucket>emptyList());
+    }
+
+    /**
+     * A bucket that is only identified by its global ordinal, used to select the top buckets. Since global ordinals
+     * are assigned in term order, comparing terms boils down to comparing ordinals.
+     */
+    static class OrdBucket extends InternalTerms.Bucket {
+
+        OrdBucket() {
+            super(0, null);
+        }
+
+        @Override
+        int compareTerm(Terms.Bucket other) {
+            final long otherOrd = ((OrdBucket) other).bucketOrd;
+            return bucketOrd < otherOrd ? -1 : (bucketOrd == otherOrd ? 0 : 1);
+        }
+
+        @Override
+        public String getKey() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Text getKeyAsText() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Number getKeyAsNumber() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+}
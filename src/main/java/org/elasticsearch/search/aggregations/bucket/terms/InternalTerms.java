@@ -58,10 +58,12 @@ public abstract class InternalTerms extends InternalAggregation implements Terms
             return aggregations;
         }
 
-        public Bucket reduce(List<? extends Bucket> buckets, CacheRecycler cacheRecycler) {
+        public Bucket reduce(List<? extends Bucket> buckets, CacheRecycler cacheRecycler, boolean finalReduce) {
             if (buckets.size() == 1) {
                 Bucket bucket = buckets.get(0);
-                bucket.aggregations.reduce(cacheRecycler);
+                if (finalReduce) {
+                    bucket.aggregations.reduce(cacheRecycler);
+                }
                 return bucket;
             }
             Bucket reduced = null;
@@ -74,7 +76,7 @@ public abstract class InternalTerms extends InternalAggregation implements Terms
                 }
                 aggregationsList.add(bucket.aggregations);
             }
-            reduced.aggregations = InternalAggregations.reduce(aggregationsList, cacheRecycler);
+            reduced.aggregations = InternalAggregations.reduce(aggregationsList, cacheRecycler, finalReduce);
             return reduced;
         }
     }
@@ -117,7 +119,9 @@ public abstract class InternalTerms extends InternalAggregation implements Terms
         List<InternalAggregation> aggregations = reduceContext.aggregations();
         if (aggregations.size() == 1) {
             InternalTerms terms = (InternalTerms) aggregations.get(0);
-            terms.trimExcessEntries(reduceContext.cacheRecycler());
+            if (reduceContext.isFinalReduce()) {
+                terms.trimExcessEntries(reduceContext.cacheRecycler());
+            }
             return terms;
         }
 
@@ -150,12 +154,13 @@ public abstract class InternalTerms extends InternalAggregation implements Terms
             return (UnmappedTerms) aggregations.get(0);
         }
 
-        final int size = Math.min(requiredSize, buckets.size());
+        // a partial reduce keeps all the terms, the ones that are not in the top terms yet may still get there
+        final int size = reduceContext.isFinalReduce() ? Math.min(requiredSize, buckets.size()) : buckets.size();
         BucketPriorityQueue ordered = new BucketPriorityQueue(size, order.comparator(null));
         for (Map.Entry<Text, List<Bucket>> entry : buckets.entrySet()) {
             List<Bucket> sameTermBuckets = entry.getValue();
-            final Bucket b = sameTermBuckets.get(0).reduce(sameTermBuckets, reduceContext.cacheRecycler());
-            if (b.docCount >= minDocCount) {
+            final Bucket b = sameTermBuckets.get(0).reduce(sameTermBuckets, reduceContext.cacheRecycler(), reduceContext.isFinalReduce());
+            if (b.docCount >= minDocCount || !reduceContext.isFinalReduce()) {
                 ordered.insertWithOverflow(b);
             }
         }
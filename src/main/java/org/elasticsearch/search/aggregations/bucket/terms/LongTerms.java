@@ -109,7 +109,9 @@ public class LongTerms extends InternalTerms {
         List<InternalAggregation> aggregations = reduceContext.aggregations();
         if (aggregations.size() == 1) {
             InternalTerms terms = (InternalTerms) aggregations.get(0);
-            terms.trimExcessEntries(reduceContext.cacheRecycler());
+            if (reduceContext.isFinalReduce()) {
+                terms.trimExcessEntries(reduceContext.cacheRecycler());
+            }
             return terms;
         }
         InternalTerms reduced = null;
@@ -142,15 +144,15 @@ public class LongTerms extends InternalTerms {
         }
 
         // TODO: would it be better to sort the backing array buffer of the hppc map directly instead of using a PQ?
-        final int size = Math.min(requiredSize, buckets.v().size());
+        final int size = reduceContext.isFinalReduce() ? Math.min(requiredSize, buckets.v().size()) : buckets.v().size();
         BucketPriorityQueue ordered = new BucketPriorityQueue(size, order.comparator(null));
         Object[] internalBuckets = buckets.v().values;
         boolean[] states = buckets.v().allocated;
         for (int i = 0; i < states.length; i++) {
             if (states[i]) {
                 List<LongTerms.Bucket> sameTermBuckets = (List<LongTerms.Bucket>) internalBuckets[i];
-                final InternalTerms.Bucket b = sameTermBuckets.get(0).reduce(sameTermBuckets, reduceContext.cacheRecycler());
-                if (b.getDocCount() >= minDocCount) {
+                final InternalTerms.Bucket b = sameTermBuckets.get(0).reduce(sameTermBuckets, reduceContext.cacheRecycler(), reduceContext.isFinalReduce());
+                if (b.getDocCount() >= minDocCount || !reduceContext.isFinalReduce()) {
                     ordered.insertWithOverflow(b);
                 }
             }
@@ -19,6 +19,8 @@
 package org.elasticsearch.search.aggregations.bucket.terms;
 
 import org.elasticsearch.ElasticsearchIllegalArgumentException;
+import org.elasticsearch.common.logging.ESLogger;
+import org.elasticsearch.common.logging.Loggers;
 import org.elasticsearch.search.aggregations.AggregationExecutionException;
 import org.elasticsearch.search.aggregations.Aggregator;
 import org.elasticsearch.search.aggregations.Aggregator.BucketAggregationMode;
@@ -35,8 +37,11 @@ import org.elasticsearch.search.aggregations.support.numeric.NumericValuesSource
  */
 public class TermsAggregatorFactory extends ValueSourceAggregatorFactory {
 
+    private static final ESLogger logger = Loggers.getLogger(TermsAggregatorFactory.class);
+
     public static final String EXECUTION_HINT_VALUE_MAP = "map";
     public static final String EXECUTION_HINT_VALUE_ORDINALS = "ordinals";
+    public static final String EXECUTION_HINT_VALUE_GLOBAL_ORDINALS = "global_ordinals";
 
     private final InternalOrder order;
     private final int requiredSize;
@@ -87,8 +92,10 @@ public class TermsAggregatorFactory extends ValueSourceAggregatorFactory {
         estimatedBucketCount = Math.min(estimatedBucketCount, 512);
 
         if (valuesSource instanceof BytesValuesSource) {
-            if (executionHint != null && !executionHint.equals(EXECUTION_HINT_VALUE_MAP) && !executionHint.equals(EXECUTION_HINT_VALUE_ORDINALS)) {
-                throw new ElasticsearchIllegalArgumentException("execution_hint can only be '" + EXECUTION_HINT_VALUE_MAP + "' or '" + EXECUTION_HINT_VALUE_ORDINALS + "', not " + executionHint);
+            if (executionHint != null && !executionHint.equals(EXECUTION_HINT_VALUE_MAP) && !executionHint.equals(EXECUTION_HINT_VALUE_ORDINALS)
+                    && !executionHint.equals(EXECUTION_HINT_VALUE_GLOBAL_ORDINALS)) {
+                throw new ElasticsearchIllegalArgumentException("execution_hint can only be '" + EXECUTION_HINT_VALUE_MAP + "', '" + EXECUTION_HINT_VALUE_ORDINALS
+                        + "' or '" + EXECUTION_HINT_VALUE_GLOBAL_ORDINALS + "', not " + executionHint);
             }
             String execution = executionHint;
             if (!(valuesSource instanceof BytesValuesSource.WithOrdinals)) {
@@ -99,14 +106,23 @@ public class TermsAggregatorFactory extends ValueSourceAggregatorFactory {
             if (execution == null) {
                 if ((valuesSource instanceof BytesValuesSource.WithOrdinals)
                         && !hasParentBucketAggregator(parent)) {
+                    // global ordinals are opt-in as long as their mappings are not accounted in the field data stats and breaker
                     execution = EXECUTION_HINT_VALUE_ORDINALS;
                 } else {
                     execution = EXECUTION_HINT_VALUE_MAP;
                 }
+            } else if (execution.equals(EXECUTION_HINT_VALUE_GLOBAL_ORDINALS) && hasParentBucketAggregator(parent)) {
+                // global ordinals are used as bucket ordinals, which only works with a single owning bucket
+                logger.debug("[{}] is nested under a bucket aggregation, falling back from execution hint [{}] to [{}]", name,
+                        EXECUTION_HINT_VALUE_GLOBAL_ORDINALS, EXECUTION_HINT_VALUE_ORDINALS);
+                execution = EXECUTION_HINT_VALUE_ORDINALS;
             }
             assert execution != null;
 
-            if (execution.equals(EXECUTION_HINT_VALUE_ORDINALS)) {
+            if (execution.equals(EXECUTION_HINT_VALUE_GLOBAL_ORDINALS)) {
+                assert includeExclude == null;
+                return new GlobalOrdinalsStringTermsAggregator(name, factories, (BytesValuesSource.WithOrdinals) valuesSource, estimatedBucketCount, order, requiredSize, shardSize, minDocCount, aggregationContext, parent);
+            } else if (execution.equals(EXECUTION_HINT_VALUE_ORDINALS)) {
                 assert includeExclude == null;
                 return new StringTermsAggregator.WithOrdinals(name, factories, (BytesValuesSource.WithOrdinals) valuesSource, estimatedBucketCount, order, requiredSize, shardSize, minDocCount, aggregationContext, parent);
             } else {
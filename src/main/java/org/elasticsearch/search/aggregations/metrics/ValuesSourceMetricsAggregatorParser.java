@@ -18,6 +18,7 @@
  */
 package org.elasticsearch.search.aggregations.metrics;
 
+import com.google.common.collect.Maps;
 import org.elasticsearch.common.xcontent.XContentParser;
 import org.elasticsearch.index.fielddata.IndexFieldData;
 import org.elasticsearch.index.mapper.FieldMapper;
@@ -51,12 +52,15 @@ public abstract class ValuesSourceMetricsAggregatorParser<S extends MetricsAggre
         String scriptLang = null;
         Map<String, Object> scriptParams = null;
         boolean assumeSorted = false;
+        Map<String, Object> options = Maps.newHashMap();
 
         XContentParser.Token token;
         String currentFieldName = null;
         while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
             if (token == XContentParser.Token.FIELD_NAME) {
                 currentFieldName = parser.currentName();
+            } else if (parseOption(aggregationName, currentFieldName, token, parser, context, options)) {
+                // an option that is specific to this aggregation
             } else if (token == XContentParser.Token.VALUE_STRING) {
                 if ("field".equals(currentFieldName)) {
                     field = parser.text();
@@ -93,17 +97,30 @@ public abstract class ValuesSourceMetricsAggregatorParser<S extends MetricsAggre
         }
 
         if (field == null) {
-            return createFactory(aggregationName, config);
+            return createFactory(aggregationName, config, options);
         }
 
         FieldMapper<?> mapper = context.smartNameFieldMapper(field);
         if (mapper == null) {
             config.unmapped(true);
-            return createFactory(aggregationName, config);
+            return createFactory(aggregationName, config, options);
         }
 
         IndexFieldData<?> indexFieldData = context.fieldData().getForField(mapper);
         config.fieldContext(new FieldContext(field, indexFieldData));
+        return createFactory(aggregationName, config, options);
+    }
+
+    /**
+     * Parses an option that is specific to the aggregation and puts its value in <tt>options</tt>, which is then
+     * passed to {@link #createFactory(String, ValuesSourceConfig, Map)}. Returns <tt>false</tt> if the option is unknown.
+     */
+    protected boolean parseOption(String aggregationName, String currentFieldName, XContentParser.Token token, XContentParser parser,
+                                  SearchContext context, Map<String, Object> options) throws IOException {
+        return false;
+    }
+
+    protected AggregatorFactory createFactory(String aggregationName, ValuesSourceConfig<NumericValuesSource> config, Map<String, Object> options) {
         return createFactory(aggregationName, config);
     }
 
@@ -0,0 +1,186 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations.metrics.cardinality;
+
+import com.carrotsearch.hppc.hash.MurmurHash3;
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.breaker.CircuitBreakingException;
+import org.elasticsearch.common.breaker.MemoryCircuitBreaker;
+import org.elasticsearch.common.lease.Releasables;
+import org.elasticsearch.common.util.BloomFilter;
+import org.elasticsearch.index.fielddata.BytesValues;
+import org.elasticsearch.index.fielddata.DoubleValues;
+import org.elasticsearch.index.fielddata.LongValues;
+import org.elasticsearch.search.aggregations.Aggregator;
+import org.elasticsearch.search.aggregations.InternalAggregation;
+import org.elasticsearch.search.aggregations.metrics.MetricsAggregator;
+import org.elasticsearch.search.aggregations.support.AggregationContext;
+import org.elasticsearch.search.aggregations.support.ValueSourceAggregatorFactory;
+import org.elasticsearch.search.aggregations.support.ValuesSource;
+import org.elasticsearch.search.aggregations.support.ValuesSourceConfig;
+import org.elasticsearch.search.aggregations.support.numeric.NumericValuesSource;
+
+import java.io.IOException;
+
+/**
+ * An aggregator that computes approximate counts of unique values, keeping a {@link HyperLogLogPlusPlus}
+ * sketch per bucket. Numeric values are hashed as longs, other values with murmur3 over their bytes. Since every bucket
+ * takes up to <tt>2^precision</tt> bytes, the sketches are charged to the field data circuit breaker as they grow and
+ * given back when the aggregator is released.
+ */
+public class CardinalityAggregator extends MetricsAggregator.SingleValue {
+
+    private final int precision;
+    private final ValuesSource valuesSource;
+
+    private LongValues longValues;
+    private DoubleValues doubleValues;
+    private BytesValues bytesValues;
+
+    private HyperLogLogPlusPlus counts;
+
+    private final MemoryCircuitBreaker breaker;
+    private long accountedBytes;
+
+    public CardinalityAggregator(String name, long expectedBucketsCount, ValuesSource valuesSource, int precision,
+                                 AggregationContext context, Aggregator parent) {
+        super(name, expectedBucketsCount, context, parent);
+        this.valuesSource = valuesSource;
+        this.precision = precision;
+        this.breaker = context.searchContext().fieldData().circuitBreakerService().getBreaker();
+        if (valuesSource != null) {
+            // expectedBucketsCount == 0 means it's a top level bucket
+            counts = new HyperLogLogPlusPlus(precision, context.pageCacheRecycler(), expectedBucketsCount < 2 ? 1 : expectedBucketsCount);
+            try {
+                account();
+            } catch (CircuitBreakingException e) {
+                // the aggregator is never released if its construction fails, so give the pages back here
+                Releasables.release(counts);
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public boolean shouldCollect() {
+        return valuesSource != null;
+    }
+
+    @Override
+    public void setNextReader(AtomicReaderContext reader) {
+        longValues = null;
+        doubleValues = null;
+        bytesValues = null;
+        if (valuesSource instanceof NumericValuesSource) {
+            final NumericValuesSource source = (NumericValuesSource) valuesSource;
+            if (source.isFloatingPoint()) {
+                doubleValues = source.doubleValues();
+            } else {
+                longValues = source.longValues();
+            }
+        } else {
+            bytesValues = valuesSource.bytesValues();
+        }
+    }
+
+    @Override
+    public void collect(int doc, long owningBucketOrdinal) throws IOException {
+        // the sketch only grows when collecting into a new bucket
+        final boolean grows = owningBucketOrdinal >= counts.maxBucket();
+        if (longValues != null) {
+            final int valueCount = longValues.setDocument(doc);
+            for (int i = 0; i < valueCount; ++i) {
+                counts.collect(owningBucketOrdinal, MurmurHash3.hash(longValues.nextValue()));
+            }
+        } else if (doubleValues != null) {
+            final int valueCount = doubleValues.setDocument(doc);
+            for (int i = 0; i < valueCount; ++i) {
+                counts.collect(owningBucketOrdinal, MurmurHash3.hash(Double.doubleToLongBits(doubleValues.nextValue())));
+            }
+        } else {
+            final int valueCount = bytesValues.setDocument(doc);
+            for (int i = 0; i < valueCount; ++i) {
+                final BytesRef value = bytesValues.nextValue();
+                counts.collect(owningBucketOrdinal, BloomFilter.hash3_x64_128(value.bytes, value.offset, value.length, 0));
+            }
+        }
+        if (grows) {
+            account();
+        }
+    }
+
+    private void account() {
+        final long bytes = counts.sizeInBytes() - accountedBytes;
+        if (bytes != 0) {
+            // a tripped breaker doesn't add the bytes, so they must not be given back on release either
+            breaker.addEstimateBytesAndMaybeBreak(bytes);
+            accountedBytes += bytes;
+        }
+    }
+
+    @Override
+    public double metric(long owningBucketOrd) {
+        return counts == null ? 0 : counts.cardinality(owningBucketOrd);
+    }
+
+    @Override
+    public InternalAggregation buildAggregation(long owningBucketOrdinal) {
+        if (counts == null || owningBucketOrdinal >= counts.maxBucket() || counts.cardinality(owningBucketOrdinal) == 0) {
+            return buildEmptyAggregation();
+        }
+        // the aggregator's pages are released once the aggregation is built, so copy the bucket to the heap
+        final HyperLogLogPlusPlus copy = new HyperLogLogPlusPlus(precision, null, 1);
+        copy.merge(0, counts, owningBucketOrdinal);
+        return new InternalCardinality(name, copy);
+    }
+
+    @Override
+    public InternalAggregation buildEmptyAggregation() {
+        return new InternalCardinality(name, null);
+    }
+
+    @Override
+    protected void doRelease() {
+        Releasables.release(counts);
+        breaker.addWithoutBreaking(-accountedBytes);
+        accountedBytes = 0;
+    }
+
+    public static class Factory extends ValueSourceAggregatorFactory.LeafOnly<ValuesSource> {
+
+        private final int precision;
+
+        public Factory(String name, ValuesSourceConfig valuesSourceConfig, int precision) {
+            super(name, InternalCardinality.TYPE.name(), valuesSourceConfig);
+            this.precision = precision;
+        }
+
+        @Override
+        protected Aggregator createUnmapped(AggregationContext context, Aggregator parent) {
+            return new CardinalityAggregator(name, 0, null, precision, context, parent);
+        }
+
+        @Override
+        protected Aggregator create(ValuesSource valuesSource, long expectedBucketsCount, AggregationContext context, Aggregator parent) {
+            return new CardinalityAggregator(name, expectedBucketsCount, valuesSource, precision, context, parent);
+        }
+    }
+}
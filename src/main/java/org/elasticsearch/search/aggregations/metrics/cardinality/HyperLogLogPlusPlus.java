@@ -0,0 +1,330 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations.metrics.cardinality;
+
+import org.apache.lucene.util.OpenBitSet;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.ElasticsearchIllegalArgumentException;
+import org.elasticsearch.cache.recycler.PageCacheRecycler;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.lease.Releasables;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.IntArray;
+
+import java.io.IOException;
+
+/**
+ * Cardinality sketches for many buckets, based on HyperLogLog++: <a href="http://research.google.com/pubs/pub40671.html">
+ * "HyperLogLog in Practice: Algorithmic Engineering of a State of The Art Cardinality Estimation Algorithm"</a>.
+ * <p/>
+ * Each bucket owns <tt>m/4</tt> ints of a paged {@link IntArray}, where <tt>m = 2^precision</tt> is the number of registers.
+ * Buckets start in linear counting mode, where these ints are an open addressing hash set of the 32 most significant bits
+ * of the hashes of the collected values, which gives exact counts (up to hash collisions). Once the set is 3/4 full, the
+ * bucket switches to HyperLogLog mode and the same ints hold <tt>m</tt> one byte registers.
+ * <p/>
+ * Unlike the paper, the HyperLogLog estimate is not corrected with empirical bias tables, only with linear counting over
+ * the empty registers for small estimates.
+ */
+public final class HyperLogLogPlusPlus implements Releasable {
+
+    public static final int MIN_PRECISION = 4;
+    public static final int MAX_PRECISION = 18;
+
+    /**
+     * Returns the lowest precision whose linear counting mode can hold <tt>count</tt> distinct values.
+     */
+    public static int precisionFromThreshold(long count) {
+        final long hashTableEntries = (long) Math.ceil(Math.max(1, count) * 16d / 3);
+        int precision = 64 - Long.numberOfLeadingZeros(hashTableEntries - 1);
+        precision = Math.max(precision, MIN_PRECISION);
+        precision = Math.min(precision, MAX_PRECISION);
+        return precision;
+    }
+
+    /**
+     * Returns the number of bytes used per bucket for the given precision.
+     */
+    public static long memoryUsage(int precision) {
+        return 1L << precision;
+    }
+
+    private final int p;
+    private final int m;
+    private final int intsPerBucket;
+    private final int threshold;
+    private final double alphaMM;
+
+    // buckets whose bit is set are in HyperLogLog mode
+    private final OpenBitSet hll;
+    private IntArray data;
+    // number of hashes in the linear counting set of each bucket
+    private IntArray sizes;
+
+    public HyperLogLogPlusPlus(int precision, @Nullable PageCacheRecycler recycler, long initialBucketCount) {
+        if (precision < MIN_PRECISION) {
+            throw new ElasticsearchIllegalArgumentException("precision must be >= " + MIN_PRECISION);
+        }
+        if (precision > MAX_PRECISION) {
+            throw new ElasticsearchIllegalArgumentException("precision must be <= " + MAX_PRECISION);
+        }
+        p = precision;
+        m = 1 << p;
+        intsPerBucket = m >>> 2;
+        threshold = intsPerBucket * 3 / 4;
+        final double alpha;
+        switch (p) {
+            case 4:
+                alpha = 0.673;
+                break;
+            case 5:
+                alpha = 0.697;
+                break;
+            case 6:
+                alpha = 0.709;
+                break;
+            default:
+                alpha = 0.7213 / (1 + 1.079 / m);
+        }
+        alphaMM = alpha * m * m;
+        hll = new OpenBitSet();
+        initialBucketCount = Math.max(1, initialBucketCount);
+        data = BigArrays.newIntArray(initialBucketCount * intsPerBucket, recycler, true);
+        sizes = BigArrays.newIntArray(initialBucketCount, recycler, true);
+    }
+
+    public int precision() {
+        return p;
+    }
+
+    /**
+     * Returns the number of buckets that may hold values.
+     */
+    public long maxBucket() {
+        return sizes.size();
+    }
+
+    /**
+     * Returns the number of bytes used by the buckets of this sketch.
+     */
+    public long sizeInBytes() {
+        return (data.size() + sizes.size()) * RamUsageEstimator.NUM_BYTES_INT;
+    }
+
+    private void ensureCapacity(long bucket) {
+        data = BigArrays.grow(data, (bucket + 1) * intsPerBucket);
+        sizes = BigArrays.grow(sizes, bucket + 1);
+    }
+
+    /**
+     * Adds the given 64 bits hash to the bucket.
+     */
+    public void collect(long bucket, long hash) {
+        ensureCapacity(bucket);
+        if (hll.get(bucket)) {
+            collectHll(bucket, hash);
+        } else {
+            collectLinearCounting(bucket, encode(hash));
+        }
+    }
+
+    private static int encode(long hash) {
+        final int encoded = (int) (hash >>> 32);
+        // 0 marks empty slots of the linear counting sets
+        return encoded == 0 ? 1 : encoded;
+    }
+
+    private void collectLinearCounting(long bucket, int encoded) {
+        final long base = bucket * intsPerBucket;
+        final int slotMask = intsPerBucket - 1;
+        for (int slot = encoded & slotMask; ; slot = (slot + 1) & slotMask) {
+            final int value = data.get(base + slot);
+            if (value == encoded) {
+                return;
+            }
+            if (value == 0) {
+                data.set(base + slot, encoded);
+                if (sizes.increment(bucket, 1) > threshold) {
+                    upgradeToHll(bucket);
+                }
+                return;
+            }
+        }
+    }
+
+    private void upgradeToHll(long bucket) {
+        final long base = bucket * intsPerBucket;
+        final int[] values = new int[sizes.get(bucket)];
+        int count = 0;
+        for (int i = 0; i < intsPerBucket; ++i) {
+            final int value = data.get(base + i);
+            if (value != 0) {
+                values[count++] = value;
+                data.set(base + i, 0);
+            }
+        }
+        assert count == values.length;
+        sizes.set(bucket, 0);
+        hll.set(bucket);
+        for (int value : values) {
+            collectHllEncoded(bucket, value);
+        }
+    }
+
+    private void collectHll(long bucket, long hash) {
+        final int index = (int) (hash >>> (64 - p));
+        final int rank = Math.min(Long.numberOfLeadingZeros(hash << p), 64 - p) + 1;
+        setRegisterIfGreater(bucket, index, rank);
+    }
+
+    private void collectHllEncoded(long bucket, int encoded) {
+        // only the 32 most significant bits of the hash are known
+        final int index = encoded >>> (32 - p);
+        final int rank = Math.min(Integer.numberOfLeadingZeros(encoded << p), 32 - p) + 1;
+        setRegisterIfGreater(bucket, index, rank);
+    }
+
+    private int register(long bucket, int index) {
+        final int word = data.get(bucket * intsPerBucket + (index >>> 2));
+        return (word >>> ((index & 3) << 3)) & 0xFF;
+    }
+
+    private void setRegisterIfGreater(long bucket, int index, int rank) {
+        final long i = bucket * intsPerBucket + (index >>> 2);
+        final int shift = (index & 3) << 3;
+        final int word = data.get(i);
+        if (rank > ((word >>> shift) & 0xFF)) {
+            data.set(i, (word & ~(0xFF << shift)) | (rank << shift));
+        }
+    }
+
+    /**
+     * Returns the estimated number of distinct hashes collected in the bucket.
+     */
+    public long cardinality(long bucket) {
+        if (bucket >= sizes.size()) {
+            return 0;
+        }
+        if (!hll.get(bucket)) {
+            return sizes.get(bucket);
+        }
+        double inverseSum = 0;
+        int zeros = 0;
+        for (int i = 0; i < m; ++i) {
+            final int register = register(bucket, i);
+            inverseSum += 1. / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        final double estimate = alphaMM / inverseSum;
+        if (estimate <= 2.5 * m && zeros != 0) {
+            // small range correction
+            return Math.round(m * Math.log((double) m / zeros));
+        }
+        return Math.round(estimate);
+    }
+
+    /**
+     * Merges the content of <tt>otherBucket</tt> of <tt>other</tt> into <tt>thisBucket</tt>.
+     */
+    public void merge(long thisBucket, HyperLogLogPlusPlus other, long otherBucket) {
+        if (p != other.p) {
+            throw new ElasticsearchIllegalArgumentException("can't merge sketches of different precisions [" + p + "] and [" + other.p + "]");
+        }
+        ensureCapacity(thisBucket);
+        if (otherBucket >= other.sizes.size()) {
+            return;
+        }
+        final long otherBase = otherBucket * intsPerBucket;
+        if (!other.hll.get(otherBucket)) {
+            for (int i = 0; i < intsPerBucket; ++i) {
+                final int encoded = other.data.get(otherBase + i);
+                if (encoded != 0) {
+                    if (hll.get(thisBucket)) {
+                        collectHllEncoded(thisBucket, encoded);
+                    } else {
+                        collectLinearCounting(thisBucket, encoded);
+                    }
+                }
+            }
+        } else {
+            if (!hll.get(thisBucket)) {
+                upgradeToHll(thisBucket);
+            }
+            for (int i = 0; i < m; ++i) {
+                setRegisterIfGreater(thisBucket, i, other.register(otherBucket, i));
+            }
+        }
+    }
+
+    /**
+     * Writes the content of the bucket, to be read back with {@link #readFrom(StreamInput, PageCacheRecycler)}.
+     */
+    public void writeTo(long bucket, StreamOutput out) throws IOException {
+        out.writeVInt(p);
+        if (bucket >= sizes.size() || !hll.get(bucket)) {
+            out.writeBoolean(false);
+            final int size = bucket >= sizes.size() ? 0 : sizes.get(bucket);
+            out.writeVInt(size);
+            final long base = bucket * intsPerBucket;
+            for (int i = 0; size > 0 && i < intsPerBucket; ++i) {
+                final int encoded = data.get(base + i);
+                if (encoded != 0) {
+                    out.writeInt(encoded);
+                }
+            }
+        } else {
+            out.writeBoolean(true);
+            for (int i = 0; i < m; ++i) {
+                out.writeByte((byte) register(bucket, i));
+            }
+        }
+    }
+
+    /**
+     * Reads a single bucket sketch, as bucket <tt>0</tt>.
+     */
+    public static HyperLogLogPlusPlus readFrom(StreamInput in, @Nullable PageCacheRecycler recycler) throws IOException {
+        final int precision = in.readVInt();
+        final HyperLogLogPlusPlus counts = new HyperLogLogPlusPlus(precision, recycler, 1);
+        if (in.readBoolean()) {
+            counts.hll.set(0);
+            for (int i = 0; i < counts.m; ++i) {
+                counts.setRegisterIfGreater(0, i, in.readByte() & 0xFF);
+            }
+        } else {
+            final int size = in.readVInt();
+            for (int i = 0; i < size; ++i) {
+                counts.collectLinearCounting(0, in.readInt());
+            }
+        }
+        return counts;
+    }
+
+    @Override
+    public boolean release() throws ElasticsearchException {
+        Releasables.release(data, sizes);
+        return true;
+    }
+}
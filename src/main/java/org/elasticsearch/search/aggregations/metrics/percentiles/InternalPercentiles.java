@@ -0,0 +1,190 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations.metrics.percentiles;
+
+import com.google.common.collect.UnmodifiableIterator;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.search.aggregations.AggregationStreams;
+import org.elasticsearch.search.aggregations.InternalAggregation;
+import org.elasticsearch.search.aggregations.metrics.MetricsAggregation;
+import org.elasticsearch.search.aggregations.support.numeric.ValueFormatterStreams;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+*
+*/
+public class InternalPercentiles extends MetricsAggregation.MultiValue implements Percentiles {
+
+    public final static Type TYPE = new Type("percentiles");
+
+    public final static AggregationStreams.Stream STREAM = new AggregationStreams.Stream() {
+        @Override
+        public InternalPercentiles readResult(StreamInput in) throws IOException {
+            InternalPercentiles result = new InternalPercentiles();
+            result.readFrom(in);
+            return result;
+        }
+    };
+
+    public static void registerStreams() {
+        AggregationStreams.registerStream(STREAM, TYPE.stream());
+    }
+
+    private double[] percents;
+    private TDigestState state;
+
+    InternalPercentiles() {} // for serialization
+
+    InternalPercentiles(String name, double[] percents, @Nullable TDigestState state) {
+        super(name);
+        this.percents = percents;
+        this.state = state;
+    }
+
+    @Override
+    public double percentile(double percent) {
+        return state == null ? Double.NaN : state.quantile(percent / 100);
+    }
+
+    @Override
+    public Iterator<Percentile> iterator() {
+        return new UnmodifiableIterator<Percentile>() {
+
+            private int i = 0;
+
+            @Override
+            public boolean hasNext() {
+                return i < percents.length;
+            }
+
+            @Override
+            public Percentile next() {
+                final double percent = percents[i++];
+                return new InternalPercentile(percent, percentile(percent));
+            }
+        };
+    }
+
+    @Override
+    public double value(String name) {
+        return percentile(Double.parseDouble(name));
+    }
+
+    @Override
+    public Type type() {
+        return TYPE;
+    }
+
+    @Override
+    public InternalPercentiles reduce(ReduceContext reduceContext) {
+        List<InternalAggregation> aggregations = reduceContext.aggregations();
+        if (aggregations.size() == 1) {
+            return (InternalPercentiles) aggregations.get(0);
+        }
+        InternalPercentiles reduced = null;
+        for (InternalAggregation aggregation : aggregations) {
+            final InternalPercentiles percentiles = (InternalPercentiles) aggregation;
+            if (percentiles.state != null) {
+                if (reduced == null) {
+                    reduced = percentiles;
+                } else {
+                    reduced.state.add(percentiles.state);
+                }
+            }
+        }
+        if (reduced != null) {
+            return reduced;
+        }
+        return (InternalPercentiles) aggregations.get(0);
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        name = in.readString();
+        valueFormatter = ValueFormatterStreams.readOptional(in);
+        percents = new double[in.readVInt()];
+        for (int i = 0; i < percents.length; ++i) {
+            percents[i] = in.readDouble();
+        }
+        state = in.readBoolean() ? TDigestState.read(in) : null;
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeString(name);
+        ValueFormatterStreams.writeOptional(valueFormatter, out);
+        out.writeVInt(percents.length);
+        for (double percent : percents) {
+            out.writeDouble(percent);
+        }
+        if (state == null) {
+            out.writeBoolean(false);
+        } else {
+            out.writeBoolean(true);
+            TDigestState.write(state, out);
+        }
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject(name);
+        for (double percent : percents) {
+            final String key = String.valueOf(percent);
+            if (state == null) {
+                builder.nullField(key);
+            } else {
+                final double value = percentile(percent);
+                builder.field(key, value);
+                if (valueFormatter != null) {
+                    builder.field(key + "_as_string", valueFormatter.format(value));
+                }
+            }
+        }
+        builder.endObject();
+        return builder;
+    }
+
+    static class InternalPercentile implements Percentile {
+
+        private final double percent;
+        private final double value;
+
+        InternalPercentile(double percent, double value) {
+            this.percent = percent;
+            this.value = value;
+        }
+
+        @Override
+        public double getPercent() {
+            return percent;
+        }
+
+        @Override
+        public double getValue() {
+            return value;
+        }
+    }
+}
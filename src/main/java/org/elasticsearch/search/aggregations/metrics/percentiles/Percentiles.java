@@ -0,0 +1,42 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations.metrics.percentiles;
+
+import org.elasticsearch.search.aggregations.Aggregation;
+
+/**
+ * Estimated percentiles of a set of values (either aggregated over field data or scripts)
+ */
+public interface Percentiles extends Aggregation, Iterable<Percentiles.Percentile> {
+
+    public static interface Percentile {
+
+        double getPercent();
+
+        double getValue();
+
+    }
+
+    /**
+     * @return The estimated value at the given percent, in <tt>[0, 100]</tt>.
+     */
+    double percentile(double percent);
+
+}
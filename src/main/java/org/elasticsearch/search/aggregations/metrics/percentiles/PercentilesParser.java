@@ -0,0 +1,93 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations.metrics.percentiles;
+
+import com.carrotsearch.hppc.DoubleArrayList;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.search.SearchParseException;
+import org.elasticsearch.search.aggregations.AggregatorFactory;
+import org.elasticsearch.search.aggregations.metrics.ValuesSourceMetricsAggregatorParser;
+import org.elasticsearch.search.aggregations.support.ValuesSourceConfig;
+import org.elasticsearch.search.aggregations.support.numeric.NumericValuesSource;
+import org.elasticsearch.search.internal.SearchContext;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ *
+ */
+public class PercentilesParser extends ValuesSourceMetricsAggregatorParser<InternalPercentiles> {
+
+    public static final double[] DEFAULT_PERCENTS = new double[] { 1, 5, 25, 50, 75, 95, 99 };
+
+    @Override
+    public String type() {
+        return InternalPercentiles.TYPE.name();
+    }
+
+    @Override
+    protected boolean parseOption(String aggregationName, String currentFieldName, XContentParser.Token token, XContentParser parser,
+                                  SearchContext context, Map<String, Object> options) throws IOException {
+        if (token == XContentParser.Token.START_ARRAY && "percents".equals(currentFieldName)) {
+            DoubleArrayList values = new DoubleArrayList(10);
+            while ((token = parser.nextToken()) != XContentParser.Token.END_ARRAY) {
+                double percent = parser.doubleValue();
+                if (percent < 0 || percent > 100) {
+                    throw new SearchParseException(context, "the percents in the percentiles aggregation [" + aggregationName + "] must be in the [0, 100] range");
+                }
+                values.add(percent);
+            }
+            double[] percents = values.toArray();
+            // sort the percents so that they are rendered in order
+            Arrays.sort(percents);
+            options.put("percents", percents);
+            return true;
+        } else if (token == XContentParser.Token.VALUE_NUMBER && "compression".equals(currentFieldName)) {
+            double compression = parser.doubleValue();
+            if (compression < 1) {
+                throw new SearchParseException(context, "[compression] must be greater than or equal to 1 in [" + aggregationName + "]");
+            }
+            options.put("compression", compression);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    protected AggregatorFactory createFactory(String aggregationName, ValuesSourceConfig<NumericValuesSource> config, Map<String, Object> options) {
+        double[] percents = (double[]) options.get("percents");
+        if (percents == null) {
+            percents = DEFAULT_PERCENTS;
+        }
+        Double compression = (Double) options.get("compression");
+        if (compression == null) {
+            compression = TDigestState.DEFAULT_COMPRESSION;
+        }
+        return new PercentilesAggregator.Factory(aggregationName, config, percents, compression);
+    }
+
+    @Override
+    protected AggregatorFactory createFactory(String aggregationName, ValuesSourceConfig<NumericValuesSource> config) {
+        return new PercentilesAggregator.Factory(aggregationName, config, DEFAULT_PERCENTS, TDigestState.DEFAULT_COMPRESSION);
+    }
+
+}
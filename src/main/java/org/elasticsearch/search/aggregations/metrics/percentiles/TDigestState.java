@@ -0,0 +1,243 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations.metrics.percentiles;
+
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.elasticsearch.ElasticsearchIllegalArgumentException;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.util.CollectionUtils;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A mergeable sketch of the distribution of double values, based on the t-digest by Ted Dunning:
+ * <a href="https://github.com/tdunning/t-digest">https://github.com/tdunning/t-digest</a>.
+ * <p/>
+ * Values are summarized by centroids (a mean and a weight), that are kept sorted by mean. The weight of a centroid is
+ * bounded by <tt>4 * count * q * (1 - q) / compression</tt> where <tt>q</tt> is its quantile, so that centroids are
+ * small, and quantiles accurate, close to the tails of the distribution. New values are appended to a buffer which
+ * gets merged with the centroids when full, so that memory usage is bounded by the compression regardless of the
+ * number of values.
+ */
+public final class TDigestState {
+
+    public static final double DEFAULT_COMPRESSION = 100;
+
+    private static final long SHALLOW_SIZE = RamUsageEstimator.shallowSizeOfInstance(TDigestState.class);
+
+    private final double compression;
+
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+    private long count;
+
+    // centroids, sorted by mean
+    private int centroids;
+    private double[] means;
+    private long[] weights;
+
+    // values that have not been merged into the centroids yet
+    private int buffered;
+    private double[] buffer;
+
+    public TDigestState(double compression) {
+        if (compression < 1) {
+            throw new ElasticsearchIllegalArgumentException("compression must be >= 1, got [" + compression + "]");
+        }
+        this.compression = compression;
+        final int capacity = (int) Math.ceil(compression * 2);
+        means = new double[capacity];
+        weights = new long[capacity];
+        buffer = new double[capacity * 4];
+    }
+
+    public double compression() {
+        return compression;
+    }
+
+    /**
+     * Returns the number of values that have been added to this sketch.
+     */
+    public long count() {
+        return count;
+    }
+
+    /**
+     * Returns the number of bytes used by this sketch.
+     */
+    public long byteSize() {
+        return SHALLOW_SIZE + RamUsageEstimator.sizeOf(means) + RamUsageEstimator.sizeOf(weights) + RamUsageEstimator.sizeOf(buffer);
+    }
+
+    public void add(double value) {
+        if (buffered == buffer.length) {
+            compress();
+        }
+        buffer[buffered++] = value;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+        count++;
+    }
+
+    /**
+     * Adds the content of <tt>other</tt> to this sketch.
+     */
+    public void add(TDigestState other) {
+        other.compress();
+        if (other.centroids == 0) {
+            return;
+        }
+        compress();
+        count += other.count;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        mergeSorted(other.means, other.weights, other.centroids);
+    }
+
+    /**
+     * Merges the buffered values into the centroids.
+     */
+    private void compress() {
+        if (buffered == 0) {
+            return;
+        }
+        CollectionUtils.sort(buffer, buffered);
+        final long[] bufferWeights = new long[buffered];
+        Arrays.fill(bufferWeights, 1);
+        final int length = buffered;
+        buffered = 0;
+        mergeSorted(buffer, bufferWeights, length);
+    }
+
+    /**
+     * Rebuilds the centroids out of the current ones and the given ones, which must be sorted by mean.
+     * {@link #count} must already account for the given weights.
+     */
+    private void mergeSorted(double[] otherMeans, long[] otherWeights, int otherLength) {
+        final int length = centroids + otherLength;
+        final double[] sortedMeans = new double[length];
+        final long[] sortedWeights = new long[length];
+        for (int i = 0, j = 0, k = 0; k < length; ++k) {
+            if (j == otherLength || (i < centroids && means[i] <= otherMeans[j])) {
+                sortedMeans[k] = means[i];
+                sortedWeights[k] = weights[i++];
+            } else {
+                sortedMeans[k] = otherMeans[j];
+                sortedWeights[k] = otherWeights[j++];
+            }
+        }
+
+        centroids = 0;
+        long weightSoFar = 0;
+        double mean = sortedMeans[0];
+        long weight = sortedWeights[0];
+        for (int i = 1; i < length; ++i) {
+            final long proposedWeight = weight + sortedWeights[i];
+            final double q = (weightSoFar + proposedWeight / 2d) / count;
+            if (proposedWeight <= 4 * count * q * (1 - q) / compression) {
+                mean += (sortedMeans[i] - mean) * sortedWeights[i] / proposedWeight;
+                weight = proposedWeight;
+            } else {
+                addCentroid(mean, weight);
+                weightSoFar += weight;
+                mean = sortedMeans[i];
+                weight = sortedWeights[i];
+            }
+        }
+        addCentroid(mean, weight);
+    }
+
+    private void addCentroid(double mean, long weight) {
+        if (centroids == means.length) {
+            // the size bound allows for a few more centroids than the initial capacity on some distributions
+            means = ArrayUtil.grow(means, centroids + 1);
+            weights = ArrayUtil.grow(weights, centroids + 1);
+        }
+        means[centroids] = mean;
+        weights[centroids] = weight;
+        centroids++;
+    }
+
+    /**
+     * Returns the estimated value at the given quantile, in <tt>[0, 1]</tt>, or {@link Double#NaN} if this sketch is
+     * empty. Values are interpolated linearly between the centers of adjacent centroids.
+     */
+    public double quantile(double q) {
+        if (q < 0 || q > 1) {
+            throw new ElasticsearchIllegalArgumentException("q must be in [0, 1], got [" + q + "]");
+        }
+        compress();
+        if (centroids == 0) {
+            return Double.NaN;
+        }
+        final double index = q * count;
+        // left tail, between the minimum and the center of the first centroid
+        double center = weights[0] / 2d;
+        if (index <= center) {
+            return interpolate(index, 0, min, center, means[0]);
+        }
+        double weightSoFar = 0;
+        for (int i = 0; i < centroids - 1; ++i) {
+            final double nextCenter = weightSoFar + weights[i] + weights[i + 1] / 2d;
+            if (index <= nextCenter) {
+                return interpolate(index, center, means[i], nextCenter, means[i + 1]);
+            }
+            weightSoFar += weights[i];
+            center = nextCenter;
+        }
+        // right tail, between the center of the last centroid and the maximum
+        return interpolate(index, center, means[centroids - 1], count, max);
+    }
+
+    private static double interpolate(double x, double x0, double y0, double x1, double y1) {
+        if (x1 == x0) {
+            return y0;
+        }
+        return y0 + (x - x0) * (y1 - y0) / (x1 - x0);
+    }
+
+    public static void write(TDigestState state, StreamOutput out) throws IOException {
+        state.compress();
+        out.writeDouble(state.compression);
+        out.writeVLong(state.count);
+        out.writeDouble(state.min);
+        out.writeDouble(state.max);
+        out.writeVInt(state.centroids);
+        for (int i = 0; i < state.centroids; ++i) {
+            out.writeDouble(state.means[i]);
+            out.writeVLong(state.weights[i]);
+        }
+    }
+
+    public static TDigestState read(StreamInput in) throws IOException {
+        final TDigestState state = new TDigestState(in.readDouble());
+        state.count = in.readVLong();
+        state.min = in.readDouble();
+        state.max = in.readDouble();
+        final int centroids = in.readVInt();
+        for (int i = 0; i < centroids; ++i) {
+            state.addCentroid(in.readDouble(), in.readVLong());
+        }
+        return state;
+    }
+}
@@ -20,6 +20,7 @@ package org.elasticsearch.search.aggregations.support;
 
 import com.google.common.primitives.Longs;
 import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.util.ArrayUtil;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.BytesRefHash;
@@ -28,6 +29,7 @@ import org.elasticsearch.common.lucene.ReaderContextAware;
 import org.elasticsearch.common.util.CollectionUtils;
 import org.elasticsearch.index.fielddata.*;
 import org.elasticsearch.index.fielddata.AtomicFieldData.Order;
+import org.elasticsearch.index.fielddata.ordinals.GlobalOrdinalsMapping;
 import org.elasticsearch.script.SearchScript;
 import org.elasticsearch.search.aggregations.support.FieldDataSource.Bytes.SortedAndUnique.SortedUniqueBytesValues;
 import org.elasticsearch.search.aggregations.support.bytes.ScriptBytesValues;
@@ -152,6 +154,16 @@ public abstract class FieldDataSource {
 
             public abstract BytesValues.WithOrdinals bytesValues();
 
+            /**
+             * Returns the values of the given segment, without changing the segment this source is currently positioned on.
+             */
+            public abstract BytesValues.WithOrdinals bytesValues(AtomicReaderContext reader);
+
+            /**
+             * Returns the mapping of the ordinals of all segments of the given top-level reader to global ordinals.
+             */
+            public abstract GlobalOrdinalsMapping globalOrdinals(IndexReader indexReader);
+
             public static class FieldData extends WithOrdinals implements ReaderContextAware {
 
                 protected boolean needsHashes;
@@ -191,6 +203,16 @@ public abstract class FieldDataSource {
                     return bytesValues;
                 }
 
+                @Override
+                public BytesValues.WithOrdinals bytesValues(AtomicReaderContext reader) {
+                    return indexFieldData.load(reader).getBytesValues(needsHashes);
+                }
+
+                @Override
+                public GlobalOrdinalsMapping globalOrdinals(IndexReader indexReader) {
+                    return indexFieldData.loadGlobalOrdinals(indexReader);
+                }
+
             }
 
         }
@@ -18,7 +18,10 @@
  */
 package org.elasticsearch.search.aggregations.support.bytes;
 
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.index.IndexReader;
 import org.elasticsearch.index.fielddata.BytesValues;
+import org.elasticsearch.index.fielddata.ordinals.GlobalOrdinalsMapping;
 import org.elasticsearch.search.aggregations.support.FieldDataSource;
 import org.elasticsearch.search.aggregations.support.ValuesSource;
 
@@ -57,6 +60,14 @@ public class BytesValuesSource implements ValuesSource {
             return source.bytesValues();
         }
 
+        public BytesValues.WithOrdinals bytesValues(AtomicReaderContext reader) {
+            return source.bytesValues(reader);
+        }
+
+        public GlobalOrdinalsMapping globalOrdinals(IndexReader indexReader) {
+            return source.globalOrdinals(indexReader);
+        }
+
     }
 
 }
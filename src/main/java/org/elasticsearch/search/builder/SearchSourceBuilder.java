@@ -94,6 +94,10 @@ public class SearchSourceBuilder implements ToXContent {
 
     private boolean trackScores = false;
 
+    private Object[] searchAfter;
+
+    private int maxConcurrentSegmentSearches = -1;
+
     private Float minScore;
 
     private long timeoutInMillis = -1;
@@ -347,6 +351,24 @@ public class SearchSourceBuilder implements ToXContent {
         return this;
     }
 
+    /**
+     * Returns the hits that sort after the given sort values, typically the sort values of the last hit of the
+     * previous page. Requires a sort, with a unique field as the last sort criteria to break ties.
+     */
+    public SearchSourceBuilder searchAfter(Object... searchAfter) {
+        this.searchAfter = searchAfter;
+        return this;
+    }
+
+    /**
+     * The maximum number of slices of segments each shard may search concurrently when collecting the top hits.
+     * Defaults to <tt>1</tt>, the segments are searched sequentially.
+     */
+    public SearchSourceBuilder maxConcurrentSegmentSearches(int maxConcurrentSegmentSearches) {
+        this.maxConcurrentSegmentSearches = maxConcurrentSegmentSearches;
+        return this;
+    }
+
     /**
      * Add a facet to perform as part of the search.
      */
@@ -861,6 +883,18 @@ public class SearchSourceBuilder implements ToXContent {
             builder.field("track_scores", trackScores);
         }
 
+        if (maxConcurrentSegmentSearches != -1) {
+            builder.field("max_concurrent_segment_searches", maxConcurrentSegmentSearches);
+        }
+
+        if (searchAfter != null) {
+            builder.startArray("search_after");
+            for (Object value : searchAfter) {
+                builder.value(value);
+            }
+            builder.endArray();
+        }
+
         if (indexBoost != null) {
             builder.startObject("indices_boost");
             final boolean[] states = indexBoost.allocated;
@@ -0,0 +1,76 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.controller;
+
+import org.elasticsearch.cache.recycler.CacheRecycler;
+import org.elasticsearch.search.aggregations.InternalAggregations;
+import org.elasticsearch.search.query.QuerySearchResult;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reduces the aggregations of shard query results as they arrive on the coordinating node. Once
+ * <tt>batchedReduceSize</tt> shard aggregations are buffered they are partially reduced into a single
+ * one, so that only <tt>batchedReduceSize</tt> aggregations are held in memory at once, regardless of the
+ * number of shards the search request is executed on. The final reduce is done in
+ * {@link SearchPhaseController#merge}.
+ */
+public class BatchedAggregationsReducer {
+
+    private final CacheRecycler cacheRecycler;
+    private final int batchedReduceSize;
+    private final List<InternalAggregations> buffer;
+
+    BatchedAggregationsReducer(CacheRecycler cacheRecycler, int batchedReduceSize) {
+        assert batchedReduceSize > 1;
+        this.cacheRecycler = cacheRecycler;
+        this.batchedReduceSize = batchedReduceSize;
+        this.buffer = new ArrayList<InternalAggregations>(batchedReduceSize);
+    }
+
+    /**
+     * Takes over the aggregations of the given shard result, they are removed from the result.
+     */
+    public synchronized void consume(QuerySearchResult result) {
+        InternalAggregations aggregations = (InternalAggregations) result.aggregations();
+        if (aggregations == null) {
+            return;
+        }
+        result.aggregations(null);
+        buffer.add(aggregations);
+        if (buffer.size() >= batchedReduceSize) {
+            InternalAggregations reduced = InternalAggregations.reduce(buffer, cacheRecycler, false);
+            buffer.clear();
+            buffer.add(reduced);
+        }
+    }
+
+    /**
+     * Executes the final reduce over the buffered aggregations, returns <tt>null</tt> if none of the
+     * consumed results had aggregations.
+     */
+    synchronized InternalAggregations reduce() {
+        if (buffer.isEmpty()) {
+            return null;
+        }
+        return InternalAggregations.reduce(buffer, cacheRecycler);
+    }
+}
@@ -26,6 +26,7 @@ import org.apache.lucene.index.Term;
 import org.apache.lucene.search.*;
 import org.apache.lucene.util.PriorityQueue;
 import org.elasticsearch.cache.recycler.CacheRecycler;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.component.AbstractComponent;
 import org.elasticsearch.common.collect.HppcMaps;
 import org.elasticsearch.common.inject.Inject;
@@ -76,6 +77,18 @@ public class SearchPhaseController extends AbstractComponent {
         this.optimizeSingleShard = componentSettings.getAsBoolean("optimize_single_shard", true);
     }
 
+    /**
+     * Returns a reducer that reduces the aggregations of the shard query results in batches of
+     * <tt>batchedReduceSize</tt> as they come in, or <tt>null</tt> if the number of shards is small
+     * enough for the results to be reduced all at once.
+     */
+    public BatchedAggregationsReducer batchedAggregationsReducer(int batchedReduceSize, int numShards) {
+        if (numShards <= batchedReduceSize) {
+            return null;
+        }
+        return new BatchedAggregationsReducer(cacheRecycler, batchedReduceSize);
+    }
+
     public boolean optimizeSingleShard() {
         return optimizeSingleShard;
     }
@@ -306,6 +319,15 @@ public class SearchPhaseController extends AbstractComponent {
     }
 
     public InternalSearchResponse merge(ScoreDoc[] sortedDocs, AtomicArray<? extends QuerySearchResultProvider> queryResultsArr, AtomicArray<? extends FetchSearchResultProvider> fetchResultsArr) {
+        return merge(sortedDocs, queryResultsArr, fetchResultsArr, null);
+    }
+
+    /**
+     * Merges the shard results, the aggregations of the query results are reduced by the given
+     * <tt>aggregationsReducer</tt> when it is set.
+     */
+    public InternalSearchResponse merge(ScoreDoc[] sortedDocs, AtomicArray<? extends QuerySearchResultProvider> queryResultsArr, AtomicArray<? extends FetchSearchResultProvider> fetchResultsArr,
+                                        @Nullable BatchedAggregationsReducer aggregationsReducer) {
 
         List<? extends AtomicArray.Entry<? extends QuerySearchResultProvider>> queryResults = queryResultsArr.asList();
         List<? extends AtomicArray.Entry<? extends FetchSearchResultProvider>> fetchResults = fetchResultsArr.asList();
@@ -425,7 +447,12 @@ public class SearchPhaseController extends AbstractComponent {
 
         // merge addAggregation
         InternalAggregations aggregations = null;
-        if (!queryResults.isEmpty()) {
+        if (aggregationsReducer != null) {
+            for (AtomicArray.Entry<? extends QuerySearchResultProvider> entry : queryResults) {
+                aggregationsReducer.consume(entry.value.queryResult());
+            }
+            aggregations = aggregationsReducer.reduce();
+        } else if (!queryResults.isEmpty()) {
             if (firstResult.aggregations() != null && firstResult.aggregations().asList() != null) {
                 List<InternalAggregations> aggregationsList = new ArrayList<InternalAggregations>(queryResults.size());
                 for (AtomicArray.Entry<? extends QuerySearchResultProvider> entry : queryResults) {
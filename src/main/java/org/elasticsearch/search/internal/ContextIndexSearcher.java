@@ -21,17 +21,25 @@ package org.elasticsearch.search.internal;
 
 import org.apache.lucene.index.AtomicReaderContext;
 import org.apache.lucene.search.*;
+import org.apache.lucene.util.ThreadInterruptedException;
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.lucene.MinimumScoreCollector;
 import org.elasticsearch.common.lucene.MultiCollector;
 import org.elasticsearch.common.lucene.search.FilteredCollector;
 import org.elasticsearch.common.lucene.search.XCollector;
 import org.elasticsearch.common.lucene.search.XFilteredQuery;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
 import org.elasticsearch.index.engine.Engine;
 import org.elasticsearch.search.dfs.CachedDfSource;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
 
 /**
  * Context-aware extension of {@link IndexSearcher}.
@@ -191,6 +199,150 @@ public class ContextIndexSearcher extends IndexSearcher {
         }
     }
 
+    /**
+     * Returns <tt>true</tt> if the main query only collects top docs, so that its segments can be searched concurrently, see
+     * {@link #searchConcurrently(Query, int, Sort, FieldDoc, boolean, Executor, int)}.
+     */
+    public boolean canSearchConcurrently() {
+        return !enableMainDocIdSetCollector && (queryCollectors == null || queryCollectors.isEmpty()) && leafContexts.size() > 1;
+    }
+
+    /**
+     * Executes the main query and collects its top docs, the segments are partitioned in at most <tt>maxConcurrency</tt>
+     * slices of consecutive segments which are searched in parallel on the given executor. Each slice collects its own top docs,
+     * which are merged at the end. The calling thread searches every slice that the executor rejected or didn't start yet.
+     */
+    public TopDocs searchConcurrently(Query query, int numDocs, @Nullable Sort sort, @Nullable FieldDoc after, boolean trackScores,
+                                      Executor executor, int maxConcurrency) throws IOException {
+        assert currentState == Stage.MAIN_QUERY;
+        final Weight weight = createNormalizedWeight(query);
+        final int limit = Math.max(1, reader.maxDoc());
+        final int numHits = Math.min(numDocs, limit);
+        final List<List<AtomicReaderContext>> slices = slices(leafContexts, maxConcurrency);
+        final List<FutureTask<TopDocs>> tasks = new ArrayList<FutureTask<TopDocs>>(slices.size());
+        try {
+            for (final List<AtomicReaderContext> slice : slices) {
+                tasks.add(new FutureTask<TopDocs>(new Callable<TopDocs>() {
+                    @Override
+                    public TopDocs call() throws Exception {
+                        // some queries and filters look up the current search context while executing
+                        final boolean forked = SearchContext.current() != searchContext;
+                        if (forked) {
+                            SearchContext.setCurrent(searchContext);
+                        }
+                        try {
+                            return searchSlice(slice, weight, numHits, sort, after, trackScores);
+                        } finally {
+                            if (forked) {
+                                SearchContext.removeCurrent();
+                            }
+                        }
+                    }
+                }));
+            }
+            for (int i = 1; i < tasks.size(); i++) {
+                try {
+                    executor.execute(tasks.get(i));
+                } catch (EsRejectedExecutionException e) {
+                    tasks.get(i).run();
+                }
+            }
+            // search the slices that were not picked up by the executor yet on the calling thread rather than waiting for them,
+            // running a task that already started or completed is a no-op
+            for (FutureTask<TopDocs> task : tasks) {
+                task.run();
+            }
+
+            // wait for all the slices even if one failed, the releasables they use are cleared once we return
+            final TopDocs[] sliceTopDocs = new TopDocs[tasks.size()];
+            Throwable failure = null;
+            boolean interrupted = false;
+            for (int i = 0; i < tasks.size(); i++) {
+                while (true) {
+                    try {
+                        sliceTopDocs[i] = tasks.get(i).get();
+                        break;
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    } catch (ExecutionException e) {
+                        if (failure == null) {
+                            failure = e.getCause();
+                        }
+                        break;
+                    }
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+                throw new ThreadInterruptedException(new InterruptedException());
+            }
+            if (failure != null) {
+                if (failure instanceof IOException) {
+                    throw (IOException) failure;
+                }
+                throw ExceptionsHelper.convertToRuntime(failure);
+            }
+            // the slices are consecutive, so ties are broken in doc id order as with a sequential search
+            return TopDocs.merge(sort, numHits, sliceTopDocs);
+        } finally {
+            searchContext.clearReleasables();
+        }
+    }
+
+    private TopDocs searchSlice(List<AtomicReaderContext> slice, Weight weight, int numHits, Sort sort, FieldDoc after, boolean trackScores) throws IOException {
+        final TopDocsCollector<?> topDocsCollector;
+        if (sort == null) {
+            topDocsCollector = TopScoreDocCollector.create(numHits, after, !weight.scoresDocsOutOfOrder());
+        } else {
+            topDocsCollector = TopFieldCollector.create(sort, numHits, after, true, trackScores, trackScores, !weight.scoresDocsOutOfOrder());
+        }
+        Collector collector = topDocsCollector;
+        if (searchContext.parsedPostFilter() != null) {
+            collector = new FilteredCollector(collector, searchContext.parsedPostFilter().filter());
+        }
+        if (searchContext.minimumScore() != null) {
+            collector = new MinimumScoreCollector(collector, searchContext.minimumScore());
+        }
+        if (searchContext.timeoutInMillis() != -1) {
+            collector = new TimeLimitingCollector(collector, TimeLimitingCollector.getGlobalCounter(), searchContext.timeoutInMillis());
+            try {
+                super.search(slice, weight, collector);
+            } catch (TimeLimitingCollector.TimeExceededException e) {
+                searchContext.queryResult().searchTimedOut(true);
+            }
+        } else {
+            super.search(slice, weight, collector);
+        }
+        return topDocsCollector.topDocs();
+    }
+
+    /**
+     * Partitions the leaves in at most <tt>maxSlices</tt> slices of consecutive leaves with about the same number of docs.
+     */
+    static List<List<AtomicReaderContext>> slices(List<AtomicReaderContext> leaves, int maxSlices) {
+        long totalMaxDoc = 0;
+        for (AtomicReaderContext leaf : leaves) {
+            totalMaxDoc += leaf.reader().maxDoc();
+        }
+        final long docsPerSlice = Math.max(1, (totalMaxDoc + maxSlices - 1) / maxSlices);
+        final List<List<AtomicReaderContext>> slices = new ArrayList<List<AtomicReaderContext>>();
+        List<AtomicReaderContext> current = new ArrayList<AtomicReaderContext>();
+        long currentMaxDoc = 0;
+        for (AtomicReaderContext leaf : leaves) {
+            current.add(leaf);
+            currentMaxDoc += leaf.reader().maxDoc();
+            if (currentMaxDoc >= docsPerSlice && slices.size() < maxSlices - 1) {
+                slices.add(current);
+                current = new ArrayList<AtomicReaderContext>();
+                currentMaxDoc = 0;
+            }
+        }
+        if (!current.isEmpty()) {
+            slices.add(current);
+        }
+        return slices;
+    }
+
     @Override
     public Explanation explain(Query query, int doc) throws IOException {
         try {
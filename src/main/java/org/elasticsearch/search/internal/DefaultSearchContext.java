@@ -21,6 +21,7 @@ package org.elasticsearch.search.internal;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
+import org.apache.lucene.search.FieldDoc;
 import org.apache.lucene.search.Filter;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.Sort;
@@ -139,6 +140,10 @@ public class DefaultSearchContext extends SearchContext {
 
     private boolean trackScores = false; // when sorting, track scores as well...
 
+    private FieldDoc searchAfter;
+
+    private int maxConcurrentSegmentSearches = 1;
+
     private ParsedQuery originalQuery;
 
     private Query query;
@@ -499,6 +504,28 @@ public class DefaultSearchContext extends SearchContext {
         return this.trackScores;
     }
 
+    public SearchContext searchAfter(FieldDoc searchAfter) {
+        this.searchAfter = searchAfter;
+        return this;
+    }
+
+    public FieldDoc searchAfter() {
+        return this.searchAfter;
+    }
+
+    public SearchContext maxConcurrentSegmentSearches(int maxConcurrentSegmentSearches) {
+        this.maxConcurrentSegmentSearches = maxConcurrentSegmentSearches;
+        return this;
+    }
+
+    public int maxConcurrentSegmentSearches() {
+        if (searchLookup != null) {
+            // scripts share the lookup of this context, which can't be positioned on several segments at once
+            return 1;
+        }
+        return this.maxConcurrentSegmentSearches;
+    }
+
     public SearchContext parsedPostFilter(ParsedFilter postFilter) {
         this.postFilter = postFilter;
         return this;
@@ -660,7 +687,8 @@ public class DefaultSearchContext extends SearchContext {
     }
 
     @Override
-    public void addReleasable(Releasable releasable) {
+    public synchronized void addReleasable(Releasable releasable) {
+        // synchronized since the segments of a shard might be searched concurrently
         if (clearables == null) {
             clearables = new ArrayList<Releasable>();
         }
@@ -668,7 +696,7 @@ public class DefaultSearchContext extends SearchContext {
     }
 
     @Override
-    public void clearReleasables() {
+    public synchronized void clearReleasables() {
         if (clearables != null) {
             Throwable th = null;
             for (Releasable releasable : clearables) {
@@ -18,6 +18,7 @@
  */
 package org.elasticsearch.search.internal;
 
+import org.apache.lucene.search.FieldDoc;
 import org.apache.lucene.search.Filter;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.Sort;
@@ -207,6 +208,17 @@ public abstract class SearchContext implements Releasable {
 
     public abstract boolean trackScores();
 
+    public abstract SearchContext searchAfter(FieldDoc searchAfter);
+
+    public abstract FieldDoc searchAfter();
+
+    public abstract SearchContext maxConcurrentSegmentSearches(int maxConcurrentSegmentSearches);
+
+    /**
+     * The maximum number of slices of segments the main query may be executed on concurrently.
+     */
+    public abstract int maxConcurrentSegmentSearches();
+
     public abstract SearchContext parsedPostFilter(ParsedFilter postFilter);
 
     public abstract ParsedFilter parsedPostFilter();
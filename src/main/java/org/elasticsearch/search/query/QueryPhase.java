@@ -27,6 +27,7 @@ import org.elasticsearch.action.search.SearchType;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.lucene.Lucene;
 import org.elasticsearch.search.SearchParseElement;
+import org.elasticsearch.search.SearchParseException;
 import org.elasticsearch.search.SearchPhase;
 import org.elasticsearch.search.aggregations.AggregationPhase;
 import org.elasticsearch.search.facet.FacetPhase;
@@ -37,6 +38,7 @@ import org.elasticsearch.search.rescore.RescoreSearchContext;
 import org.elasticsearch.search.sort.SortParseElement;
 import org.elasticsearch.search.sort.TrackScoresParseElement;
 import org.elasticsearch.search.suggest.SuggestPhase;
+import org.elasticsearch.threadpool.ThreadPool;
 
 import java.util.Map;
 
@@ -49,13 +51,16 @@ public class QueryPhase implements SearchPhase {
     private final AggregationPhase aggregationPhase;
     private final SuggestPhase suggestPhase;
     private RescorePhase rescorePhase;
+    private final ThreadPool threadPool;
 
     @Inject
-    public QueryPhase(FacetPhase facetPhase, AggregationPhase aggregationPhase, SuggestPhase suggestPhase, RescorePhase rescorePhase) {
+    public QueryPhase(FacetPhase facetPhase, AggregationPhase aggregationPhase, SuggestPhase suggestPhase, RescorePhase rescorePhase,
+                      ThreadPool threadPool) {
         this.facetPhase = facetPhase;
         this.aggregationPhase = aggregationPhase;
         this.suggestPhase = suggestPhase;
         this.rescorePhase = rescorePhase;
+        this.threadPool = threadPool;
     }
 
     @Override
@@ -73,11 +78,15 @@ public class QueryPhase implements SearchPhase {
                 .put("filterBinary", new FilterBinaryParseElement())
                 .put("filter_binary", new FilterBinaryParseElement())
                 .put("sort", new SortParseElement())
+                .put("search_after", new SearchAfterParseElement())
+                .put("searchAfter", new SearchAfterParseElement())
                 .put("trackScores", new TrackScoresParseElement())
                 .put("track_scores", new TrackScoresParseElement())
                 .put("min_score", new MinScoreParseElement())
                 .put("minScore", new MinScoreParseElement())
                 .put("timeout", new TimeoutParseElement())
+                .put("max_concurrent_segment_searches", new MaxConcurrentSegmentSearchesParseElement())
+                .put("maxConcurrentSegmentSearches", new MaxConcurrentSegmentSearchesParseElement())
                 .putAll(facetPhase.parseElements())
                 .putAll(aggregationPhase.parseElements())
                 .putAll(suggestPhase.parseElements())
@@ -88,6 +97,22 @@ public class QueryPhase implements SearchPhase {
     @Override
     public void preProcess(SearchContext context) {
         context.preProcess();
+        if (context.searchAfter() != null) {
+            if (context.sort() == null) {
+                throw new SearchParseException(context, "search_after requires a sort");
+            }
+            if (context.from() > 0) {
+                throw new SearchParseException(context, "from must be 0 when search_after is used");
+            }
+            if (context.scroll() != null) {
+                throw new SearchParseException(context, "search_after can't be used with scroll");
+            }
+            try {
+                SearchAfterParseElement.convertSortValues(context.sort().getSort(), context.searchAfter());
+            } catch (Throwable t) {
+                throw new SearchParseException(context, "failed to parse search_after values", t);
+            }
+        }
         facetPhase.preProcess(context);
         aggregationPhase.preProcess(context);
     }
@@ -112,6 +137,15 @@ public class QueryPhase implements SearchPhase {
                 topDocs = new TopDocs(collector.getTotalHits(), Lucene.EMPTY_SCORE_DOCS, 0);
             } else if (searchContext.searchType() == SearchType.SCAN) {
                 topDocs = searchContext.scanContext().execute(searchContext);
+            } else if (searchContext.maxConcurrentSegmentSearches() > 1 && searchContext.rescore().isEmpty()
+                    && searchContext.searcher().canSearchConcurrently()) {
+                topDocs = searchContext.searcher().searchConcurrently(query, numDocs, searchContext.sort(), searchContext.searchAfter(),
+                        searchContext.trackScores(), threadPool.executor(ThreadPool.Names.SEGMENT_SEARCH),
+                        searchContext.maxConcurrentSegmentSearches());
+            } else if (searchContext.searchAfter() != null) {
+                // only the hits that sort after the given values are competitive, no need to collect "from + size" hits
+                topDocs = searchContext.searcher().searchAfter(searchContext.searchAfter(), query, null, numDocs, searchContext.sort(),
+                        searchContext.trackScores(), searchContext.trackScores());
             } else if (searchContext.sort() != null) {
                 topDocs = searchContext.searcher().search(query, null, numDocs, searchContext.sort(),
                         searchContext.trackScores(), searchContext.trackScores());
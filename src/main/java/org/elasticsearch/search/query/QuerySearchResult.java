@@ -20,6 +20,7 @@
 package org.elasticsearch.search.query;
 
 import org.apache.lucene.search.TopDocs;
+import org.elasticsearch.Version;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.search.SearchShardTarget;
@@ -49,6 +50,7 @@ public class QuerySearchResult extends TransportResponse implements QuerySearchR
     private InternalAggregations aggregations;
     private Suggest suggest;
     private boolean searchTimedOut;
+    private int nodeQueueSize = -1;
 
     public QuerySearchResult() {
 
@@ -122,6 +124,18 @@ public class QuerySearchResult extends TransportResponse implements QuerySearchR
         this.suggest = suggest;
     }
 
+    /**
+     * The size of the search queue of the node that executed the query, <tt>-1</tt> if unknown. Used by the
+     * coordinating node to rank the shard copies it sends search requests to.
+     */
+    public int nodeQueueSize() {
+        return nodeQueueSize;
+    }
+
+    public void nodeQueueSize(int nodeQueueSize) {
+        this.nodeQueueSize = nodeQueueSize;
+    }
+
     public int from() {
         return from;
     }
@@ -149,7 +163,15 @@ public class QuerySearchResult extends TransportResponse implements QuerySearchR
     @Override
     public void readFrom(StreamInput in) throws IOException {
         super.readFrom(in);
-        id = in.readLong();
+        long id = in.readLong();
+        readFromWithId(id, in);
+        if (in.getVersion().onOrAfter(Version.V_2_0_0)) {
+            nodeQueueSize = in.readInt();
+        }
+    }
+
+    public void readFromWithId(long id, StreamInput in) throws IOException {
+        this.id = id;
 //        shardTarget = readSearchShardTarget(in);
         from = in.readVInt();
         size = in.readVInt();
@@ -170,6 +192,13 @@ public class QuerySearchResult extends TransportResponse implements QuerySearchR
     public void writeTo(StreamOutput out) throws IOException {
         super.writeTo(out);
         out.writeLong(id);
+        writeToNoId(out);
+        if (out.getVersion().onOrAfter(Version.V_2_0_0)) {
+            out.writeInt(nodeQueueSize);
+        }
+    }
+
+    public void writeToNoId(StreamOutput out) throws IOException {
 //        shardTarget.writeTo(out);
         out.writeVInt(from);
         out.writeVInt(size);
@@ -0,0 +1,109 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.query;
+
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.SortField;
+import org.elasticsearch.ElasticsearchIllegalArgumentException;
+import org.elasticsearch.common.lucene.BytesRefs;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.index.fielddata.IndexFieldData;
+import org.elasticsearch.search.SearchParseElement;
+import org.elasticsearch.search.SearchParseException;
+import org.elasticsearch.search.internal.SearchContext;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parses the <tt>search_after</tt> sort values. The values are kept as parsed until the sort is known, see
+ * {@link #convertSortValues(SortField[], FieldDoc)}.
+ */
+public class SearchAfterParseElement implements SearchParseElement {
+
+    @Override
+    public void parse(XContentParser parser, SearchContext context) throws Exception {
+        XContentParser.Token token = parser.currentToken();
+        if (token != XContentParser.Token.START_ARRAY) {
+            throw new SearchParseException(context, "search_after must be an array of sort values");
+        }
+        List<Object> values = new ArrayList<Object>();
+        while ((token = parser.nextToken()) != XContentParser.Token.END_ARRAY) {
+            if (token == XContentParser.Token.VALUE_NULL) {
+                values.add(null);
+            } else if (token == XContentParser.Token.VALUE_NUMBER) {
+                values.add(parser.numberValue());
+            } else if (token == XContentParser.Token.VALUE_BOOLEAN) {
+                values.add(parser.booleanValue());
+            } else if (token.isValue()) {
+                values.add(parser.text());
+            } else {
+                throw new SearchParseException(context, "search_after values must be values, got [" + token + "]");
+            }
+        }
+        // no tie breaking on the doc id, it is only meaningful within a shard: a unique sort field is expected instead
+        context.searchAfter(new FieldDoc(Integer.MAX_VALUE, Float.NaN, values.toArray()));
+    }
+
+    /**
+     * Converts the parsed sort values of the given doc to the types expected by the comparators of the sort fields.
+     */
+    public static void convertSortValues(SortField[] sortFields, FieldDoc after) {
+        if (sortFields.length != after.fields.length) {
+            throw new ElasticsearchIllegalArgumentException("search_after has [" + after.fields.length + "] values but the sort has ["
+                    + sortFields.length + "] fields");
+        }
+        for (int i = 0; i < sortFields.length; i++) {
+            SortField sortField = sortFields[i];
+            SortField.Type type = sortField.getType();
+            if (type == SortField.Type.CUSTOM && sortField.getComparatorSource() instanceof IndexFieldData.XFieldComparatorSource) {
+                type = ((IndexFieldData.XFieldComparatorSource) sortField.getComparatorSource()).reducedType();
+            }
+            after.fields[i] = convertSortValue(type, after.fields[i]);
+        }
+    }
+
+    private static Object convertSortValue(SortField.Type type, Object value) {
+        if (value == null) {
+            return null;
+        }
+        switch (type) {
+            case STRING:
+            case STRING_VAL:
+                return BytesRefs.toBytesRef(value);
+            case INT:
+            case DOC:
+                return value instanceof Number ? ((Number) value).intValue() : Integer.parseInt(value.toString());
+            case LONG:
+                return value instanceof Number ? ((Number) value).longValue() : Long.parseLong(value.toString());
+            case FLOAT:
+            case SCORE:
+                return value instanceof Number ? ((Number) value).floatValue() : Float.parseFloat(value.toString());
+            case DOUBLE:
+                return value instanceof Number ? ((Number) value).doubleValue() : Double.parseDouble(value.toString());
+            case SHORT:
+                return value instanceof Number ? ((Number) value).shortValue() : Short.parseShort(value.toString());
+            case BYTE:
+                return value instanceof Number ? ((Number) value).byteValue() : Byte.parseByte(value.toString());
+            default:
+                throw new ElasticsearchIllegalArgumentException("search_after is not supported on sort type [" + type + "]");
+        }
+    }
+}
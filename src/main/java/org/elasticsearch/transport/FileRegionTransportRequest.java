@@ -0,0 +1,63 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.transport;
+
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.lease.Releasable;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+
+/**
+ * A request that ends with a region of a file. When the request is not compressed, the network layer can
+ * send the region straight from the file to the channel, without reading it on the heap first.
+ */
+public interface FileRegionTransportRequest {
+
+    /**
+     * The file to send the region from, <tt>null</tt> if the request doesn't hold a file region, in which case
+     * it is serialized as usual.
+     */
+    @Nullable
+    FileChannel fileChannel();
+
+    /**
+     * The position of the region in the {@link #fileChannel()}.
+     */
+    long regionPosition();
+
+    /**
+     * The number of bytes of the region.
+     */
+    int regionLength();
+
+    /**
+     * Acquires the {@link #fileChannel()} for a write of the region that completes asynchronously. The file
+     * channel stays open until the returned releasable is released, once the write completed or failed.
+     */
+    Releasable retainFileChannel();
+
+    /**
+     * Writes the data in a "thin" manner, without the actual bytes of the region, assumes
+     * the actual bytes will be appended right after this content.
+     */
+    void writeThin(StreamOutput out) throws IOException;
+}
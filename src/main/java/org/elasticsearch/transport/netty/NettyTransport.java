@@ -33,6 +33,7 @@ import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.io.stream.HandlesStreamOutput;
 import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.lease.Releasable;
 import org.elasticsearch.common.netty.NettyStaticSetup;
 import org.elasticsearch.common.netty.OpenChannelsHandler;
 import org.elasticsearch.common.network.NetworkService;
@@ -537,7 +538,10 @@ public class NettyTransport extends AbstractLifecycleComponent<Transport> implem
 
     @Override
     public void sendRequest(final DiscoveryNode node, final long requestId, final String action, final TransportRequest request, TransportRequestOptions options) throws IOException, TransportException {
-        Channel targetChannel = nodeChannel(node, options);
+        NodeChannels nodeChannels = nodeChannels(node);
+        Channel targetChannel = nodeChannels.channel(options.type());
+        // file regions are only sent on dedicated recovery channels, those are the only ones where writes need to be serialized
+        final boolean fileRegionChannel = options.type() == TransportRequestOptions.Type.RECOVERY && nodeChannels.hasDedicatedRecoveryChannels();
 
         if (compress) {
             options.withCompress(true);
@@ -578,13 +582,51 @@ public class NettyTransport extends AbstractLifecycleComponent<Transport> implem
             ChannelBuffer contentBuffer = bRequest.bytes().toChannelBuffer();
             // false on gathering, cause gathering causes the NIO layer to combine the buffers into a single direct buffer....
             buffer = new CompositeChannelBuffer(headerBuffer.order(), ImmutableList.<ChannelBuffer>of(headerBuffer, contentBuffer), false);
+        } else if (fileRegionChannel && request instanceof FileRegionTransportRequest && ((FileRegionTransportRequest) request).fileChannel() != null
+                && !TransportStatus.isCompress(status)) {
+            // the region is sent from the file with transferTo, it never gets copied to the heap
+            FileRegionTransportRequest fRequest = (FileRegionTransportRequest) request;
+            fRequest.writeThin(stream);
+            stream.close();
+            buffer = bStream.bytes().toChannelBuffer();
+            NettyHeader.writeHeader(buffer, requestId, status, version, fRequest.regionLength());
+            // the region is transferred once the writes queued before it are flushed, the file must stay open until then,
+            // even if the request times out meanwhile
+            final Releasable fileChannelRef = fRequest.retainFileChannel();
+            boolean success = false;
+            try {
+                // the header and the region are two writes, no other request may be written in between
+                ChannelFuture regionFuture;
+                synchronized (targetChannel) {
+                    targetChannel.write(buffer);
+                    regionFuture = targetChannel.write(new DefaultFileRegion(fRequest.fileChannel(), fRequest.regionPosition(), fRequest.regionLength()));
+                }
+                regionFuture.addListener(new ChannelFutureListener() {
+                    @Override
+                    public void operationComplete(ChannelFuture future) throws Exception {
+                        fileChannelRef.release();
+                    }
+                });
+                success = true;
+            } finally {
+                if (!success) {
+                    fileChannelRef.release();
+                }
+            }
+            return;
         } else {
             request.writeTo(stream);
             stream.close();
             buffer = bStream.bytes().toChannelBuffer();
         }
         NettyHeader.writeHeader(buffer, requestId, status, version);
-        targetChannel.write(buffer);
+        if (fileRegionChannel) {
+            synchronized (targetChannel) {
+                targetChannel.write(buffer);
+            }
+        } else {
+            targetChannel.write(buffer);
+        }
 
         // We handle close connection exception in the #exceptionCaught method, which is the main reason we want to add this future
 //        channelFuture.addListener(new ChannelFutureListener() {
@@ -853,12 +895,12 @@ public class NettyTransport extends AbstractLifecycleComponent<Transport> implem
         }
     }
 
-    private Channel nodeChannel(DiscoveryNode node, TransportRequestOptions options) throws ConnectTransportException {
+    private NodeChannels nodeChannels(DiscoveryNode node) throws ConnectTransportException {
         NodeChannels nodeChannels = connectedNodes.get(node);
         if (nodeChannels == null) {
             throw new NodeNotConnectedException(node, "Node not connected");
         }
-        return nodeChannels.channel(options.type());
+        return nodeChannels;
     }
 
     private class ChannelCloseListener implements ChannelFutureListener {
@@ -896,6 +938,13 @@ public class NettyTransport extends AbstractLifecycleComponent<Transport> implem
             this.ping = ping;
         }
 
+        /**
+         * Returns <tt>false</tt> if recovery requests share their channels with other types of requests, as with light connections.
+         */
+        public boolean hasDedicatedRecoveryChannels() {
+            return recovery != reg;
+        }
+
         public boolean hasChannel(Channel channel) {
             return hasChannel(channel, recovery) || hasChannel(channel, bulk) || hasChannel(channel, reg) || hasChannel(channel, state) || hasChannel(channel, ping);
         }
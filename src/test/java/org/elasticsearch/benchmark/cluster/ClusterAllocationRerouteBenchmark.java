@@ -26,6 +26,7 @@ import org.elasticsearch.cluster.node.DiscoveryNodes;
 import org.elasticsearch.cluster.routing.RoutingTable;
 import org.elasticsearch.cluster.routing.allocation.AllocationService;
 import org.elasticsearch.cluster.routing.allocation.RoutingAllocation;
+import org.elasticsearch.cluster.routing.allocation.allocator.BalancedShardsAllocator;
 import org.elasticsearch.common.logging.ESLogger;
 import org.elasticsearch.common.logging.Loggers;
 import org.elasticsearch.common.settings.ImmutableSettings;
@@ -42,13 +43,17 @@ public class ClusterAllocationRerouteBenchmark {
 
     public static void main(String[] args) {
         final int numberOfRuns = 1;
-        final int numIndices = 5 * 365; // five years
-        final int numShards = 6;
-        final int numReplicas = 2;
-        final int numberOfNodes = 30;
+        // defaults to ~100k shards, 5556 indices * 6 shards * 3 copies
+        final int numIndices = Integer.getInteger("indices", 5556);
+        final int numShards = Integer.getInteger("shards", 6);
+        final int numReplicas = Integer.getInteger("replicas", 2);
+        final int numberOfNodes = Integer.getInteger("nodes", 100);
         final int numberOfTags = 2;
+        final int numberOfIdleReroutes = 10;
+        final boolean incremental = Boolean.parseBoolean(System.getProperty("incremental", "true"));
         AllocationService strategy = ElasticsearchAllocationTestCase.createAllocationService(ImmutableSettings.builder()
                 .put("cluster.routing.allocation.awareness.attributes", "tag")
+                .put(BalancedShardsAllocator.SETTING_INCREMENTAL, incremental)
                 .build(), new Random(1));
 
         MetaData.Builder mb = MetaData.builder();
@@ -66,6 +71,7 @@ public class ClusterAllocationRerouteBenchmark {
             nb.put(ElasticsearchAllocationTestCase.newNode("node" + i, numberOfTags == 0 ? ImmutableMap.<String, String>of() : ImmutableMap.of("tag", "tag_" + (i % numberOfTags))));
         }
         ClusterState initialClusterState = ClusterState.builder().metaData(metaData).routingTable(routingTable).nodes(nb).build();
+        logger.info("[{}] indices, [{}] shards, [{}] nodes, incremental [{}]", numIndices, metaData.totalNumberOfShards(), numberOfNodes, incremental);
 
         long start = System.currentTimeMillis();
         for (int i = 0; i < numberOfRuns; i++) {
@@ -80,6 +86,14 @@ public class ClusterAllocationRerouteBenchmark {
                 clusterState = ClusterState.builder(clusterState).routingResult(result).build();
             }
             logger.info("[{}] took {}", i, TimeValue.timeValueMillis(System.currentTimeMillis() - runStart));
+
+            // reroutes that don't change anything, like the ones following a settings update
+            runStart = System.currentTimeMillis();
+            for (int j = 0; j < numberOfIdleReroutes; j++) {
+                RoutingAllocation.Result result = strategy.reroute(clusterState);
+                clusterState = ClusterState.builder(clusterState).routingResult(result).build();
+            }
+            logger.info("[{}] idle reroute AVG {}", i, TimeValue.timeValueMillis((System.currentTimeMillis() - runStart) / numberOfIdleReroutes));
         }
         long took = System.currentTimeMillis() - start;
         logger.info("total took {}, AVG {}", TimeValue.timeValueMillis(took), TimeValue.timeValueMillis(took / numberOfRuns));
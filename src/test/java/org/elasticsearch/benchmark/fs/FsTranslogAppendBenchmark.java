@@ -0,0 +1,85 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.benchmark.fs;
+
+import org.elasticsearch.cache.recycler.PageCacheRecycler;
+import org.elasticsearch.common.StopWatch;
+import org.elasticsearch.common.io.FileSystemUtils;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.SizeValue;
+import org.elasticsearch.index.Index;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.index.translog.Translog;
+import org.elasticsearch.index.translog.fs.FsTranslog;
+import org.elasticsearch.threadpool.ThreadPool;
+
+import java.io.File;
+import java.util.Random;
+
+/**
+ * Compares appending operations to the translog through the default array based write path
+ * and through recycled pages with gathering writes, for each translog file type.
+ */
+public class FsTranslogAppendBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int SOURCE_SIZE = (int) ByteSizeValue.parseBytesSizeValue("1k").bytes();
+        long OPERATIONS = SizeValue.parseSizeValue("1m").singles();
+        int WARMUP_OPERATIONS = (int) (OPERATIONS / 10);
+
+        ThreadPool threadPool = new ThreadPool();
+        PageCacheRecycler recycler = new PageCacheRecycler(ImmutableSettings.EMPTY, threadPool);
+
+        byte[] source = new byte[SOURCE_SIZE];
+        new Random().nextBytes(source);
+
+        for (String type : new String[]{"simple", "buffered", "group_commit"}) {
+            for (boolean paged : new boolean[]{false, true}) {
+                File location = new File("work/translog-bench");
+                FileSystemUtils.deleteRecursively(location);
+                FsTranslog translog = new FsTranslog(new ShardId(new Index("test"), 0),
+                        ImmutableSettings.settingsBuilder()
+                                .put("index.translog.fs.type", type)
+                                .put("index.translog.fs.paged_writes", paged)
+                                .build(),
+                        location, recycler);
+                translog.newTranslog(1);
+                for (int i = 0; i < WARMUP_OPERATIONS; i++) {
+                    translog.add(new Translog.Index("type", Integer.toString(i), source));
+                }
+
+                StopWatch watch = new StopWatch().start();
+                for (long i = 0; i < OPERATIONS; i++) {
+                    translog.add(new Translog.Index("type", Long.toString(i), source));
+                }
+                translog.sync();
+                watch.stop();
+                System.out.println("Type [" + type + "], paged writes [" + paged + "]: appended [" + OPERATIONS + "] operations of ["
+                        + new ByteSizeValue(SOURCE_SIZE) + "] in " + watch.totalTime() + ", "
+                        + (OPERATIONS * 1000 / Math.max(1, watch.totalTime().millis())) + " ops/s");
+                translog.closeWithDelete();
+            }
+        }
+
+        recycler.close();
+        threadPool.shutdownNow();
+    }
+}
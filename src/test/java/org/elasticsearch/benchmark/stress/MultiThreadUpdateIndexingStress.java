@@ -0,0 +1,111 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.benchmark.stress;
+
+import org.elasticsearch.action.admin.indices.stats.IndicesStatsResponse;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.StopWatch;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.index.engine.internal.InternalEngine;
+import org.elasticsearch.node.Node;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.elasticsearch.client.Requests.createIndexRequest;
+import static org.elasticsearch.cluster.metadata.IndexMetaData.SETTING_NUMBER_OF_REPLICAS;
+import static org.elasticsearch.cluster.metadata.IndexMetaData.SETTING_NUMBER_OF_SHARDS;
+import static org.elasticsearch.common.settings.ImmutableSettings.settingsBuilder;
+import static org.elasticsearch.common.xcontent.XContentFactory.jsonBuilder;
+import static org.elasticsearch.index.query.QueryBuilders.matchAllQuery;
+import static org.elasticsearch.node.NodeBuilder.nodeBuilder;
+
+/**
+ * A multi threaded variant of {@link SingleThreadIndexingStress} that keeps updating a small range of ids,
+ * run it with <tt>-Des.index.engine.uid_lock.type=keyed</tt> to compare the uid lock types.
+ */
+public class MultiThreadUpdateIndexingStress {
+
+    public static void main(String[] args) throws Exception {
+        Settings settings = settingsBuilder()
+                .put("index.refresh_interval", "1s")
+                .put("index.merge.async", true)
+                .put("index.translog.flush_threshold_ops", 5000)
+                .put("gateway.type", "none")
+                .put(SETTING_NUMBER_OF_SHARDS, 1)
+                .put(SETTING_NUMBER_OF_REPLICAS, 0)
+                .put(InternalEngine.INDEX_UID_LOCK_TYPE, System.getProperty("es." + InternalEngine.INDEX_UID_LOCK_TYPE, "striped"))
+                .build();
+
+        Node node = nodeBuilder().settings(settingsBuilder().put(settings).put("name", "node")).node();
+
+        final Client client = node.client();
+
+        client.admin().indices().create(createIndexRequest("test")).actionGet();
+        client.admin().cluster().prepareHealth("test").setWaitForGreenStatus().execute().actionGet();
+
+        final int NUMBER_OF_THREADS = 16;
+        final int COUNT_PER_THREAD = 50000;
+        final int ID_RANGE = 1000;
+        System.out.println("Indexing [" + (NUMBER_OF_THREADS * COUNT_PER_THREAD) + "] updates over [" + ID_RANGE + "] ids with [" + NUMBER_OF_THREADS + "] threads ...");
+
+        final CountDownLatch latch = new CountDownLatch(NUMBER_OF_THREADS);
+        final AtomicLong counter = new AtomicLong();
+        StopWatch stopWatch = new StopWatch().start();
+        for (int t = 0; t < NUMBER_OF_THREADS; t++) {
+            new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        for (int i = 0; i < COUNT_PER_THREAD; i++) {
+                            long id = counter.incrementAndGet();
+                            client.prepareIndex("test", "type1").setId(Long.toString(id % ID_RANGE)).setSource(source(Long.toString(id), "test" + id))
+                                    .execute().actionGet();
+                        }
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                    } finally {
+                        latch.countDown();
+                    }
+                }
+            }.start();
+        }
+        latch.await();
+        stopWatch.stop();
+        System.out.println("Indexing took " + stopWatch.totalTime() + ", TPS " + (((double) NUMBER_OF_THREADS * COUNT_PER_THREAD) / stopWatch.totalTime().secondsFrac()));
+
+        IndicesStatsResponse stats = client.admin().indices().prepareStats("test").setIndexing(true).execute().actionGet();
+        System.out.println("Uid lock wait time: " + stats.getTotal().getIndexing().getTotal().getUidLockWaitTime());
+
+        client.admin().indices().prepareRefresh().execute().actionGet();
+        System.out.println("Count: " + client.prepareCount().setQuery(matchAllQuery()).execute().actionGet().getCount());
+
+        node.close();
+    }
+
+    private static XContentBuilder source(String id, String nameValue) throws IOException {
+        return jsonBuilder().startObject()
+                .field("id", id)
+                .field("name", nameValue)
+                .endObject();
+    }
+}
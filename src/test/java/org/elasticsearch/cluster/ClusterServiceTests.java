@@ -22,6 +22,7 @@ import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.action.admin.cluster.health.ClusterHealthResponse;
 import org.elasticsearch.action.admin.cluster.tasks.PendingClusterTasksResponse;
 import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.cluster.service.ClusterServiceStats;
 import org.elasticsearch.cluster.service.PendingClusterTask;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.Priority;
@@ -513,6 +514,76 @@ public class ClusterServiceTests extends ElasticsearchIntegrationTest {
         block2.countDown();
     }
 
+    @Test
+    public void testBatchedUpdateTasks() throws Exception {
+        Settings settings = settingsBuilder()
+                .put("discovery.type", "local")
+                .build();
+        cluster().startNode(settings);
+        ClusterService clusterService = cluster().getInstance(ClusterService.class);
+
+        final CountDownLatch block = new CountDownLatch(1);
+        final CountDownLatch invoked = new CountDownLatch(1);
+        clusterService.submitStateUpdateTask("block", new ClusterStateUpdateTask() {
+            @Override
+            public ClusterState execute(ClusterState currentState) {
+                invoked.countDown();
+                try {
+                    block.await();
+                } catch (InterruptedException e) {
+                    fail();
+                }
+                return currentState;
+            }
+
+            @Override
+            public void onFailure(String source, Throwable t) {
+                invoked.countDown();
+                fail();
+            }
+        });
+        invoked.await();
+
+        final List<List<Integer>> executedBatches = Collections.synchronizedList(new ArrayList<List<Integer>>());
+        ClusterStateTaskExecutor<Integer> executor = new ClusterStateTaskExecutor<Integer>() {
+            @Override
+            public ClusterState execute(ClusterState currentState, List<Integer> tasks) {
+                executedBatches.add(new ArrayList<Integer>(tasks));
+                return ClusterState.builder(currentState).build();
+            }
+        };
+        final int numTasks = randomIntBetween(2, 20);
+        final CountDownLatch processed = new CountDownLatch(numTasks);
+        final Set<String> processedSources = Collections.synchronizedSet(new HashSet<String>());
+        for (int i = 0; i < numTasks; i++) {
+            clusterService.submitStateUpdateTask("task " + i, i, Priority.NORMAL, executor, new ClusterStateTaskListener() {
+                @Override
+                public void onFailure(String source, Throwable t) {
+                    fail();
+                }
+
+                @Override
+                public void clusterStateProcessed(String source, ClusterState oldState, ClusterState newState) {
+                    processedSources.add(source);
+                    processed.countDown();
+                }
+            });
+        }
+        assertThat(clusterService.stats().getPendingTasks(), greaterThanOrEqualTo(numTasks));
+        block.countDown();
+        assertTrue(processed.await(10, TimeUnit.SECONDS));
+
+        // all the queued tasks were executed together, in a single batch
+        assertThat(executedBatches.size(), equalTo(1));
+        assertThat(executedBatches.get(0).size(), equalTo(numTasks));
+        assertThat(processedSources.size(), equalTo(numTasks));
+
+        ClusterServiceStats stats = clusterService.stats();
+        assertThat(stats.getBatches(), equalTo(1l));
+        assertThat(stats.getBatchedTasks(), equalTo((long) numTasks));
+        assertThat(stats.getMaxBatchSize(), equalTo(numTasks));
+    }
+
     @Test
     public void testListenerCallbacks() throws Exception {
         Settings settings = settingsBuilder()
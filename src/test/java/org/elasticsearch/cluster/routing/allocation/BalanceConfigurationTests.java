@@ -30,16 +30,24 @@ import org.elasticsearch.cluster.routing.*;
 import org.elasticsearch.cluster.routing.allocation.allocator.BalancedShardsAllocator;
 import org.elasticsearch.cluster.routing.allocation.allocator.ShardsAllocator;
 import org.elasticsearch.cluster.routing.allocation.allocator.ShardsAllocators;
+import org.elasticsearch.cluster.routing.allocation.decider.AllocationDecider;
+import org.elasticsearch.cluster.routing.allocation.decider.AllocationDeciders;
 import org.elasticsearch.cluster.routing.allocation.decider.ClusterRebalanceAllocationDecider;
+import org.elasticsearch.cluster.routing.allocation.decider.Decision;
+import org.elasticsearch.cluster.routing.allocation.decider.SameShardAllocationDecider;
 import org.elasticsearch.common.logging.ESLogger;
 import org.elasticsearch.common.logging.Loggers;
 import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.gateway.none.NoneGatewayAllocator;
 import org.elasticsearch.node.settings.NodeSettingsService;
 import org.elasticsearch.test.ElasticsearchAllocationTestCase;
 import org.hamcrest.Matchers;
 import org.junit.Test;
 
+import java.util.HashSet;
+import java.util.Set;
+
 import static org.elasticsearch.cluster.routing.ShardRoutingState.INITIALIZING;
 import static org.elasticsearch.cluster.routing.ShardRoutingState.STARTED;
 import static org.elasticsearch.common.settings.ImmutableSettings.settingsBuilder;
@@ -136,6 +144,143 @@ public class BalanceConfigurationTests extends ElasticsearchAllocationTestCase {
         assertPrimaryBalance(logger, clusterstate.getRoutingNodes(), numberOfNodes + 1 - (numberOfNodes + 1) / 2, numberOfIndices, numberOfReplicas, numberOfShards, balanceTreshold);
     }
 
+    @Test
+    public void testIncrementalIndexBalance() {
+        /* Tests balance over indices only, skipping the indices that are still balanced */
+        final float indexBalance = 1.0f;
+        final float replicaBalance = 0.0f;
+        final float primaryBalance = 0.0f;
+        final float balanceTreshold = 1.0f;
+
+        ImmutableSettings.Builder settings = settingsBuilder();
+        settings.put("cluster.routing.allocation.allow_rebalance", ClusterRebalanceAllocationDecider.ClusterRebalanceType.ALWAYS.toString());
+        settings.put(BalancedShardsAllocator.SETTING_INDEX_BALANCE_FACTOR, indexBalance);
+        settings.put(BalancedShardsAllocator.SETTING_SHARD_BALANCE_FACTOR, replicaBalance);
+        settings.put(BalancedShardsAllocator.SETTING_PRIMARY_BALANCE_FACTOR, primaryBalance);
+        settings.put(BalancedShardsAllocator.SETTING_THRESHOLD, balanceTreshold);
+        settings.put(BalancedShardsAllocator.SETTING_INCREMENTAL, true);
+
+        AllocationService strategy = createAllocationService(settings.build());
+
+        ClusterState clusterState = initCluster(strategy);
+        assertIndexBalance(logger, clusterState.getRoutingNodes(), numberOfNodes, numberOfIndices, numberOfReplicas, numberOfShards, balanceTreshold);
+
+        clusterState = addNode(clusterState, strategy);
+        assertIndexBalance(logger, clusterState.getRoutingNodes(), numberOfNodes + 1, numberOfIndices, numberOfReplicas, numberOfShards, balanceTreshold);
+
+        clusterState = removeNodes(clusterState, strategy);
+        assertIndexBalance(logger, clusterState.getRoutingNodes(), (numberOfNodes + 1) - (numberOfNodes + 1) / 2, numberOfIndices, numberOfReplicas, numberOfShards, balanceTreshold);
+    }
+
+    @Test
+    public void testIncrementalBalanceOnlyConsultsDecidersForChangedIndices() {
+        /* the deciders are only asked for a relocation of an index if its weight delta is above the threshold. With one
+         * copy of each index per node the delta is 0, while a node holding one copy more or less makes it 1 */
+        ImmutableSettings.Builder settings = settingsBuilder();
+        settings.put(BalancedShardsAllocator.SETTING_INDEX_BALANCE_FACTOR, 1.0f);
+        settings.put(BalancedShardsAllocator.SETTING_SHARD_BALANCE_FACTOR, 0.0f);
+        settings.put(BalancedShardsAllocator.SETTING_PRIMARY_BALANCE_FACTOR, 0.0f);
+        settings.put(BalancedShardsAllocator.SETTING_THRESHOLD, 0.5f);
+        settings.put(BalancedShardsAllocator.SETTING_INCREMENTAL, true);
+        final CountingAllocationDecider counter = new CountingAllocationDecider(settings.build());
+        AllocationService strategy = new AllocationService(settings.build(), new AllocationDeciders(settings.build(),
+                new AllocationDecider[]{new SameShardAllocationDecider(settings.build()), counter}),
+                new ShardsAllocators(settings.build()), ClusterInfoService.EMPTY);
+
+        MetaData.Builder metaDataBuilder = MetaData.builder();
+        RoutingTable.Builder routingTableBuilder = RoutingTable.builder();
+        for (int i = 0; i < 3; i++) {
+            metaDataBuilder.put(IndexMetaData.builder("test" + i).numberOfShards(2).numberOfReplicas(1));
+        }
+        MetaData metaData = metaDataBuilder.build();
+        for (ObjectCursor<IndexMetaData> cursor : metaData.indices().values()) {
+            routingTableBuilder.addAsNew(cursor.value);
+        }
+        DiscoveryNodes.Builder nodes = DiscoveryNodes.builder();
+        for (int i = 0; i < 4; i++) {
+            nodes.put(newNode("node" + i));
+        }
+        ClusterState clusterState = ClusterState.builder().nodes(nodes).metaData(metaData).routingTable(routingTableBuilder.build()).build();
+        clusterState = ClusterState.builder(clusterState).routingTable(strategy.reroute(clusterState).routingTable()).build();
+        clusterState = startInitializingShards(clusterState, strategy);
+
+        logger.info("reroute without any change, all the indices are still balanced");
+        counter.consulted.clear();
+        RoutingTable routingTable = strategy.reroute(clusterState).routingTable();
+        assertThat(routingTable, Matchers.sameInstance(clusterState.routingTable()));
+        assertThat(counter.consulted, Matchers.empty());
+
+        logger.info("add a node, the indices found balanced on the previous nodes must be balanced again");
+        clusterState = ClusterState.builder(clusterState).nodes(DiscoveryNodes.builder(clusterState.nodes()).put(newNode("node4"))).build();
+        counter.consulted.clear();
+        routingTable = strategy.reroute(clusterState).routingTable();
+        assertThat(counter.consulted, Matchers.containsInAnyOrder("test0", "test1", "test2"));
+        clusterState = ClusterState.builder(clusterState).routingTable(routingTable).build();
+
+        logger.info("remove the empty node again, all the indices are balanced by their weights");
+        clusterState = ClusterState.builder(clusterState).nodes(DiscoveryNodes.builder(clusterState.nodes()).remove("node4")).build();
+        clusterState = ClusterState.builder(clusterState).routingTable(strategy.reroute(clusterState).routingTable()).build();
+        counter.consulted.clear();
+        routingTable = strategy.reroute(clusterState).routingTable();
+        assertThat(routingTable, Matchers.sameInstance(clusterState.routingTable()));
+        assertThat(counter.consulted, Matchers.empty());
+
+        logger.info("add a replica to [test0], only this index is out of balance");
+        routingTable = RoutingTable.builder(clusterState.routingTable()).updateNumberOfReplicas(2, "test0").build();
+        metaData = MetaData.builder(clusterState.metaData()).updateNumberOfReplicas(2, "test0").build();
+        clusterState = ClusterState.builder(clusterState).routingTable(routingTable).metaData(metaData).build();
+        clusterState = ClusterState.builder(clusterState).routingTable(strategy.reroute(clusterState).routingTable()).build();
+        clusterState = startInitializingShards(clusterState, strategy);
+        counter.consulted.clear();
+        strategy.reroute(clusterState);
+        assertThat(counter.consulted, Matchers.contains("test0"));
+
+        logger.info("remove a node, the indices that had a copy on it are balanced again");
+        clusterState = ClusterState.builder(clusterState).nodes(DiscoveryNodes.builder(clusterState.nodes()).remove("node3")).build();
+        clusterState = ClusterState.builder(clusterState).routingTable(strategy.reroute(clusterState).routingTable()).build();
+        clusterState = startInitializingShards(clusterState, strategy);
+        counter.consulted.clear();
+        strategy.reroute(clusterState);
+        /* [test0] now has one copy of each shard on each of the remaining nodes */
+        assertThat(counter.consulted, Matchers.containsInAnyOrder("test1", "test2"));
+    }
+
+    private ClusterState startInitializingShards(ClusterState clusterState, AllocationService strategy) {
+        RoutingTable prev = clusterState.routingTable();
+        while (true) {
+            RoutingTable routingTable = strategy.applyStartedShards(clusterState, clusterState.routingNodes().shardsWithState(INITIALIZING)).routingTable();
+            clusterState = ClusterState.builder(clusterState).routingTable(routingTable).build();
+            if (routingTable == prev) {
+                return clusterState;
+            }
+            prev = routingTable;
+        }
+    }
+
+    /**
+     * Records the indices the allocation deciders are asked about for relocating a shard.
+     */
+    private static class CountingAllocationDecider extends AllocationDecider {
+
+        final Set<String> consulted = new HashSet<String>();
+
+        CountingAllocationDecider(Settings settings) {
+            super(settings);
+        }
+
+        @Override
+        public Decision canRebalance(ShardRouting shardRouting, RoutingAllocation allocation) {
+            consulted.add(shardRouting.index());
+            return Decision.ALWAYS;
+        }
+
+        @Override
+        public Decision canAllocate(ShardRouting shardRouting, RoutingNode node, RoutingAllocation allocation) {
+            consulted.add(shardRouting.index());
+            return Decision.ALWAYS;
+        }
+    }
+
     private ClusterState initCluster(AllocationService strategy) {
         MetaData.Builder metaDataBuilder = MetaData.builder();
         RoutingTable.Builder routingTableBuilder = RoutingTable.builder();
@@ -346,6 +491,12 @@ public class BalanceConfigurationTests extends ElasticsearchAllocationTestCase {
         assertThat(allocator.getShardBalance(), Matchers.equalTo(0.1f));
         assertThat(allocator.getPrimaryBalance(), Matchers.equalTo(0.4f));
         assertThat(allocator.getThreshold(), Matchers.equalTo(3.0f));
+        assertThat(allocator.isIncremental(), Matchers.equalTo(false));
+
+        settings = settingsBuilder();
+        settings.put(BalancedShardsAllocator.SETTING_INCREMENTAL, true);
+        listeners[0].onRefreshSettings(settings.build());
+        assertThat(allocator.isIncremental(), Matchers.equalTo(true));
     }
 
     @Test
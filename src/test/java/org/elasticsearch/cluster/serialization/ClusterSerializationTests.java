@@ -20,6 +20,7 @@
 package org.elasticsearch.cluster.serialization;
 
 import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.IncompatibleClusterStateVersionException;
 import org.elasticsearch.cluster.metadata.IndexMetaData;
 import org.elasticsearch.cluster.metadata.MetaData;
 import org.elasticsearch.cluster.node.DiscoveryNodes;
@@ -30,7 +31,7 @@ import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.test.ElasticsearchAllocationTestCase;
 import org.junit.Test;
 
-import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.*;
 
 /**
  *
@@ -85,4 +86,64 @@ public class ClusterSerializationTests extends ElasticsearchAllocationTestCase {
         assertThat(target.prettyPrint(), equalTo(source.prettyPrint()));
     }
 
+    @Test
+    public void testClusterStateDiffSerialization() throws Exception {
+        MetaData metaData = MetaData.builder()
+                .put(IndexMetaData.builder("test1").numberOfShards(2).numberOfReplicas(1))
+                .put(IndexMetaData.builder("test2").numberOfShards(2).numberOfReplicas(1))
+                .build();
+
+        RoutingTable routingTable = RoutingTable.builder()
+                .addAsNew(metaData.index("test1"))
+                .addAsNew(metaData.index("test2"))
+                .build();
+
+        DiscoveryNodes nodes = DiscoveryNodes.builder().put(newNode("node1")).put(newNode("node2")).localNodeId("node1").masterNodeId("node1").build();
+
+        ClusterState previous = ClusterState.builder().version(1).nodes(nodes).metaData(metaData).routingTable(routingTable).build();
+        AllocationService strategy = createAllocationService();
+        previous = ClusterState.builder(previous).routingTable(strategy.reroute(previous).routingTable()).build();
+
+        // what node2 received before
+        ClusterState received = ClusterState.Builder.fromBytes(ClusterState.Builder.toBytes(previous), newNode("node2"));
+
+        // delete an index, add one, and add a node
+        metaData = MetaData.builder(previous.metaData())
+                .remove("test2")
+                .put(IndexMetaData.builder("test3").numberOfShards(1).numberOfReplicas(0))
+                .build();
+        routingTable = RoutingTable.builder(previous.routingTable())
+                .remove("test2")
+                .addAsNew(metaData.index("test3"))
+                .build();
+        nodes = DiscoveryNodes.builder(previous.nodes()).put(newNode("node3")).build();
+        ClusterState clusterState = ClusterState.builder(previous).version(2).nodes(nodes).metaData(metaData).routingTable(routingTable).build();
+        clusterState = ClusterState.builder(clusterState).routingTable(strategy.reroute(clusterState).routingTable()).build();
+
+        BytesStreamOutput outStream = new BytesStreamOutput();
+        ClusterState.Builder.writeDiffTo(previous, clusterState, outStream);
+        BytesStreamOutput fullStream = new BytesStreamOutput();
+        ClusterState.Builder.writeTo(clusterState, fullStream);
+        assertThat(outStream.bytes().length(), lessThan(fullStream.bytes().length()));
+
+        ClusterState target = ClusterState.Builder.readDiffFrom(new BytesStreamInput(outStream.bytes().toBytes(), false), received, newNode("node2"));
+        assertThat(target.version(), equalTo(2l));
+        assertThat(target.metaData().hasIndex("test1"), equalTo(true));
+        assertThat(target.metaData().hasIndex("test2"), equalTo(false));
+        assertThat(target.metaData().hasIndex("test3"), equalTo(true));
+        // unchanged indices are reused from the received state
+        assertThat(target.metaData().index("test1"), sameInstance(received.metaData().index("test1")));
+        assertThat(target.nodes().size(), equalTo(3));
+        assertThat(target.nodes().masterNodeId(), equalTo("node1"));
+        assertThat(target.nodes().localNodeId(), equalTo("node2"));
+        assertThat(target.routingTable().prettyPrint(), equalTo(clusterState.routingTable().prettyPrint()));
+
+        // a diff can only be applied to the state it was computed from
+        try {
+            ClusterState.Builder.readDiffFrom(new BytesStreamInput(outStream.bytes().toBytes(), false), target, newNode("node2"));
+            fail("diff should not apply to a newer cluster state");
+        } catch (IncompatibleClusterStateVersionException e) {
+            // expected
+        }
+    }
 }
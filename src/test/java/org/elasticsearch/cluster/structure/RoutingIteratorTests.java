@@ -28,6 +28,7 @@ import org.elasticsearch.cluster.node.DiscoveryNodes;
 import org.elasticsearch.cluster.routing.*;
 import org.elasticsearch.cluster.routing.allocation.AllocationService;
 import org.elasticsearch.cluster.routing.allocation.decider.AwarenessAllocationDecider;
+import org.elasticsearch.cluster.routing.operation.ResponseCollectorService;
 import org.elasticsearch.cluster.routing.operation.hash.djb.DjbHashFunction;
 import org.elasticsearch.cluster.routing.operation.plain.PlainOperationRouting;
 import org.elasticsearch.common.settings.ImmutableSettings;
@@ -357,4 +358,81 @@ public class RoutingIteratorTests extends ElasticsearchAllocationTestCase {
         assertThat(shardIterators.iterator().next().shardId().id(), equalTo(0));
         assertThat(shardIterators.iterator().next().nextOrNull().currentNodeId(), equalTo("node1"));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testAdaptiveReplicaSelection() {
+        AllocationService strategy = createAllocationService(settingsBuilder()
+                .put("cluster.routing.allocation.concurrent_recoveries", 10)
+                .build());
+
+        MetaData metaData = MetaData.builder()
+                .put(IndexMetaData.builder("test").numberOfShards(1).numberOfReplicas(2))
+                .build();
+
+        RoutingTable routingTable = RoutingTable.builder()
+                .addAsNew(metaData.index("test"))
+                .build();
+
+        ClusterState clusterState = ClusterState.builder().metaData(metaData).routingTable(routingTable).build();
+
+        clusterState = ClusterState.builder(clusterState).nodes(DiscoveryNodes.builder()
+                .put(newNode("node1"))
+                .put(newNode("node2"))
+                .put(newNode("node3"))
+                .localNodeId("node1")
+        ).build();
+        routingTable = strategy.reroute(clusterState).routingTable();
+        clusterState = ClusterState.builder(clusterState).routingTable(routingTable).build();
+
+        routingTable = strategy.applyStartedShards(clusterState, clusterState.routingNodes().shardsWithState(INITIALIZING)).routingTable();
+        clusterState = ClusterState.builder(clusterState).routingTable(routingTable).build();
+
+        routingTable = strategy.applyStartedShards(clusterState, clusterState.routingNodes().shardsWithState(INITIALIZING)).routingTable();
+        clusterState = ClusterState.builder(clusterState).routingTable(routingTable).build();
+
+        ResponseCollectorService collector = new ResponseCollectorService(settingsBuilder()
+                .put(ResponseCollectorService.CLUSTER_ROUTING_USE_ADAPTIVE_REPLICA_SELECTION, true)
+                .build());
+        PlainOperationRouting operationRouting = new PlainOperationRouting(ImmutableSettings.Builder.EMPTY_SETTINGS, new DjbHashFunction(), new AwarenessAllocationDecider(), collector);
+
+        // no statistics yet, round robin
+        String firstNodeId = operationRouting.searchShards(clusterState, new String[]{"test"}, new String[]{"test"}, null, null).iterator().next().nextOrNull().currentNodeId();
+        String secondNodeId = operationRouting.searchShards(clusterState, new String[]{"test"}, new String[]{"test"}, null, null).iterator().next().nextOrNull().currentNodeId();
+        assertThat(secondNodeId, not(equalTo(firstNodeId)));
+
+        collector.onResponse("node1", 0, 1000);
+        collector.onResponse("node2", 10, 1000);
+        collector.onResponse("node3", 0, 500);
+
+        for (int i = 0; i < 3; i++) {
+            ShardIterator shardIterator = operationRouting.searchShards(clusterState, new String[]{"test"}, new String[]{"test"}, null, null).iterator().next();
+            assertThat(shardIterator.nextOrNull().currentNodeId(), equalTo("node3"));
+            assertThat(shardIterator.nextOrNull().currentNodeId(), equalTo("node1"));
+            assertThat(shardIterator.nextOrNull().currentNodeId(), equalTo("node2"));
+        }
+
+        // requests in flight to a node lower its rank
+        collector.onRequestSent("node3");
+        collector.onRequestSent("node3");
+        ShardIterator shardIterator = operationRouting.searchShards(clusterState, new String[]{"test"}, new String[]{"test"}, null, null).iterator().next();
+        assertThat(shardIterator.nextOrNull().currentNodeId(), equalTo("node1"));
+
+        // a preference takes precedence over the ranking
+        shardIterator = operationRouting.searchShards(clusterState, new String[]{"test"}, new String[]{"test"}, null, "_prefer_node:node2").iterator().next();
+        assertThat(shardIterator.nextOrNull().currentNodeId(), equalTo("node2"));
+
+        assertThat(collector.stats().getNodeStats().size(), equalTo(3));
+        assertThat(collector.stats().getNodeStats().get("node3").getOutstandingRequests(), equalTo(2));
+
+        // a node that was slow once is eventually selected again, even if it is never observed in the meantime
+        collector.onResponse("node3", 0, 500);
+        collector.onResponse("node3", 0, 500);
+        collector.onResponse("node1", 0, 1000);
+        boolean node2Selected = false;
+        for (int i = 0; i < 100 && !node2Selected; i++) {
+            shardIterator = operationRouting.searchShards(clusterState, new String[]{"test"}, new String[]{"test"}, null, null).iterator().next();
+            node2Selected = shardIterator.nextOrNull().currentNodeId().equals("node2");
+        }
+        assertThat(node2Selected, equalTo(true));
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.common.lucene.docset;
+
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.FixedBitSet;
+import org.elasticsearch.ElasticsearchIllegalStateException;
+import org.elasticsearch.test.ElasticsearchTestCase;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.hamcrest.Matchers.*;
+
+/**
+ */
+public class OffHeapDocIdSetTests extends ElasticsearchTestCase {
+
+    @Test
+    public void testEncodingDependsOnDensity() {
+        assertThat(OffHeapDocIdSet.of(randomSet(1000, 0.001)).encoding(), equalTo(OffHeapDocIdSet.Encoding.LIST));
+        assertThat(OffHeapDocIdSet.of(randomSet(1000, 0.5)).encoding(), equalTo(OffHeapDocIdSet.Encoding.BITSET));
+        assertThat(OffHeapDocIdSet.of(randomSet(1000, 0.999)).encoding(), equalTo(OffHeapDocIdSet.Encoding.INVERTED_LIST));
+    }
+
+    @Test
+    public void testSameDocsAsBitSet() throws IOException {
+        for (int iter = 0; iter < 50; iter++) {
+            int maxDoc = randomIntBetween(1, 5000);
+            double density = randomFrom(new Double[]{0.0, 0.001, 0.01, 0.1, 0.5, 0.9, 0.99, 0.999, 1.0});
+            FixedBitSet expected = randomSet(maxDoc, density);
+            OffHeapDocIdSet set = OffHeapDocIdSet.of(expected);
+            assertThat(set.cardinality(), equalTo(expected.cardinality()));
+            assertThat(set.sizeInBytes(), greaterThan(0l));
+
+            // nextDoc
+            DocIdSetIterator expectedIt = expected.iterator();
+            DocIdSetIterator it = set.iterator();
+            int doc;
+            do {
+                doc = expectedIt.nextDoc();
+                assertThat(it.nextDoc(), equalTo(doc));
+                assertThat(it.docID(), equalTo(doc));
+            } while (doc != DocIdSetIterator.NO_MORE_DOCS);
+
+            // advance
+            expectedIt = expected.iterator();
+            it = set.iterator();
+            doc = -1;
+            while (doc != DocIdSetIterator.NO_MORE_DOCS) {
+                int target = doc + 1 + randomInt(maxDoc / 10 + 1);
+                if (target >= maxDoc) {
+                    break;
+                }
+                doc = expectedIt.advance(target);
+                assertThat(it.advance(target), equalTo(doc));
+            }
+
+            // random access
+            Bits bits = set.bits();
+            if (set.encoding() == OffHeapDocIdSet.Encoding.BITSET) {
+                assertThat(bits, notNullValue());
+                assertThat(bits.length(), equalTo(maxDoc));
+                for (int i = 0; i < maxDoc; i++) {
+                    assertThat(bits.get(i), equalTo(expected.get(i)));
+                }
+            } else {
+                assertThat(bits, nullValue());
+            }
+            assertTrue(set.release());
+        }
+    }
+
+    @Test
+    public void testMemoryIsFreedWithTheLastReference() {
+        OffHeapDocIdSet set = OffHeapDocIdSet.of(randomSet(1000, 0.5));
+        assertThat(set.refCount(), equalTo(1));
+        int readers = randomIntBetween(1, 5);
+        for (int i = 0; i < readers; i++) {
+            assertTrue(set.tryIncRef());
+        }
+        // the cache drops its reference while searches still use the set
+        assertFalse(set.release());
+        for (int i = 0; i < readers - 1; i++) {
+            assertFalse(set.release());
+        }
+        assertThat(set.refCount(), equalTo(1));
+        assertTrue(set.release());
+        assertThat(set.refCount(), equalTo(0));
+        assertFalse(set.tryIncRef());
+        try {
+            set.release();
+            fail("released a freed set");
+        } catch (ElasticsearchIllegalStateException e) {
+            // expected
+        }
+    }
+
+    private FixedBitSet randomSet(int maxDoc, double density) {
+        FixedBitSet set = new FixedBitSet(maxDoc);
+        for (int i = 0; i < maxDoc; i++) {
+            if (getRandom().nextDouble() < density) {
+                set.set(i);
+            }
+        }
+        return set;
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.common.util;
+
+import org.elasticsearch.test.ElasticsearchTestCase;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.*;
+
+public class FrequencySketchTests extends ElasticsearchTestCase {
+
+    @Test
+    public void testNeverUnderestimates() {
+        FrequencySketch sketch = new FrequencySketch(1024);
+        int[] counts = new int[512];
+        for (int i = 0; i < 2000; i++) {
+            int key = randomInt(counts.length - 1);
+            counts[key]++;
+            sketch.increment(key);
+        }
+        for (int i = 0; i < counts.length; i++) {
+            assertThat(sketch.frequency(i), greaterThanOrEqualTo(Math.min(counts[i], FrequencySketch.MAX_FREQUENCY)));
+            assertThat(sketch.frequency(i), lessThanOrEqualTo(FrequencySketch.MAX_FREQUENCY));
+        }
+    }
+
+    @Test
+    public void testCountsAreHalvedAfterSampleSize() {
+        FrequencySketch sketch = new FrequencySketch(16);
+        String hot = "hot";
+        for (int i = 0; i < 10; i++) {
+            sketch.increment(hot);
+        }
+        assertThat(sketch.frequency(hot), equalTo(10));
+        // the sample size is 10 times the expected size
+        for (int i = 0; i < 150; i++) {
+            sketch.increment(new Object());
+        }
+        assertThat(sketch.frequency(hot), lessThan(10));
+        assertThat(sketch.frequency(hot), greaterThanOrEqualTo(5));
+    }
+}
@@ -590,4 +590,29 @@ public class BulkTests extends ElasticsearchIntegrationTest {
         assertExists(get("test", "type", "48"));
     }
 
+    @Test
+    public void testBulkPhasesAndItemOrder() throws Exception {
+        createIndex("test");
+        ensureGreen();
+        int numDocs = randomIntBetween(10, 100);
+        int malformed = randomInt(numDocs - 1);
+        BulkRequestBuilder builder = client().prepareBulk();
+        for (int i = 0; i < numDocs; i++) {
+            if (i == malformed) {
+                builder.add(client().prepareIndex("test", "type", Integer.toString(i)).setSource("{\"field\": \"malformed}"));
+            } else {
+                builder.add(client().prepareIndex("test", "type", Integer.toString(i)).setSource("field", i));
+            }
+        }
+        BulkResponse bulkResponse = builder.get();
+        assertThat(bulkResponse.getItems().length, equalTo(numDocs));
+        for (int i = 0; i < numDocs; i++) {
+            assertThat(bulkResponse.getItems()[i].getId(), equalTo(Integer.toString(i)));
+            assertThat(bulkResponse.getItems()[i].isFailed(), equalTo(i == malformed));
+        }
+        assertThat(bulkResponse.getParseTime().nanos(), greaterThan(0l));
+        assertThat(bulkResponse.getIndexTime().nanos(), greaterThan(0l));
+        assertThat(bulkResponse.getReplicateTime().nanos(), greaterThanOrEqualTo(0l));
+    }
+
 }
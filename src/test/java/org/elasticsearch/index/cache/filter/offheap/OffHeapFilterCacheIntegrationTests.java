@@ -0,0 +1,143 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.cache.filter.offheap;
+
+import org.elasticsearch.action.index.IndexRequestBuilder;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.aggregations.bucket.nested.Nested;
+import org.elasticsearch.search.aggregations.metrics.sum.Sum;
+import org.elasticsearch.search.sort.SortBuilders;
+import org.elasticsearch.search.sort.SortOrder;
+import org.elasticsearch.test.ElasticsearchIntegrationTest;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.elasticsearch.common.xcontent.XContentFactory.jsonBuilder;
+import static org.elasticsearch.index.query.FilterBuilders.termFilter;
+import static org.elasticsearch.index.query.QueryBuilders.*;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.nested;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.sum;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.*;
+import static org.hamcrest.Matchers.*;
+
+/**
+ */
+public class OffHeapFilterCacheIntegrationTests extends ElasticsearchIntegrationTest {
+
+    @Test
+    public void testNestedQueriesAggregationsAndSorting() throws Exception {
+        XContentBuilder mapping = jsonBuilder().startObject().startObject("type1").startObject("properties")
+                .startObject("category").field("type", "string").field("index", "not_analyzed").endObject()
+                .startObject("nested1").field("type", "nested").startObject("properties")
+                .startObject("field1").field("type", "long").endObject()
+                .startObject("field2").field("type", "string").field("index", "not_analyzed").endObject()
+                .endObject().endObject()
+                .endObject().endObject().endObject();
+        assertAcked(prepareCreate("test")
+                .setSettings(ImmutableSettings.builder().put(indexSettings()).put("index.cache.filter.type", "off_heap"))
+                .addMapping("type1", mapping));
+        ensureGreen();
+
+        final int numDocs = randomIntBetween(20, 100);
+        final long[][] values = new long[numDocs][];
+        final boolean[][] matches = new boolean[numDocs][];
+        List<IndexRequestBuilder> builders = new ArrayList<IndexRequestBuilder>();
+        for (int i = 0; i < numDocs; i++) {
+            final int numChildren = randomIntBetween(1, 3);
+            values[i] = new long[numChildren];
+            matches[i] = new boolean[numChildren];
+            XContentBuilder source = jsonBuilder().startObject()
+                    .field("category", i % 2 == 0 ? "even" : "odd")
+                    .startArray("nested1");
+            for (int j = 0; j < numChildren; j++) {
+                values[i][j] = randomIntBetween(0, 1000);
+                matches[i][j] = randomBoolean();
+                source.startObject()
+                        .field("field1", values[i][j])
+                        .field("field2", matches[i][j] ? "a" : "b")
+                        .endObject();
+            }
+            builders.add(client().prepareIndex("test", "type1", Integer.toString(i)).setSource(source.endArray().endObject()));
+        }
+        indexRandom(true, builders);
+
+        long expectedHits = 0;
+        long expectedNestedDocs = 0;
+        long expectedSum = 0;
+        for (int i = 0; i < numDocs; i += 2) {
+            boolean match = false;
+            for (int j = 0; j < values[i].length; j++) {
+                match |= matches[i][j];
+                expectedNestedDocs++;
+                expectedSum += values[i][j];
+            }
+            if (match) {
+                expectedHits++;
+            }
+        }
+
+        for (int iter = 0; iter < 3; iter++) {
+            // the filters are cached off heap by the first iteration and read from the cache by the next ones
+            SearchResponse searchResponse = client().prepareSearch("test")
+                    .setQuery(filteredQuery(nestedQuery("nested1", filteredQuery(matchAllQuery(), termFilter("nested1.field2", "a"))),
+                            termFilter("category", "even")))
+                    .get();
+            assertNoFailures(searchResponse);
+            assertHitCount(searchResponse, expectedHits);
+
+            searchResponse = client().prepareSearch("test")
+                    .setQuery(filteredQuery(matchAllQuery(), termFilter("category", "even")))
+                    .addAggregation(nested("nested").path("nested1").subAggregation(sum("sum").field("nested1.field1")))
+                    .addSort(SortBuilders.fieldSort("nested1.field1").setNestedPath("nested1").sortMode("min").order(SortOrder.ASC))
+                    .setSize(numDocs)
+                    .get();
+            assertNoFailures(searchResponse);
+            assertHitCount(searchResponse, (numDocs + 1) / 2);
+            Nested nested = searchResponse.getAggregations().get("nested");
+            assertThat(nested.getDocCount(), equalTo(expectedNestedDocs));
+            Sum sum = nested.getAggregations().get("sum");
+            assertThat((long) sum.getValue(), equalTo(expectedSum));
+            long previous = Long.MIN_VALUE;
+            for (SearchHit hit : searchResponse.getHits()) {
+                long[] docValues = values[Integer.parseInt(hit.id())];
+                long min = Long.MAX_VALUE;
+                for (long value : docValues) {
+                    min = Math.min(min, value);
+                }
+                long sortValue = ((Number) hit.sortValues()[0]).longValue();
+                assertThat(sortValue, equalTo(min));
+                assertThat(sortValue, greaterThanOrEqualTo(previous));
+                previous = sortValue;
+            }
+
+            assertThat(client().admin().indices().prepareStats("test").setFilterCache(true).get()
+                    .getTotal().getFilterCache().getMemorySizeInBytes(), greaterThan(0l));
+            if (randomBoolean()) {
+                // frees the off heap entries, the next iteration caches them again
+                client().admin().indices().prepareClearCache("test").setFilterCache(true).get();
+            }
+        }
+    }
+}
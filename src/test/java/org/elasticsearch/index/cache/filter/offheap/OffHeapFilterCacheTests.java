@@ -0,0 +1,45 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.cache.filter.offheap;
+
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queries.TermFilter;
+import org.elasticsearch.index.mapper.internal.TypeFieldMapper;
+import org.elasticsearch.index.search.nested.NonNestedDocsFilter;
+import org.elasticsearch.test.ElasticsearchTestCase;
+import org.junit.Test;
+
+/**
+ */
+public class OffHeapFilterCacheTests extends ElasticsearchTestCase {
+
+    @Test
+    public void testBlockJoinFiltersStayOnHeap() {
+        // parent filter of the nested queries, aggregations and sorting
+        assertTrue(OffHeapFilterCache.requiresFixedBitSet(NonNestedDocsFilter.INSTANCE));
+        // nested type filters, as created by the object mappers
+        assertTrue(OffHeapFilterCache.requiresFixedBitSet(new TermFilter(new Term(TypeFieldMapper.NAME, "__nested1"))));
+        assertTrue(OffHeapFilterCache.requiresFixedBitSet(new TermFilter(new Term(TypeFieldMapper.NAME, "__nested1.nested2"))));
+
+        assertFalse(OffHeapFilterCache.requiresFixedBitSet(new TermFilter(new Term(TypeFieldMapper.NAME, "type1"))));
+        assertFalse(OffHeapFilterCache.requiresFixedBitSet(new TermFilter(new Term("field", "__value"))));
+        assertFalse(OffHeapFilterCache.requiresFixedBitSet(new TermFilter(new Term("field", "value"))));
+    }
+}
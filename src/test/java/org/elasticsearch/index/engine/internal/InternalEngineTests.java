@@ -63,6 +63,7 @@ import org.elasticsearch.index.store.ram.RamDirectoryService;
 import org.elasticsearch.index.translog.Translog;
 import org.elasticsearch.index.translog.TranslogSizeMatcher;
 import org.elasticsearch.index.translog.fs.FsTranslog;
+import org.elasticsearch.indices.fielddata.breaker.DummyCircuitBreakerService;
 import org.elasticsearch.test.ElasticsearchTestCase;
 import org.elasticsearch.threadpool.ThreadPool;
 import org.hamcrest.MatcherAssert;
@@ -108,6 +109,8 @@ public class InternalEngineTests extends ElasticsearchTestCase {
         super.setUp();
         defaultSettings = ImmutableSettings.builder()
                 .put(InternalEngine.INDEX_COMPOUND_ON_FLUSH, getRandom().nextBoolean())
+                .put(InternalEngine.INDEX_VERSION_MAP_TYPE, randomFrom(LiveVersionMap.Type.values()).name())
+                .put(InternalEngine.INDEX_UID_LOCK_TYPE, randomFrom("striped", "keyed"))
                 .build(); // TODO randomize more settings
         threadPool = new ThreadPool();
         store = createStore();
@@ -195,7 +198,8 @@ public class InternalEngineTests extends ElasticsearchTestCase {
 
     protected Engine createEngine(IndexSettingsService indexSettingsService, Store store, Translog translog, MergeSchedulerProvider<?> mergeSchedulerProvider) {
         return new InternalEngine(shardId, defaultSettings, threadPool, indexSettingsService, new ShardIndexingService(shardId, EMPTY_SETTINGS, new ShardSlowLogIndexingService(shardId, EMPTY_SETTINGS, indexSettingsService)), null, store, createSnapshotDeletionPolicy(), translog, createMergePolicy(), mergeSchedulerProvider,
-                new AnalysisService(shardId.index()), new SimilarityService(shardId.index()), new CodecService(shardId.index()));
+                new AnalysisService(shardId.index()), new SimilarityService(shardId.index()), new CodecService(shardId.index()),
+                null, new DummyCircuitBreakerService());
     }
 
     protected static final BytesReference B_1 = new BytesArray(new byte[]{1});
@@ -0,0 +1,126 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.engine.internal;
+
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.util.BigArraysTests;
+import org.elasticsearch.index.translog.Translog;
+import org.elasticsearch.test.ElasticsearchTestCase;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+public class LiveVersionMapTests extends ElasticsearchTestCase {
+
+    private LiveVersionMap newMap() {
+        return randomFrom(LiveVersionMap.Type.values()).create(randomIntBetween(1, 16), BigArraysTests.randomCacheRecycler());
+    }
+
+    private static void assertVersionValue(InternalEngine.VersionValue expected, InternalEngine.VersionValue actual) {
+        if (expected == null) {
+            assertNull(actual);
+            return;
+        }
+        assertNotNull(actual);
+        assertEquals(expected.version(), actual.version());
+        assertEquals(expected.delete(), actual.delete());
+        assertEquals(expected.time(), actual.time());
+        if (expected.translogLocation() == null) {
+            assertNull(actual.translogLocation());
+        } else {
+            assertEquals(expected.translogLocation().translogId, actual.translogLocation().translogId);
+            assertEquals(expected.translogLocation().translogLocation, actual.translogLocation().translogLocation);
+            assertEquals(expected.translogLocation().size, actual.translogLocation().size);
+        }
+    }
+
+    @Test
+    public void testDuel() {
+        final LiveVersionMap map = newMap();
+        final Map<BytesRef, InternalEngine.VersionValue> expected = new HashMap<BytesRef, InternalEngine.VersionValue>();
+        final BytesRef[] uids = new BytesRef[randomIntBetween(1, 5000)];
+        for (int i = 0; i < uids.length; i++) {
+            uids[i] = new BytesRef("type#" + randomAsciiOfLength(randomIntBetween(1, 20)));
+        }
+        long time = 0;
+        final int iters = randomIntBetween(1000, 100000);
+        for (int i = 0; i < iters; i++) {
+            final BytesRef uid = randomFrom(uids);
+            if (rarely()) {
+                // prune everything added before now, sometimes including deletes
+                final boolean gcDeletes = randomBoolean();
+                final long gcDeletesInMillis = randomIntBetween(0, 100);
+                map.prune(time, gcDeletes, gcDeletesInMillis);
+                for (Iterator<InternalEngine.VersionValue> it = expected.values().iterator(); it.hasNext(); ) {
+                    InternalEngine.VersionValue value = it.next();
+                    if (time - value.time() <= 0) {
+                        continue;
+                    }
+                    if (value.delete() && (!gcDeletes || time - value.time() <= gcDeletesInMillis)) {
+                        continue;
+                    }
+                    it.remove();
+                }
+            } else if (rarely()) {
+                final long maxTime = randomIntBetween(0, (int) time);
+                map.remove(uid, maxTime);
+                InternalEngine.VersionValue value = expected.get(uid);
+                if (value != null && value.time() <= maxTime) {
+                    expected.remove(uid);
+                }
+            } else if (randomBoolean()) {
+                Translog.Location location = randomBoolean() ? null : new Translog.Location(randomIntBetween(0, 10), randomIntBetween(0, 100000), randomIntBetween(1, 1000));
+                InternalEngine.VersionValue value = new InternalEngine.VersionValue(randomIntBetween(1, 1000), rarely(), time++, location);
+                map.put(uid, value);
+                expected.put(uid, value);
+            } else {
+                assertVersionValue(expected.get(uid), map.get(uid));
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        for (BytesRef uid : uids) {
+            assertVersionValue(expected.get(uid), map.get(uid));
+        }
+        assertTrue(expected.isEmpty() || map.ramBytesUsed() > 0);
+        map.clear();
+        assertEquals(0, map.size());
+        for (BytesRef uid : uids) {
+            assertNull(map.get(uid));
+        }
+        map.release();
+    }
+
+    @Test
+    public void testReleasedPagedMap() {
+        final LiveVersionMap map = LiveVersionMap.Type.PAGED.create(randomIntBetween(1, 16), BigArraysTests.randomCacheRecycler());
+        final BytesRef uid = new BytesRef("type#1");
+        map.put(uid, new InternalEngine.VersionValue(1, false, 0, null));
+        map.release();
+        assertEquals(0, map.size());
+        assertEquals(0, map.ramBytesUsed());
+        // operations racing with the release of the map are ignored
+        assertNull(map.get(uid));
+        map.put(uid, new InternalEngine.VersionValue(2, false, 1, null));
+        assertNull(map.get(uid));
+        map.release();
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.engine.internal;
+
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.test.ElasticsearchTestCase;
+import org.junit.Test;
+
+public class TombstoneIndexTests extends ElasticsearchTestCase {
+
+    private TombstoneIndex newTombstoneIndex() {
+        return new TombstoneIndex(randomFrom(LiveVersionMap.Type.values()).create(randomIntBetween(1, 16), null));
+    }
+
+    private static InternalEngine.VersionValue delete(long version, long time) {
+        return new InternalEngine.VersionValue(version, true, time, null);
+    }
+
+    @Test
+    public void testPruneDropsExpiredGenerations() {
+        TombstoneIndex tombstones = newTombstoneIndex();
+        BytesRef uid1 = new BytesRef("type#1");
+        BytesRef uid2 = new BytesRef("type#2");
+        BytesRef uid3 = new BytesRef("type#3");
+
+        tombstones.put(uid1, delete(1, 10));
+        tombstones.put(uid2, delete(1, 20));
+        tombstones.prune(25, true, 100);
+        tombstones.put(uid3, delete(1, 50));
+        assertEquals(3, tombstones.size());
+
+        // the first generation is not expired yet
+        tombstones.prune(100, true, 100);
+        assertEquals(3, tombstones.size());
+
+        // no gc, nothing is dropped
+        tombstones.prune(200, false, 100);
+        assertEquals(3, tombstones.size());
+
+        tombstones.prune(140, true, 100);
+        assertNull(tombstones.get(uid1));
+        assertNull(tombstones.get(uid2));
+        assertNotNull(tombstones.get(uid3));
+        assertEquals(1, tombstones.size());
+
+        tombstones.prune(151, true, 100);
+        assertNull(tombstones.get(uid3));
+        assertEquals(0, tombstones.size());
+        tombstones.release();
+    }
+
+    @Test
+    public void testDeletedAgainOrIndexedAfterwards() {
+        TombstoneIndex tombstones = newTombstoneIndex();
+        BytesRef uid1 = new BytesRef("type#1");
+        BytesRef uid2 = new BytesRef("type#2");
+
+        tombstones.put(uid1, delete(1, 10));
+        tombstones.put(uid2, delete(1, 10));
+        tombstones.prune(15, true, 100);
+        // deleted again in a newer generation, must survive the expiry of the first one
+        tombstones.put(uid1, delete(2, 90));
+        // indexed again, the tombstone goes away right away
+        tombstones.remove(uid2);
+        assertNull(tombstones.get(uid2));
+
+        tombstones.prune(150, true, 100);
+        InternalEngine.VersionValue versionValue = tombstones.get(uid1);
+        assertNotNull(versionValue);
+        assertEquals(2, versionValue.version());
+        assertEquals(1, tombstones.size());
+        tombstones.release();
+    }
+}
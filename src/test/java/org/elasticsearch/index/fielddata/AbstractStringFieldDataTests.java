@@ -25,6 +25,7 @@ import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
 import org.apache.lucene.document.Field.Store;
 import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.AtomicReaderContext;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.queries.TermFilter;
@@ -41,11 +42,14 @@ import org.elasticsearch.common.lucene.search.XFilteredQuery;
 import org.elasticsearch.index.fielddata.IndexFieldData.XFieldComparatorSource;
 import org.elasticsearch.index.fielddata.fieldcomparator.BytesRefFieldComparatorSource;
 import org.elasticsearch.index.fielddata.fieldcomparator.SortMode;
+import org.elasticsearch.index.fielddata.ordinals.GlobalOrdinalsMapping;
+import org.elasticsearch.index.fielddata.ordinals.Ordinals;
 import org.elasticsearch.index.search.nested.NestedFieldComparatorSource;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.TreeSet;
 
 /**
  */
@@ -423,4 +427,53 @@ public abstract class AbstractStringFieldDataTests extends AbstractFieldDataImpl
         }
         searcher.getIndexReader().close();
     }
+
+    public void testGlobalOrdinals() throws Exception {
+        final String[] values = new String[randomIntBetween(1, 100)];
+        for (int i = 0; i < values.length; ++i) {
+            values[i] = _TestUtil.randomUnicodeString(getRandom());
+        }
+        final TreeSet<BytesRef> terms = new TreeSet<BytesRef>();
+        final int numDocs = atLeast(100);
+        for (int i = 0; i < numDocs; ++i) {
+            final Document d = new Document();
+            final int numValues = randomInt(3);
+            for (int j = 0; j < numValues; ++j) {
+                final String value = RandomPicks.randomFrom(getRandom(), values);
+                d.add(new StringField("value", value, Field.Store.NO));
+                terms.add(new BytesRef(value));
+            }
+            writer.addDocument(d);
+            if (randomInt(10) == 0) {
+                writer.commit();
+            }
+        }
+
+        final IndexFieldData<?> indexFieldData = getForField("value");
+        if (!(indexFieldData instanceof IndexFieldData.WithOrdinals)) {
+            return;
+        }
+        final IndexFieldData.WithOrdinals<?> withOrdinals = (IndexFieldData.WithOrdinals<?>) indexFieldData;
+        final DirectoryReader reader = DirectoryReader.open(writer, true);
+        final GlobalOrdinalsMapping globalOrdinals = withOrdinals.loadGlobalOrdinals(reader);
+        assertSame(globalOrdinals, withOrdinals.loadGlobalOrdinals(reader));
+        assertEquals(terms.size() + 1, globalOrdinals.getMaxOrd());
+
+        final List<BytesRef> sortedTerms = new ArrayList<BytesRef>(terms);
+        final List<AtomicReaderContext> leaves = reader.leaves();
+        for (int i = 0; i < leaves.size(); ++i) {
+            final BytesValues.WithOrdinals bytesValues = withOrdinals.load(leaves.get(i)).getBytesValues(false);
+            assertEquals(Ordinals.MISSING_ORDINAL, globalOrdinals.getGlobalOrd(i, Ordinals.MISSING_ORDINAL));
+            for (long ord = Ordinals.MIN_ORDINAL; ord < bytesValues.ordinals().getMaxOrd(); ++ord) {
+                final long globalOrd = globalOrdinals.getGlobalOrd(i, ord);
+                assertEquals(sortedTerms.get((int) (globalOrd - 1)), bytesValues.getValueByOrd(ord));
+            }
+        }
+        for (long globalOrd = Ordinals.MIN_ORDINAL; globalOrd < globalOrdinals.getMaxOrd(); ++globalOrd) {
+            final int segment = globalOrdinals.getFirstSegment(globalOrd);
+            final BytesValues.WithOrdinals bytesValues = withOrdinals.load(leaves.get(segment)).getBytesValues(false);
+            assertEquals(sortedTerms.get((int) (globalOrd - 1)), bytesValues.getValueByOrd(globalOrdinals.getFirstSegmentOrd(globalOrd)));
+        }
+        reader.close();
+    }
 }
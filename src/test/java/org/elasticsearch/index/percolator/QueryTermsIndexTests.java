@@ -0,0 +1,117 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.percolator;
+
+import org.apache.lucene.analysis.core.WhitespaceAnalyzer;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.memory.MemoryIndex;
+import org.apache.lucene.queries.TermFilter;
+import org.apache.lucene.search.*;
+import org.elasticsearch.common.lucene.HashedBytesRef;
+import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.common.lucene.search.XConstantScoreQuery;
+import org.elasticsearch.common.lucene.search.XFilteredQuery;
+import org.elasticsearch.test.ElasticsearchTestCase;
+import org.junit.Test;
+
+import java.util.*;
+
+public class QueryTermsIndexTests extends ElasticsearchTestCase {
+
+    private static Query termQuery(String field, String value) {
+        return new TermQuery(new Term(field, value));
+    }
+
+    @Test
+    public void testExtractQueryTerms() {
+        assertEquals(Collections.singleton(new Term("f", "a")), QueryTermsIndex.extractQueryTerms(termQuery("f", "a")));
+        assertNull(QueryTermsIndex.extractQueryTerms(new MatchAllDocsQuery()));
+        assertNull(QueryTermsIndex.extractQueryTerms(NumericRangeQuery.newLongRange("f", 1L, 10L, true, true)));
+
+        PhraseQuery phrase = new PhraseQuery();
+        phrase.add(new Term("f", "a"));
+        phrase.add(new Term("f", "bbb"));
+        assertEquals(Collections.singleton(new Term("f", "bbb")), QueryTermsIndex.extractQueryTerms(phrase));
+
+        // disjunction: any of the terms
+        BooleanQuery should = new BooleanQuery();
+        should.add(termQuery("f", "a"), BooleanClause.Occur.SHOULD);
+        should.add(termQuery("g", "b"), BooleanClause.Occur.SHOULD);
+        assertEquals(new HashSet<Term>(Arrays.asList(new Term("f", "a"), new Term("g", "b"))), QueryTermsIndex.extractQueryTerms(should));
+
+        // a single clause that can't be indexed makes the whole disjunction unindexable
+        should.add(new MatchAllDocsQuery(), BooleanClause.Occur.SHOULD);
+        assertNull(QueryTermsIndex.extractQueryTerms(should));
+
+        // conjunction: one of the required clauses is enough, optional and prohibited clauses are ignored
+        BooleanQuery must = new BooleanQuery();
+        must.add(termQuery("f", "a"), BooleanClause.Occur.MUST);
+        must.add(termQuery("f", "bbb"), BooleanClause.Occur.MUST);
+        must.add(new MatchAllDocsQuery(), BooleanClause.Occur.MUST);
+        must.add(termQuery("f", "cccc"), BooleanClause.Occur.SHOULD);
+        must.add(termQuery("f", "dddd"), BooleanClause.Occur.MUST_NOT);
+        assertEquals(Collections.singleton(new Term("f", "bbb")), QueryTermsIndex.extractQueryTerms(must));
+
+        BooleanQuery mustNot = new BooleanQuery();
+        mustNot.add(termQuery("f", "a"), BooleanClause.Occur.MUST_NOT);
+        assertNull(QueryTermsIndex.extractQueryTerms(mustNot));
+
+        assertEquals(Collections.singleton(new Term("f", "a")), QueryTermsIndex.extractQueryTerms(new XConstantScoreQuery(new TermFilter(new Term("f", "a")))));
+        assertEquals(Collections.singleton(new Term("f", "a")), QueryTermsIndex.extractQueryTerms(new XFilteredQuery(new MatchAllDocsQuery(), new TermFilter(new Term("f", "a")))));
+    }
+
+    @Test
+    public void testCandidateQueries() throws Exception {
+        final Map<HashedBytesRef, Query> queries = new HashMap<HashedBytesRef, Query>();
+        final QueryTermsIndex index = new QueryTermsIndex();
+
+        final HashedBytesRef termId = new HashedBytesRef("1");
+        queries.put(termId, termQuery("field", "foo"));
+        final HashedBytesRef otherTermId = new HashedBytesRef("2");
+        queries.put(otherTermId, termQuery("field", "bar"));
+        final HashedBytesRef matchAllId = new HashedBytesRef("3");
+        queries.put(matchAllId, new MatchAllDocsQuery());
+        final HashedBytesRef otherFieldId = new HashedBytesRef("4");
+        queries.put(otherFieldId, termQuery("other_field", "foo"));
+        for (Map.Entry<HashedBytesRef, Query> entry : queries.entrySet()) {
+            index.add(entry.getKey(), null, entry.getValue());
+        }
+
+        MemoryIndex memoryIndex = new MemoryIndex();
+        memoryIndex.addField("field", "foo baz", new WhitespaceAnalyzer(Lucene.VERSION));
+        IndexReader reader = memoryIndex.createSearcher().getIndexReader();
+        assertEquals(new HashSet<HashedBytesRef>(Arrays.asList(termId, matchAllId)), index.candidateQueries(reader, queries).keySet());
+
+        // replace a query
+        Query previous = queries.put(otherTermId, termQuery("field", "baz"));
+        index.add(otherTermId, previous, queries.get(otherTermId));
+        assertEquals(new HashSet<HashedBytesRef>(Arrays.asList(termId, otherTermId, matchAllId)), index.candidateQueries(reader, queries).keySet());
+
+        // remove queries
+        index.remove(termId, queries.remove(termId));
+        index.remove(matchAllId, queries.remove(matchAllId));
+        assertEquals(Collections.singleton(otherTermId), index.candidateQueries(reader, queries).keySet());
+
+        index.clear();
+        assertTrue(index.candidateQueries(reader, queries).isEmpty());
+        reader.close();
+    }
+}
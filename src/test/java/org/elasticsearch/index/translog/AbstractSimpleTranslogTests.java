@@ -23,6 +23,7 @@ import org.apache.lucene.index.Term;
 import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.index.Index;
 import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.test.ElasticsearchTestCase;
 import org.hamcrest.MatcherAssert;
 import org.hamcrest.Matchers;
 import org.junit.After;
@@ -37,21 +38,26 @@ import static org.hamcrest.Matchers.equalTo;
 /**
  *
  */
-public abstract class AbstractSimpleTranslogTests {
+public abstract class AbstractSimpleTranslogTests extends ElasticsearchTestCase {
 
     protected final ShardId shardId = new ShardId(new Index("index"), 1);
 
     protected Translog translog;
 
     @Before
-    public void setUp() {
+    public void setUp() throws Exception {
+        super.setUp();
         translog = create();
         translog.newTranslog(1);
     }
 
     @After
-    public void tearDown() {
-        translog.closeWithDelete();
+    public void tearDown() throws Exception {
+        try {
+            translog.closeWithDelete();
+        } finally {
+            super.tearDown();
+        }
     }
 
     protected abstract Translog create();
@@ -0,0 +1,96 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.translog.fs;
+
+import org.elasticsearch.common.io.FileSystemUtils;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.index.translog.AbstractSimpleTranslogTests;
+import org.elasticsearch.index.translog.Translog;
+import org.elasticsearch.index.translog.TranslogStats;
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ *
+ */
+public class FsGroupCommitTranslogTests extends AbstractSimpleTranslogTests {
+
+    @Override
+    protected Translog create() {
+        return new FsTranslog(shardId,
+                ImmutableSettings.settingsBuilder()
+                        .put("index.translog.fs.type", FsTranslogFile.Type.GROUP_COMMIT.name())
+                        .put("index.translog.fs.buffer_size", "8k")
+                        .build(),
+                new File("data/fs-group-commit-translog"));
+    }
+
+    @Test
+    public void testConcurrentSyncOnEachOperation() throws Exception {
+        translog.syncOnEachOperation(true);
+        final int numberOfThreads = 16;
+        final int operationsPerThread = 100;
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        final CountDownLatch doneLatch = new CountDownLatch(numberOfThreads);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        for (int t = 0; t < numberOfThreads; t++) {
+            final int threadId = t;
+            new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        startLatch.await();
+                        for (int i = 0; i < operationsPerThread; i++) {
+                            translog.add(new Translog.Create("test", threadId + "_" + i, new byte[]{(byte) i}));
+                        }
+                    } catch (Throwable e) {
+                        failure.set(e);
+                    } finally {
+                        doneLatch.countDown();
+                    }
+                }
+            }.start();
+        }
+        startLatch.countDown();
+        doneLatch.await();
+        assertThat(failure.get(), nullValue());
+        assertThat(translog.syncNeeded(), equalTo(false));
+
+        TranslogStats stats = translog.stats();
+        assertThat(stats.estimatedNumberOfOperations(), equalTo(numberOfThreads * operationsPerThread));
+        assertThat(stats.getSyncCount(), greaterThan(0l));
+        // writers that queue up behind an fsync are released by the next one together, but whether any of them
+        // overlap depends on the scheduling of the threads, so an fsync per operation is allowed
+        assertThat(stats.getSyncCount(), lessThanOrEqualTo(stats.getSyncedOperations()));
+        assertThat(stats.getSyncedOperations(), equalTo((long) numberOfThreads * operationsPerThread));
+    }
+
+    @AfterClass
+    public static void cleanup() {
+        FileSystemUtils.deleteRecursively(new File("data/fs-group-commit-translog"), true);
+    }
+}
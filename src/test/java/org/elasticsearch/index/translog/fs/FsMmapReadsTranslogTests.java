@@ -0,0 +1,113 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.translog.fs;
+
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.io.FileSystemUtils;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.index.translog.AbstractSimpleTranslogTests;
+import org.elasticsearch.index.translog.Translog;
+import org.elasticsearch.index.translog.TranslogStreams;
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+
+/**
+ *
+ */
+public class FsMmapReadsTranslogTests extends AbstractSimpleTranslogTests {
+
+    @Override
+    protected Translog create() {
+        return new FsTranslog(shardId,
+                ImmutableSettings.settingsBuilder()
+                        .put("index.translog.fs.type", FsTranslogFile.Type.SIMPLE.name())
+                        .put("index.translog.fs.mmap_reads", true)
+                        .build(),
+                new File("data/fs-mmap-translog"));
+    }
+
+    @Test
+    public void testReadsWhileAppending() throws Exception {
+        int numOps = 200;
+        Translog.Location[] locations = new Translog.Location[numOps];
+        for (int i = 0; i < numOps; i++) {
+            locations[i] = translog.add(new Translog.Create("test", Integer.toString(i), new byte[]{(byte) i}));
+            // the last operations are in the part of the file that is not mapped yet
+            for (int j = Math.max(0, i - 2); j <= i; j++) {
+                assertThat(TranslogStreams.readSource(translog.read(locations[j])).source.toBytesArray(), equalTo(new BytesArray(new byte[]{(byte) j})));
+            }
+        }
+        Translog.Snapshot snapshot = translog.snapshot();
+        try {
+            int i = 0;
+            while (snapshot.hasNext()) {
+                Translog.Create create = (Translog.Create) snapshot.next();
+                assertThat(create.source().toBytesArray(), equalTo(new BytesArray(new byte[]{(byte) i})));
+                i++;
+            }
+            assertThat(i, equalTo(numOps));
+        } finally {
+            snapshot.release();
+        }
+    }
+
+    @Test
+    public void testOnlyWrittenChunksAreMapped() throws Exception {
+        File file = new File("data/fs-mmap-translog/chunks");
+        file.getParentFile().mkdirs();
+        RafReference raf = new RafReference(file, true, 16);
+        byte[] bytes = new byte[40];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) i;
+        }
+        raf.channel().write(ByteBuffer.wrap(bytes), 0);
+
+        // within the first chunk
+        assertThat(raf.read(2, 10, bytes.length), equalTo(Arrays.copyOfRange(bytes, 2, 12)));
+        assertThat(raf.mappedChunks(), equalTo(1));
+        // across two chunks, read through the channel
+        assertThat(raf.read(12, 8, bytes.length), equalTo(Arrays.copyOfRange(bytes, 12, 20)));
+        assertThat(raf.mapped(12, 8, bytes.length), nullValue());
+        assertThat(raf.mappedChunks(), equalTo(1));
+        // in the last chunk, which is not fully written yet
+        assertThat(raf.read(33, 5, bytes.length), equalTo(Arrays.copyOfRange(bytes, 33, 38)));
+        assertThat(raf.mapped(33, 5, bytes.length), nullValue());
+        // the second chunk is mapped on its own, the first mapping is kept as is
+        assertThat(raf.read(16, 16, bytes.length), equalTo(Arrays.copyOfRange(bytes, 16, 32)));
+        assertThat(raf.mappedChunks(), equalTo(2));
+
+        raf.decreaseRefCount(true);
+        assertThat(raf.mappedChunks(), equalTo(0));
+        assertThat(file.exists(), equalTo(false));
+    }
+
+    @AfterClass
+    public static void cleanup() {
+        FileSystemUtils.deleteRecursively(new File("data/fs-mmap-translog"), true);
+    }
+}
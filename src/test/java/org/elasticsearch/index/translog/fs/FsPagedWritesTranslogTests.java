@@ -0,0 +1,91 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.translog.fs;
+
+import org.elasticsearch.cache.recycler.MockPageCacheRecycler;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.io.FileSystemUtils;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.index.translog.AbstractSimpleTranslogTests;
+import org.elasticsearch.index.translog.Translog;
+import org.elasticsearch.index.translog.TranslogStreams;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ *
+ */
+public class FsPagedWritesTranslogTests extends AbstractSimpleTranslogTests {
+
+    private static ThreadPool threadPool;
+
+    @BeforeClass
+    public static void createThreadPool() {
+        threadPool = new ThreadPool();
+    }
+
+    @Override
+    protected Translog create() {
+        return new FsTranslog(shardId,
+                ImmutableSettings.settingsBuilder()
+                        .put("index.translog.fs.type", FsTranslogFile.Type.BUFFERED.name())
+                        .put("index.translog.fs.buffer_size", "8k")
+                        .put("index.translog.fs.paged_writes", true)
+                        .build(),
+                new File("data/fs-paged-translog"),
+                new MockPageCacheRecycler(ImmutableSettings.EMPTY, threadPool));
+    }
+
+    @Test
+    public void testOperationsSpanningPages() throws Exception {
+        Random random = getRandom();
+        byte[][] sources = new byte[20][];
+        Translog.Location[] locations = new Translog.Location[sources.length];
+        for (int i = 0; i < sources.length; i++) {
+            // from smaller than the buffer to larger than several pages
+            sources[i] = new byte[1 + random.nextInt(64 * 1024)];
+            random.nextBytes(sources[i]);
+            locations[i] = translog.add(new Translog.Create("test", Integer.toString(i), sources[i]));
+        }
+        MockPageCacheRecycler.ensureAllPagesAreReleased();
+        for (int i = 0; i < sources.length; i++) {
+            assertThat(TranslogStreams.readSource(translog.read(locations[i])).source.toBytesArray(), equalTo(new BytesArray(sources[i])));
+        }
+        translog.sync();
+        for (int i = 0; i < sources.length; i++) {
+            assertThat(TranslogStreams.readSource(translog.read(locations[i])).source.toBytesArray(), equalTo(new BytesArray(sources[i])));
+        }
+    }
+
+    @AfterClass
+    public static void cleanup() {
+        threadPool.shutdownNow();
+        threadPool = null;
+        FileSystemUtils.deleteRecursively(new File("data/fs-paged-translog"), true);
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.indices.recovery;
+
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.compress.CompressorFactory;
+import org.elasticsearch.common.io.stream.BytesStreamInput;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.test.ElasticsearchTestCase;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ * Tests that file chunks that are sent from the file serialize like the ones that are read on the heap, which
+ * is what the transport falls back to when it can't send the region from the file, eg. when compressing.
+ */
+public class RecoveryFileChunkRequestTests extends ElasticsearchTestCase {
+
+    private final ShardId shardId = new ShardId("test", 0);
+
+    @Test
+    public void testFileRegionSerializesLikeHeapContent() throws Exception {
+        testFileRegion(false);
+    }
+
+    @Test
+    public void testFileRegionCompressedFallback() throws Exception {
+        testFileRegion(true);
+    }
+
+    private void testFileRegion(boolean compress) throws Exception {
+        byte[] bytes = new byte[randomIntBetween(1, 1024)];
+        getRandom().nextBytes(bytes);
+        File file = new File(newTempDir(), "_0.cfs");
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            FileChannel fileChannel = raf.getChannel();
+            fileChannel.write(ByteBuffer.wrap(bytes), 0);
+            int position = randomIntBetween(0, bytes.length - 1);
+            int length = randomIntBetween(1, bytes.length - position);
+            BytesArray expected = new BytesArray(bytes, position, length);
+
+            RecoveryFileChunkRequest regionRequest = new RecoveryFileChunkRequest(1, shardId, "_0.cfs", position, bytes.length, "abc", new SharedFileChannel(fileChannel), length);
+            assertThat(regionRequest.fileChannel(), equalTo(fileChannel));
+            assertThat(regionRequest.regionPosition(), equalTo((long) position));
+            assertThat(regionRequest.regionLength(), equalTo(length));
+            RecoveryFileChunkRequest heapRequest = new RecoveryFileChunkRequest(1, shardId, "_0.cfs", position, bytes.length, "abc", new BytesArray(expected.toBytes()));
+
+            BytesReference regionBytes = serialize(regionRequest, compress);
+            assertThat(regionBytes.toBytesArray(), equalTo(serialize(heapRequest, compress).toBytesArray()));
+
+            RecoveryFileChunkRequest received = deserialize(regionBytes, compress);
+            assertThat(received.name(), equalTo("_0.cfs"));
+            assertThat(received.position(), equalTo((long) position));
+            assertThat(received.length(), equalTo((long) bytes.length));
+            assertThat(received.checksum(), equalTo("abc"));
+            assertThat(received.content().toBytesArray(), equalTo(expected));
+        } finally {
+            raf.close();
+        }
+    }
+
+    @Test
+    public void testFileChannelStaysOpenWhileRetained() throws Exception {
+        File file = new File(newTempDir(), "_0.cfs");
+        FileChannel fileChannel = new RandomAccessFile(file, "rw").getChannel();
+        SharedFileChannel sharedFileChannel = new SharedFileChannel(fileChannel);
+        RecoveryFileChunkRequest request = new RecoveryFileChunkRequest(1, shardId, "_0.cfs", 0, 1, "abc", sharedFileChannel, 1);
+
+        // the regions of requests that timed out may still be queued on the network
+        int pendingWrites = randomIntBetween(1, 5);
+        Releasable[] retained = new Releasable[pendingWrites];
+        for (int i = 0; i < pendingWrites; i++) {
+            retained[i] = request.retainFileChannel();
+        }
+        assertFalse(sharedFileChannel.release());
+        for (int i = 0; i < pendingWrites; i++) {
+            assertThat(fileChannel.isOpen(), equalTo(true));
+            assertThat(retained[i].release(), equalTo(i == pendingWrites - 1));
+        }
+        assertThat(fileChannel.isOpen(), equalTo(false));
+    }
+
+    private static BytesReference serialize(RecoveryFileChunkRequest request, boolean compress) throws Exception {
+        BytesStreamOutput bytes = new BytesStreamOutput();
+        StreamOutput out = compress ? CompressorFactory.defaultCompressor().streamOutput(bytes) : bytes;
+        request.writeTo(out);
+        out.close();
+        return bytes.bytes();
+    }
+
+    private static RecoveryFileChunkRequest deserialize(BytesReference bytes, boolean compress) throws Exception {
+        StreamInput in = new BytesStreamInput(bytes);
+        if (compress) {
+            in = CompressorFactory.compressor(bytes).streamInput(in);
+        }
+        RecoveryFileChunkRequest request = new RecoveryFileChunkRequest();
+        request.readFrom(in);
+        return request;
+    }
+}
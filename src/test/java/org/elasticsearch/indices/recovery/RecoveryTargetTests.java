@@ -0,0 +1,283 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.indices.recovery;
+
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.IndexOutput;
+import org.apache.lucene.store.RAMDirectory;
+import org.elasticsearch.Version;
+import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.transport.DummyTransportAddress;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.index.shard.IndexShardClosedException;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.index.store.StoreFileMetaData;
+import org.elasticsearch.test.ElasticsearchTestCase;
+import org.elasticsearch.transport.NodeDisconnectedException;
+import org.elasticsearch.transport.ReceiveTimeoutTransportException;
+import org.elasticsearch.transport.RemoteTransportException;
+import org.elasticsearch.transport.SendRequestTransportException;
+import org.elasticsearch.transport.TransportChannel;
+import org.elasticsearch.transport.TransportResponse;
+import org.elasticsearch.transport.TransportResponseOptions;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+/**
+ * Tests the copy of files from the recovery source to the target: chunks that are pipelined and arrive out of
+ * order, and copies that are resumed after the connection dropped.
+ */
+public class RecoveryTargetTests extends ElasticsearchTestCase {
+
+    private final ShardId shardId = new ShardId("test", 0);
+
+    private final DiscoveryNode node = new DiscoveryNode("node", DummyTransportAddress.INSTANCE, Version.CURRENT);
+
+    @Test
+    public void testPipelinedChunksArriveOutOfOrder() throws Exception {
+        byte[] source = randomFile();
+        int chunkSize = randomIntBetween(1, 64);
+        RAMDirectory directory = new RAMDirectory();
+        IndexOutput output = directory.createOutput("_0.cfs", IOContext.DEFAULT);
+        Map<Long, RecoveryStatus.PendingFileChunk> pendingChunks = new HashMap<Long, RecoveryStatus.PendingFileChunk>();
+
+        List<Long> arrivals = arrivals(chunkPositions(0, source.length, chunkSize), randomIntBetween(1, 5), false);
+        long written = 0;
+        for (long position : arrivals) {
+            written += writeFileChunk(output, pendingChunks, position, chunk(source, position, chunkSize));
+        }
+        assertThat(written, equalTo((long) source.length));
+        assertThat(pendingChunks.isEmpty(), equalTo(true));
+        output.close();
+        assertSameContent(directory, "_0.cfs", source);
+    }
+
+    @Test
+    public void testChunksAreAcknowledgedOnceWritten() throws Exception {
+        byte[] source = randomFile();
+        int chunkSize = randomIntBetween(1, 64);
+        int concurrentChunks = randomIntBetween(1, 5);
+        RAMDirectory directory = new RAMDirectory();
+        IndexOutput output = directory.createOutput("_0.cfs", IOContext.DEFAULT);
+        Map<Long, RecoveryStatus.PendingFileChunk> pendingChunks = new HashMap<Long, RecoveryStatus.PendingFileChunk>();
+
+        List<Long> arrivals = arrivals(chunkPositions(0, source.length, chunkSize), concurrentChunks, false);
+        int acknowledgedChunks = 0;
+        for (int i = 0; i < arrivals.size(); i++) {
+            long position = arrivals.get(i);
+            List<TransportChannel> acknowledged = new ArrayList<TransportChannel>();
+            RecoveryTarget.writeFileChunk(output, pendingChunks, position, chunk(source, position, chunkSize), new ChunkChannel(position), acknowledged);
+            for (TransportChannel channel : acknowledged) {
+                // only acknowledged once its bytes are written, so that the source doesn't send more chunks meanwhile
+                assertThat(((ChunkChannel) channel).position, lessThan(output.getFilePointer()));
+            }
+            acknowledgedChunks += acknowledged.size();
+            assertThat(acknowledgedChunks + pendingChunks.size(), equalTo(i + 1));
+            assertThat(pendingChunks.size(), lessThan(concurrentChunks));
+        }
+        assertThat(acknowledgedChunks, equalTo(arrivals.size()));
+        output.close();
+        assertSameContent(directory, "_0.cfs", source);
+    }
+
+    @Test
+    public void testChunksAlreadyWrittenAreIgnored() throws Exception {
+        byte[] source = randomFile();
+        int chunkSize = randomIntBetween(1, 64);
+        RAMDirectory directory = new RAMDirectory();
+        IndexOutput output = directory.createOutput("_0.cfs", IOContext.DEFAULT);
+        Map<Long, RecoveryStatus.PendingFileChunk> pendingChunks = new HashMap<Long, RecoveryStatus.PendingFileChunk>();
+
+        for (long position : chunkPositions(0, source.length, chunkSize)) {
+            writeFileChunk(output, pendingChunks, position, chunk(source, position, chunkSize));
+            // a chunk that a previous attempt of the recovery sent again
+            long stale = randomIntBetween(0, (int) position / chunkSize) * (long) chunkSize;
+            if (stale < position) {
+                assertThat(writeFileChunk(output, pendingChunks, stale, chunk(source, stale, chunkSize)), equalTo(0l));
+            }
+        }
+        output.close();
+        assertSameContent(directory, "_0.cfs", source);
+    }
+
+    @Test
+    public void testResumeAfterConnectionDroppedMidFile() throws Exception {
+        byte[] source = randomFile();
+        StoreFileMetaData md = new StoreFileMetaData("_0.cfs", source.length, "abc");
+        // at least two chunks, so that the connection can drop in the middle of the file
+        int chunkSize = randomIntBetween(1, source.length / 2);
+        int concurrentChunks = randomIntBetween(1, 5);
+        RAMDirectory directory = new RAMDirectory();
+        IndexOutput output = directory.createOutput("_0.cfs", IOContext.DEFAULT);
+        Map<Long, RecoveryStatus.PendingFileChunk> pendingChunks = new HashMap<Long, RecoveryStatus.PendingFileChunk>();
+
+        // the connection drops in the middle of the file, the chunks in flight at that time may be lost
+        List<Long> positions = chunkPositions(0, source.length, chunkSize);
+        List<Long> sent = positions.subList(0, randomIntBetween(1, positions.size() - 1));
+        for (long position : arrivals(sent, concurrentChunks, true)) {
+            writeFileChunk(output, pendingChunks, position, chunk(source, position, chunkSize));
+        }
+        assertThat(output.getFilePointer(), lessThanOrEqualTo(sent.get(sent.size() - 1) + chunkSize));
+
+        // the next attempt of the recovery drops the chunks that arrived ahead and resumes from the written bytes
+        pendingChunks.clear();
+        long recoveredLength = RecoverySource.recoveredLength(md, new StoreFileMetaData("_0.cfs", source.length, "abc"), output.getFilePointer());
+        assertThat(recoveredLength, equalTo(output.getFilePointer()));
+        int resumedChunkSize = randomIntBetween(1, 64);
+        for (long position : arrivals(chunkPositions(recoveredLength, source.length, resumedChunkSize), concurrentChunks, false)) {
+            writeFileChunk(output, pendingChunks, position, chunk(source, position, resumedChunkSize));
+        }
+        assertThat(output.getFilePointer(), equalTo((long) source.length));
+        assertThat(pendingChunks.isEmpty(), equalTo(true));
+        output.close();
+        assertSameContent(directory, "_0.cfs", source);
+    }
+
+    @Test
+    public void testResumeOnlyFromTheSameFile() {
+        StoreFileMetaData md = new StoreFileMetaData("_0.cfs", 100, "abc");
+        // nothing was copied by a previous attempt
+        assertThat(RecoverySource.recoveredLength(md, null, null), equalTo(-1l));
+        // the partial copy was made from a different file
+        assertThat(RecoverySource.recoveredLength(md, new StoreFileMetaData("_0.cfs", 100, "def"), 50l), equalTo(-1l));
+        assertThat(RecoverySource.recoveredLength(md, new StoreFileMetaData("_0.cfs", 120, "abc"), 50l), equalTo(-1l));
+        assertThat(RecoverySource.recoveredLength(md, new StoreFileMetaData("_0.cfs", 100, null), 50l), equalTo(-1l));
+        // the same file, partially or completely copied
+        assertThat(RecoverySource.recoveredLength(md, new StoreFileMetaData("_0.cfs", 100, "abc"), 50l), equalTo(50l));
+        assertThat(RecoverySource.recoveredLength(md, new StoreFileMetaData("_0.cfs", 100, "abc"), 100l), equalTo(100l));
+        // more bytes than the file has can't come from the same file
+        assertThat(RecoverySource.recoveredLength(md, new StoreFileMetaData("_0.cfs", 100, "abc"), 101l), equalTo(-1l));
+    }
+
+    @Test
+    public void testResumableFailures() {
+        // a chunk that failed to be sent because the connection dropped, as received by the target
+        Throwable connectionDropped = new RemoteTransportException("failed to recover", new RecoverFilesRecoveryException(shardId, 1, new ByteSizeValue(100),
+                new SendRequestTransportException(node, RecoveryTarget.Actions.FILE_CHUNK, new NodeDisconnectedException(node, RecoveryTarget.Actions.FILE_CHUNK))));
+        assertThat(RecoveryTarget.isResumableFailure(RecoveryTarget.unwrapRecoveryFailure(connectionDropped)), equalTo(true));
+
+        Throwable timedOut = new RemoteTransportException("failed to recover", new RecoverFilesRecoveryException(shardId, 1, new ByteSizeValue(100),
+                new ReceiveTimeoutTransportException(node, RecoveryTarget.Actions.FILE_CHUNK, "timed out")));
+        assertThat(RecoveryTarget.isResumableFailure(RecoveryTarget.unwrapRecoveryFailure(timedOut)), equalTo(true));
+
+        Throwable shardClosed = new RemoteTransportException("failed to recover", new RecoverFilesRecoveryException(shardId, 1, new ByteSizeValue(100),
+                new IndexShardClosedException(shardId)));
+        assertThat(RecoveryTarget.isResumableFailure(RecoveryTarget.unwrapRecoveryFailure(shardClosed)), equalTo(false));
+    }
+
+    private static long writeFileChunk(IndexOutput output, Map<Long, RecoveryStatus.PendingFileChunk> pendingChunks, long position, BytesReference content) throws IOException {
+        return RecoveryTarget.writeFileChunk(output, pendingChunks, position, content, new ChunkChannel(position), new ArrayList<TransportChannel>());
+    }
+
+    private byte[] randomFile() {
+        byte[] bytes = new byte[randomIntBetween(2, 1024)];
+        getRandom().nextBytes(bytes);
+        return bytes;
+    }
+
+    private static List<Long> chunkPositions(long from, long length, int chunkSize) {
+        List<Long> positions = new ArrayList<Long>();
+        for (long position = from; position < length; position += chunkSize) {
+            positions.add(position);
+        }
+        return positions;
+    }
+
+    /**
+     * The order in which the given chunks arrive when at most <tt>concurrentChunks</tt> of them are in flight,
+     * optionally losing some of the last ones in flight.
+     */
+    private List<Long> arrivals(List<Long> positions, int concurrentChunks, boolean loseLastInFlight) {
+        List<Long> arrivals = new ArrayList<Long>(positions.size());
+        for (int i = 0; i < positions.size(); i += concurrentChunks) {
+            List<Long> inFlight = new ArrayList<Long>(positions.subList(i, Math.min(positions.size(), i + concurrentChunks)));
+            Collections.shuffle(inFlight, getRandom());
+            if (loseLastInFlight && i + concurrentChunks >= positions.size()) {
+                inFlight = inFlight.subList(0, randomIntBetween(0, inFlight.size()));
+            }
+            arrivals.addAll(inFlight);
+        }
+        return arrivals;
+    }
+
+    private static BytesReference chunk(byte[] source, long position, int chunkSize) {
+        int length = (int) Math.min(chunkSize, source.length - position);
+        byte[] copy = new byte[length];
+        System.arraycopy(source, (int) position, copy, 0, length);
+        return new BytesArray(copy);
+    }
+
+    private static void assertSameContent(RAMDirectory directory, String name, byte[] source) throws Exception {
+        IndexInput input = directory.openInput(name, IOContext.DEFAULT);
+        try {
+            assertThat(input.length(), equalTo((long) source.length));
+            byte[] copy = new byte[source.length];
+            input.readBytes(copy, 0, copy.length);
+            assertThat(copy, equalTo(source));
+        } finally {
+            input.close();
+        }
+    }
+
+    /**
+     * The channel of a file chunk request, only used to find out which chunks are acknowledged.
+     */
+    private static class ChunkChannel implements TransportChannel {
+
+        final long position;
+
+        ChunkChannel(long position) {
+            this.position = position;
+        }
+
+        @Override
+        public String action() {
+            return RecoveryTarget.Actions.FILE_CHUNK;
+        }
+
+        @Override
+        public void sendResponse(TransportResponse response) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void sendResponse(TransportResponse response, TransportResponseOptions options) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void sendResponse(Throwable error) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
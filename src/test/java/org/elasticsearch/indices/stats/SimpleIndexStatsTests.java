@@ -27,10 +27,13 @@ import org.elasticsearch.action.admin.indices.stats.CommonStatsFlags.Flag;
 import org.elasticsearch.action.admin.indices.stats.IndicesStatsRequestBuilder;
 import org.elasticsearch.action.admin.indices.stats.IndicesStatsResponse;
 import org.elasticsearch.action.get.GetResponse;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.SearchType;
 import org.elasticsearch.common.Priority;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.io.stream.BytesStreamInput;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.indices.cache.query.IndicesQueryCache;
 import org.elasticsearch.test.ElasticsearchIntegrationTest;
 import org.elasticsearch.test.ElasticsearchIntegrationTest.ClusterScope;
 import org.elasticsearch.test.ElasticsearchIntegrationTest.Scope;
@@ -40,6 +43,7 @@ import java.io.IOException;
 import java.util.EnumSet;
 import java.util.Random;
 
+import static org.elasticsearch.search.aggregations.AggregationBuilders.terms;
 import static org.hamcrest.Matchers.*;
 
 /**
@@ -208,6 +212,48 @@ public class SimpleIndexStatsTests extends ElasticsearchIntegrationTest {
         assertThat(stats.getTotal().getSegments().getMemoryInBytes(), greaterThan(0l));
     }
 
+    @Test
+    public void testQueryCache() throws Exception {
+        prepareCreate("idx").setSettings("index.number_of_shards", 1, "index.number_of_replicas", 0,
+                IndicesQueryCache.INDEX_CACHE_QUERY_ENABLED, true).get();
+        ensureGreen();
+        for (int i = 0; i < 10; i++) {
+            client().prepareIndex("idx", "type", Integer.toString(i)).setSource("field", i % 2 == 0 ? "a" : "b").get();
+        }
+        refresh();
+
+        IndicesStatsResponse stats = client().admin().indices().prepareStats("idx").setQueryCache(true).get();
+        assertThat(stats.getTotal().getQueryCache().getMemorySizeInBytes(), equalTo(0l));
+        assertThat(stats.getTotal().getQueryCache().getMissCount(), equalTo(0l));
+
+        for (int i = 0; i < 3; i++) {
+            SearchResponse response = client().prepareSearch("idx").setSearchType(SearchType.COUNT)
+                    .addAggregation(terms("field").field("field")).get();
+            assertThat(response.getHits().getTotalHits(), equalTo(10l));
+        }
+        stats = client().admin().indices().prepareStats("idx").setQueryCache(true).get();
+        assertThat(stats.getTotal().getQueryCache().getMemorySizeInBytes(), greaterThan(0l));
+        assertThat(stats.getTotal().getQueryCache().getMissCount(), equalTo(1l));
+        assertThat(stats.getTotal().getQueryCache().getHitCount(), equalTo(2l));
+
+        // a refresh opens a new reader, the cached result is not used anymore
+        client().prepareIndex("idx", "type", "10").setSource("field", "a").get();
+        refresh();
+        SearchResponse response = client().prepareSearch("idx").setSearchType(SearchType.COUNT)
+                .addAggregation(terms("field").field("field")).get();
+        assertThat(response.getHits().getTotalHits(), equalTo(11l));
+        stats = client().admin().indices().prepareStats("idx").setQueryCache(true).get();
+        assertThat(stats.getTotal().getQueryCache().getMissCount(), equalTo(2l));
+        assertThat(stats.getTotal().getQueryCache().getHitCount(), equalTo(2l));
+
+        client().admin().indices().prepareClearCache("idx").setQueryCache(true).get();
+        stats = client().admin().indices().prepareStats("idx").setQueryCache(true).get();
+        assertThat(stats.getTotal().getQueryCache().getMemorySizeInBytes(), equalTo(0l));
+        client().prepareSearch("idx").setSearchType(SearchType.COUNT).addAggregation(terms("field").field("field")).get();
+        stats = client().admin().indices().prepareStats("idx").setQueryCache(true).get();
+        assertThat(stats.getTotal().getQueryCache().getMissCount(), equalTo(3l));
+    }
+
     @Test
     public void testAllFlags() throws Exception {
         // rely on 1 replica for this tests
@@ -318,7 +364,7 @@ public class SimpleIndexStatsTests extends ElasticsearchIntegrationTest {
     @Test
     public void testFlagOrdinalOrder() {
         Flag[] flags = new Flag[]{Flag.Store, Flag.Indexing, Flag.Get, Flag.Search, Flag.Merge, Flag.Flush, Flag.Refresh,
-                Flag.FilterCache, Flag.IdCache, Flag.FieldData, Flag.Docs, Flag.Warmer, Flag.Percolate, Flag.Completion, Flag.Segments, Flag.Translog};
+                Flag.FilterCache, Flag.IdCache, Flag.FieldData, Flag.Docs, Flag.Warmer, Flag.Percolate, Flag.Completion, Flag.Segments, Flag.Translog, Flag.QueryCache};
 
         assertThat(flags.length, equalTo(Flag.values().length));
         for (int i = 0; i < flags.length; i++) {
@@ -376,6 +422,9 @@ public class SimpleIndexStatsTests extends ElasticsearchIntegrationTest {
             case Translog:
                 builder.setTranslog(set);
                 break;
+            case QueryCache:
+                builder.setQueryCache(set);
+                break;
             default:
                 fail("new flag? " + flag);
                 break;
@@ -416,6 +465,8 @@ public class SimpleIndexStatsTests extends ElasticsearchIntegrationTest {
                 return response.getSegments() != null;
             case Translog:
                 return response.getTranslog() != null;
+            case QueryCache:
+                return response.getQueryCache() != null;
             default:
                 fail("new flag? " + flag);
                 return false;
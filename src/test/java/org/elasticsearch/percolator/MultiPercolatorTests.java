@@ -22,9 +22,12 @@ import org.elasticsearch.action.ShardOperationFailedException;
 import org.elasticsearch.action.percolate.*;
 import org.elasticsearch.client.Requests;
 import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.common.unit.Fuzziness;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.index.query.CommonTermsQueryBuilder;
 import org.elasticsearch.index.query.MatchQueryBuilder;
+import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.index.query.QueryBuilders;
 import org.elasticsearch.test.ElasticsearchIntegrationTest;
 import org.junit.Test;
@@ -297,6 +300,149 @@ public class MultiPercolatorTests extends ElasticsearchIntegrationTest {
 
     }
 
+    @Test
+    public void testBatchedDocsMatchSinglePercolation() throws Exception {
+        client().admin().indices().prepareCreate("test")
+                .setSettings(ImmutableSettings.settingsBuilder().put("index.number_of_shards", 1).build())
+                .execute().actionGet();
+        ensureGreen();
+
+        String[] values = new String[]{"a", "b", "c", "d", "e"};
+        int numQueries = randomIntBetween(10, 50);
+        logger.info("--> register {} queries", numQueries);
+        for (int i = 0; i < numQueries; i++) {
+            client().prepareIndex("test", PercolatorService.TYPE_NAME, Integer.toString(i))
+                    .setSource(jsonBuilder().startObject()
+                            .field("query", matchQuery("field1", randomFrom(values)))
+                            .field("group", i % 2 == 0 ? "even" : "odd")
+                            .endObject())
+                    .execute().actionGet();
+        }
+
+        int numDocs = randomIntBetween(2, 20);
+        PercolateRequestBuilder[] requests = new PercolateRequestBuilder[numDocs];
+        MultiPercolateRequestBuilder builder = client().prepareMultiPercolate();
+        for (int i = 0; i < numDocs; i++) {
+            PercolateRequestBuilder request = client().preparePercolate()
+                    .setIndices("test").setDocumentType("type")
+                    .setPercolateDoc(docBuilder().setDoc(jsonBuilder().startObject()
+                            .field("field1", randomFrom(values) + " " + randomFrom(values)).endObject()));
+            switch (randomInt(3)) {
+                case 0:
+                    request.setOnlyCount(true);
+                    break;
+                case 1:
+                    request.setSize(randomIntBetween(1, 5));
+                    break;
+                case 2:
+                    // not batched, the query is executed on the percolator queries
+                    request.setPercolateQuery(termQuery("group", "even"));
+                    break;
+            }
+            requests[i] = request;
+            builder.add(request);
+        }
+
+        MultiPercolateResponse response = builder.execute().actionGet();
+        assertThat(response.items().length, equalTo(numDocs));
+        for (int i = 0; i < numDocs; i++) {
+            MultiPercolateResponse.Item item = response.getItems()[i];
+            assertThat(item.errorMessage(), nullValue());
+            PercolateResponse expected = requests[i].execute().actionGet();
+            assertThat(item.getResponse().getCount(), equalTo(expected.getCount()));
+            if (expected.getMatches() == null) {
+                assertThat(item.getResponse().getMatches(), nullValue());
+            } else {
+                assertThat(item.getResponse().getMatches().length, equalTo(expected.getMatches().length));
+                if (expected.getMatches().length == expected.getCount()) {
+                    assertThat(convertFromTextArray(item.getResponse().getMatches(), "test"),
+                            arrayContainingInAnyOrder(convertFromTextArray(expected.getMatches(), "test")));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testBatchedDocsWithCollectionStatisticsQueries() throws Exception {
+        client().admin().indices().prepareCreate("test")
+                .setSettings(ImmutableSettings.settingsBuilder().put("index.number_of_shards", 1).build())
+                .execute().actionGet();
+        ensureGreen();
+
+        // whether these queries match depends on the document frequencies, which a batch of documents would skew
+        String[] values = new String[]{"a", "b", "c", "d", "e"};
+        int numQueries = randomIntBetween(10, 50);
+        logger.info("--> register {} queries", numQueries);
+        for (int i = 0; i < numQueries; i++) {
+            String text = randomFrom(values) + " " + randomFrom(values);
+            QueryBuilder query;
+            if (randomBoolean()) {
+                query = commonTerms("field1", text).cutoffFrequency(0.5f).lowFreqOperator(CommonTermsQueryBuilder.Operator.AND);
+            } else {
+                query = boolQuery().must(matchQuery("field1", text).cutoffFrequency(0.5f).operator(MatchQueryBuilder.Operator.AND));
+            }
+            client().prepareIndex("test", PercolatorService.TYPE_NAME, Integer.toString(i))
+                    .setSource(jsonBuilder().startObject().field("query", query).endObject())
+                    .execute().actionGet();
+        }
+
+        int numDocs = randomIntBetween(2, 20);
+        PercolateRequestBuilder[] requests = new PercolateRequestBuilder[numDocs];
+        MultiPercolateRequestBuilder builder = client().prepareMultiPercolate();
+        for (int i = 0; i < numDocs; i++) {
+            // most documents share the same frequent term
+            String text = (randomInt(4) == 0 ? randomFrom(values) : "a") + " " + randomFrom(values);
+            requests[i] = client().preparePercolate().setOnlyCount(true)
+                    .setIndices("test").setDocumentType("type")
+                    .setPercolateDoc(docBuilder().setDoc(jsonBuilder().startObject().field("field1", text).endObject()));
+            builder.add(requests[i]);
+        }
+
+        MultiPercolateResponse response = builder.execute().actionGet();
+        assertThat(response.items().length, equalTo(numDocs));
+        for (int i = 0; i < numDocs; i++) {
+            MultiPercolateResponse.Item item = response.getItems()[i];
+            assertThat(item.errorMessage(), nullValue());
+            assertThat(item.getResponse().getCount(), equalTo(requests[i].execute().actionGet().getCount()));
+        }
+    }
+
+    @Test
+    public void testBatchedDocsWithTopTermsQueries() throws Exception {
+        client().admin().indices().prepareCreate("test")
+                .setSettings(ImmutableSettings.settingsBuilder().put("index.number_of_shards", 1).build())
+                .execute().actionGet();
+        ensureGreen();
+
+        // only the two closest expansions of the fuzzy query are used
+        client().prepareIndex("test", PercolatorService.TYPE_NAME, "1")
+                .setSource(jsonBuilder().startObject()
+                        .field("query", fuzzyQuery("field1", "abcde").fuzziness(Fuzziness.TWO).maxExpansions(2))
+                        .endObject())
+                .execute().actionGet();
+
+        // the other documents of the batch contain closer terms than the last one, which would push its term out
+        // of the top expansions if the batch was rewritten as a whole
+        String[] texts = new String[]{"abcde", "abcdf", "abcxy"};
+        PercolateRequestBuilder[] requests = new PercolateRequestBuilder[texts.length];
+        MultiPercolateRequestBuilder builder = client().prepareMultiPercolate();
+        for (int i = 0; i < texts.length; i++) {
+            requests[i] = client().preparePercolate().setOnlyCount(true)
+                    .setIndices("test").setDocumentType("type")
+                    .setPercolateDoc(docBuilder().setDoc(jsonBuilder().startObject().field("field1", texts[i]).endObject()));
+            builder.add(requests[i]);
+        }
+
+        MultiPercolateResponse response = builder.execute().actionGet();
+        assertThat(response.items().length, equalTo(texts.length));
+        for (int i = 0; i < texts.length; i++) {
+            MultiPercolateResponse.Item item = response.getItems()[i];
+            assertThat(item.errorMessage(), nullValue());
+            assertThat(requests[i].execute().actionGet().getCount(), equalTo(1l));
+            assertThat(item.getResponse().getCount(), equalTo(1l));
+        }
+    }
+
     XContentBuilder getMatchingNestedDoc() throws IOException {
         XContentBuilder doc = XContentFactory.jsonBuilder();
         doc.startObject().field("companyname", "stark").startArray("employee")
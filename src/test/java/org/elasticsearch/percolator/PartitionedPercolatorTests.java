@@ -0,0 +1,103 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.percolator;
+
+import org.elasticsearch.action.percolate.PercolateResponse;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.test.ElasticsearchIntegrationTest;
+import org.elasticsearch.test.ElasticsearchIntegrationTest.ClusterScope;
+import org.elasticsearch.test.ElasticsearchIntegrationTest.Scope;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.elasticsearch.action.percolate.PercolateSourceBuilder.docBuilder;
+import static org.elasticsearch.common.xcontent.XContentFactory.jsonBuilder;
+import static org.elasticsearch.index.query.QueryBuilders.matchAllQuery;
+import static org.elasticsearch.index.query.QueryBuilders.termQuery;
+import static org.elasticsearch.percolator.PercolatorTests.convertFromTextArray;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertNoFailures;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Percolates documents with the queries of a request being split into partitions that are evaluated concurrently.
+ */
+@ClusterScope(scope = Scope.SUITE, numNodes = 1)
+public class PartitionedPercolatorTests extends ElasticsearchIntegrationTest {
+
+    @Override
+    protected Settings nodeSettings(int nodeOrdinal) {
+        return ImmutableSettings.settingsBuilder()
+                .put("percolator.concurrency", randomIntBetween(2, 8))
+                .put("percolator.concurrency.min_queries", 1)
+                .put(super.nodeSettings(nodeOrdinal))
+                .build();
+    }
+
+    @Test
+    public void testPartitionedPercolation() throws Exception {
+        prepareCreate("test").setSettings(ImmutableSettings.settingsBuilder().put("index.number_of_shards", 1).put("index.number_of_replicas", 0)).get();
+        ensureGreen();
+
+        final int numQueries = randomIntBetween(10, 200);
+        final Set<String> expectedMatches = new HashSet<String>();
+        for (int i = 0; i < numQueries; i++) {
+            final String id = Integer.toString(i);
+            if (i % 3 == 0) {
+                client().prepareIndex("test", PercolatorService.TYPE_NAME, id)
+                        .setSource(jsonBuilder().startObject().field("query", termQuery("field", "value")).endObject()).get();
+                expectedMatches.add(id);
+            } else if (i % 3 == 1) {
+                client().prepareIndex("test", PercolatorService.TYPE_NAME, id)
+                        .setSource(jsonBuilder().startObject().field("query", matchAllQuery()).endObject()).get();
+                expectedMatches.add(id);
+            } else {
+                client().prepareIndex("test", PercolatorService.TYPE_NAME, id)
+                        .setSource(jsonBuilder().startObject().field("query", termQuery("field", "other")).endObject()).get();
+            }
+        }
+
+        PercolateResponse response = client().preparePercolate().setIndices("test").setDocumentType("type")
+                .setPercolateDoc(docBuilder().setDoc("field", "value"))
+                .get();
+        assertNoFailures(response);
+        assertThat(response.getCount(), equalTo((long) expectedMatches.size()));
+        assertThat(convertFromTextArray(response.getMatches(), "test"), arrayContainingInAnyOrder(expectedMatches.toArray(new String[expectedMatches.size()])));
+
+        response = client().preparePercolate().setIndices("test").setDocumentType("type").setOnlyCount(true)
+                .setPercolateDoc(docBuilder().setDoc("field", "value"))
+                .get();
+        assertNoFailures(response);
+        assertThat(response.getCount(), equalTo((long) expectedMatches.size()));
+
+        final int size = randomIntBetween(1, expectedMatches.size());
+        response = client().preparePercolate().setIndices("test").setDocumentType("type").setSize(size)
+                .setPercolateDoc(docBuilder().setDoc("field", "value"))
+                .get();
+        assertNoFailures(response);
+        assertThat(response.getCount(), equalTo((long) expectedMatches.size()));
+        assertThat(response.getMatches().length, equalTo(size));
+        for (String match : convertFromTextArray(response.getMatches(), "test")) {
+            assertThat(expectedMatches, hasItem(match));
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.recovery;
+
+import org.elasticsearch.action.admin.cluster.health.ClusterHealthResponse;
+import org.elasticsearch.action.index.IndexRequestBuilder;
+import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.routing.ShardRouting;
+import org.elasticsearch.cluster.routing.allocation.command.MoveAllocationCommand;
+import org.elasticsearch.common.Priority;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.indices.recovery.RecoverySettings;
+import org.elasticsearch.test.ElasticsearchIntegrationTest;
+import org.elasticsearch.test.ElasticsearchIntegrationTest.ClusterScope;
+import org.elasticsearch.test.ElasticsearchIntegrationTest.Scope;
+import org.elasticsearch.transport.Transport;
+import org.elasticsearch.transport.TransportModule;
+import org.elasticsearch.transport.netty.NettyTransportModule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ * Relocates shards over the netty transport with the file chunks sent straight from the files.
+ */
+@ClusterScope(scope = Scope.TEST, numNodes = 0)
+public class ZeroCopyRelocationTests extends ElasticsearchIntegrationTest {
+
+    private Settings nodeSettings() {
+        return ImmutableSettings.settingsBuilder()
+                .put(TransportModule.TRANSPORT_TYPE_KEY, NettyTransportModule.class.getName())
+                // the regions are only sent from the files when the requests are not compressed
+                .put(Transport.TransportSettings.TRANSPORT_TCP_COMPRESS, false)
+                .put(RecoverySettings.INDICES_RECOVERY_COMPRESS, false)
+                .put(RecoverySettings.INDICES_RECOVERY_ZERO_COPY, true)
+                .put(RecoverySettings.INDICES_RECOVERY_FILE_CHUNK_SIZE, randomFrom(new String[]{"100b", "1kb", "512kb"}))
+                .put(RecoverySettings.INDICES_RECOVERY_CONCURRENT_FILE_CHUNKS, randomIntBetween(1, 4))
+                .build();
+    }
+
+    @Test
+    public void testRelocateWithZeroCopy() throws Exception {
+        final String node1 = cluster().startNode(nodeSettings());
+        assertAcked(client().admin().indices().prepareCreate("test")
+                .setSettings(ImmutableSettings.settingsBuilder()
+                        .put("index.number_of_shards", 1)
+                        .put("index.number_of_replicas", 0)
+                        // a file system directory, so that the store files can be sent with transferTo
+                        .put("index.store.type", "niofs")));
+        ensureGreen();
+
+        int numDocs = randomIntBetween(100, 1000);
+        List<IndexRequestBuilder> builders = new ArrayList<IndexRequestBuilder>();
+        for (int i = 0; i < numDocs; i++) {
+            builders.add(client().prepareIndex("test", "type", Integer.toString(i)).setSource("field", "value " + i, "num", i));
+        }
+        indexRandom(false, builders);
+        // flush, so that most of the documents are in the files that are copied
+        client().admin().indices().prepareFlush("test").get();
+        int translogDocs = randomIntBetween(0, 20);
+        for (int i = 0; i < translogDocs; i++) {
+            client().prepareIndex("test", "type", Integer.toString(numDocs + i)).setSource("field", "value " + i).get();
+        }
+        final long totalDocs = numDocs + translogDocs;
+
+        final String node2 = cluster().startNode(nodeSettings());
+        ClusterHealthResponse health = client().admin().cluster().prepareHealth().setWaitForEvents(Priority.LANGUID).setWaitForNodes("2").get();
+        assertThat(health.isTimedOut(), equalTo(false));
+
+        logger.info("--> relocate the shard from [{}] to [{}]", node1, node2);
+        client().admin().cluster().prepareReroute().add(new MoveAllocationCommand(new ShardId("test", 0), node1, node2)).get();
+        health = client().admin().cluster().prepareHealth().setWaitForEvents(Priority.LANGUID).setWaitForRelocatingShards(0).get();
+        assertThat(health.isTimedOut(), equalTo(false));
+
+        ClusterState state = client().admin().cluster().prepareState().get().getState();
+        ShardRouting shard = state.routingTable().index("test").shard(0).primaryShard();
+        assertThat(state.nodes().get(shard.currentNodeId()).name(), equalTo(node2));
+
+        client().admin().indices().prepareRefresh("test").get();
+        assertThat(client().prepareCount("test").get().getCount(), equalTo(totalDocs));
+        for (int i = 0; i < 10; i++) {
+            String id = Integer.toString(randomInt(numDocs - 1));
+            assertThat(client().prepareGet("test", "type", id).get().isExists(), equalTo(true));
+        }
+    }
+}
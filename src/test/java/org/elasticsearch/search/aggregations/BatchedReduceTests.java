@@ -0,0 +1,106 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations;
+
+import org.elasticsearch.action.index.IndexRequestBuilder;
+import org.elasticsearch.action.search.SearchRequestBuilder;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.SearchType;
+import org.elasticsearch.search.aggregations.bucket.histogram.Histogram;
+import org.elasticsearch.search.aggregations.bucket.terms.Terms;
+import org.elasticsearch.search.aggregations.metrics.sum.Sum;
+import org.elasticsearch.test.ElasticsearchIntegrationTest;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.elasticsearch.common.xcontent.XContentFactory.jsonBuilder;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.*;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertSearchResponse;
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ *
+ */
+public class BatchedReduceTests extends ElasticsearchIntegrationTest {
+
+    @Test
+    public void testBatchedReduceMatchesSingleReduce() throws Exception {
+        int numShards = between(3, 8);
+        prepareCreate("idx").setSettings("index.number_of_shards", numShards, "index.number_of_replicas", 0).get();
+        ensureGreen();
+
+        List<IndexRequestBuilder> builders = new ArrayList<IndexRequestBuilder>();
+        for (int term = 0; term < 10; term++) {
+            // distinct counts per term so that the order of the top terms is not subject to ties
+            for (int i = 0; i < (term + 1) * 2; i++) {
+                builders.add(client().prepareIndex("idx", "type").setSource(jsonBuilder()
+                        .startObject()
+                        .field("term", term)
+                        .field("value", randomIntBetween(0, 50))
+                        .endObject()));
+            }
+        }
+        indexRandom(true, builders);
+
+        long minDocCount = between(0, 3);
+        SearchType searchType = randomFrom(SearchType.QUERY_THEN_FETCH, SearchType.QUERY_AND_FETCH, SearchType.COUNT);
+        SearchResponse single = search(searchType, minDocCount).get();
+        SearchResponse batched = search(searchType, minDocCount).setBatchedReduceSize(2).get();
+        assertSearchResponse(single);
+        assertSearchResponse(batched);
+        assertThat(batched.getHits().totalHits(), equalTo(single.getHits().totalHits()));
+
+        Terms singleTerms = single.getAggregations().get("terms");
+        Terms batchedTerms = batched.getAggregations().get("terms");
+        assertThat(batchedTerms.getBuckets().size(), equalTo(5));
+        assertThat(batchedTerms.getBuckets().size(), equalTo(singleTerms.getBuckets().size()));
+        Iterator<Terms.Bucket> singleTermsIt = singleTerms.getBuckets().iterator();
+        for (Terms.Bucket bucket : batchedTerms.getBuckets()) {
+            Terms.Bucket expected = singleTermsIt.next();
+            assertThat(bucket.getKey(), equalTo(expected.getKey()));
+            assertThat(bucket.getDocCount(), equalTo(expected.getDocCount()));
+            Sum sum = bucket.getAggregations().get("sum");
+            Sum expectedSum = expected.getAggregations().get("sum");
+            assertThat(sum.getValue(), equalTo(expectedSum.getValue()));
+        }
+
+        Histogram singleHisto = single.getAggregations().get("histo");
+        Histogram batchedHisto = batched.getAggregations().get("histo");
+        assertThat(batchedHisto.getBuckets().size(), equalTo(singleHisto.getBuckets().size()));
+        Iterator<? extends Histogram.Bucket> singleHistoIt = singleHisto.getBuckets().iterator();
+        for (Histogram.Bucket bucket : batchedHisto.getBuckets()) {
+            Histogram.Bucket expected = singleHistoIt.next();
+            assertThat(bucket.getKeyAsNumber(), equalTo(expected.getKeyAsNumber()));
+            assertThat(bucket.getDocCount(), equalTo(expected.getDocCount()));
+            assertThat(bucket.getDocCount() >= minDocCount, equalTo(true));
+        }
+    }
+
+    private SearchRequestBuilder search(SearchType searchType, long minDocCount) {
+        return client().prepareSearch("idx")
+                .setSearchType(searchType)
+                .addAggregation(terms("terms").field("term").size(5).shardSize(10)
+                        .subAggregation(sum("sum").field("value")))
+                .addAggregation(histogram("histo").field("value").interval(5).minDocCount(minDocCount));
+    }
+}
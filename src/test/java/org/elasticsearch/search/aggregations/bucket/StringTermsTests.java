@@ -69,7 +69,8 @@ public class StringTermsTests extends ElasticsearchIntegrationTest {
     }
 
     public static String randomExecutionHint() {
-        return randomFrom(Arrays.asList(null, TermsAggregatorFactory.EXECUTION_HINT_VALUE_MAP, TermsAggregatorFactory.EXECUTION_HINT_VALUE_ORDINALS));
+        return randomFrom(Arrays.asList(null, TermsAggregatorFactory.EXECUTION_HINT_VALUE_MAP, TermsAggregatorFactory.EXECUTION_HINT_VALUE_ORDINALS,
+                TermsAggregatorFactory.EXECUTION_HINT_VALUE_GLOBAL_ORDINALS));
     }
 
     @Before
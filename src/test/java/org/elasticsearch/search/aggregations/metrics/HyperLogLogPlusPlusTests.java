@@ -0,0 +1,119 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations.metrics;
+
+import com.carrotsearch.hppc.IntOpenHashSet;
+import com.carrotsearch.hppc.hash.MurmurHash3;
+import org.elasticsearch.common.io.stream.BytesStreamInput;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.util.BigArraysTests;
+import org.elasticsearch.search.aggregations.metrics.cardinality.HyperLogLogPlusPlus;
+import org.elasticsearch.test.ElasticsearchTestCase;
+import org.junit.Test;
+
+import static org.elasticsearch.search.aggregations.metrics.cardinality.HyperLogLogPlusPlus.MAX_PRECISION;
+import static org.elasticsearch.search.aggregations.metrics.cardinality.HyperLogLogPlusPlus.MIN_PRECISION;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.equalTo;
+
+public class HyperLogLogPlusPlusTests extends ElasticsearchTestCase {
+
+    @Test
+    public void precisionFromThreshold() {
+        assertEquals(MIN_PRECISION, HyperLogLogPlusPlus.precisionFromThreshold(0));
+        assertEquals(MIN_PRECISION, HyperLogLogPlusPlus.precisionFromThreshold(1));
+        assertEquals(14, HyperLogLogPlusPlus.precisionFromThreshold(3000));
+        assertEquals(MAX_PRECISION, HyperLogLogPlusPlus.precisionFromThreshold(Long.MAX_VALUE / 16));
+        for (int i = 0; i < 1000; ++i) {
+            final long threshold = randomIntBetween(1, 40000);
+            final int precision = HyperLogLogPlusPlus.precisionFromThreshold(threshold);
+            // the linear counting set of a bucket holds 3/16 of the number of registers
+            assertTrue(3L << precision >= threshold * 16);
+        }
+    }
+
+    @Test
+    public void accuracy() {
+        final int numBuckets = randomIntBetween(1, 5);
+        final int precision = randomIntBetween(MIN_PRECISION, MAX_PRECISION - 4);
+        final HyperLogLogPlusPlus counts = new HyperLogLogPlusPlus(precision, BigArraysTests.randomCacheRecycler(), randomIntBetween(0, numBuckets));
+        final IntOpenHashSet[] distinct = new IntOpenHashSet[numBuckets];
+        for (int bucket = 0; bucket < numBuckets; ++bucket) {
+            distinct[bucket] = new IntOpenHashSet();
+        }
+        final int numValues = randomIntBetween(1, 100000);
+        final int maxValue = randomIntBetween(1, randomBoolean() ? 1000 : 1000000);
+        for (int i = 0; i < numValues; ++i) {
+            final int bucket = randomInt(numBuckets - 1);
+            final int value = randomInt(maxValue);
+            distinct[bucket].add(value);
+            counts.collect(bucket, MurmurHash3.hash((long) value));
+        }
+        final long linearCountingMax = 3L << precision >>> 4;
+        for (int bucket = 0; bucket < numBuckets; ++bucket) {
+            final long cardinality = counts.cardinality(bucket);
+            final int expected = distinct[bucket].size();
+            if (expected <= linearCountingMax) {
+                assertThat(cardinality, equalTo((long) expected));
+            } else {
+                // the standard error is 1.04/sqrt(m), leave room for the bias of the raw estimate
+                final double maxError = 6 * 1.04 / Math.sqrt(1 << precision);
+                assertThat((double) cardinality, closeTo(expected, maxError * expected));
+            }
+        }
+        counts.release();
+    }
+
+    @Test
+    public void merge() throws Exception {
+        final int precision = randomIntBetween(MIN_PRECISION, MAX_PRECISION - 4);
+        final HyperLogLogPlusPlus single = new HyperLogLogPlusPlus(precision, null, 1);
+        final HyperLogLogPlusPlus[] multi = new HyperLogLogPlusPlus[randomIntBetween(2, 5)];
+        final int[] buckets = new int[multi.length];
+        for (int i = 0; i < multi.length; ++i) {
+            multi[i] = new HyperLogLogPlusPlus(precision, BigArraysTests.randomCacheRecycler(), 1);
+            buckets[i] = randomInt(3);
+        }
+        final int numValues = randomIntBetween(1, 100000);
+        final int maxValue = randomIntBetween(1, randomBoolean() ? 1000 : 1000000);
+        for (int i = 0; i < numValues; ++i) {
+            final long hash = MurmurHash3.hash((long) randomInt(maxValue));
+            single.collect(0, hash);
+            final int index = randomInt(multi.length - 1);
+            multi[index].collect(buckets[index], hash);
+        }
+
+        final HyperLogLogPlusPlus merged = new HyperLogLogPlusPlus(precision, null, 1);
+        for (int i = 0; i < multi.length; ++i) {
+            // go through serialization like the reduce phase does
+            final BytesStreamOutput out = new BytesStreamOutput();
+            multi[i].writeTo(buckets[i], out);
+            final HyperLogLogPlusPlus read = HyperLogLogPlusPlus.readFrom(new BytesStreamInput(out.bytes()), null);
+            assertEquals(multi[i].cardinality(buckets[i]), read.cardinality(0));
+            merged.merge(0, read, 0);
+            multi[i].release();
+        }
+        final long expected = single.cardinality(0);
+        final long actual = merged.cardinality(0);
+        // merging sketches loses the low bits of the hashes of values that were collected in linear counting mode
+        assertThat((double) actual, closeTo(expected, Math.max(2, expected * 0.05)));
+    }
+
+}
@@ -0,0 +1,131 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations.metrics;
+
+import org.elasticsearch.common.io.stream.BytesStreamInput;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.search.aggregations.metrics.percentiles.TDigestState;
+import org.elasticsearch.test.ElasticsearchTestCase;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThan;
+
+public class TDigestStateTests extends ElasticsearchTestCase {
+
+    private static double[] randomValues(int count) {
+        final double[] values = new double[count];
+        final int distribution = randomInt(2);
+        for (int i = 0; i < count; ++i) {
+            switch (distribution) {
+            case 0:
+                values[i] = randomDouble();
+                break;
+            case 1:
+                values[i] = getRandom().nextGaussian();
+                break;
+            default:
+                values[i] = -Math.log(1 - randomDouble());
+                break;
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Returns the quantile of <tt>value</tt> among the sorted <tt>values</tt>.
+     */
+    private static double quantileOf(double[] sortedValues, double value) {
+        int index = Arrays.binarySearch(sortedValues, value);
+        if (index < 0) {
+            index = -1 - index;
+        }
+        return (double) index / sortedValues.length;
+    }
+
+    @Test
+    public void accuracy() {
+        final double compression = randomIntBetween(50, 300);
+        final TDigestState state = new TDigestState(compression);
+        final double[] values = randomValues(randomIntBetween(1000, 100000));
+        for (double value : values) {
+            state.add(value);
+        }
+        assertEquals(values.length, state.count());
+        Arrays.sort(values);
+        assertThat(state.quantile(0), equalTo(values[0]));
+        assertThat(state.quantile(1), equalTo(values[values.length - 1]));
+        for (double q : new double[] {0.001, 0.01, 0.1, 0.25, 0.5, 0.75, 0.9, 0.99, 0.999}) {
+            // errors are expressed in quantile space, they get smaller towards the tails
+            final double error = 10 * Math.sqrt(q * (1 - q)) / compression + 2d / values.length;
+            assertThat(quantileOf(values, state.quantile(q)), closeTo(q, error));
+        }
+    }
+
+    @Test
+    public void boundedMemory() {
+        final double compression = randomIntBetween(20, 300);
+        final TDigestState state = new TDigestState(compression);
+        final long initialSize = state.byteSize();
+        for (double value : randomValues(randomIntBetween(100000, 500000))) {
+            state.add(value);
+        }
+        state.quantile(0.5);
+        assertThat(state.byteSize(), lessThan(initialSize * 2));
+    }
+
+    @Test
+    public void merge() throws Exception {
+        final double compression = randomIntBetween(50, 300);
+        final TDigestState single = new TDigestState(compression);
+        final TDigestState[] parts = new TDigestState[randomIntBetween(2, 10)];
+        for (int i = 0; i < parts.length; ++i) {
+            parts[i] = new TDigestState(compression);
+        }
+        final double[] values = randomValues(randomIntBetween(1000, 100000));
+        for (double value : values) {
+            single.add(value);
+            parts[randomInt(parts.length - 1)].add(value);
+        }
+
+        final TDigestState merged = new TDigestState(compression);
+        for (TDigestState part : parts) {
+            // go through serialization like the reduce phase does
+            final BytesStreamOutput out = new BytesStreamOutput();
+            TDigestState.write(part, out);
+            final TDigestState read = TDigestState.read(new BytesStreamInput(out.bytes()));
+            assertEquals(part.count(), read.count());
+            merged.add(read);
+        }
+
+        assertEquals(single.count(), merged.count());
+        Arrays.sort(values);
+        assertThat(merged.quantile(0), equalTo(values[0]));
+        assertThat(merged.quantile(1), equalTo(values[values.length - 1]));
+        for (double q : new double[] {0.01, 0.1, 0.5, 0.9, 0.99}) {
+            final double error = 20 * Math.sqrt(q * (1 - q)) / compression + 2d / values.length;
+            assertThat(quantileOf(values, merged.quantile(q)), closeTo(q, error));
+        }
+    }
+
+}
@@ -0,0 +1,96 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.query;
+
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.sort.SortOrder;
+import org.elasticsearch.test.ElasticsearchIntegrationTest;
+import org.junit.Test;
+
+import static org.elasticsearch.common.xcontent.XContentFactory.jsonBuilder;
+import static org.elasticsearch.index.query.QueryBuilders.*;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertNoFailures;
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ */
+public class ConcurrentSegmentSearchTests extends ElasticsearchIntegrationTest {
+
+    @Test
+    public void testSameHitsAsSequentialSearch() throws Exception {
+        client().admin().indices().prepareCreate("test")
+                .setSettings(ImmutableSettings.settingsBuilder().put("index.number_of_shards", 1).put("index.number_of_replicas", 0))
+                .execute().actionGet();
+        ensureGreen();
+
+        // a refresh after each batch of docs to create several segments
+        int numSegments = between(2, 8);
+        int numDocs = 0;
+        for (int i = 0; i < numSegments; i++) {
+            int numSegmentDocs = between(1, 50);
+            for (int j = 0; j < numSegmentDocs; j++) {
+                client().prepareIndex("test", "type", Integer.toString(numDocs))
+                        .setSource(jsonBuilder().startObject()
+                                .field("num", numDocs)
+                                .field("text", randomFrom(new String[]{"foo", "bar", "foo bar", "foo foo bar"}))
+                                .endObject())
+                        .execute().actionGet();
+                numDocs++;
+            }
+            refresh();
+        }
+
+        int size = between(1, numDocs);
+        int maxConcurrentSegmentSearches = between(2, 4);
+
+        SearchResponse expected = client().prepareSearch("test").setQuery(matchQuery("text", "foo")).setSize(size).execute().actionGet();
+        SearchResponse actual = client().prepareSearch("test").setQuery(matchQuery("text", "foo")).setSize(size)
+                .setMaxConcurrentSegmentSearches(maxConcurrentSegmentSearches).execute().actionGet();
+        assertSameHits(expected, actual);
+
+        expected = client().prepareSearch("test").setQuery(matchAllQuery()).setSize(size)
+                .addSort("num", SortOrder.DESC).execute().actionGet();
+        actual = client().prepareSearch("test").setQuery(matchAllQuery()).setSize(size)
+                .addSort("num", SortOrder.DESC).setMaxConcurrentSegmentSearches(maxConcurrentSegmentSearches).execute().actionGet();
+        assertSameHits(expected, actual);
+
+        expected = client().prepareSearch("test").setQuery(matchAllQuery()).setPostFilter(termFilter("text", "bar"))
+                .setSize(size).addSort("num", SortOrder.ASC).execute().actionGet();
+        actual = client().prepareSearch("test").setQuery(matchAllQuery()).setPostFilter(termFilter("text", "bar"))
+                .setSize(size).addSort("num", SortOrder.ASC).setMaxConcurrentSegmentSearches(maxConcurrentSegmentSearches)
+                .execute().actionGet();
+        assertSameHits(expected, actual);
+    }
+
+    private void assertSameHits(SearchResponse expected, SearchResponse actual) {
+        assertNoFailures(expected);
+        assertNoFailures(actual);
+        assertThat(actual.getHits().getTotalHits(), equalTo(expected.getHits().getTotalHits()));
+        assertThat(actual.getHits().hits().length, equalTo(expected.getHits().hits().length));
+        for (int i = 0; i < expected.getHits().hits().length; i++) {
+            SearchHit expectedHit = expected.getHits().getAt(i);
+            SearchHit actualHit = actual.getHits().getAt(i);
+            assertThat(actualHit.id(), equalTo(expectedHit.id()));
+            assertThat(actualHit.score(), equalTo(expectedHit.score()));
+        }
+    }
+}
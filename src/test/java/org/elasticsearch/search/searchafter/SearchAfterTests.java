@@ -0,0 +1,105 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.searchafter;
+
+import org.elasticsearch.action.index.IndexRequestBuilder;
+import org.elasticsearch.action.search.SearchPhaseExecutionException;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.sort.SortOrder;
+import org.elasticsearch.test.ElasticsearchIntegrationTest;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import static org.elasticsearch.common.xcontent.XContentFactory.jsonBuilder;
+import static org.elasticsearch.index.query.QueryBuilders.matchAllQuery;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertNoFailures;
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ */
+public class SearchAfterTests extends ElasticsearchIntegrationTest {
+
+    @Test
+    public void testPaginateAllHits() throws Exception {
+        client().admin().indices().prepareCreate("test")
+                .setSettings(ImmutableSettings.settingsBuilder().put("index.number_of_shards", between(1, 5)))
+                .addMapping("type", jsonBuilder().startObject().startObject("type").startObject("properties")
+                        .startObject("num").field("type", "integer").endObject()
+                        .startObject("id").field("type", "string").field("index", "not_analyzed").endObject()
+                        .endObject().endObject().endObject())
+                .execute().actionGet();
+        ensureGreen();
+
+        int numDocs = between(50, 200);
+        List<String> expected = new ArrayList<String>();
+        IndexRequestBuilder[] builders = new IndexRequestBuilder[numDocs];
+        for (int i = 0; i < numDocs; i++) {
+            String id = String.format(Locale.ROOT, "%05d", i);
+            int num = i % 10;
+            expected.add(num + "_" + id);
+            builders[i] = client().prepareIndex("test", "type", id)
+                    .setSource(jsonBuilder().startObject().field("num", num).field("id", id).endObject());
+        }
+        indexRandom(true, builders);
+        Collections.sort(expected);
+
+        int size = between(1, 20);
+        List<String> actual = new ArrayList<String>();
+        Object[] searchAfter = null;
+        while (true) {
+            SearchResponse response = client().prepareSearch("test")
+                    .setQuery(matchAllQuery())
+                    .setSize(size)
+                    .addSort("num", SortOrder.ASC)
+                    .addSort("id", SortOrder.ASC)
+                    .setSearchAfter(searchAfter)
+                    .execute().actionGet();
+            assertNoFailures(response);
+            assertThat(response.getHits().getTotalHits(), equalTo((long) numDocs));
+            if (response.getHits().hits().length == 0) {
+                break;
+            }
+            for (SearchHit hit : response.getHits()) {
+                actual.add(hit.sortValues()[0] + "_" + hit.sortValues()[1]);
+            }
+            searchAfter = response.getHits().getAt(response.getHits().hits().length - 1).sortValues();
+        }
+        assertThat(actual, equalTo(expected));
+    }
+
+    @Test(expected = SearchPhaseExecutionException.class)
+    public void testRequiresSort() throws Exception {
+        client().prepareIndex("test", "type", "1").setSource("field", 1).setRefresh(true).execute().actionGet();
+        client().prepareSearch("test").setQuery(matchAllQuery()).setSearchAfter(1).execute().actionGet();
+    }
+
+    @Test(expected = SearchPhaseExecutionException.class)
+    public void testRequiresAsManyValuesAsSortFields() throws Exception {
+        client().prepareIndex("test", "type", "1").setSource("field", 1).setRefresh(true).execute().actionGet();
+        client().prepareSearch("test").setQuery(matchAllQuery()).addSort("field", SortOrder.ASC)
+                .setSearchAfter(1, "a").execute().actionGet();
+    }
+}
@@ -258,6 +258,9 @@ public final class TestCluster implements Iterable<Client> {
         if (random.nextBoolean()) {
             builder.put("cache.recycler.page.type", RandomPicks.randomFrom(random, CacheRecycler.Type.values()));
         }
+        if (random.nextBoolean()) {
+            builder.put("action.bulk.parse_concurrency", 1 + random.nextInt(4));
+        }
         if (random.nextInt(10) == 0) { // 10% of the nodes have a very frequent check interval
             builder.put(SearchService.KEEPALIVE_INTERVAL_KEY, TimeValue.timeValueMillis(10 + random.nextInt(2000)));
         } else if (random.nextInt(10) != 0) { // 90% of the time - 10% of the time we don't set anything